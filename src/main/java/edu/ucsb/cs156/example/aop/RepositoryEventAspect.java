@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.aop;
+
+import edu.ucsb.cs156.example.jfr.RepositoryEvent;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class is an Aspect that records a Java Flight Recorder
+ * RepositoryEvent for every call to a Spring Data repository, with the
+ * entity type and the number of rows returned.
+ */
+
+@Aspect
+@Component
+public class RepositoryEventAspect {
+
+  /**
+   * This method runs around every repository method.
+   * @param joinPoint the join point (injected by Spring framework)
+   * @return the result of the method
+   * @throws Throwable whatever the method threw
+   */
+  @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+  public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+    RepositoryEvent event = new RepositoryEvent();
+    event.begin();
+    Object result = null;
+    try {
+      result = joinPoint.proceed();
+      return result;
+    } finally {
+      event.finish(joinPoint.getThis(), joinPoint.getSignature().getName(), result);
+    }
+  }
+}
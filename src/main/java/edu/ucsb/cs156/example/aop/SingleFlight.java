@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation marks a read-only controller method whose concurrent
+ * calls with equal arguments may share a single execution.  See
+ * SingleFlightAspect.
+ * 
+ * Only use it on methods whose result depends on nothing but their
+ * arguments (not, e.g., on the current user), and that don't change anything.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleFlight {
+}
@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.aop;
+
+import edu.ucsb.cs156.example.services.SingleFlightGroup;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is an Aspect that lets concurrent calls of a method annotated with
+ * {@code @SingleFlight} share one execution when their arguments are equal.
+ *
+ * It is ordered to run after method security (so every caller is still
+ * authorized on its own) but before the transaction interceptor (so a
+ * caller that joins another's call doesn't open a transaction of its own).
+ */
+
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class SingleFlightAspect {
+
+  @Autowired
+  SingleFlightGroup singleFlightGroup;
+
+  /**
+   * This is the key identifying identical calls: the same method with equal arguments.
+   * @param method the long signature of the method
+   * @param args the arguments of the call
+   */
+  record Key(String method, List<Object> args) {
+  }
+
+  /**
+   * This method runs around any method annotated with {@code @SingleFlight}.
+   * @param joinPoint the join point (injected by Spring framework)
+   * @return the result of the method, possibly from a concurrent identical call
+   * @throws Throwable whatever the method threw
+   */
+  @Around("@annotation(edu.ucsb.cs156.example.aop.SingleFlight)")
+  public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+    String name = joinPoint.getSignature().getDeclaringType().getSimpleName()
+        + "." + joinPoint.getSignature().getName();
+    Key key = new Key(joinPoint.getSignature().toLongString(), Arrays.asList(joinPoint.getArgs()));
+    return singleFlightGroup.execute(name, key, joinPoint::proceed);
+  }
+}
@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.jfr.RequestEventFilter;
+import edu.ucsb.cs156.example.jfr.TimedJacksonHttpMessageConverter;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * The `FlightRecorderConfig` class adds the Java Flight Recorder events for
+ * requests and for JSON serialization (the events for repository calls
+ * come from RepositoryEventAspect).  They cost next to nothing unless a
+ * recording is running; see FlightRecorderController.
+ */
+@Configuration
+public class FlightRecorderConfig implements WebMvcConfigurer {
+
+  @Bean
+  public FilterRegistrationBean<RequestEventFilter> requestEventFilter() {
+    FilterRegistrationBean<RequestEventFilter> registration = new FilterRegistrationBean<>(new RequestEventFilter());
+    registration.addUrlPatterns("/api/*");
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 5);
+    return registration;
+  }
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.replaceAll(converter -> converter instanceof MappingJackson2HttpMessageConverter jackson
+        && !(converter instanceof TimedJacksonHttpMessageConverter)
+        ? new TimedJacksonHttpMessageConverter(jackson.getObjectMapper())
+        : converter);
+  }
+}
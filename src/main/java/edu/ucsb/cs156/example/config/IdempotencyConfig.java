@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.idempotency.IdempotencyFilter;
+import edu.ucsb.cs156.example.idempotency.IdempotencyProperties;
+import edu.ucsb.cs156.example.idempotency.IdempotencyStore;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The `IdempotencyConfig` class adds Idempotency-Key support to the
+ * POST /api/.../post endpoints unless app.idempotency.enabled is false.
+ * See IdempotencyFilter.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public IdempotencyStore idempotencyStore(JdbcTemplate jdbcTemplate, IdempotencyProperties properties) {
+    return new IdempotencyStore(jdbcTemplate, properties, System::currentTimeMillis);
+  }
+
+  /**
+   * The idempotency filter has to run after Spring Security's filters, so
+   * that it knows who the user is.
+   */
+  @Bean
+  public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore idempotencyStore,
+      CurrentUserService currentUserService) {
+    FilterRegistrationBean<IdempotencyFilter> registration =
+        new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyStore, currentUserService));
+    registration.addUrlPatterns("/api/*");
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 10);
+    return registration;
+  }
+}
@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.session.JdbcSessionFilter;
+import edu.ucsb.cs156.example.session.JdbcSessionProperties;
+import edu.ucsb.cs156.example.session.JdbcSessionStore;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The `JdbcSessionConfig` class keeps HttpSessions in the HTTP_SESSIONS table
+ * when app.session.mode=jdbc, so that requests can be served by any instance
+ * without sticky sessions.  See JdbcSessionStore.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.session.mode", havingValue = "jdbc")
+@EnableConfigurationProperties(JdbcSessionProperties.class)
+public class JdbcSessionConfig {
+
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public JdbcSessionStore jdbcSessionStore(JdbcTemplate jdbcTemplate, JdbcSessionProperties properties) {
+    return new JdbcSessionStore(jdbcTemplate, properties, System::currentTimeMillis);
+  }
+
+  /**
+   * The session filter has to run before Spring Security's filters, which
+   * read and write the login through the HttpSession.
+   */
+  @Bean
+  public FilterRegistrationBean<JdbcSessionFilter> jdbcSessionFilter(JdbcSessionStore jdbcSessionStore) {
+    FilterRegistrationBean<JdbcSessionFilter> registration = new FilterRegistrationBean<>(new JdbcSessionFilter(jdbcSessionStore));
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+    return registration;
+  }
+}
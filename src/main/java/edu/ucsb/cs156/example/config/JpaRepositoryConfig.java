@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.repositories.ProjectingRepositoryImpl;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * The `JpaRepositoryConfig` class makes ProjectingRepositoryImpl the base
+ * class of every repository, so that repositories extending
+ * ProjectingRepository get findAllFields.
+ */
+@Configuration
+@EnableJpaRepositories(basePackages = "edu.ucsb.cs156.example.repositories", repositoryBaseClass = ProjectingRepositoryImpl.class)
+public class JpaRepositoryConfig {
+}
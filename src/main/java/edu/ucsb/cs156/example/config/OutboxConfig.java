@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.outbox.FileOutboxSink;
+import edu.ucsb.cs156.example.outbox.OutboxProperties;
+import edu.ucsb.cs156.example.outbox.OutboxRelay;
+import edu.ucsb.cs156.example.outbox.OutboxSink;
+import edu.ucsb.cs156.example.outbox.OutboxWriter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The `OutboxConfig` class records every entity change in the OUTBOX table,
+ * in the same transaction as the change, and relays the events to the
+ * OutboxSink beans (or to app.outbox.file when there are none), unless
+ * app.outbox.enabled is false.  See OutboxWriter and OutboxRelay.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.outbox.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig {
+
+  @Bean
+  public OutboxWriter outboxWriter(JdbcTemplate jdbcTemplate) {
+    return new OutboxWriter(jdbcTemplate, System::currentTimeMillis);
+  }
+
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public OutboxRelay outboxRelay(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+      ObjectProvider<OutboxSink> sinkBeans, OutboxProperties properties, ObjectMapper mapper) {
+    List<OutboxSink> sinks = sinkBeans.orderedStream().toList();
+    if (sinks.isEmpty()) {
+      sinks = List.of(new FileOutboxSink(Path.of(properties.getFile()), mapper));
+    }
+    return new OutboxRelay(jdbcTemplate, transactionManager, sinks, properties, System::currentTimeMillis);
+  }
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.datasource.ReadWriteRoutingDataSource;
+import edu.ucsb.cs156.example.pool.ConnectionPoolManager;
+import edu.ucsb.cs156.example.pool.LoadSheddingInterceptor;
+import edu.ucsb.cs156.example.pool.PoolProperties;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * The `PoolConfig` class hands every Hikari connection pool (including the
+ * primary and replica behind ReadReplicaConfig's DataSource) to the
+ * ConnectionPoolManager as it is created, and sheds the low-priority
+ * requests in app.pool.shed-paths while a pool is saturated.
+ */
+@Configuration
+@EnableConfigurationProperties(PoolProperties.class)
+public class PoolConfig implements WebMvcConfigurer {
+
+  @Autowired
+  PoolProperties poolProperties;
+
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public ConnectionPoolManager connectionPoolManager(PoolProperties properties) {
+    return new ConnectionPoolManager(properties, System::currentTimeMillis);
+  }
+
+  /**
+   * This is static so that it is registered before the DataSource is created.
+   */
+  @Bean
+  public static BeanPostProcessor connectionPoolManagerPostProcessor(ObjectProvider<ConnectionPoolManager> manager) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource pool) {
+          manager.getObject().manage(pool);
+        } else if (bean instanceof ReadWriteRoutingDataSource routing) {
+          for (Object pool : new Object[] { routing.getPrimary(), routing.getReplica() }) {
+            if (pool instanceof HikariDataSource hikari) {
+              manager.getObject().manage(hikari);
+            }
+          }
+        }
+        return bean;
+      }
+    };
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new LoadSheddingInterceptor(connectionPoolManager(poolProperties), poolProperties))
+        .addPathPatterns(poolProperties.getShedPaths());
+  }
+}
@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.querylog.MonitoredDataSource;
+import edu.ucsb.cs156.example.querylog.QueryLogProperties;
+import edu.ucsb.cs156.example.querylog.QueryMonitor;
+import edu.ucsb.cs156.example.querylog.StatementCountingFilter;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The `QueryLogConfig` class wraps the application's DataSource so that
+ * every SQL statement is timed, slow statements are logged, and requests
+ * that run more statements than app.query-log.statement-budget are logged,
+ * unless app.query-log.enabled is false.  The timings are at
+ * GET /api/admin/metrics/queries.
+ */
+@Configuration
+@EnableConfigurationProperties(QueryLogProperties.class)
+public class QueryLogConfig {
+
+  /**
+   * The monitor exists even when the query log is disabled, so that the
+   * metrics endpoint still works (with nothing to report).
+   */
+  @Bean
+  public QueryMonitor queryMonitor(QueryLogProperties properties) {
+    return new QueryMonitor(properties);
+  }
+
+  /**
+   * This is static so that it is registered before the DataSource is
+   * created.  It wraps the DataSource after it is initialized, so that
+   * PoolConfig still sees the Hikari pools themselves.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "app.query-log.enabled", havingValue = "true", matchIfMissing = true)
+  public static BeanPostProcessor queryMonitorPostProcessor(ObjectProvider<QueryMonitor> monitor) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof MonitoredDataSource)) {
+          return new MonitoredDataSource(dataSource, monitor.getObject());
+        }
+        return bean;
+      }
+    };
+  }
+
+  /**
+   * The counting filter runs before Spring Security's filters, so that the
+   * statements run to load the current user are counted too.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "app.query-log.enabled", havingValue = "true", matchIfMissing = true)
+  public FilterRegistrationBean<StatementCountingFilter> statementCountingFilter(QueryMonitor queryMonitor) {
+    FilterRegistrationBean<StatementCountingFilter> registration =
+        new FilterRegistrationBean<>(new StatementCountingFilter(queryMonitor));
+    registration.addUrlPatterns("/api/*");
+    registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 20);
+    return registration;
+  }
+}
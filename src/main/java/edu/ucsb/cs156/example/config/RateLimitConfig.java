@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.ratelimit.RateLimitInterceptor;
+import edu.ucsb.cs156.example.ratelimit.RateLimitProperties;
+import edu.ucsb.cs156.example.ratelimit.TokenBucketRateLimiter;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * The `RateLimitConfig` class registers the per user, per route rate limiter
+ * for all of the /api endpoints when app.rate-limit.enabled is true.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig implements WebMvcConfigurer {
+
+  @Autowired
+  RateLimitProperties rateLimitProperties;
+
+  @Autowired
+  CurrentUserService currentUserService;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    if (!rateLimitProperties.getEnabled()) {
+      return;
+    }
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(rateLimitProperties.getMaxKeys(),
+        rateLimitProperties.getSweepInterval(), System::nanoTime);
+    registry.addInterceptor(new RateLimitInterceptor(limiter, rateLimitProperties, currentUserService))
+        .addPathPatterns("/api/**");
+  }
+}
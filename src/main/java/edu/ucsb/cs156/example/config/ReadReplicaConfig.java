@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.datasource.ReadWriteRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+/**
+ * The `ReadReplicaConfig` class replaces the application's DataSource with one
+ * that sends read-only transactions to a replica, when
+ * app.datasource.replica.url is set.  Without it, everything uses
+ * spring.datasource as before.
+ * 
+ * The replica uses the primary's username and password unless
+ * app.datasource.replica.username / password are set.  Both pools take
+ * their settings (maximum-pool-size, timeouts, etc.) from
+ * spring.datasource.hikari.*, just as Spring Boot's own pool would.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica.url:}'.isEmpty()")
+@Slf4j
+public class ReadReplicaConfig {
+
+  @Bean
+  @Primary
+  public ReadWriteRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+      @Value("${app.datasource.replica.url}") String replicaUrl,
+      @Value("${app.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+      @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword) {
+    Binder binder = Binder.get(environment);
+    HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+    primary.setPoolName("primary");
+    HikariDataSource replica = DataSourceBuilder.create()
+        .type(HikariDataSource.class)
+        .url(replicaUrl)
+        .username(replicaUsername)
+        .password(replicaPassword)
+        .build();
+    binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+    replica.setPoolName("replica");
+    replica.setReadOnly(true);
+    log.info("read-only transactions will use the replica at {}", replicaUrl);
+    return new ReadWriteRoutingDataSource(primary, replica);
+  }
+}
@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.reference.ReferenceTable;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The `ReferenceDataConfig` class defines the ReferenceTable beans, which
+ * serve the small tables read on nearly every page from memory.  They are
+ * kept up to date by ReferenceDataRefresher.
+ */
+@Configuration
+public class ReferenceDataConfig {
+
+  @Bean
+  public ReferenceTable<UCSBDiningCommons, String> diningCommonsTable(UCSBDiningCommonsRepository repository,
+      ObjectMapper mapper) {
+    return new ReferenceTable<>(UCSBDiningCommons.class, repository, UCSBDiningCommons::getCode, mapper);
+  }
+
+  @Bean
+  public ReferenceTable<UCSBOrganization, String> organizationTable(UCSBOrganizationRepository repository,
+      ObjectMapper mapper) {
+    return new ReferenceTable<>(UCSBOrganization.class, repository, UCSBOrganization::getOrgCode, mapper);
+  }
+}
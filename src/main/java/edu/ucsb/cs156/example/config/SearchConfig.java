@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.search.RepositorySearchSource;
+import edu.ucsb.cs156.example.search.SearchSource;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * The `SearchConfig` class defines the SearchSource beans that search the
+ * database for the search across entity types (see SearchService).  Menu
+ * items are searched by MenuItemSearchIndex instead.
+ */
+@Configuration
+public class SearchConfig {
+
+  @Bean
+  public SearchSource restaurantSearchSource(RestaurantRepository repository, PlatformTransactionManager transactionManager,
+      @Value("${app.search.timeout:500ms}") Duration timeout) {
+    return new RepositorySearchSource<Restaurant>("restaurants",
+        (query, page) -> repository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(query, query, page),
+        Restaurant::getId, Restaurant::getName,
+        transactionManager, timeout);
+  }
+
+  @Bean
+  public SearchSource articlesSearchSource(ArticlesRepository repository, PlatformTransactionManager transactionManager,
+      @Value("${app.search.timeout:500ms}") Duration timeout) {
+    return new RepositorySearchSource<Articles>("articles",
+        (query, page) -> repository.findByTitleContainingIgnoreCaseOrExplanationContainingIgnoreCase(query, query, page),
+        Articles::getId, Articles::getTitle,
+        transactionManager, timeout);
+  }
+
+  @Bean
+  public SearchSource ucsbOrganizationSearchSource(UCSBOrganizationRepository repository, PlatformTransactionManager transactionManager,
+      @Value("${app.search.timeout:500ms}") Duration timeout) {
+    return new RepositorySearchSource<UCSBOrganization>("ucsborganization",
+        (query, page) -> repository
+            .findByOrgTranslationContainingIgnoreCaseOrOrgTranslationShortContainingIgnoreCaseOrOrgCodeContainingIgnoreCase(
+                query, query, query, page),
+        UCSBOrganization::getOrgCode, UCSBOrganization::getOrgTranslation,
+        transactionManager, timeout);
+  }
+
+  @Bean
+  public SearchSource ucsbDiningCommonsSearchSource(UCSBDiningCommonsRepository repository, PlatformTransactionManager transactionManager,
+      @Value("${app.search.timeout:500ms}") Duration timeout) {
+    return new RepositorySearchSource<UCSBDiningCommons>("ucsbdiningcommons",
+        (query, page) -> repository.findByNameContainingIgnoreCaseOrCodeContainingIgnoreCase(query, query, page),
+        UCSBDiningCommons::getCode, UCSBDiningCommons::getName,
+        transactionManager, timeout);
+  }
+}
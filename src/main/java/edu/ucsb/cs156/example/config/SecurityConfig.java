@@ -2,11 +2,16 @@ package edu.ucsb.cs156.example.config;
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.RequestMemo;
+import edu.ucsb.cs156.example.session.SessionTokenCodec;
+import edu.ucsb.cs156.example.session.SignedCookieAuthorizationRequestRepository;
+import edu.ucsb.cs156.example.session.SignedCookieSecurityContextRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -71,12 +76,17 @@ public class SecurityConfig {
    * including authorization, exception handling, OAuth2 login, CSRF protection,
    * and logout behavior.
    * 
+   * When app.session.mode=stateless, the login is kept in a signed cookie
+   * (see SessionTokenCodec) rather than the HttpSession, so that requests can be
+   * served by any instance without sticky sessions.
+   * 
    * @param http injected HttpSecurity object (injected by Spring framework)
    *             //
+   * @param sessionTokenCodec the codec for signed session tokens; only available in stateless mode
    */
   // https://docs.spring.io/spring-security/reference/servlet/exploits/csrf.html#csrf-integration-javascript-spa
   @Bean
-  public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+  public SecurityFilterChain filterChain(HttpSecurity http, ObjectProvider<SessionTokenCodec> sessionTokenCodec) throws Exception {
     http
         .exceptionHandling(handling -> handling.authenticationEntryPoint(new Http403ForbiddenEntryPoint()))
         .oauth2Login(
@@ -87,6 +97,17 @@ public class SecurityConfig {
         .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
         .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
         .logout(logout -> logout.logoutRequestMatcher(new AntPathRequestMatcher("/logout")).logoutSuccessUrl("/"));
+
+    SessionTokenCodec codec = sessionTokenCodec.getIfAvailable();
+    if (codec != null) {
+      log.info("using stateless signed-token sessions");
+      http
+          .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+          .securityContext(context -> context.securityContextRepository(new SignedCookieSecurityContextRepository(codec)))
+          .oauth2Login(oauth2 -> oauth2.authorizationEndpoint(
+              endpoint -> endpoint.authorizationRequestRepository(new SignedCookieAuthorizationRequestRepository(codec))))
+          .logout(logout -> logout.deleteCookies(SignedCookieSecurityContextRepository.COOKIE_NAME));
+    }
     return http.build();
   }
 
@@ -133,7 +154,8 @@ public class SecurityConfig {
   /**
    * This method checks if the given email belongs to an admin user either from a
    * predefined
-   * list or by querying the user repository.
+   * list or by querying the user repository.  The query runs at most once
+   * per request for each email; see RequestMemo.
    * 
    * @param email email address of the user
    * @return whether the user with the given email is an admin
@@ -142,8 +164,10 @@ public class SecurityConfig {
     if (adminEmails.contains(email)) {
       return true;
     }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return RequestMemo.get("admin." + email, () -> {
+      Optional<User> u = userRepository.findByEmail(email);
+      return u.isPresent() && u.get().getAdmin();
+    });
   }
 }
 
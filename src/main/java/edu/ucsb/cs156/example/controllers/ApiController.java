@@ -1,15 +1,32 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+import edu.ucsb.cs156.example.reference.ReferenceTable;
+import edu.ucsb.cs156.example.repositories.ProjectingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.repository.CrudRepository;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,9 +35,17 @@ import java.util.Map;
 
 @Slf4j
 public abstract class ApiController {
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private MissingEntityCache missingEntityCache;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
   /**
    * This method returns the current user.
    * @return the current user
@@ -38,17 +63,146 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method looks up an entity by id, skipping the database when the id
+   * recently came back as not found.
+   * @param <T> the entity type
+   * @param <ID> the type of the id
+   * @param repository the repository for the entity
+   * @param entityType the class of the entity, e.g. Articles.class
+   * @param id the id to look up
+   * @return the entity
+   * @throws EntityNotFoundException if there is no entity with that id
+   */
+  protected <T, ID> T findOrThrow(CrudRepository<T, ID> repository, Class<T> entityType, ID id) {
+    if (missingEntityCache.isKnownMissing(entityType, id)) {
+      throw new EntityNotFoundException(entityType, id);
+    }
+    return repository.findById(id).orElseThrow(() -> {
+      missingEntityCache.recordNotFound(entityType, id);
+      return new EntityNotFoundException(entityType, id);
+    });
+  }
+
+  /**
+   * This method lists all entities, or, when fields are requested, only those
+   * fields of each entity (so that only those columns are selected).
+   * @param repository the repository for the entity
+   * @param fields the fields to return, or null for whole entities
+   * @return the entities, or one map per entity from field name to value
+   * @throws UnknownFieldException if the entity does not have one of the fields
+   */
+  protected Iterable<?> findAll(ProjectingRepository<?, ?> repository, List<String> fields) {
+    if (fields == null || fields.isEmpty()) {
+      return repository.findAll();
+    }
+    return repository.findAllFields(fields);
+  }
+
+  /**
+   * This method lists all entities of a reference table from its snapshot,
+   * without reading the database or serializing anything, or, when fields
+   * are requested, only those fields from the database.
+   * @param table the snapshot of the table
+   * @param repository the repository for the entity
+   * @param fields the fields to return, or null for whole entities
+   * @return the entities, or one map per entity from field name to value
+   * @throws UnknownFieldException if the entity does not have one of the fields
+   */
+  protected ResponseEntity<?> findAll(ReferenceTable<?, ?> table, ProjectingRepository<?, ?> repository,
+      List<String> fields) {
+    if (fields == null || fields.isEmpty()) {
+      return preSerialized(table.getSnapshot().all());
+    }
+    return ResponseEntity.ok(repository.findAllFields(fields));
+  }
+
+  /**
+   * This method looks up an entity of a reference table in its snapshot,
+   * without reading the database or serializing anything.
+   * @param table the snapshot of the table
+   * @param entityType the class of the entity, e.g. UCSBDiningCommons.class
+   * @param id the id to look up
+   * @return the entity
+   * @throws EntityNotFoundException if there is no entity with that id
+   */
+  protected ResponseEntity<?> findOrThrow(ReferenceTable<?, ?> table, Class<?> entityType, Object id) {
+    byte[] json = table.getSnapshot().byId().get(id);
+    if (json == null) {
+      throw new EntityNotFoundException(entityType, id);
+    }
+    return preSerialized(json);
+  }
+
+  private static ResponseEntity<byte[]> preSerialized(byte[] json) {
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+  }
+
+  /**
+   * This method should be called when an entity is created, so that an earlier
+   * not found result for the same id is not served from the cache.
+   * @param entityType the class of the entity, e.g. Articles.class
+   * @param id the id of the new entity
+   */
+  protected void forgetMissing(Class<?> entityType, Object id) {
+    missingEntityCache.forget(entityType, id);
+  }
+
+  /**
+   * This method should be called after entities are created in bulk, when
+   * their ids are not known, so that no earlier not found result is served
+   * from the cache.
+   * @param entityType the class of the entity, e.g. Articles.class
+   */
+  protected void forgetAllMissing(Class<?> entityType) {
+    missingEntityCache.forgetAll(entityType);
+  }
+
+  /**
+   * This method should be called after an entity is created, updated or
+   * deleted, so that clients subscribed to GET /api/events are told.  The
+   * event is only sent once the current transaction (if any) commits.
+   * @param entityType the class of the entity, e.g. Articles.class
+   * @param action what happened to the entity
+   * @param id the id of the entity, or null for a bulk import
+   */
+  protected void publishChange(Class<?> entityType, ChangeAction action, Object id) {
+    eventPublisher.publishEvent(new EntityChangeEvent(entityType.getSimpleName(), action, id));
+  }
+
   /**
    * This method handles the EntityNotFoundException.
+   * 
+   * The body is written straight to the response rather than building a map
+   * for the message converters, since this is the hot path when clients probe for ids.
    * @param e the exception
-   * @return a map with the type and message of the exception
+   * @param response the response to write the type and message of the exception to
+   * @throws IOException if the response cannot be written
    */
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
-  public Object handleGenericException(Throwable e) {
+  public void handleGenericException(EntityNotFoundException e, HttpServletResponse response) throws IOException {
+    missingEntityCache.countNotFound(e.getEntityType());
+    response.setStatus(HttpStatus.NOT_FOUND.value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    try (JsonGenerator json = JSON_FACTORY.createGenerator(response.getOutputStream())) {
+      json.writeStartObject();
+      json.writeStringField("type", e.getClass().getSimpleName());
+      json.writeStringField("message", e.getMessage());
+      json.writeEndObject();
+    }
+  }
+
+  /**
+   * This method handles the UnknownFieldException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ UnknownFieldException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleUnknownFieldException(UnknownFieldException e) {
     return Map.of(
       "type", e.getClass().getSimpleName(),
-      "message", e.getMessage()
-    );
+      "message", e.getMessage());
   }
 }
@@ -1,9 +1,11 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Articles;
-import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.urlindex.ArticleUrlIndex;
+import edu.ucsb.cs156.example.urlindex.CanonicalUrl;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,20 +15,28 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * This is a REST controller for Articles
@@ -41,31 +51,39 @@ public class ArticlesController extends ApiController {
     @Autowired
     ArticlesRepository ArticlesRepository;
 
+    @Autowired
+    ArticleUrlIndex articleUrlIndex;
+
     /**
      * List all articles
      * 
+     * @param fields the fields to return, or all of them if omitted
      * @return an iterable of Articles
      */
     @Operation(summary= "List all articles", description = "Retrieve all articles from the database")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("/all")
-    public Iterable<Articles> allArticles() {
-        Iterable<Articles> articles = ArticlesRepository.findAll();
-        return articles;
+    public Iterable<?> allArticles(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(ArticlesRepository, fields);
     }
 
     /**
-     * Create a new article
+     * Create a new article, unless there already is one with the same URL
+     * (after canonicalizing it, see CanonicalUrl), in which case that one is
+     * returned unchanged.
      * 
      * @param title the title of the article
      * @param url the URL of the article
      * @param explanation the explanation of the article
      * @param email the associated email
      * @param dateAdded the date the article was added
-     * @return the saved Article
+     * @return the saved Article, or the existing one with the same URL
      */
     @Operation(summary= "Create a new article", description = "Create a new article by providing the necessary details")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PostMapping("/post")
     public Articles postArticle(
             @Parameter(description = "Title of the article", example = "First Article") @RequestParam String title,
@@ -78,6 +96,14 @@ public class ArticlesController extends ApiController {
 
         log.info("dateAdded={}", dateAdded);
 
+        String urlHash = CanonicalUrl.hash(url);
+        if (articleUrlIndex.mightContain(urlHash)) {
+            Optional<Articles> existing = ArticlesRepository.findByUrlHash(urlHash);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+
         Articles article = new Articles();
         article.setTitle(title);
         article.setUrl(url);
@@ -86,10 +112,30 @@ public class ArticlesController extends ApiController {
         article.setDateAdded(dateAdded);
 
         Articles savedArticle = ArticlesRepository.save(article);
+        articleUrlIndex.add(urlHash);
+        forgetMissing(Articles.class, article.getId());
+        publishChange(Articles.class, ChangeAction.CREATED, article.getId());
         
         return savedArticle;        
     }
 
+    /**
+     * Get the article with a URL
+     * 
+     * @param url the URL; trivially different forms of it (http vs https, tracking parameters, etc.) match too
+     * @return the article
+     */
+    @Operation(summary= "Get the article with a URL", description = "Retrieve the article whose URL is the same as this one, after canonicalizing both")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/byUrl")
+    public Articles getByUrl(
+            @Parameter(name="url", example = "https://first.com") @RequestParam String url) {
+        // the URL index only knows about articles saved on this instance, so it can't rule a URL out here
+        return ArticlesRepository.findByUrlHash(CanonicalUrl.hash(url))
+                .orElseThrow(() -> new EntityNotFoundException(Articles.class, url));
+    }
+
 
      /**
      * Get a single article by id
@@ -99,11 +145,11 @@ public class ArticlesController extends ApiController {
      */
     @Operation(summary= "Get a single article", description = "Retrieve a single article by providing the ID")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("")
     public Articles getById(
             @Parameter(name="id") @RequestParam Long id) {
-        Articles article = ArticlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        Articles article = findOrThrow(ArticlesRepository, Articles.class, id);
 
         return article;
     }
@@ -117,13 +163,13 @@ public class ArticlesController extends ApiController {
      */
     @Operation(summary= "Update a single article", description = "Update a single article by providing the ID and the new article data")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public Articles updateArticle(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid Articles incoming) {
 
-        Articles article = ArticlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        Articles article = findOrThrow(ArticlesRepository, Articles.class, id);
 
         article.setTitle(incoming.getTitle());
         article.setUrl(incoming.getUrl());
@@ -132,6 +178,8 @@ public class ArticlesController extends ApiController {
         article.setDateAdded(incoming.getDateAdded());
 
         ArticlesRepository.save(article);
+        articleUrlIndex.add(CanonicalUrl.hash(article.getUrl()));
+        publishChange(Articles.class, ChangeAction.UPDATED, id);
 
         return article;
     }
@@ -144,14 +192,31 @@ public class ArticlesController extends ApiController {
      */
     @Operation(summary= "Delete a single article", description = "Delete a single article by providing the ID")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteArticle(
             @Parameter(name="id") @RequestParam Long id) {
-        Articles article = ArticlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        Articles article = findOrThrow(ArticlesRepository, Articles.class, id);
 
         ArticlesRepository.delete(article);
+        publishChange(Articles.class, ChangeAction.DELETED, id);
         return genericMessage("Article with id %s deleted".formatted(id));
     }
 
+    /**
+     * This method handles saving an article whose URL another article
+     * already has, e.g. when an update changes the URL, or when the other
+     * article was added on another instance and isn't in this one's
+     * ArticleUrlIndex yet.
+     * @param e the exception
+     * @return a map with the type and message of the exception
+     */
+    @ExceptionHandler({ DataIntegrityViolationException.class })
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Object handleDataIntegrityViolationException(DataIntegrityViolationException e) {
+        return Map.of(
+            "type", e.getClass().getSimpleName(),
+            "message", "An article with this URL already exists");
+    }
+
 }
@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.events.ChangeFeed;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * This is a REST controller for subscribing to changes to the other entities
+ * as server-sent events.
+ */
+
+@Tag(name = "Events")
+@RequestMapping("/api/events")
+@RestController
+public class EventsController extends ApiController {
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Value("${app.events.timeout:30m}")
+    Duration timeout;
+
+    /**
+     * This method streams an event each time an entity is created, updated or
+     * deleted.  Each event is named after the entity type, e.g. UCSBDate, and
+     * its data is the entityType, action and id as JSON.  If the client falls
+     * too far behind, the oldest events are dropped and a "dropped" event with
+     * the number dropped is sent in their place.
+     * @param types the entity types to send events for, or all types if not given
+     * @return the event stream
+     */
+    @Operation(summary = "Subscribe to entity changes as server-sent events")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(
+            @Parameter(name = "types", description = "entity types to subscribe to, e.g. UCSBDate,Articles") @RequestParam(required = false) Set<String> types) {
+        return changeFeed.subscribe(new SseEmitter(timeout.toMillis()), types);
+    }
+}
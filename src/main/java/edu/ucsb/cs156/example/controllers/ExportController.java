@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.export.ExportTable;
+import edu.ucsb.cs156.example.export.TableExporter;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+/**
+ * This is a REST controller for exporting whole tables for analytics.
+ * 
+ * These endpoints are only accessible to users with the role "ROLE_ADMIN".
+ */
+
+@Tag(name = "Export (admin only)")
+@RequestMapping("/api/admin/export")
+@RestController
+public class ExportController extends ApiController {
+
+    static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+    static final int RETRY_AFTER_SECONDS = 60;
+
+    @Autowired
+    TableExporter tableExporter;
+
+    /**
+     * This method streams a table as a gzipped CSV file.
+     * @param table the table: MENUITEMREVIEW, helprequest or ucsbrecommendationrequests
+     * @param from if given, only rows dated at or after this
+     * @param to if given, only rows dated before this
+     * @return the gzipped CSV
+     * @throws IllegalArgumentException if the table cannot be exported
+     * @throws IllegalStateException if app.export.max-concurrent exports are already running
+     */
+    @Operation(summary = "Export a table as gzipped CSV",
+            description = "Rows are filtered on dateReviewed, requestTime or dateRequested when from or to are given")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/{table}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @Parameter(name="table", description="MENUITEMREVIEW, helprequest or ucsbrecommendationrequests") @PathVariable String table,
+            @Parameter(name="from", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(name="to", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        // the body type must be declared for Spring MVC to stream it asynchronously
+        ExportTable exportTable = ExportTable.forName(table)
+                .orElseThrow(() -> new IllegalArgumentException("Table %s cannot be exported".formatted(table)));
+        TableExporter.Export export = tableExporter.reserve(exportTable, from, to);
+        if (export == null) {
+            throw new IllegalStateException("Too many exports are running, retry after %s seconds".formatted(RETRY_AFTER_SECONDS));
+        }
+        StreamingResponseBody body = export::writeTo;
+        String filename = exportTable.getTable().toLowerCase() + ".csv.gz";
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    /**
+     * This method handles a request to export a table that cannot be exported.
+     * @param e the exception
+     * @return a map with the message of the exception
+     */
+    @ExceptionHandler({ IllegalArgumentException.class })
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Object handleIllegalArgumentException(IllegalArgumentException e) {
+        return genericMessage(e.getMessage());
+    }
+
+    /**
+     * This method handles a request to export a table while too many exports are running.
+     * @param e the exception
+     * @return a 503 with a Retry-After header and the message of the exception
+     */
+    @ExceptionHandler({ IllegalStateException.class })
+    public ResponseEntity<Object> handleIllegalStateException(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(RETRY_AFTER_SECONDS))
+                .body(genericMessage(e.getMessage()));
+    }
+}
@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.jfr.FlightRecordings;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * This is a REST controller for recording what the application spends its
+ * time on with Java Flight Recorder, e.g. while p99 latency is high.
+ * Recordings include an event for each request and for its principal
+ * resolution, repository calls and JSON serialization; open the file with
+ * JDK Mission Control or the jfr tool.
+ * 
+ * These endpoints are only accessible to users with the role "ROLE_ADMIN".
+ */
+
+@Tag(name = "Flight Recorder (admin only)")
+@RequestMapping("/api/admin/jfr")
+@RestController
+public class FlightRecorderController extends ApiController {
+
+    @Autowired
+    FlightRecordings flightRecordings;
+
+    /**
+     * This method returns the state of the recording.
+     * @return a map with the state and file of the recording
+     */
+    @Operation(summary = "Get the state of the flight recording")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("")
+    public Map<String, Object> status() {
+        return flightRecordings.status();
+    }
+
+    /**
+     * This method starts a recording, which stops by itself after the duration.
+     * @param duration how long to record for
+     * @return a map with the state and file of the recording
+     * @throws IOException if the recording directory can't be created
+     * @throws ParseException if the JDK's recording settings can't be read
+     */
+    @Operation(summary = "Start a flight recording")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/start")
+    public Map<String, Object> start(
+            @Parameter(name="duration", description="ISO-8601 duration, e.g. PT5M; app.jfr.max-duration if omitted") @RequestParam(required = false) Duration duration)
+            throws IOException, ParseException {
+        return flightRecordings.start(duration);
+    }
+
+    /**
+     * This method stops the recording, if it is still running, and writes it to a file on the server.
+     * @return a map with the state, file and size in bytes of the recording
+     * @throws IOException if the recording can't be written
+     */
+    @Operation(summary = "Stop the flight recording and write it to a file")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/stop")
+    public Map<String, Object> stop() throws IOException {
+        return flightRecordings.stop();
+    }
+
+    @ExceptionHandler({ IllegalArgumentException.class })
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Object handleIllegalArgumentException(IllegalArgumentException e) {
+        return genericMessage(e.getMessage());
+    }
+
+    @ExceptionHandler({ IllegalStateException.class })
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Object handleIllegalStateException(IllegalStateException e) {
+        return genericMessage(e.getMessage());
+    }
+}
@@ -1,8 +1,9 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestStats;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,6 +15,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -26,6 +28,8 @@ import org.springframework.web.bind.annotation.RestController;
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Tag(name = "HelpRequest")
 @RequestMapping("/api/helprequest")
@@ -36,30 +40,47 @@ public class HelpRequestController extends ApiController {
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    HelpRequestStats helpRequestStats;
+
     // GET (all entries) : lists all help requests
     @Operation(summary= "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
-        Iterable<HelpRequest> requests = helpRequestRepository.findAll();
-        return requests;
+    public Iterable<?> allHelpRequests(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(helpRequestRepository, fields);
     }
 
     // GET (by ID / single entry): Gets a single help request by id
     @Operation(summary= "Get a single help request")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("")
     public HelpRequest getById(
             @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        HelpRequest helpRequest = findOrThrow(helpRequestRepository, HelpRequest.class, id);
 
         return helpRequest;
     }
 
+    // GET (stats) : help request counts and time to solve, read from the hourly rollup
+    @Operation(summary= "Get help request counts and average time to solve per hour, team and room")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/stats")
+    public List<Map<String, Object>> getStats(
+            @Parameter(name="from", description="only hours starting at or after this, in iso format, e.g. 2024-10-02T00:00:00") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(name="to", description="only hours starting before this, in iso format") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(name="groupBy", description="comma separated, any of hour,teamId,tableOrBreakoutRoom; all three if omitted") @RequestParam(required = false) List<String> groupBy) {
+        return helpRequestStats.getStats(from, to, groupBy);
+    }
+
     // POST : creates a new help request entry for HelpRequest data table
     @Operation(summary= "Create a new help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PostMapping("/post")
     public HelpRequest postHelpRequest(
             @Parameter(name="requesterEmail") @RequestParam String requesterEmail,
@@ -85,6 +106,9 @@ public class HelpRequestController extends ApiController {
         helpRequest.setRequestTime(requestTime);
 
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        helpRequestStats.recordCreated(savedHelpRequest);
+        forgetMissing(HelpRequest.class, helpRequest.getId());
+        publishChange(HelpRequest.class, ChangeAction.CREATED, helpRequest.getId());
 
         return savedHelpRequest;
     }
@@ -92,13 +116,14 @@ public class HelpRequestController extends ApiController {
     // PUT (edit) : edits a single data entry in the help request table
     @Operation(summary= "Update a single help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public HelpRequest updateHelpRequest(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid HelpRequest incoming) {
 
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        HelpRequest helpRequest = findOrThrow(helpRequestRepository, HelpRequest.class, id);
+        HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
 
         helpRequest.setRequesterEmail(incoming.getRequesterEmail());
         helpRequest.setTeamId(incoming.getTeamId());
@@ -107,7 +132,9 @@ public class HelpRequestController extends ApiController {
         helpRequest.setSolved(incoming.getSolved());
         helpRequest.setRequestTime(incoming.getRequestTime());
 
+        helpRequestStats.recordUpdated(before, helpRequest);
         helpRequestRepository.save(helpRequest);
+        publishChange(HelpRequest.class, ChangeAction.UPDATED, id);
 
         return helpRequest;
     }
@@ -115,13 +142,15 @@ public class HelpRequestController extends ApiController {
     // DELETE : deletes a single entry in the data table via ID.
     @Operation(summary= "Delete a help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteHelpRequest(
             @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        HelpRequest helpRequest = findOrThrow(helpRequestRepository, HelpRequest.class, id);
 
         helpRequestRepository.delete(helpRequest);
+        helpRequestStats.recordDeleted(helpRequest);
+        publishChange(HelpRequest.class, ChangeAction.DELETED, id);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 }
\ No newline at end of file
@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.ingest.ReviewIngestionQueue;
+import edu.ucsb.cs156.example.models.ReviewSubmission;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,7 +17,11 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -26,7 +33,10 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This is a REST controller for Menu Item Reviews
@@ -44,9 +54,13 @@ public class MenuItemReviewController extends ApiController {
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    ReviewIngestionQueue reviewIngestionQueue;
+
     /**
      * List all reviews
      * 
+     * @param fields the fields to return, or all of them if omitted
      * @return an iterable of menu item reviews
      */
 
@@ -54,10 +68,11 @@ public class MenuItemReviewController extends ApiController {
 
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allmenuitemreviews() {
-        Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
-        return reviews;
+    public Iterable<?> allmenuitemreviews(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(menuItemReviewRepository, fields);
     }
 
     /**
@@ -68,19 +83,36 @@ public class MenuItemReviewController extends ApiController {
      */
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("")
     public MenuItemReview getById(
             @Parameter(name="id") @RequestParam Long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        MenuItemReview menuItemReview = findOrThrow(menuItemReviewRepository, MenuItemReview.class, id);
 
         return menuItemReview;
     }
 
+    /**
+     * Create a new review
+     * 
+     * The reviewer email must not be blank and stars must be between 1 and 5.
+     * When asynchronous review ingestion is on (app.reviews.async.enabled),
+     * the review is queued rather than saved: the response is 202 Accepted
+     * with a tracking id (see /status), or 429 if the queue is full.  There
+     * is no transaction here, so none is held open just to queue a review;
+     * a review saved directly is saved by ReviewIngestionQueue.save, in one
+     * transaction with its change event.
+     * 
+     * @param reviewerEmail the email of the reviewer
+     * @param stars         the rating, from 1 to 5
+     * @param comments      the comments
+     * @param dateReviewed  the date of the review
+     * @return the saved review, or the queued submission
+     */
     @Operation(summary= "Create a new item review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
-    public MenuItemReview postitemreview(
+    public ResponseEntity<Object> postitemreview(
             @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
             @Parameter(name="stars") @RequestParam int stars,
             @Parameter(name="comments") @RequestParam String comments,
@@ -99,9 +131,51 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setComments(comments);
         menuItemReview.setDateReviewed(dateReviewed);
 
-        MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        if (reviewerEmail.isBlank()) {
+            return ResponseEntity.badRequest().body(genericMessage("reviewerEmail must not be blank"));
+        }
+        if (stars < 1 || stars > 5) {
+            return ResponseEntity.badRequest().body(genericMessage("stars must be between 1 and 5"));
+        }
+
+        if (reviewIngestionQueue.getEnabled()) {
+            return submit(menuItemReview);
+        }
+
+        MenuItemReview savedMenuItemReview = reviewIngestionQueue.save(menuItemReview);
 
-        return savedMenuItemReview;
+        return ResponseEntity.ok(savedMenuItemReview);
+    }
+
+    private ResponseEntity<Object> submit(MenuItemReview menuItemReview) {
+        ReviewSubmission submission = reviewIngestionQueue.submit(menuItemReview);
+        if (submission == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("type", "TooManyRequests", "message", "Review queue is full, retry after 1 seconds"));
+        }
+        return ResponseEntity
+            .accepted()
+            .location(URI.create("/api/MENUITEMREVIEW/status?trackingId=" + submission.getTrackingId()))
+            .body(submission);
+    }
+
+    /**
+     * Get the state of a review submitted while asynchronous review ingestion is on
+     * 
+     * @param trackingId the tracking id returned when the review was accepted
+     * @return the submission: QUEUED, SAVED (with the review id) or FAILED
+     */
+    @Operation(summary= "Get the state of a queued review")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/status")
+    public ReviewSubmission getSubmissionStatus(
+            @Parameter(name="trackingId") @RequestParam String trackingId) {
+        ReviewSubmission submission = reviewIngestionQueue.getStatus(trackingId);
+        if (submission == null) {
+            throw new EntityNotFoundException(ReviewSubmission.class, trackingId);
+        }
+        return submission;
     }
 
     /**
@@ -112,13 +186,14 @@ public class MenuItemReviewController extends ApiController {
      */
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        MenuItemReview menuItemReview = findOrThrow(menuItemReviewRepository, MenuItemReview.class, id);
 
         menuItemReviewRepository.delete(menuItemReview);
+        publishChange(MenuItemReview.class, ChangeAction.DELETED, id);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
     
@@ -131,13 +206,13 @@ public class MenuItemReviewController extends ApiController {
      */
     @Operation(summary= "Update a single review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public MenuItemReview updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid MenuItemReview incoming) {
 
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        MenuItemReview menuItemReview = findOrThrow(menuItemReviewRepository, MenuItemReview.class, id);
         menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
         menuItemReview.setStars(incoming.getStars());
         menuItemReview.setComments(incoming.getComments());
@@ -145,6 +220,7 @@ public class MenuItemReviewController extends ApiController {
         
 
         menuItemReviewRepository.save(menuItemReview);
+        publishChange(MenuItemReview.class, ChangeAction.UPDATED, id);
 
         return menuItemReview;
     }
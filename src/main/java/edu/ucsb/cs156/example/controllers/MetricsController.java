@@ -0,0 +1,132 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.events.ChangeFeed;
+import edu.ucsb.cs156.example.ingest.ReviewIngestionQueue;
+import edu.ucsb.cs156.example.pool.ConnectionPoolManager;
+import edu.ucsb.cs156.example.querylog.QueryMonitor;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
+import edu.ucsb.cs156.example.services.SingleFlightGroup;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This is a REST controller for getting performance counters kept by the application.
+ * 
+ * These endpoints are only accessible to users with the role "ROLE_ADMIN".
+ */
+
+@Tag(name = "Metrics (admin only)")
+@RequestMapping("/api/admin/metrics")
+@RestController
+public class MetricsController extends ApiController {
+
+    @Autowired
+    MissingEntityCache missingEntityCache;
+
+    @Autowired
+    ReviewIngestionQueue reviewIngestionQueue;
+
+    @Autowired
+    SingleFlightGroup singleFlightGroup;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    ConnectionPoolManager connectionPoolManager;
+
+    @Autowired
+    QueryMonitor queryMonitor;
+
+    /**
+     * This method returns the number of not found errors, and the number of lookups
+     * answered from the not found cache, for each entity type.
+     * @return a map with the notFound and cacheHits counts
+     */
+    @Operation(summary = "Get not found counts per entity type")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/notFound")
+    public Map<String, Map<String, Long>> notFound() {
+        return Map.of(
+            "notFound", missingEntityCache.getNotFoundCounts(),
+            "cacheHits", missingEntityCache.getCacheHits());
+    }
+
+    /**
+     * This method returns the counters for asynchronous menu item review ingestion.
+     * @return a map with the queue's capacity, current length, and accepted, rejected, saved and failed counts
+     */
+    @Operation(summary = "Get menu item review queue counters")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/reviewQueue")
+    public Map<String, Object> reviewQueue() {
+        return reviewIngestionQueue.getStats();
+    }
+
+    /**
+     * This method returns, for each {@code @SingleFlight} method, how many calls
+     * ran and how many shared a call that was already running.
+     * @return a map from method to its executions and coalesced counts
+     */
+    @Operation(summary = "Get coalesced read counts per method")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/singleFlight")
+    public Map<String, Map<String, Long>> singleFlight() {
+        return singleFlightGroup.getStats();
+    }
+
+    /**
+     * This method returns the number of clients subscribed to GET /api/events,
+     * and how many change events were published and dropped for slow clients.
+     * @return a map with the subscribers, published and dropped counts
+     */
+    @Operation(summary = "Get change feed counters")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/events")
+    public Map<String, Long> events() {
+        return changeFeed.getStats();
+    }
+
+    /**
+     * This method returns, for each database connection pool, its size, the
+     * connections in use, idle and waited for, and a histogram of how long
+     * threads waited for a connection; and how many requests were shed
+     * because a pool was saturated.
+     * @return a map with the pools and shed count
+     */
+    @Operation(summary = "Get database connection pool counters")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/pool")
+    public Map<String, Object> pool() {
+        return connectionPoolManager.getStats();
+    }
+
+    /**
+     * This method returns the SQL statements (with their literals replaced
+     * by ?) that took longest on average, with how many times each ran; and
+     * how many requests ran more statements than app.query-log.statement-budget.
+     * @param limit how many statements to return
+     * @return a map with the requests and overBudget counts, and the slowest statements
+     */
+    @Operation(summary = "Get the slowest SQL statements")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/queries")
+    public Map<String, Object> queries(
+        @Parameter(name="limit", description="how many statements to return") @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> stats = new LinkedHashMap<>(queryMonitor.getRequestStats());
+        stats.put("slowest", queryMonitor.getSlowest(Math.max(0, limit)));
+        return stats;
+    }
+}
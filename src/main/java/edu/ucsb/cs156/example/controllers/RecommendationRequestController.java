@@ -1,6 +1,6 @@
 package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBRecommendationRequest;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
 import edu.ucsb.cs156.example.repositories.UCSBRecommendationRequestRepository;
 
 import java.time.LocalDate;
@@ -16,6 +16,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -28,6 +29,7 @@ import org.springframework.web.bind.annotation.RestController;
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for RecommendationRequest
@@ -46,14 +48,16 @@ public class RecommendationRequestController extends ApiController {
         /**
      * List all UCSB dates
      * 
+     * @param fields the fields to return, or all of them if omitted
      * @return an iterable of UCSBDate
      */
     @Operation(summary= "List all ucsb recommendation requests")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional(readOnly = true)
     @GetMapping("/all")
-    public Iterable<UCSBRecommendationRequest> allUCSBRecommendationRequestRepository() {
-        Iterable<UCSBRecommendationRequest> requests = ucsbRecommendationRequestRepository.findAll();
-        return requests;   
+    public Iterable<?> allUCSBRecommendationRequestRepository(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(ucsbRecommendationRequestRepository, fields);
     }
 
 
@@ -72,6 +76,7 @@ public class RecommendationRequestController extends ApiController {
      */
     @Operation(summary= "Create a recommendation request")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional
     @PostMapping("/post")
     public UCSBRecommendationRequest postRecommendationRequest
     (
@@ -100,6 +105,8 @@ public class RecommendationRequestController extends ApiController {
         ucsbRecommendationRequest.setDone(done);
 
         UCSBRecommendationRequest saveducsbRecommendationRequest = ucsbRecommendationRequestRepository.save(ucsbRecommendationRequest);
+        forgetMissing(UCSBRecommendationRequest.class, ucsbRecommendationRequest.getId());
+        publishChange(UCSBRecommendationRequest.class, ChangeAction.CREATED, ucsbRecommendationRequest.getId());
 
         return saveducsbRecommendationRequest;
     }
@@ -112,12 +119,11 @@ public class RecommendationRequestController extends ApiController {
      */
     @Operation(summary= "Get a single recommendation by id")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("")
     public UCSBRecommendationRequest getById(
             @Parameter(name="id") @RequestParam Long id) {
-                UCSBRecommendationRequest ucsbRecommendationRequest = ucsbRecommendationRequestRepository
-                .findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBRecommendationRequest.class, id));
+        UCSBRecommendationRequest ucsbRecommendationRequest = findOrThrow(ucsbRecommendationRequestRepository, UCSBRecommendationRequest.class, id);
 
         return ucsbRecommendationRequest;
     }
@@ -132,13 +138,13 @@ public class RecommendationRequestController extends ApiController {
      */
     @Operation(summary= "Update a recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public UCSBRecommendationRequest updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid UCSBRecommendationRequest incoming) {
 
-        UCSBRecommendationRequest ucsbRecommendationRequest = ucsbRecommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBRecommendationRequest.class, id));
+        UCSBRecommendationRequest ucsbRecommendationRequest = findOrThrow(ucsbRecommendationRequestRepository, UCSBRecommendationRequest.class, id);
 
         ucsbRecommendationRequest.setDateNeeded(incoming.getDateNeeded());
         ucsbRecommendationRequest.setDateRequested(incoming.getDateRequested());
@@ -148,6 +154,7 @@ public class RecommendationRequestController extends ApiController {
         ucsbRecommendationRequest.setProfessorEmail(incoming.getProfessorEmail());
         ucsbRecommendationRequest.setRequesterEmail(incoming.getRequesterEmail());
         ucsbRecommendationRequestRepository.save(ucsbRecommendationRequest);
+        publishChange(UCSBRecommendationRequest.class, ChangeAction.UPDATED, id);
 
         return ucsbRecommendationRequest;
     }
@@ -160,13 +167,14 @@ public class RecommendationRequestController extends ApiController {
      */
     @Operation(summary= "Delete a UCSBRecommendationRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-            UCSBRecommendationRequest ucsbRecommendationRequest = ucsbRecommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBRecommendationRequest.class, id));
+        UCSBRecommendationRequest ucsbRecommendationRequest = findOrThrow(ucsbRecommendationRequestRepository, UCSBRecommendationRequest.class, id);
 
         ucsbRecommendationRequestRepository.delete(ucsbRecommendationRequest);
+        publishChange(UCSBRecommendationRequest.class, ChangeAction.DELETED, id);
         return genericMessage("UCSBRecommendationRequest with id %s deleted".formatted(id));
     }
 
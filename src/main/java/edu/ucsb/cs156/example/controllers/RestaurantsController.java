@@ -1,7 +1,8 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,18 +10,28 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
 /**
  * This is a REST controller for Restaurants
  */
@@ -30,19 +41,94 @@ import jakarta.validation.Valid;
 @RestController
 public class RestaurantsController extends ApiController {
 
+    static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     RestaurantRepository restaurantRepository;
 
     /**
      * This method returns a list of all restaurants.
+     * @param fields the fields to return, or all of them if omitted
      * @return a list of all restaurants
      */
     @Operation(summary = "List all restaurants")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("/all")
-    public Iterable<Restaurant> allRestaurants() {
-        Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-        return restaurants;
+    public Iterable<?> allRestaurants(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(restaurantRepository, fields);
+    }
+
+    /**
+     * This method returns a page of the restaurants whose name or description
+     * starts with or contains some text, ignoring case, in order of name.
+     * @param q the text to look for; every restaurant if omitted
+     * @param match prefix or contains
+     * @param after the next cursor of the previous page; the first page if omitted
+     * @param size how many restaurants to return, at most MAX_PAGE_SIZE
+     * @return the restaurants, and the cursor for the next page
+     * @throws IllegalArgumentException if match or after is not valid
+     */
+    @Operation(summary = "Search restaurants by name or description, a page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @GetMapping("/search")
+    public KeysetPage<Restaurant> searchRestaurants(
+            @Parameter(name="q", description="text to look for in the name or description, ignoring case") @RequestParam(defaultValue = "") String q,
+            @Parameter(name="match", description="prefix or contains") @RequestParam(defaultValue = "prefix") String match,
+            @Parameter(name="after", description="the next cursor of the previous page") @RequestParam(required = false) String after,
+            @Parameter(name="size", description="how many restaurants to return, at most 200") @RequestParam(defaultValue = "50") int size) {
+        String text = escapeLike(q.trim().toLowerCase(Locale.ROOT));
+        String pattern = switch (match) {
+            case "prefix" -> text + "%";
+            case "contains" -> "%" + text + "%";
+            default -> throw new IllegalArgumentException("match must be prefix or contains, not %s".formatted(match));
+        };
+        Restaurant last = after == null ? null : decodeCursor(after);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        // one more than the page, to know whether there is a next page
+        List<Restaurant> restaurants = restaurantRepository.findPageByNameOrDescriptionLike(pattern,
+                last == null ? "" : last.getNameLower(), last == null ? Long.MIN_VALUE : last.getId(),
+                PageRequest.of(0, pageSize + 1));
+        if (restaurants.size() <= pageSize) {
+            return new KeysetPage<>(restaurants, null);
+        }
+        List<Restaurant> page = restaurants.subList(0, pageSize);
+        return new KeysetPage<>(page, encodeCursor(page.get(pageSize - 1)));
+    }
+
+    /**
+     * @return the text, with the LIKE wildcards in it escaped with backslashes
+     */
+    static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * @return an opaque cursor for the position after this restaurant
+     */
+    static String encodeCursor(Restaurant restaurant) {
+        String key = restaurant.getId() + ":" + restaurant.getNameLower();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return a restaurant with just the id and nameLower of the cursor
+     * @throws IllegalArgumentException if the cursor wasn't made by encodeCursor
+     */
+    static Restaurant decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = key.indexOf(':');
+            return Restaurant.builder()
+                    .id(Long.parseLong(key.substring(0, colon)))
+                    .nameLower(key.substring(colon + 1))
+                    .build();
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor %s".formatted(cursor));
+        }
     }
 
     /**
@@ -52,11 +138,11 @@ public class RestaurantsController extends ApiController {
      */
     @Operation(summary = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
     @GetMapping("")
     public Restaurant getById(
             @Parameter(name = "id") @RequestParam Long id) {
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        Restaurant restaurant = findOrThrow(restaurantRepository, Restaurant.class, id);
 
         return restaurant;
     }
@@ -69,6 +155,7 @@ public class RestaurantsController extends ApiController {
      */
     @Operation(summary = "Create a new restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PostMapping("/post")
     public Restaurant postRestaurant(
             @Parameter(name = "name") @RequestParam String name,
@@ -79,6 +166,8 @@ public class RestaurantsController extends ApiController {
         restaurant.setDescription(description);
         
         Restaurant savedrestaurant = restaurantRepository.save(restaurant);
+        forgetMissing(Restaurant.class, restaurant.getId());
+        publishChange(Restaurant.class, ChangeAction.CREATED, restaurant.getId());
         return savedrestaurant;
     }
 
@@ -89,13 +178,14 @@ public class RestaurantsController extends ApiController {
      */
     @Operation(summary = "Delete a Restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteRestaurant(
             @Parameter(name = "id") @RequestParam Long id) {
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        Restaurant restaurant = findOrThrow(restaurantRepository, Restaurant.class, id);
 
         restaurantRepository.delete(restaurant);
+        publishChange(Restaurant.class, ChangeAction.DELETED, id);
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
@@ -107,19 +197,31 @@ public class RestaurantsController extends ApiController {
      */
     @Operation(summary = "Update a single restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public Restaurant updateRestaurant(
             @Parameter(name = "id") @RequestParam Long id,
             @RequestBody @Valid Restaurant incoming) {
 
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        Restaurant restaurant = findOrThrow(restaurantRepository, Restaurant.class, id);
 
         restaurant.setName(incoming.getName());
         restaurant.setDescription(incoming.getDescription());
 
         restaurantRepository.save(restaurant);
+        publishChange(Restaurant.class, ChangeAction.UPDATED, id);
 
         return restaurant;
     }
-}
\ No newline at end of file
+
+    /**
+     * This method handles a search with an invalid match or cursor.
+     * @param e the exception
+     * @return a map with the message of the exception
+     */
+    @ExceptionHandler({ IllegalArgumentException.class })
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Object handleIllegalArgumentException(IllegalArgumentException e) {
+        return genericMessage(e.getMessage());
+    }
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.search.SearchService;
+import edu.ucsb.cs156.example.search.SearchService.SearchResults;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * This is a REST controller for searching several types of entity at once.
+ */
+
+@Tag(name = "Search")
+@RequestMapping("/api/search")
+@RestController
+public class SearchController extends ApiController {
+
+    static final int SEARCH_LIMIT = 20;
+
+    @Autowired
+    SearchService searchService;
+
+    /**
+     * This method searches restaurants, articles, organizations, dining
+     * commons and menu items at once.
+     * @param q the query
+     * @param types the types to search, or all of them if omitted
+     * @return the best hits, and the types that were left out because they were too slow or failed
+     * @throws IllegalArgumentException if one of the types can't be searched
+     */
+    @Operation(summary = "Search several types of entity at once",
+            description = "Types that take too long are left out, and listed in incomplete")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("")
+    public SearchResults search(
+            @Parameter(name="q", description="the query, e.g. pasta") @RequestParam String q,
+            @Parameter(name="types", description="comma separated types to search: restaurants, articles, ucsborganization, ucsbdiningcommons, ucsbdiningcommonsmenuitem; all if omitted") @RequestParam(required = false) List<String> types) {
+        return searchService.search(q, types, SEARCH_LIMIT);
+    }
+
+    /**
+     * This method handles a request to search a type that can't be searched.
+     * @param e the exception
+     * @return a map with the message of the exception
+     */
+    @ExceptionHandler({ IllegalArgumentException.class })
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Object handleIllegalArgumentException(IllegalArgumentException e) {
+        return genericMessage(e.getMessage());
+    }
+}
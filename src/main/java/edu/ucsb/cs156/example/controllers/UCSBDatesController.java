@@ -1,8 +1,12 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.aop.SingleFlight;
+import edu.ucsb.cs156.example.csvimport.CsvImportTargets;
+import edu.ucsb.cs156.example.csvimport.CsvImporter;
+import edu.ucsb.cs156.example.csvimport.NdjsonImportListener;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.entities.UCSBDate;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
@@ -12,10 +16,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,10 +31,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for UCSBDates
@@ -42,17 +54,26 @@ public class UCSBDatesController extends ApiController {
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    CsvImporter csvImporter;
+
+    @Autowired
+    ObjectMapper mapper;
+
     /**
      * List all UCSB dates
      * 
+     * @param fields the fields to return, or all of them if omitted
      * @return an iterable of UCSBDate
      */
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @SingleFlight
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public Iterable<?> allUCSBDates(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(ucsbDateRepository, fields);
     }
 
     /**
@@ -63,11 +84,12 @@ public class UCSBDatesController extends ApiController {
      */
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @SingleFlight
     @GetMapping("")
     public UCSBDate getById(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        UCSBDate ucsbDate = findOrThrow(ucsbDateRepository, UCSBDate.class, id);
 
         return ucsbDate;
     }
@@ -82,6 +104,7 @@ public class UCSBDatesController extends ApiController {
      */
     @Operation(summary= "Create a new date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PostMapping("/post")
     public UCSBDate postUCSBDate(
             @Parameter(name="quarterYYYYQ") @RequestParam String quarterYYYYQ,
@@ -100,10 +123,36 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        forgetMissing(UCSBDate.class, ucsbDate.getId());
+        publishChange(UCSBDate.class, ChangeAction.CREATED, ucsbDate.getId());
 
         return savedUcsbDate;
     }
 
+    /**
+     * Import dates from a CSV file
+     * 
+     * @param csv the CSV file, with the header quarterYYYYQ,name,localDateTime
+     * @return the progress of the import, one JSON object per line
+     */
+    @Operation(summary= "Import dates from a CSV file",
+            description = "The body is CSV with the header quarterYYYYQ,name,localDateTime. The response has one JSON object per line: "
+                    + "an error for each rejected line, progress after each chunk is saved, and a summary at the end.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody importUCSBDates(InputStream csv) {
+        return out -> {
+            NdjsonImportListener listener = new NdjsonImportListener(out, mapper);
+            try {
+                listener.done(csvImporter.importCsv(new InputStreamReader(csv, StandardCharsets.UTF_8),
+                        CsvImportTargets.UCSB_DATES, listener));
+            } finally {
+                // chunks that committed before a failure are in the table too
+                forgetAllMissing(UCSBDate.class);
+            }
+        };
+    }
+
     /**
      * Delete a UCSBDate
      * 
@@ -112,13 +161,14 @@ public class UCSBDatesController extends ApiController {
      */
     @Operation(summary= "Delete a UCSBDate")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        UCSBDate ucsbDate = findOrThrow(ucsbDateRepository, UCSBDate.class, id);
 
         ucsbDateRepository.delete(ucsbDate);
+        publishChange(UCSBDate.class, ChangeAction.DELETED, id);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
@@ -131,19 +181,20 @@ public class UCSBDatesController extends ApiController {
      */
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public UCSBDate updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid UCSBDate incoming) {
 
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        UCSBDate ucsbDate = findOrThrow(ucsbDateRepository, UCSBDate.class, id);
 
         ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
         ucsbDate.setName(incoming.getName());
         ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
 
         ucsbDateRepository.save(ucsbDate);
+        publishChange(UCSBDate.class, ChangeAction.UPDATED, id);
 
         return ucsbDate;
     }
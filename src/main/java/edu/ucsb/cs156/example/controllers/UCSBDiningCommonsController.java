@@ -1,7 +1,8 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.reference.ReferenceTable;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,7 +11,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,6 +25,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 /**
  * This is a REST controller for UCSBDiningCommons
  */
@@ -35,32 +40,34 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    ReferenceTable<UCSBDiningCommons, String> diningCommonsTable;
+
     /**
-     * THis method returns a list of all ucsbdiningcommons.
+     * THis method returns a list of all ucsbdiningcommons, in order of code.
+     * Whole objects are served from the snapshot in diningCommonsTable.
+     * @param fields the fields to return, or all of them if omitted
      * @return a list of all ucsbdiningcommons
      */
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public ResponseEntity<?> allCommonss(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(diningCommonsTable, ucsbDiningCommonsRepository, fields);
     }
 
     /**
-     * This method returns a single diningcommons.
+     * This method returns a single diningcommons, from the snapshot in diningCommonsTable.
      * @param code code of the diningcommons
      * @return a single diningcommons
      */
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommons getById(
+    public ResponseEntity<?> getById(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        return commons;
+        return findOrThrow(diningCommonsTable, UCSBDiningCommons.class, code);
     }
 
     /**
@@ -76,6 +83,7 @@ public class UCSBDiningCommonsController extends ApiController {
      */
     @Operation(summary= "Create a new commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PostMapping("/post")
     public UCSBDiningCommons postCommons(
         @Parameter(name="code") @RequestParam String code,
@@ -98,6 +106,8 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        forgetMissing(UCSBDiningCommons.class, code);
+        publishChange(UCSBDiningCommons.class, ChangeAction.CREATED, code);
 
         return savedCommons;
     }
@@ -109,13 +119,14 @@ public class UCSBDiningCommonsController extends ApiController {
      */
     @Operation(summary= "Delete a UCSBDiningCommons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        UCSBDiningCommons commons = findOrThrow(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code);
 
         ucsbDiningCommonsRepository.delete(commons);
+        publishChange(UCSBDiningCommons.class, ChangeAction.DELETED, code);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
@@ -127,13 +138,13 @@ public class UCSBDiningCommonsController extends ApiController {
      */
     @Operation(summary= "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
             @RequestBody @Valid UCSBDiningCommons incoming) {
 
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        UCSBDiningCommons commons = findOrThrow(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code);
 
 
         commons.setName(incoming.getName());  
@@ -144,6 +155,7 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(incoming.getLongitude());
 
         ucsbDiningCommonsRepository.save(commons);
+        publishChange(UCSBDiningCommons.class, ChangeAction.UPDATED, code);
 
         return commons;
     }
@@ -1,8 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.aop.SingleFlight;
+import edu.ucsb.cs156.example.csvimport.CsvImportTargets;
+import edu.ucsb.cs156.example.csvimport.CsvImporter;
+import edu.ucsb.cs156.example.csvimport.NdjsonImportListener;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.search.MenuItemSearchIndex;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,10 +15,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,10 +30,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 
 
 @Tag(name = "UCSBDiningCommonsMenuItem")
@@ -37,17 +50,31 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    CsvImporter csvImporter;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Autowired
+    MenuItemSearchIndex menuItemSearchIndex;
+
+    static final int SEARCH_LIMIT = 50;
+
     /**
      * List all UCSB dining commons' menu items
      * 
+     * @param fields the fields to return, or all of them if omitted
      * @return an iterable of UCSBDiningCommonsMenuItem
      */
     @Operation(summary= "List all UCSB dining commons' menu items")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @SingleFlight
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItem() {
-        Iterable<UCSBDiningCommonsMenuItem> menuitem = ucsbDiningCommonsMenuItemRepository.findAll();
-        return menuitem;
+    public Iterable<?> allUCSBDiningCommonsMenuItem(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(ucsbDiningCommonsMenuItemRepository, fields);
     }
 
     /**
@@ -58,15 +85,33 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
      */
     @Operation(summary= "Get a single item on the menu")
     @PreAuthorize("hasRole('ROLE_USER')")
+    @Transactional(readOnly = true)
+    @SingleFlight
     @GetMapping("")
     public UCSBDiningCommonsMenuItem getById(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = findOrThrow(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, id);
 
         return ucsbDiningCommonsMenuItem;
     }
 
+    /**
+     * Search menu items by name and station, allowing for misspellings
+     * 
+     * @param q the words to search for, e.g. "psto pasta"
+     * @param commons if given, only items at this dining commons
+     * @return up to 50 menu items, best match first
+     */
+    @Operation(summary= "Search menu items by name and station",
+            description = "Each word may be the start of a word of the name or station, and may have a typo (two for words longer than 6 letters)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public List<UCSBDiningCommonsMenuItem> search(
+            @Parameter(name="q", example="psto pasta") @RequestParam String q,
+            @Parameter(name="commons", description="dining commons code, e.g. ortega") @RequestParam(required = false) String commons) {
+        return menuItemSearchIndex.search(q, commons, SEARCH_LIMIT);
+    }
+
         /**
      * Create a new item on the menu
      * 
@@ -77,6 +122,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
      */
     @Operation(summary= "Create a new item on the menu")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PostMapping("/post")
     public UCSBDiningCommonsMenuItem postMenuItem(
             @Parameter(name="diningCommonsCode") @RequestParam String diningCommonsCode,
@@ -90,10 +136,37 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
         menuitem.setStation(station);
 
         UCSBDiningCommonsMenuItem savedMenuItem = ucsbDiningCommonsMenuItemRepository.save(menuitem);
+        forgetMissing(UCSBDiningCommonsMenuItem.class, menuitem.getId());
+        publishChange(UCSBDiningCommonsMenuItem.class, ChangeAction.CREATED, menuitem.getId());
 
         return savedMenuItem;
     }
 
+    /**
+     * Import menu items from a CSV file
+     * 
+     * @param csv the CSV file, with the header diningCommonsCode,name,station
+     * @return the progress of the import, one JSON object per line
+     */
+    @Operation(summary= "Import menu items from a CSV file",
+            description = "The body is CSV with the header diningCommonsCode,name,station. The response has one JSON object per line: "
+                    + "an error for each rejected line, progress after each chunk is saved, and a summary at the end.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody importMenuItems(InputStream csv) {
+        return out -> {
+            NdjsonImportListener listener = new NdjsonImportListener(out, mapper);
+            try {
+                listener.done(csvImporter.importCsv(new InputStreamReader(csv, StandardCharsets.UTF_8),
+                        CsvImportTargets.MENU_ITEMS, listener));
+            } finally {
+                // chunks that committed before a failure are in the table too
+                forgetAllMissing(UCSBDiningCommonsMenuItem.class);
+                menuItemSearchIndex.reload();
+            }
+        };
+    }
+
     /**
      * Delete a UCSBDiningCommonsMenuItem
      * 
@@ -102,13 +175,14 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
      */
     @Operation(summary= "Delete a UCSBDiningCommonsMenuItem")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = findOrThrow(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, id);
 
         ucsbDiningCommonsMenuItemRepository.delete(ucsbDiningCommonsMenuItem);
+        publishChange(UCSBDiningCommonsMenuItem.class, ChangeAction.DELETED, id);
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
@@ -121,19 +195,20 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
      */
     @Operation(summary= "Update a single item on the menu")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
 
-        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = findOrThrow(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, id);
 
         ucsbDiningCommonsMenuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
         ucsbDiningCommonsMenuItem.setName(incoming.getName());
         ucsbDiningCommonsMenuItem.setStation(incoming.getStation());
 
         ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
+        publishChange(UCSBDiningCommonsMenuItem.class, ChangeAction.UPDATED, id);
 
         return ucsbDiningCommonsMenuItem;
     }
@@ -1,7 +1,8 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
-import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.reference.ReferenceTable;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,7 +11,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,6 +25,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 /**
  * This is a REST controller for UCSBOrganization
  */
@@ -35,17 +40,22 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    ReferenceTable<UCSBOrganization, String> organizationTable;
+
     /**
-     * THis method returns a list of all ucsborgnization.
+     * THis method returns a list of all ucsborgnization, in order of orgCode.
+     * Whole objects are served from the snapshot in organizationTable.
+     * @param fields the fields to return, or all of them if omitted
      * @return a list of all ucsborgnization
      */
 
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
-        Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-        return organizations;
+    public ResponseEntity<?> allOrganizations(
+            @Parameter(name="fields", description="comma separated fields to return, e.g. id,name; whole objects if omitted") @RequestParam(required = false) List<String> fields) {
+        return findAll(organizationTable, ucsbOrganizationRepository, fields);
     }
 
 
@@ -60,6 +70,7 @@ public class UCSBOrganizationController extends ApiController {
 
     @Operation(summary= "Create a new organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PostMapping("/post")
     public UCSBOrganization postOrganizations(
         @Parameter(name="orgCode") @RequestParam String orgCode,
@@ -76,24 +87,23 @@ public class UCSBOrganizationController extends ApiController {
         organizations.setInactive(inactive);
 
         UCSBOrganization savedOrganizations = ucsbOrganizationRepository.save(organizations);
+        forgetMissing(UCSBOrganization.class, orgCode);
+        publishChange(UCSBOrganization.class, ChangeAction.CREATED, orgCode);
 
         return savedOrganizations;
     }
   
   /**
-     * This method returns a single organizations.
+     * This method returns a single organizations, from the snapshot in organizationTable.
      * @param orgCode code of the organizations
      * @return a single organizations
      */
     @Operation(summary= "Get a single organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBOrganization getById(
+    public ResponseEntity<?> getById(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization organizations = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-        return organizations;
+        return findOrThrow(organizationTable, UCSBOrganization.class, orgCode);
     }
 
 
@@ -105,13 +115,13 @@ public class UCSBOrganizationController extends ApiController {
      */
     @Operation(summary= "Update a single organizations")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @PutMapping("")
     public UCSBOrganization updateOrganizations(
             @Parameter(name="orgCode") @RequestParam String orgCode,
             @RequestBody @Valid UCSBOrganization incoming) {
 
-        UCSBOrganization organizations = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        UCSBOrganization organizations = findOrThrow(ucsbOrganizationRepository, UCSBOrganization.class, orgCode);
 
 
         organizations.setOrgCode(incoming.getOrgCode());  
@@ -120,6 +130,8 @@ public class UCSBOrganizationController extends ApiController {
         organizations.setInactive(incoming.getInactive());
 
         ucsbOrganizationRepository.save(organizations);
+        forgetMissing(UCSBOrganization.class, organizations.getOrgCode());
+        publishChange(UCSBOrganization.class, ChangeAction.UPDATED, organizations.getOrgCode());
 
         return organizations;
     }
@@ -131,13 +143,14 @@ public class UCSBOrganizationController extends ApiController {
      */
     @Operation(summary= "Delete a UCSBOrganization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @Transactional
     @DeleteMapping("")
     public Object deleteOrganizations(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization organizations = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        UCSBOrganization organizations = findOrThrow(ucsbOrganizationRepository, UCSBOrganization.class, orgCode);
 
         ucsbOrganizationRepository.delete(organizations);
+        publishChange(UCSBOrganization.class, ChangeAction.DELETED, orgCode);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 
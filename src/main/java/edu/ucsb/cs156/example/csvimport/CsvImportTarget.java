@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.csvimport;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This record describes how the rows of a CSV import are checked and
+ * which table they go into.
+ * 
+ * @param table the table the rows are inserted into
+ * @param entityType the simple name of the entity stored in the table, for its EntityChangeEvents
+ * @param columns the table's columns, in the order the parser returns values
+ * @param headers the CSV columns that must be present, by header name
+ * @param parser turns one CSV row into column values
+ */
+public record CsvImportTarget(String table, String entityType, List<String> columns, List<String> headers, RowParser parser) {
+
+  /**
+   * This interface checks one CSV row and converts it to column values.
+   */
+  public interface RowParser {
+    /**
+     * @param row the row's value for each header
+     * @return the values for the columns, in order
+     * @throws IllegalArgumentException if the row is not valid; the message says why
+     */
+    Object[] parse(Map<String, String> row);
+  }
+
+  /**
+   * @return an INSERT statement for one row
+   */
+  String insertSql() {
+    return "INSERT INTO %s (%s) VALUES (%s)".formatted(table, String.join(", ", columns),
+        String.join(", ", columns.stream().map(column -> "?").toList()));
+  }
+
+  /**
+   * @return a Postgres COPY statement reading CSV from the client
+   */
+  String copySql() {
+    return "COPY %s (%s) FROM STDIN WITH (FORMAT csv)".formatted(table, String.join(", ", columns));
+  }
+}
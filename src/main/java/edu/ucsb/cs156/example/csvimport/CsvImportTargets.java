@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.csvimport;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class holds the CSV import targets for the entities that can be
+ * imported, with the checks each row has to pass.
+ */
+public final class CsvImportTargets {
+
+  /** the length of the VARCHAR columns */
+  static final int MAX_LENGTH = 255;
+
+  private CsvImportTargets() {
+  }
+
+  /**
+   * UCSBDiningCommonsMenuItem rows, with the header diningCommonsCode,name,station.
+   */
+  public static final CsvImportTarget MENU_ITEMS = new CsvImportTarget("ucsbdiningcommonsmenuitem", "UCSBDiningCommonsMenuItem",
+      List.of("diningcommonscode", "name", "station"),
+      List.of("diningCommonsCode", "name", "station"),
+      row -> new Object[] {
+          required(row, "diningCommonsCode"),
+          required(row, "name"),
+          required(row, "station") });
+
+  /**
+   * UCSBDate rows, with the header quarterYYYYQ,name,localDateTime.
+   */
+  public static final CsvImportTarget UCSB_DATES = new CsvImportTarget("ucsbdates", "UCSBDate",
+      List.of("quarteryyyyq", "name", "local_date_time"),
+      List.of("quarterYYYYQ", "name", "localDateTime"),
+      row -> new Object[] {
+          quarter(row, "quarterYYYYQ"),
+          required(row, "name"),
+          dateTime(row, "localDateTime") });
+
+  static String required(Map<String, String> row, String header) {
+    String value = row.get(header).trim();
+    if (value.isEmpty()) {
+      throw new IllegalArgumentException("%s is required".formatted(header));
+    }
+    if (value.length() > MAX_LENGTH) {
+      throw new IllegalArgumentException("%s is longer than %d characters".formatted(header, MAX_LENGTH));
+    }
+    return value;
+  }
+
+  static String quarter(Map<String, String> row, String header) {
+    String value = required(row, header);
+    if (!value.matches("\\d{4}[1-4]")) {
+      throw new IllegalArgumentException("%s must be YYYYQ with Q from 1 to 4, was %s".formatted(header, value));
+    }
+    return value;
+  }
+
+  static LocalDateTime dateTime(Map<String, String> row, String header) {
+    String value = required(row, header);
+    try {
+      return LocalDateTime.parse(value);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("%s must be an ISO date-time, e.g. 2024-09-26T08:00:00, was %s"
+          .formatted(header, value));
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package edu.ucsb.cs156.example.csvimport;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service imports a CSV upload into a table, reading it one record at a
+ * time.
+ * 
+ * The first record is the header.  Each following row is checked by the
+ * target's parser; rows that fail are reported to the listener with their
+ * line number and skipped.  Valid rows are written app.import.chunk-size at
+ * a time, one transaction per chunk, so a large file neither sits in memory
+ * nor holds one long transaction.  On Postgres a chunk is sent with COPY;
+ * on other databases (H2) it is a JDBC batch insert.  If a chunk fails, its
+ * rows are reported as not imported and the import goes on with the next.
+ * Each chunk publishes an IMPORTED EntityChangeEvent inside its own
+ * transaction, so every chunk that commits is announced, even if a later
+ * one fails or the upload is cut off.
+ */
+@Slf4j
+@Service
+public class CsvImporter {
+
+  /**
+   * This interface receives the progress of an import as it happens.
+   */
+  public interface Listener {
+    /**
+     * This method is called after each chunk is written.
+     * @param rowsRead the number of rows read so far
+     * @param rowsImported the number of rows written so far
+     * @throws IOException if the progress cannot be reported
+     */
+    void progress(long rowsRead, long rowsImported) throws IOException;
+
+    /**
+     * This method is called for each row, or chunk of rows, that is not imported.
+     * @param line the line of the CSV on which the problem starts
+     * @param message what is wrong
+     * @throws IOException if the error cannot be reported
+     */
+    void rejected(long line, String message) throws IOException;
+  }
+
+  /**
+   * The outcome of an import.
+   * @param rowsRead the number of rows after the header
+   * @param rowsImported the number of rows written to the table
+   * @param rowsRejected the number of rows not written
+   */
+  public record Result(long rowsRead, long rowsImported, long rowsRejected) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final int chunkSize;
+
+  /**
+   * @param jdbcTemplate used to write the rows
+   * @param transactionManager used to write each chunk in its own transaction
+   * @param eventPublisher used to announce each chunk
+   * @param chunkSize how many rows are written per transaction
+   */
+  public CsvImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+      ApplicationEventPublisher eventPublisher, @Value("${app.import.chunk-size:1000}") int chunkSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.eventPublisher = eventPublisher;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * This method imports a CSV file.
+   * @param input the CSV text, starting with a header
+   * @param target which table the rows go into and how they are checked
+   * @param listener receives progress and rejected rows
+   * @return how many rows were read, imported and rejected
+   * @throws IOException if the input cannot be read, or the listener fails
+   */
+  public Result importCsv(Reader input, CsvImportTarget target, Listener listener) throws IOException {
+    CsvParser parser = new CsvParser(input);
+    long read = 0;
+    long imported = 0;
+    long rejected = 0;
+    try {
+      List<String> header = parser.next();
+      if (header == null) {
+        return new Result(0, 0, 0);
+      }
+      Map<String, Integer> positions = new HashMap<>();
+      for (int i = 0; i < header.size(); i++) {
+        positions.put(header.get(i).trim(), i);
+      }
+      List<String> missing = target.headers().stream().filter(name -> !positions.containsKey(name)).toList();
+      if (!missing.isEmpty()) {
+        listener.rejected(parser.getRecordLine(), "missing column(s) " + String.join(", ", missing));
+        return new Result(0, 0, 0);
+      }
+
+      List<Object[]> chunk = new ArrayList<>(chunkSize);
+      long chunkFirstLine = 0;
+      long chunkLastLine = 0;
+      List<String> record;
+      while ((record = parser.next()) != null) {
+        read++;
+        long line = parser.getRecordLine();
+        if (record.size() != header.size()) {
+          rejected++;
+          listener.rejected(line, "expected %d fields but found %d".formatted(header.size(), record.size()));
+          continue;
+        }
+        Map<String, String> row = new HashMap<>();
+        for (String name : target.headers()) {
+          row.put(name, record.get(positions.get(name)));
+        }
+        try {
+          Object[] values = target.parser().parse(row);
+          if (chunk.isEmpty()) {
+            chunkFirstLine = line;
+          }
+          chunk.add(values);
+          chunkLastLine = line;
+        } catch (IllegalArgumentException e) {
+          rejected++;
+          listener.rejected(line, e.getMessage());
+          continue;
+        }
+        if (chunk.size() == chunkSize) {
+          long written = flush(target, chunk, chunkFirstLine, chunkLastLine, listener);
+          imported += written;
+          rejected += chunk.size() - written;
+          chunk.clear();
+          listener.progress(read, imported);
+        }
+      }
+      if (!chunk.isEmpty()) {
+        long written = flush(target, chunk, chunkFirstLine, chunkLastLine, listener);
+        imported += written;
+        rejected += chunk.size() - written;
+        listener.progress(read, imported);
+      }
+    } catch (CsvParser.CsvFormatException e) {
+      listener.rejected(e.getLine(), e.getMessage() + "; the rest of the file was not read");
+    }
+    log.info("imported {} of {} rows into {}", imported, read, target.table());
+    return new Result(read, imported, rejected);
+  }
+
+  private long flush(CsvImportTarget target, List<Object[]> rows, long firstLine, long lastLine,
+      Listener listener) throws IOException {
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        write(target, rows);
+        eventPublisher.publishEvent(new EntityChangeEvent(target.entityType(), ChangeAction.IMPORTED, null));
+      });
+      return rows.size();
+    } catch (DataAccessException e) {
+      log.warn("chunk of {} rows for {} failed", rows.size(), target.table(), e);
+      listener.rejected(firstLine, "lines %d to %d not imported: %s"
+          .formatted(firstLine, lastLine, e.getMostSpecificCause().getMessage()));
+      return 0;
+    }
+  }
+
+  private void write(CsvImportTarget target, List<Object[]> rows) {
+    jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+      if (connection.isWrapperFor(PGConnection.class)) {
+        copy(connection.unwrap(PGConnection.class).getCopyAPI(), target, rows);
+      } else {
+        insert(connection, target, rows);
+      }
+      return null;
+    });
+  }
+
+  private static void copy(CopyManager copyManager, CsvImportTarget target, List<Object[]> rows) throws SQLException {
+    StringBuilder csv = new StringBuilder();
+    for (Object[] row : rows) {
+      for (int i = 0; i < row.length; i++) {
+        if (i > 0) {
+          csv.append(',');
+        }
+        // unquoted empty is NULL in COPY's csv format, so every value is quoted
+        csv.append('"').append(row[i].toString().replace("\"", "\"\"")).append('"');
+      }
+      csv.append('\n');
+    }
+    try {
+      copyManager.copyIn(target.copySql(), new StringReader(csv.toString()));
+    } catch (IOException e) {
+      throw new SQLException(e);
+    }
+  }
+
+  private static void insert(Connection connection, CsvImportTarget target, List<Object[]> rows) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(target.insertSql())) {
+      for (Object[] row : rows) {
+        for (int i = 0; i < row.length; i++) {
+          statement.setObject(i + 1, row[i]);
+        }
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package edu.ucsb.cs156.example.csvimport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads CSV (RFC 4180) one record at a time, so that an upload
+ * never has to be held in memory.
+ * 
+ * Fields may be quoted, with "" for a quote inside a quoted field, and
+ * quoted fields may contain commas and line breaks.  Lines may end in
+ * \n or \r\n, blank lines are skipped, and a byte order mark at the start
+ * is ignored.
+ */
+public class CsvParser {
+
+  /**
+   * This exception is thrown when the input is not valid CSV, e.g. a quoted
+   * field is never closed.
+   */
+  public static class CsvFormatException extends IOException {
+    private final long line;
+
+    /**
+     * @param line the line on which the bad record starts
+     * @param message what is wrong
+     */
+    public CsvFormatException(long line, String message) {
+      super(message);
+      this.line = line;
+    }
+
+    /**
+     * @return the line on which the bad record starts
+     */
+    public long getLine() {
+      return line;
+    }
+  }
+
+  private static final int NONE = -2;
+
+  private final Reader reader;
+  private long line = 1;
+  private long recordLine;
+  private int pushedBack = NONE;
+  private boolean started;
+
+  /**
+   * @param reader the CSV text
+   */
+  public CsvParser(Reader reader) {
+    this.reader = new BufferedReader(reader);
+  }
+
+  /**
+   * @return the line on which the record last returned by next() started
+   */
+  public long getRecordLine() {
+    return recordLine;
+  }
+
+  /**
+   * This method reads the next record.
+   * @return the fields of the record, or null at the end of the input
+   * @throws IOException if the input cannot be read or is not valid CSV
+   */
+  public List<String> next() throws IOException {
+    int c = read();
+    while (c == '\n' || c == '\r') {
+      endOfLine(c);
+      c = read();
+    }
+    if (c == -1) {
+      return null;
+    }
+    recordLine = line;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean atFieldStart = true;
+    while (true) {
+      if (c == '"' && atFieldStart) {
+        readQuoted(field);
+        atFieldStart = false;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+        atFieldStart = true;
+      } else if (c == '\n' || c == '\r' || c == -1) {
+        fields.add(field.toString());
+        if (c != -1) {
+          endOfLine(c);
+        }
+        return fields;
+      } else {
+        field.append((char) c);
+        atFieldStart = false;
+      }
+      c = read();
+    }
+  }
+
+  private void readQuoted(StringBuilder field) throws IOException {
+    while (true) {
+      int c = read();
+      if (c == -1) {
+        throw new CsvFormatException(recordLine, "quoted field is never closed");
+      }
+      if (c == '"') {
+        int next = read();
+        if (next != '"') {
+          pushedBack = next;
+          return;
+        }
+      } else if (c == '\n') {
+        line++;
+      }
+      field.append((char) c);
+    }
+  }
+
+  private void endOfLine(int c) throws IOException {
+    if (c == '\r') {
+      int next = read();
+      if (next != '\n') {
+        pushedBack = next;
+      }
+    }
+    line++;
+  }
+
+  private int read() throws IOException {
+    if (pushedBack != NONE) {
+      int c = pushedBack;
+      pushedBack = NONE;
+      return c;
+    }
+    int c = reader.read();
+    if (!started) {
+      started = true;
+      if (c == '\uFEFF') {
+        c = reader.read();
+      }
+    }
+    return c;
+  }
+}
@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.csvimport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * This class streams the progress of a CSV import to the client as
+ * newline delimited JSON, one object per line, flushed as it happens:
+ * 
+ * <pre>
+ * {"type":"error","line":7,"message":"name is required"}
+ * {"type":"progress","rowsRead":1000,"rowsImported":999}
+ * {"type":"done","rowsRead":1200,"rowsImported":1199,"rowsRejected":1}
+ * </pre>
+ */
+public class NdjsonImportListener implements CsvImporter.Listener {
+
+  private final OutputStream out;
+  private final ObjectMapper mapper;
+
+  /**
+   * @param out the response body
+   * @param mapper used to write each line
+   */
+  public NdjsonImportListener(OutputStream out, ObjectMapper mapper) {
+    this.out = out;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public void progress(long rowsRead, long rowsImported) throws IOException {
+    Map<String, Object> line = new LinkedHashMap<>();
+    line.put("type", "progress");
+    line.put("rowsRead", rowsRead);
+    line.put("rowsImported", rowsImported);
+    write(line);
+  }
+
+  @Override
+  public void rejected(long lineNumber, String message) throws IOException {
+    Map<String, Object> line = new LinkedHashMap<>();
+    line.put("type", "error");
+    line.put("line", lineNumber);
+    line.put("message", message);
+    write(line);
+  }
+
+  /**
+   * This method writes the summary line at the end of the import.
+   * @param result the outcome of the import
+   * @throws IOException if the response cannot be written
+   */
+  public void done(CsvImporter.Result result) throws IOException {
+    Map<String, Object> line = new LinkedHashMap<>();
+    line.put("type", "done");
+    line.put("rowsRead", result.rowsRead());
+    line.put("rowsImported", result.rowsImported());
+    line.put("rowsRejected", result.rowsRejected());
+    write(line);
+  }
+
+  private void write(Map<String, Object> line) throws IOException {
+    out.write(mapper.writeValueAsBytes(line));
+    out.write('\n');
+    out.flush();
+  }
+}
@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.datasource;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * This DataSource sends read-only transactions (e.g. methods annotated with
+ * {@code @Transactional(readOnly = true)}) to a replica, and everything else
+ * to the primary.
+ * 
+ * The choice is made when the first statement runs rather than when the
+ * transaction begins, because Spring only marks the transaction as read-only
+ * after it has asked for a connection; LazyConnectionDataSourceProxy holds
+ * off on getting the real connection until then, and gets it from its
+ * read-only DataSource when the connection has been marked read-only.
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+  private final DataSource primary;
+  private final DataSource replica;
+
+  /**
+   * @param primary where writes (and reads outside read-only transactions) go
+   * @param replica where read-only transactions go
+   */
+  public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+    this.primary = primary;
+    this.replica = replica;
+    setTargetDataSource(primary);
+    setReadOnlyDataSource(replica);
+    afterPropertiesSet();
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public DataSource getReplica() {
+    return replica;
+  }
+
+  /**
+   * Closes the primary and replica pools.
+   */
+  @Override
+  public void close() throws Exception {
+    for (DataSource dataSource : new DataSource[] { primary, replica }) {
+      if (dataSource instanceof AutoCloseable closeable) {
+        closeable.close();
+      }
+    }
+  }
+}
@@ -2,10 +2,15 @@ package edu.ucsb.cs156.example.entities;
 
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import edu.ucsb.cs156.example.urlindex.CanonicalUrl;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -26,4 +31,14 @@ public class Articles {
     private String explanation;
     private String email;
     private LocalDateTime dateAdded;
+
+    /** the hash of the canonical url, for finding duplicates; see CanonicalUrl */
+    @JsonIgnore
+    private String urlHash;
+
+    @PrePersist
+    @PreUpdate
+    void hashUrl() {
+        urlHash = CanonicalUrl.hash(url);
+    }
 }
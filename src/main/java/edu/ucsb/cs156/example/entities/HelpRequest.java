@@ -1,5 +1,7 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -34,4 +36,8 @@ public class HelpRequest {
   private LocalDateTime requestTime;
   private String explanation;
   private boolean solved;
+
+  /** how long it took to solve, if it was timed; see HelpRequestStats */
+  @JsonIgnore
+  private Long solveSeconds;
 }
\ No newline at end of file
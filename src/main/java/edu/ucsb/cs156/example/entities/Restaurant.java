@@ -1,5 +1,8 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -25,4 +28,9 @@ public class Restaurant {
 
   private String name;
   private String description;
+
+  /** lower(name), computed by the database for searching and sorting by name; see RestaurantsSearch.json */
+  @JsonIgnore
+  @Column(insertable = false, updatable = false)
+  private String nameLower;
 }
\ No newline at end of file
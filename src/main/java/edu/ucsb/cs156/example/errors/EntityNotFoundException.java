@@ -3,8 +3,14 @@ package edu.ucsb.cs156.example.errors;
 /**
  * This is an error class for a custom RuntimeException in Java that is used to indicate
  * when an entity of a specific type with a given ID is not found.
+ *
+ * Not found is an expected outcome (e.g. clients probing ids), so the exception
+ * does not capture a stack trace, and the message is only built when it is asked for.
  */
 public class EntityNotFoundException extends RuntimeException {
+  private final Class<?> entityType;
+  private final Object id;
+
   /**
    * Constructor for the exception
    * 
@@ -12,7 +18,28 @@ public class EntityNotFoundException extends RuntimeException {
    * @param id the id that was being searched for
    */
   public EntityNotFoundException(Class<?> entityType, Object id) {
-    super("%s with id %s not found"
-      .formatted(entityType.getSimpleName(), id.toString()));
+    super(null, null, false, false);
+    this.entityType = entityType;
+    this.id = id;
+  }
+
+  /**
+   * @return the class of the entity that was not found
+   */
+  public Class<?> getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * @return the id that was being searched for
+   */
+  public Object getId() {
+    return id;
+  }
+
+  @Override
+  public String getMessage() {
+    return "%s with id %s not found"
+      .formatted(entityType.getSimpleName(), id.toString());
   }
 }
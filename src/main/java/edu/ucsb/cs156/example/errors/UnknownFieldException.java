@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.errors;
+
+import java.util.List;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a request asked for fields that an entity does not have, e.g. {@code fields=titel}.
+ */
+public class UnknownFieldException extends RuntimeException {
+
+  /**
+   * Constructor for the exception
+   * 
+   * @param entityType the class of the entity, e.g. Articles.class
+   * @param unknownFields the requested fields that the entity does not have
+   */
+  public UnknownFieldException(Class<?> entityType, List<String> unknownFields) {
+    super("%s has no field(s) %s".formatted(entityType.getSimpleName(), String.join(", ", unknownFields)));
+  }
+}
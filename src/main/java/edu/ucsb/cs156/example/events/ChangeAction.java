@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.events;
+
+/**
+ * This is what happened to an entity in an {@link EntityChangeEvent}.
+ */
+public enum ChangeAction {
+  CREATED,
+  UPDATED,
+  DELETED,
+  /** many entities were created by a bulk import; the event has no id */
+  IMPORTED
+}
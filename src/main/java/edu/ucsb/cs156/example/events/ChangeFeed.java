@@ -0,0 +1,252 @@
+package edu.ucsb.cs156.example.events;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service sends {@link EntityChangeEvent}s to the clients subscribed
+ * to GET /api/events, as server-sent events named after the entity type.
+ *
+ * Events are received only once the transaction that made the change has
+ * committed.  Each subscriber has a small buffer of its own; when a slow
+ * client lets it fill up, the oldest events are dropped (and the client is
+ * told how many with a "dropped" event) so that publishing never waits for
+ * a client.  Sending happens on virtual threads, one drain at a time per
+ * subscriber, and an idle subscriber holds no thread at all, only its
+ * emitter; a comment is sent to it every app.events.heartbeat so that
+ * proxies don't close the connection.
+ */
+@Slf4j
+@Service
+public class ChangeFeed {
+
+  private final int bufferSize;
+  private final Duration heartbeat;
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final LongAdder published = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private ExecutorService senders;
+  private ScheduledExecutorService heartbeats;
+
+  public ChangeFeed(
+      @Value("${app.events.buffer-size:256}") int bufferSize,
+      @Value("${app.events.heartbeat:15s}") Duration heartbeat) {
+    this.bufferSize = bufferSize;
+    this.heartbeat = heartbeat;
+  }
+
+  /**
+   * This method starts the executors that send events and heartbeats.
+   */
+  @PostConstruct
+  public void start() {
+    senders = Executors.newVirtualThreadPerTaskExecutor();
+    heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "change-feed-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long heartbeatMillis = heartbeat.toMillis();
+    heartbeats.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method stops the executors and completes every subscriber's emitter.
+   */
+  @PreDestroy
+  public void stop() {
+    heartbeats.shutdown();
+    senders.shutdown();
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    subscribers.clear();
+  }
+
+  /**
+   * This method subscribes an emitter to change events.
+   * @param emitter the emitter to send the events to
+   * @param types the entity types to send events for (compared ignoring case), or null or empty for all
+   * @return the emitter
+   */
+  public SseEmitter subscribe(SseEmitter emitter, Set<String> types) {
+    Set<String> filter = types == null || types.isEmpty() ? null
+        : types.stream().map(String::toLowerCase).collect(Collectors.toSet());
+    Subscriber subscriber = new Subscriber(emitter, filter, bufferSize);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    return emitter;
+  }
+
+  /**
+   * This method queues an event for every subscriber interested in its
+   * entity type.  It is called once the publishing transaction has
+   * committed, or straight away when there is no transaction.
+   * @param event the event
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onChange(EntityChangeEvent event) {
+    published.increment();
+    String type = event.entityType().toLowerCase();
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.types == null || subscriber.types.contains(type)) {
+        if (subscriber.offer(event)) {
+          senders.execute(() -> drain(subscriber));
+        }
+      }
+    }
+  }
+
+  void sendHeartbeats() {
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.heartbeatDue()) {
+        senders.execute(() -> drain(subscriber));
+      }
+    }
+  }
+
+  private void drain(Subscriber subscriber) {
+    try {
+      Subscriber.Next next;
+      while ((next = subscriber.next()) != null) {
+        if (next.event() == null) {
+          subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+          continue;
+        }
+        if (next.dropped() > 0) {
+          dropped.add(next.dropped());
+          subscriber.emitter.send(SseEmitter.event().name("dropped").data(next.dropped()));
+        }
+        subscriber.emitter.send(SseEmitter.event()
+            .name(next.event().entityType())
+            .data(next.event(), MediaType.APPLICATION_JSON));
+      }
+    } catch (IOException | IllegalStateException e) {
+      // the client has gone away, or the emitter has already completed
+      log.debug("removing change feed subscriber: {}", e.toString());
+      subscribers.remove(subscriber);
+      subscriber.close();
+    }
+  }
+
+  /**
+   * @return the number of subscribers, and the number of events published and dropped
+   */
+  public Map<String, Long> getStats() {
+    return Map.of(
+        "subscribers", (long) subscribers.size(),
+        "published", published.sum(),
+        "dropped", dropped.sum());
+  }
+
+  /**
+   * This is one client's buffer of events not yet sent.  Only one drain runs
+   * for it at a time: whoever finds it idle when offering an event (or a
+   * heartbeat) starts the drain, which runs until the buffer is empty.
+   */
+  static class Subscriber {
+    final SseEmitter emitter;
+    final Set<String> types;
+    private final int capacity;
+    private final ArrayDeque<EntityChangeEvent> buffer;
+    private long droppedSinceSend;
+    private boolean draining;
+    private boolean heartbeatDue;
+    private boolean sentSinceHeartbeat;
+    private boolean closed;
+
+    /**
+     * The next thing to send: an event and the count of events dropped
+     * before it, or no event for a heartbeat.
+     */
+    record Next(EntityChangeEvent event, long dropped) {
+    }
+
+    Subscriber(SseEmitter emitter, Set<String> types, int capacity) {
+      this.emitter = emitter;
+      this.types = types;
+      this.capacity = capacity;
+      this.buffer = new ArrayDeque<>(Math.min(capacity, 16));
+    }
+
+    /**
+     * @return whether the caller should start a drain
+     */
+    synchronized boolean offer(EntityChangeEvent event) {
+      if (closed) {
+        return false;
+      }
+      if (buffer.size() == capacity) {
+        buffer.pollFirst();
+        droppedSinceSend++;
+      }
+      buffer.addLast(event);
+      return startDrain();
+    }
+
+    /**
+     * @return whether the caller should start a drain to send a heartbeat
+     */
+    synchronized boolean heartbeatDue() {
+      if (closed) {
+        return false;
+      }
+      if (sentSinceHeartbeat) {
+        sentSinceHeartbeat = false;
+        return false;
+      }
+      heartbeatDue = true;
+      return startDrain();
+    }
+
+    private boolean startDrain() {
+      if (draining) {
+        return false;
+      }
+      draining = true;
+      return true;
+    }
+
+    /**
+     * @return the next thing to send, or null (ending the drain) when there is nothing left
+     */
+    synchronized Next next() {
+      EntityChangeEvent event = buffer.pollFirst();
+      if (closed || (event == null && !heartbeatDue)) {
+        draining = false;
+        return null;
+      }
+      Next next = new Next(event, droppedSinceSend);
+      droppedSinceSend = 0;
+      heartbeatDue = false;
+      sentSinceHeartbeat = true;
+      return next;
+    }
+
+    synchronized void close() {
+      closed = true;
+      draining = false;
+      buffer.clear();
+    }
+  }
+}
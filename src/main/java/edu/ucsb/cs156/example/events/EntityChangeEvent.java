@@ -0,0 +1,10 @@
+package edu.ucsb.cs156.example.events;
+
+/**
+ * This is published by the controllers after they create, update or delete an entity.
+ * @param entityType the simple name of the entity class, e.g. Articles
+ * @param action what happened to the entity
+ * @param id the id of the entity, or null for {@link ChangeAction#IMPORTED}
+ */
+public record EntityChangeEvent(String entityType, ChangeAction action, Object id) {
+}
@@ -0,0 +1,45 @@
+package edu.ucsb.cs156.example.export;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * This enum lists the tables that can be exported, with the column that an
+ * export can be filtered on by date.
+ */
+public enum ExportTable {
+  MENUITEMREVIEW("MENUITEMREVIEW", "DATEREVIEWED"),
+  HELPREQUEST("HELPREQUEST", "REQUEST_TIME"),
+  UCSBRECOMMENDATIONREQUESTS("UCSBRECOMMENDATIONREQUESTS", "DATE_REQUESTED");
+
+  private final String table;
+  private final String dateColumn;
+
+  ExportTable(String table, String dateColumn) {
+    this.table = table;
+    this.dateColumn = dateColumn;
+  }
+
+  /**
+   * @return the name of the table
+   */
+  public String getTable() {
+    return table;
+  }
+
+  /**
+   * @return the column that from and to are compared with
+   */
+  public String getDateColumn() {
+    return dateColumn;
+  }
+
+  /**
+   * This method looks up a table by name, ignoring case, e.g. helprequest.
+   * @param name the name of the table
+   * @return the table, or empty if it cannot be exported
+   */
+  public static Optional<ExportTable> forName(String name) {
+    return Arrays.stream(values()).filter(table -> table.table.equalsIgnoreCase(name)).findFirst();
+  }
+}
@@ -0,0 +1,179 @@
+package edu.ucsb.cs156.example.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service writes a whole table as gzipped CSV, for analytics.
+ * 
+ * Rows are read through a JDBC cursor, app.export.fetch-size at a time, and
+ * written as they are read, so memory use does not grow with the table.
+ * The query runs in a read-only transaction (Postgres only uses a cursor
+ * inside a transaction), which also sends it to the read replica when one
+ * is configured.
+ * 
+ * At most app.export.max-concurrent exports (default 1) run at once; an
+ * export must first reserve a slot, and is turned away when none is free.
+ * That limit, not thread priority (which Linux ignores by default), is
+ * what keeps exports from taking the CPU and database connections that
+ * interactive requests need.
+ */
+@Slf4j
+@Service
+public class TableExporter {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final Semaphore slots;
+
+  /**
+   * An export that has a slot reserved; it frees the slot when it is written.
+   */
+  @FunctionalInterface
+  public interface Export {
+    /**
+     * This method writes the export (see TableExporter.export) and frees its slot.
+     * @param out where the gzipped CSV is written
+     * @return the number of rows written
+     * @throws IOException if the output cannot be written
+     */
+    long writeTo(OutputStream out) throws IOException;
+  }
+
+  /**
+   * @param dataSource the database to export from
+   * @param transactionManager used to run the export in a read-only transaction
+   * @param fetchSize how many rows the cursor fetches at a time
+   * @param maxConcurrent how many exports may run at once
+   */
+  public TableExporter(DataSource dataSource, PlatformTransactionManager transactionManager,
+      @Value("${app.export.fetch-size:500}") int fetchSize,
+      @Value("${app.export.max-concurrent:1}") int maxConcurrent) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(fetchSize);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.slots = new Semaphore(maxConcurrent);
+  }
+
+  /**
+   * This method reserves a slot for an export, to be written once.
+   * @param table the table to export
+   * @param from if not null, only rows whose date column is at or after this
+   * @param to if not null, only rows whose date column is before this
+   * @return the export, or null if app.export.max-concurrent exports are already running
+   */
+  public Export reserve(ExportTable table, LocalDateTime from, LocalDateTime to) {
+    if (!slots.tryAcquire()) {
+      return null;
+    }
+    return out -> {
+      try {
+        return export(table, from, to, out);
+      } finally {
+        slots.release();
+      }
+    };
+  }
+
+  /**
+   * This method writes the rows of a table, ordered by id, as gzipped CSV with a header.
+   * @param table the table to export
+   * @param from if not null, only rows whose date column is at or after this
+   * @param to if not null, only rows whose date column is before this
+   * @param out where the gzipped CSV is written; it is finished but not closed
+   * @return the number of rows written
+   * @throws IOException if the output cannot be written
+   */
+  public long export(ExportTable table, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+    List<Object> args = new ArrayList<>();
+    StringBuilder sql = new StringBuilder("SELECT * FROM ").append(table.getTable()).append(" WHERE 1 = 1");
+    if (from != null) {
+      sql.append(" AND ").append(table.getDateColumn()).append(" >= ?");
+      args.add(from);
+    }
+    if (to != null) {
+      sql.append(" AND ").append(table.getDateColumn()).append(" < ?");
+      args.add(to);
+    }
+    sql.append(" ORDER BY ID");
+
+    try {
+      // out belongs to the servlet container, so the gzip stream is finished rather than closed
+      GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+      Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+      long rows = transactionTemplate.execute(status -> jdbcTemplate.query(sql.toString(),
+          (ResultSetExtractor<Long>) resultSet -> writeCsv(resultSet, writer), args.toArray()));
+      writer.flush();
+      gzip.finish();
+      log.info("exported {} rows of {}", rows, table.getTable());
+      return rows;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static long writeCsv(ResultSet resultSet, Writer writer) throws SQLException {
+    try {
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      int columns = metaData.getColumnCount();
+      for (int i = 1; i <= columns; i++) {
+        writeField(writer, i, metaData.getColumnLabel(i).toLowerCase());
+      }
+      writer.write('\n');
+      long rows = 0;
+      while (resultSet.next()) {
+        for (int i = 1; i <= columns; i++) {
+          Object value = resultSet.getObject(i);
+          if (value instanceof Timestamp timestamp) {
+            value = timestamp.toLocalDateTime();
+          }
+          writeField(writer, i, value == null ? "" : value.toString());
+        }
+        writer.write('\n');
+        rows++;
+      }
+      return rows;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeField(Writer writer, int column, String value) throws IOException {
+    if (column > 1) {
+      writer.write(',');
+    }
+    if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+      writer.write('"');
+      writer.write(value.replace("\"", "\"\""));
+      writer.write('"');
+    } else {
+      writer.write(value);
+    }
+  }
+}
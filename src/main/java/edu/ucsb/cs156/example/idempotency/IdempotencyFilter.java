@@ -0,0 +1,166 @@
+package edu.ucsb.cs156.example.idempotency;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This filter makes the POST /api/.../post endpoints idempotent for clients
+ * that send an Idempotency-Key header, so that retrying after a timeout
+ * does not create a second row.
+ *
+ * The first request with a key runs normally and, if it succeeds (2xx),
+ * its response is stored in the IdempotencyStore.  Later requests from the
+ * same user to the same endpoint with the same key get the stored response
+ * back, with an Idempotent-Replayed header, without running the handler.
+ * Duplicates that arrive while the first is still running wait for it.
+ * Reusing a key with different parameters is refused with a 422.  Requests
+ * that fail are not stored, so they can be retried with the same key.
+ *
+ * It runs after Spring Security's filters, so that keys are scoped to the
+ * logged in user.  Those filters let every /api request through (roles are
+ * checked later by {@code @PreAuthorize}), so requests from users who are not
+ * logged in are passed straight on without touching the store; a logged in
+ * user without the role gets a 403, which is not stored.
+ */
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+  static final int MAX_KEY_LENGTH = 255;
+
+  private final IdempotencyStore store;
+  private final CurrentUserService currentUserService;
+
+  /**
+   * @param store where responses are kept
+   * @param currentUserService used to scope keys to the logged in user
+   */
+  public IdempotencyFilter(IdempotencyStore store, CurrentUserService currentUserService) {
+    this.store = store;
+    this.currentUserService = currentUserService;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !"POST".equals(request.getMethod())
+        || request.getHeader(HEADER) == null
+        || !request.getRequestURI().endsWith("/post");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String key = request.getHeader(HEADER);
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      writeError(response, HttpStatus.BAD_REQUEST, "BadRequest",
+          HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+      return;
+    }
+    String principal = currentUserService.getPrincipalName();
+    if (principal == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+    String id = sha256(principal + "\n" + request.getRequestURI() + "\n" + key);
+    String requestHash = sha256(parameters(request));
+
+    IdempotencyStore.StoredResponse stored;
+    try {
+      stored = store.claim(id, requestHash);
+    } catch (TimeoutException e) {
+      writeError(response, HttpStatus.CONFLICT, "Conflict",
+          "A request with this " + HEADER + " is still being processed; retry later");
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "ServiceUnavailable", "Interrupted");
+      return;
+    }
+
+    if (stored != null) {
+      if (!stored.requestHash().equals(requestHash)) {
+        writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, "UnprocessableEntity",
+            HEADER + " was already used for a different request");
+        return;
+      }
+      response.setStatus(stored.status());
+      if (stored.contentType() != null) {
+        response.setContentType(stored.contentType());
+      }
+      response.setHeader(REPLAYED_HEADER, "true");
+      response.setContentLength(stored.body().length);
+      response.getOutputStream().write(stored.body());
+      return;
+    }
+
+    ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+    boolean completed = false;
+    try {
+      chain.doFilter(request, wrapper);
+      if (wrapper.getStatus() >= 200 && wrapper.getStatus() < 300) {
+        completed = true;
+        try {
+          store.complete(id, new IdempotencyStore.StoredResponse(requestHash, wrapper.getStatus(),
+              wrapper.getContentType(), wrapper.getContentAsByteArray()));
+        } catch (DataAccessException e) {
+          // the response is still held in memory on this instance
+          log.warn("could not save the response for an Idempotency-Key", e);
+        }
+      }
+    } finally {
+      if (!completed) {
+        store.abandon(id);
+      }
+      wrapper.copyBodyToResponse();
+    }
+  }
+
+  /**
+   * @return the request parameters, sorted by name, as one string
+   */
+  static String parameters(HttpServletRequest request) {
+    StringBuilder result = new StringBuilder();
+    for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+      for (String value : parameter.getValue()) {
+        result.append(parameter.getKey()).append('=').append(value).append('\n');
+      }
+    }
+    return result.toString();
+  }
+
+  static String sha256(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void writeError(HttpServletResponse response, HttpStatus status, String type, String message)
+      throws IOException {
+    response.setStatus(status.value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.getWriter().write("{\"type\":\"%s\",\"message\":\"%s\"}".formatted(type, message));
+  }
+}
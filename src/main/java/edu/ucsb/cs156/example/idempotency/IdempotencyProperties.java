@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.idempotency;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * This class holds the settings for Idempotency-Key support on the /post
+ * endpoints, bound from the app.idempotency.* properties.
+ */
+
+@Data
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+  private boolean enabled = true;
+  /** how long a stored response is replayed for the same key */
+  private Duration ttl = Duration.ofHours(24);
+  /** how many stored responses are kept in memory; older ones are read back from IDEMPOTENCY_KEYS */
+  private int cacheMaxEntries = 10_000;
+  /** how long a retry waits for the original request to finish before giving up with a 409 */
+  private Duration waitTimeout = Duration.ofSeconds(10);
+  /** how long a key may stay in progress without being renewed before it is assumed that its instance died; renewed every third of this */
+  private Duration inProgressTimeout = Duration.ofMinutes(1);
+  /** how often expired keys are deleted */
+  private Duration reapInterval = Duration.ofMinutes(10);
+}
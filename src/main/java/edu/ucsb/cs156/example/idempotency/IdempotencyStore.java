@@ -0,0 +1,327 @@
+package edu.ucsb.cs156.example.idempotency;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class remembers the response to each request that carried an
+ * Idempotency-Key, so that a retry can be answered with the same response
+ * instead of running the request again.
+ *
+ * A key is claimed by inserting an in-progress row (STATUS 0) into
+ * IDEMPOTENCY_KEYS; the primary key makes sure that only one request, on
+ * any instance, runs for each key.  Duplicates that arrive while the first
+ * is still running wait for it: on the same instance they wait on a future,
+ * on other instances they poll the row.  While a request runs, a background
+ * task keeps pushing its row's EXPIRES_AT forward, so a slow request keeps
+ * its key; only a row whose instance has stopped renewing it for
+ * app.idempotency.in-progress-timeout is reclaimed.  Finished responses are kept in a
+ * bounded in-memory cache as well as in the table, and rows are deleted by a
+ * background task once they are older than app.idempotency.ttl.
+ */
+@Slf4j
+public class IdempotencyStore {
+
+  static final String INSERT = "INSERT INTO IDEMPOTENCY_KEYS (ID, REQUEST_HASH, STATUS, CREATED_AT, EXPIRES_AT) VALUES (?, ?, 0, ?, ?)";
+  static final String COMPLETE = "UPDATE IDEMPOTENCY_KEYS SET STATUS = ?, CONTENT_TYPE = ?, BODY = ?, EXPIRES_AT = ? WHERE ID = ?";
+  static final String SELECT = "SELECT REQUEST_HASH, STATUS, CONTENT_TYPE, BODY, EXPIRES_AT FROM IDEMPOTENCY_KEYS WHERE ID = ?";
+  static final String DELETE_IN_PROGRESS = "DELETE FROM IDEMPOTENCY_KEYS WHERE ID = ? AND STATUS = 0";
+  static final String DELETE_STALE = "DELETE FROM IDEMPOTENCY_KEYS WHERE ID = ? AND STATUS = 0 AND EXPIRES_AT < ?";
+  static final String DELETE_EXPIRED = "DELETE FROM IDEMPOTENCY_KEYS WHERE EXPIRES_AT < ?";
+  static final String HEARTBEAT = "UPDATE IDEMPOTENCY_KEYS SET EXPIRES_AT = ? WHERE ID = ? AND STATUS = 0";
+
+  /** how often a request waiting on another instance checks whether it has finished */
+  static final long POLL_MILLIS = 50;
+
+  /**
+   * A response that can be replayed.
+   * @param requestHash a hash of the request parameters, so a key reused for a different request can be refused
+   * @param status the HTTP status
+   * @param contentType the Content-Type header, or null
+   * @param body the response body
+   */
+  public record StoredResponse(String requestHash, int status, String contentType, byte[] body) {
+  }
+
+  private record Cached(StoredResponse response, long expiresAt) {
+  }
+
+  private record Row(StoredResponse response, long expiresAt) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final IdempotencyProperties properties;
+  private final LongSupplier clock;
+  private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+  private final Set<String> owned = ConcurrentHashMap.newKeySet();
+  private final Map<String, Cached> cache;
+  private ScheduledExecutorService executor;
+
+  /**
+   * @param jdbcTemplate used to read and write IDEMPOTENCY_KEYS
+   * @param properties the app.idempotency settings
+   * @param clock the current time in epoch millis, e.g. System::currentTimeMillis
+   */
+  public IdempotencyStore(JdbcTemplate jdbcTemplate, IdempotencyProperties properties, LongSupplier clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.properties = properties;
+    this.clock = clock;
+    int maxEntries = properties.getCacheMaxEntries();
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * This method starts the background tasks that renew the keys this
+   * instance is running and delete expired keys.
+   */
+  public void start() {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "idempotency-store");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long reapMillis = properties.getReapInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::reapExpired, reapMillis, reapMillis, TimeUnit.MILLISECONDS);
+    long heartbeatMillis = Math.max(1, properties.getInProgressTimeout().toMillis() / 3);
+    executor.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method stops the background tasks.
+   */
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * This method claims a key for the calling request, or returns the
+   * response of the request that already used it.  When it returns null,
+   * the caller must run the request and then call complete or abandon.
+   * @param id identifies the key; already scoped to the user and route
+   * @param requestHash a hash of the request parameters
+   * @return the stored response, or null if the caller now owns the key
+   * @throws TimeoutException if another request with this key is still running after app.idempotency.wait-timeout
+   * @throws InterruptedException if interrupted while waiting for another request
+   */
+  public StoredResponse claim(String id, String requestHash) throws TimeoutException, InterruptedException {
+    long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+    while (true) {
+      StoredResponse cached = getCached(id);
+      if (cached != null) {
+        return cached;
+      }
+
+      CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+      CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(id, mine);
+      if (running != null) {
+        StoredResponse response = await(running, deadline);
+        if (response != null) {
+          return response;
+        }
+        // the request we waited for failed without a response; try to run it ourselves
+        continue;
+      }
+
+      StoredResponse stored;
+      try {
+        stored = claimRow(id, requestHash);
+      } catch (RuntimeException e) {
+        release(id, mine, null);
+        throw e;
+      }
+      if (stored == null) {
+        owned.add(id);
+        return null;
+      }
+      if (stored.status() != 0) {
+        release(id, mine, stored);
+        return stored;
+      }
+      // another instance is running this request
+      release(id, mine, null);
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        throw new TimeoutException("a request with this Idempotency-Key is still in progress");
+      }
+      Thread.sleep(Math.min(POLL_MILLIS, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+    }
+  }
+
+  /**
+   * This method stores the response for a key claimed with claim, and hands it to any duplicates waiting for it.
+   * @param id the key
+   * @param response the response to replay
+   */
+  public void complete(String id, StoredResponse response) {
+    long expiresAt = clock.getAsLong() + properties.getTtl().toMillis();
+    try {
+      jdbcTemplate.update(COMPLETE, response.status(), response.contentType(), response.body(), expiresAt, id);
+    } finally {
+      owned.remove(id);
+      synchronized (cache) {
+        cache.put(id, new Cached(response, expiresAt));
+      }
+      CompletableFuture<StoredResponse> future = inFlight.remove(id);
+      if (future != null) {
+        future.complete(response);
+      }
+    }
+  }
+
+  /**
+   * This method gives up a key claimed with claim without storing a response, e.g.
+   * because the request failed with a server error; a retry will run the request again.
+   * @param id the key
+   */
+  public void abandon(String id) {
+    try {
+      jdbcTemplate.update(DELETE_IN_PROGRESS, id);
+    } catch (DataAccessException e) {
+      log.warn("could not release Idempotency-Key {}; it will be reclaimed after {}", id, properties.getInProgressTimeout(), e);
+    } finally {
+      owned.remove(id);
+      CompletableFuture<StoredResponse> future = inFlight.remove(id);
+      if (future != null) {
+        future.complete(null);
+      }
+    }
+  }
+
+  /**
+   * This method pushes back the expiry of every key this instance is still
+   * running, so that other instances don't reclaim them.
+   * @return the number of keys renewed
+   */
+  public int heartbeat() {
+    List<Object[]> batch = new ArrayList<>();
+    long expiresAt = clock.getAsLong() + properties.getInProgressTimeout().toMillis();
+    for (String id : owned) {
+      batch.add(new Object[] { expiresAt, id });
+    }
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    try {
+      jdbcTemplate.batchUpdate(HEARTBEAT, batch);
+      return batch.size();
+    } catch (DataAccessException e) {
+      log.warn("could not renew {} Idempotency-Keys in progress", batch.size(), e);
+      return 0;
+    }
+  }
+
+  /**
+   * This method deletes keys whose responses are older than the ttl.
+   * @return the number of keys deleted
+   */
+  public int reapExpired() {
+    long now = clock.getAsLong();
+    synchronized (cache) {
+      cache.values().removeIf(cached -> cached.expiresAt() < now);
+    }
+    try {
+      return jdbcTemplate.update(DELETE_EXPIRED, now);
+    } catch (DataAccessException e) {
+      log.warn("could not delete expired idempotency keys", e);
+      return 0;
+    }
+  }
+
+  /**
+   * @return the number of responses held in memory
+   */
+  public int getCacheSize() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  private StoredResponse getCached(String id) {
+    synchronized (cache) {
+      Cached cached = cache.get(id);
+      if (cached == null) {
+        return null;
+      }
+      if (cached.expiresAt() < clock.getAsLong()) {
+        cache.remove(id);
+        return null;
+      }
+      return cached.response();
+    }
+  }
+
+  /**
+   * @return null if the row was inserted (the key is ours), otherwise the existing row; STATUS 0 means in progress
+   */
+  private StoredResponse claimRow(String id, String requestHash) {
+    long now = clock.getAsLong();
+    try {
+      jdbcTemplate.update(INSERT, id, requestHash, now, now + properties.getInProgressTimeout().toMillis());
+      return null;
+    } catch (DuplicateKeyException e) {
+      // fall through and read the existing row
+    }
+    List<Row> rows = jdbcTemplate.query(SELECT, (rs, rowNum) -> new Row(
+        new StoredResponse(rs.getString(1), rs.getInt(2), rs.getString(3), rs.getBytes(4)), rs.getLong(5)), id);
+    if (rows.isEmpty()) {
+      // deleted (abandoned or expired) since our insert failed; try again
+      return claimRow(id, requestHash);
+    }
+    Row row = rows.get(0);
+    if (row.expiresAt() < now) {
+      if (row.response().status() == 0) {
+        log.warn("reclaiming Idempotency-Key {} that was left in progress", id);
+        jdbcTemplate.update(DELETE_STALE, id, now);
+      } else {
+        jdbcTemplate.update(DELETE_EXPIRED + " AND ID = ?", now, id);
+      }
+      return claimRow(id, requestHash);
+    }
+    if (row.response().status() != 0) {
+      synchronized (cache) {
+        cache.put(id, new Cached(row.response(), row.expiresAt()));
+      }
+    }
+    return row.response();
+  }
+
+  private void release(String id, CompletableFuture<StoredResponse> mine, StoredResponse response) {
+    inFlight.remove(id, mine);
+    mine.complete(response);
+  }
+
+  private static StoredResponse await(CompletableFuture<StoredResponse> running, long deadline)
+      throws TimeoutException, InterruptedException {
+    try {
+      return running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (ExecutionException e) {
+      return null;
+    } catch (TimeoutException e) {
+      throw new TimeoutException("a request with this Idempotency-Key is still in progress");
+    }
+  }
+}
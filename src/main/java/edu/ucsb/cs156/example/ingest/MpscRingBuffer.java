@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue for many producer threads and one consumer thread.
+ * 
+ * Producers claim a slot by advancing the producer index with a CAS and then
+ * publish the element into the slot; the consumer takes elements in order,
+ * stopping at a slot that has been claimed but not yet published.  offer never
+ * blocks: it returns false when the buffer is full, so callers can push back.
+ *
+ * @param <E> the element type
+ */
+public final class MpscRingBuffer<E> {
+  private final AtomicReferenceArray<E> slots;
+  private final int capacity;
+  private final int mask;
+  private final AtomicLong producerIndex = new AtomicLong();
+  private volatile long consumerIndex;
+
+  /**
+   * @param capacity the maximum number of elements; rounded up to a power of two
+   */
+  public MpscRingBuffer(int capacity) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30, was " + capacity);
+    }
+    this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.slots = new AtomicReferenceArray<>(this.capacity);
+  }
+
+  /**
+   * This method adds an element, from any thread.
+   * @param element the element, not null
+   * @return false if the buffer is full
+   */
+  public boolean offer(E element) {
+    long index;
+    do {
+      index = producerIndex.get();
+      if (index - consumerIndex >= capacity) {
+        return false;
+      }
+    } while (!producerIndex.compareAndSet(index, index + 1));
+    slots.lazySet((int) index & mask, element);
+    return true;
+  }
+
+  /**
+   * This method removes up to limit elements, in order.  Only one thread may call it.
+   * @param consumer receives each element
+   * @param limit the most elements to remove
+   * @return the number of elements removed
+   */
+  public int drain(Consumer<E> consumer, int limit) {
+    long index = consumerIndex;
+    int drained = 0;
+    while (drained < limit) {
+      int offset = (int) index & mask;
+      E element = slots.get(offset);
+      if (element == null) {
+        // empty, or a producer has claimed the slot but not yet published to it
+        break;
+      }
+      slots.lazySet(offset, null);
+      consumerIndex = ++index;
+      drained++;
+      consumer.accept(element);
+    }
+    return drained;
+  }
+
+  /**
+   * @return the number of elements claimed and not yet drained
+   */
+  public int size() {
+    return (int) (producerIndex.get() - consumerIndex);
+  }
+
+  /**
+   * @return the capacity, a power of two
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+}
@@ -0,0 +1,406 @@
+package edu.ucsb.cs156.example.ingest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+import edu.ucsb.cs156.example.models.ReviewSubmission;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service takes menu item reviews off the request thread when
+ * app.reviews.async.enabled is true.
+ * 
+ * Submitted reviews go into a bounded MpscRingBuffer and are acknowledged
+ * immediately with a tracking id.  One writer thread saves them with saveAll,
+ * one transaction per batch, as soon as batch-size reviews are waiting or the
+ * oldest has waited flush-interval-millis.  When the buffer is full, submit
+ * returns null so the caller can ask the client to retry later.  A batch
+ * that can't be saved is tried again, up to three times in all, waiting
+ * retry-backoff-millis (doubling each time) in between; if it still fails,
+ * its reviews are saved one at a time, so that one bad review only fails
+ * itself and not the rest of its batch.  The
+ * CREATED EntityChangeEvent for each review is published inside the batch's
+ * transaction, so its OUTBOX row commits with it (and the change feed hears
+ * about it after the commit); once the batch is saved, each review is
+ * dropped from the MissingEntityCache.  Reviews saved directly, when async
+ * ingestion is off, go through save, which does the same for one review.
+ * 
+ * If app.reviews.async.journal is set, accepted reviews are also appended to
+ * that file (see ReviewJournal) and any that were never saved are queued
+ * again on startup.
+ * 
+ * The state of recent submissions (up to status-retention of them) can be
+ * looked up by tracking id.
+ */
+@Slf4j
+@Service
+public class ReviewIngestionQueue {
+
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final MenuItemReviewRepository menuItemReviewRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final MissingEntityCache missingEntityCache;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ObjectMapper mapper;
+  private final boolean enabled;
+  private final int batchSize;
+  private final long flushIntervalNanos;
+  private final long retryBackoffNanos;
+  private final String journalPath;
+  private final boolean journalFsync;
+  private final int statusRetention;
+  private final MpscRingBuffer<Pending> buffer;
+
+  private final Map<String, ReviewSubmission> statuses = new ConcurrentHashMap<>();
+  private final Queue<String> statusOrder = new ConcurrentLinkedQueue<>();
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder saved = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+
+  private ReviewJournal journal;
+  private Thread writer;
+  private volatile boolean running;
+
+  record Pending(String trackingId, MenuItemReview review) {
+  }
+
+  public ReviewIngestionQueue(
+      MenuItemReviewRepository menuItemReviewRepository,
+      PlatformTransactionManager transactionManager,
+      MissingEntityCache missingEntityCache,
+      ApplicationEventPublisher eventPublisher,
+      ObjectMapper mapper,
+      @Value("${app.reviews.async.enabled:false}") boolean enabled,
+      @Value("${app.reviews.async.capacity:4096}") int capacity,
+      @Value("${app.reviews.async.batch-size:200}") int batchSize,
+      @Value("${app.reviews.async.flush-interval-millis:200}") long flushIntervalMillis,
+      @Value("${app.reviews.async.journal:}") String journalPath,
+      @Value("${app.reviews.async.journal-fsync:false}") boolean journalFsync,
+      @Value("${app.reviews.async.status-retention:10000}") int statusRetention,
+      @Value("${app.reviews.async.retry-backoff-millis:100}") long retryBackoffMillis) {
+    this.menuItemReviewRepository = menuItemReviewRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.missingEntityCache = missingEntityCache;
+    this.eventPublisher = eventPublisher;
+    this.mapper = mapper;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    this.journalPath = journalPath;
+    this.journalFsync = journalFsync;
+    this.statusRetention = statusRetention;
+    this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis);
+    this.buffer = new MpscRingBuffer<>(capacity);
+  }
+
+  /**
+   * @return whether reviews should be submitted here rather than saved directly
+   */
+  public boolean getEnabled() {
+    return enabled;
+  }
+
+  /**
+   * This method opens the journal (queueing any unsaved reviews from it) and
+   * starts the writer thread, when async ingestion is enabled.
+   * @throws IOException if the journal cannot be opened or read
+   */
+  @PostConstruct
+  public void start() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    if (!journalPath.isEmpty()) {
+      journal = new ReviewJournal(Path.of(journalPath), journalFsync, mapper);
+      replay(journal.readUnfinished());
+    }
+    running = true;
+    writer = new Thread(this::writeLoop, "review-ingestion");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  private void replay(Map<String, MenuItemReview> unfinished) {
+    if (unfinished.isEmpty()) {
+      return;
+    }
+    log.info("queueing {} reviews from the journal that were accepted but not saved", unfinished.size());
+    // the writer isn't running yet; if there is more than fits, save some here
+    List<Pending> batch = new ArrayList<>(batchSize);
+    for (Map.Entry<String, MenuItemReview> entry : unfinished.entrySet()) {
+      Pending pending = new Pending(entry.getKey(), entry.getValue());
+      track(pending.trackingId(), ReviewSubmission.State.QUEUED, null);
+      while (!buffer.offer(pending)) {
+        buffer.drain(batch::add, batchSize);
+        write(batch, false);
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * This method stops accepting work, saves everything still queued, and closes the journal.
+   * @throws Exception if the writer thread is interrupted or the journal cannot be closed
+   */
+  @PreDestroy
+  public void stop() throws Exception {
+    if (!running) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(writer);
+    writer.join();
+    if (journal != null) {
+      journal.close();
+    }
+  }
+
+  /**
+   * This method saves a review now, in one transaction with its change event.
+   * @param review the review, already validated
+   * @return the saved review
+   */
+  public MenuItemReview save(MenuItemReview review) {
+    MenuItemReview saved = transactionTemplate.execute(status -> {
+      MenuItemReview result = menuItemReviewRepository.save(review);
+      publishCreated(result);
+      return result;
+    });
+    missingEntityCache.forget(MenuItemReview.class, saved.getId());
+    return saved;
+  }
+
+  private void publishCreated(MenuItemReview review) {
+    eventPublisher.publishEvent(new EntityChangeEvent("MenuItemReview", ChangeAction.CREATED, review.getId()));
+  }
+
+  /**
+   * This method queues a review to be saved.
+   * @param review the review, already validated
+   * @return the submission with its tracking id, or null if the queue is full
+   */
+  public ReviewSubmission submit(MenuItemReview review) {
+    if (!running) {
+      throw new IllegalStateException("async review ingestion is not running");
+    }
+    Pending pending = new Pending(UUID.randomUUID().toString(), review);
+    // tracked before it is queued, so the writer's SAVED can't be overwritten by QUEUED
+    ReviewSubmission submission = track(pending.trackingId(), ReviewSubmission.State.QUEUED, null);
+    if (!enqueue(pending)) {
+      statuses.remove(pending.trackingId());
+      rejected.increment();
+      return null;
+    }
+    accepted.increment();
+    if (buffer.size() >= batchSize) {
+      LockSupport.unpark(writer);
+    }
+    return submission;
+  }
+
+  private boolean enqueue(Pending pending) {
+    if (journal == null) {
+      return buffer.offer(pending);
+    }
+    // the journal and the buffer change together, so a truncate never loses an accepted review
+    synchronized (journal) {
+      if (buffer.size() >= buffer.getCapacity()) {
+        return false;
+      }
+      try {
+        journal.appendAccepted(pending.trackingId(), pending.review());
+      } catch (IOException e) {
+        statuses.remove(pending.trackingId());
+        throw new UncheckedIOException(e);
+      }
+      return buffer.offer(pending);
+    }
+  }
+
+  /**
+   * @param trackingId the tracking id returned by submit
+   * @return the state of the submission, or null if it is unknown (or too old)
+   */
+  public ReviewSubmission getStatus(String trackingId) {
+    return statuses.get(trackingId);
+  }
+
+  /**
+   * @return counters for the queue, for the metrics endpoint
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("capacity", buffer.getCapacity());
+    stats.put("queued", buffer.size());
+    stats.put("accepted", accepted.sum());
+    stats.put("rejected", rejected.sum());
+    stats.put("saved", saved.sum());
+    stats.put("failed", failed.sum());
+    stats.put("batches", batches.sum());
+    return stats;
+  }
+
+  private ReviewSubmission track(String trackingId, ReviewSubmission.State state, Long reviewId) {
+    ReviewSubmission submission = new ReviewSubmission(trackingId, state, reviewId);
+    if (state != ReviewSubmission.State.QUEUED) {
+      // don't bring back a status that has already been evicted
+      statuses.replace(trackingId, submission);
+      return submission;
+    }
+    if (statuses.put(trackingId, submission) == null) {
+      statusOrder.add(trackingId);
+      while (statusOrder.size() > statusRetention) {
+        String oldest = statusOrder.poll();
+        if (oldest != null) {
+          statuses.remove(oldest);
+        }
+      }
+    }
+    return submission;
+  }
+
+  private void writeLoop() {
+    List<Pending> batch = new ArrayList<>(batchSize);
+    long firstQueuedAt = 0;
+    while (true) {
+      boolean stopping = !running;
+      boolean wasEmpty = batch.isEmpty();
+      buffer.drain(batch::add, batchSize - batch.size());
+      if (wasEmpty && !batch.isEmpty()) {
+        firstQueuedAt = System.nanoTime();
+      }
+      boolean due = !batch.isEmpty()
+          && (batch.size() >= batchSize || System.nanoTime() - firstQueuedAt >= flushIntervalNanos || stopping);
+      if (due) {
+        write(batch, true);
+        batch.clear();
+      } else if (stopping && batch.isEmpty() && buffer.size() == 0) {
+        return;
+      } else if (batch.isEmpty()) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      } else {
+        // woken early by submit once a full batch is waiting
+        LockSupport.parkNanos(flushIntervalNanos - (System.nanoTime() - firstQueuedAt));
+      }
+    }
+  }
+
+  /**
+   * @param batch the reviews to save
+   * @param mayTruncate whether the journal may be emptied if nothing else is queued
+   */
+  void write(List<Pending> batch, boolean mayTruncate) {
+    List<Pending> savedBatch = new ArrayList<>(batch.size());
+    List<Pending> failedBatch = new ArrayList<>();
+    if (saveWithRetries(batch)) {
+      savedBatch.addAll(batch);
+    } else if (batch.size() > 1) {
+      log.warn("saving the {} reviews of the batch one at a time", batch.size());
+      for (Pending pending : batch) {
+        (saveTogether(List.of(pending)) ? savedBatch : failedBatch).add(pending);
+      }
+    } else {
+      failedBatch.addAll(batch);
+    }
+    batches.increment();
+    List<String> savedIds = new ArrayList<>(savedBatch.size());
+    for (Pending pending : savedBatch) {
+      long id = pending.review().getId();
+      missingEntityCache.forget(MenuItemReview.class, id);
+      track(pending.trackingId(), ReviewSubmission.State.SAVED, id);
+      savedIds.add(pending.trackingId());
+    }
+    List<String> failedIds = new ArrayList<>(failedBatch.size());
+    for (Pending pending : failedBatch) {
+      log.error("review {} could not be saved", pending.trackingId());
+      track(pending.trackingId(), ReviewSubmission.State.FAILED, null);
+      failedIds.add(pending.trackingId());
+    }
+    saved.add(savedIds.size());
+    failed.add(failedIds.size());
+    if (journal != null) {
+      synchronized (journal) {
+        try {
+          journal.appendDone(savedIds, true);
+          journal.appendDone(failedIds, false);
+          if (mayTruncate && buffer.size() == 0) {
+            journal.truncate();
+          }
+        } catch (IOException e) {
+          List<String> trackingIds = batch.stream().map(Pending::trackingId).toList();
+          log.error("could not update the review journal; these reviews may be saved again on restart: {}", trackingIds, e);
+        }
+      }
+    }
+  }
+
+  private boolean saveWithRetries(List<Pending> batch) {
+    long backoffNanos = retryBackoffNanos;
+    for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+      if (saveTogether(batch)) {
+        return true;
+      }
+      log.warn("saving a batch of {} reviews failed (attempt {} of {})", batch.size(), attempt, MAX_ATTEMPTS);
+      long until = System.nanoTime() + backoffNanos;
+      // parkNanos may return early, e.g. when submit wakes the writer
+      while (System.nanoTime() < until) {
+        LockSupport.parkNanos(until - System.nanoTime());
+      }
+      backoffNanos *= 2;
+    }
+    return saveTogether(batch);
+  }
+
+  /**
+   * @param pendings reviews to save in one transaction, with their change events
+   * @return whether they were saved; if not, their ids are cleared again
+   */
+  private boolean saveTogether(List<Pending> pendings) {
+    List<MenuItemReview> reviews = pendings.stream().map(Pending::review).toList();
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        menuItemReviewRepository.saveAll(reviews);
+        reviews.forEach(this::publishCreated);
+      });
+      return true;
+    } catch (RuntimeException e) {
+      log.warn("saving {} reviews failed: {}", reviews.size(), e.toString());
+      for (MenuItemReview review : reviews) {
+        review.setId(0);
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package edu.ucsb.cs156.example.ingest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An append-only file of accepted reviews, so that reviews acknowledged with
+ * 202 Accepted are not lost if the app stops before they are saved.
+ * 
+ * Each line is a JSON object: op "A" (accepted, with the review), "S" (saved)
+ * or "F" (failed).  On startup, reviews with an "A" line and no "S" or "F"
+ * line are queued again.  The file is emptied whenever everything accepted
+ * has been saved.
+ * 
+ * Callers must hold the journal's monitor around appends and truncate, so
+ * that the queue and the file change together.
+ */
+@Slf4j
+public class ReviewJournal implements Closeable {
+
+  record Entry(String op, String trackingId, MenuItemReview review) {
+  }
+
+  private final Path path;
+  private final boolean fsync;
+  private final ObjectMapper mapper;
+  private final FileChannel channel;
+
+  /**
+   * @param path the journal file; created if missing
+   * @param fsync whether to force each append to disk before it is acknowledged
+   * @param mapper used to write and read the reviews
+   * @throws IOException if the file cannot be opened
+   */
+  public ReviewJournal(Path path, boolean fsync, ObjectMapper mapper) throws IOException {
+    this.path = path;
+    this.fsync = fsync;
+    this.mapper = mapper;
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    endTornLine(path);
+  }
+
+  private void endTornLine(Path path) throws IOException {
+    try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = reader.size();
+      if (size == 0) {
+        return;
+      }
+      ByteBuffer last = ByteBuffer.allocate(1);
+      reader.read(last, size - 1);
+      if (last.get(0) != '\n') {
+        // otherwise the next entry would be glued onto the torn one and lost with it
+        channel.write(ByteBuffer.wrap(new byte[] { '\n' }));
+      }
+    }
+  }
+
+  /**
+   * This method reads the reviews that were accepted but never saved or failed.
+   * @return the tracking ids and reviews, in the order they were accepted
+   * @throws IOException if the file cannot be read
+   */
+  public Map<String, MenuItemReview> readUnfinished() throws IOException {
+    Map<String, MenuItemReview> unfinished = new LinkedHashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Entry entry;
+        try {
+          entry = mapper.readValue(line, Entry.class);
+        } catch (IOException e) {
+          // a torn last line from a crash mid-write; that review was never acknowledged
+          log.warn("skipping unreadable review journal line: {}", e.toString());
+          continue;
+        }
+        if ("A".equals(entry.op())) {
+          unfinished.put(entry.trackingId(), entry.review());
+        } else {
+          unfinished.remove(entry.trackingId());
+        }
+      }
+    }
+    return unfinished;
+  }
+
+  /**
+   * @param trackingId the tracking id returned to the client
+   * @param review the accepted review
+   * @throws IOException if the entry cannot be written
+   */
+  public void appendAccepted(String trackingId, MenuItemReview review) throws IOException {
+    write(List.of(new Entry("A", trackingId, review)));
+  }
+
+  /**
+   * @param trackingIds the reviews that have been saved or have failed
+   * @param saved true for saved, false for failed
+   * @throws IOException if the entries cannot be written
+   */
+  public void appendDone(List<String> trackingIds, boolean saved) throws IOException {
+    List<Entry> entries = new ArrayList<>(trackingIds.size());
+    for (String trackingId : trackingIds) {
+      entries.add(new Entry(saved ? "S" : "F", trackingId, null));
+    }
+    write(entries);
+  }
+
+  /**
+   * This method empties the journal.
+   * @throws IOException if the file cannot be truncated
+   */
+  public void truncate() throws IOException {
+    channel.truncate(0);
+  }
+
+  /**
+   * @return the current size of the journal in bytes
+   * @throws IOException if the size cannot be read
+   */
+  public long size() throws IOException {
+    return channel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void write(List<Entry> entries) throws IOException {
+    if (entries.isEmpty()) {
+      return;
+    }
+    StringBuilder lines = new StringBuilder();
+    for (Entry entry : entries) {
+      lines.append(mapper.writeValueAsString(entry)).append('\n');
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    if (fsync) {
+      channel.force(false);
+    }
+  }
+}
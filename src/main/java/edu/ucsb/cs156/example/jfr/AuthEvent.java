@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Resolving the OAuth principal of a request to a User, including saving
+ * new users.
+ */
+@Name("edu.ucsb.cs156.example.Auth")
+@Label("Principal Resolution")
+@Description("Resolving the OAuth principal of a request to a User")
+public class AuthEvent extends PhaseEvent {
+
+  @Label("Found")
+  boolean found;
+
+  /**
+   * This method ends the event, and commits it if a recording wants it.
+   * @param found whether the principal was resolved to a user
+   */
+  public void finish(boolean found) {
+    end();
+    if (shouldCommit()) {
+      describeRequest();
+      this.found = found;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service runs one Java Flight Recorder recording at a time, on
+ * demand, with the JDK's "default" settings (low overhead, suitable for
+ * production) plus every request phase event (see PhaseEvent).
+ *
+ * A recording is bounded: it keeps at most app.jfr.max-size of data, and
+ * stops by itself after its duration, which is at most app.jfr.max-duration.
+ * It is written to a file in app.jfr.directory when it stops.
+ */
+@Slf4j
+@Service
+public class FlightRecordings {
+
+  static final List<Class<? extends PhaseEvent>> EVENTS = List.of(RequestEvent.class, AuthEvent.class,
+      RepositoryEvent.class, SerializationEvent.class);
+  static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+  private final Path directory;
+  private final DataSize maxSize;
+  private final Duration maxDuration;
+  private Recording recording;
+  private Path file;
+
+  /**
+   * @param directory where recordings are written
+   * @param maxSize the most data a recording keeps; older data is dropped first
+   * @param maxDuration the longest a recording may run
+   */
+  public FlightRecordings(@Value("${app.jfr.directory:target/jfr}") Path directory,
+      @Value("${app.jfr.max-size:100MB}") DataSize maxSize,
+      @Value("${app.jfr.max-duration:10m}") Duration maxDuration) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.maxDuration = maxDuration;
+  }
+
+  /**
+   * This method starts a recording.
+   * @param duration how long to record for; app.jfr.max-duration if null
+   * @return the recording's status
+   * @throws IOException if the directory can't be created
+   * @throws ParseException if the JDK's default settings can't be read
+   */
+  public synchronized Map<String, Object> start(Duration duration) throws IOException, ParseException {
+    if (duration == null) {
+      duration = maxDuration;
+    }
+    if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+      throw new IllegalArgumentException("The duration must be more than 0 and at most %s".formatted(maxDuration));
+    }
+    if (recording != null && recording.getState() == RecordingState.RUNNING) {
+      throw new IllegalStateException("A recording is already running");
+    }
+    closeRecording();
+    Files.createDirectories(directory);
+    file = directory.resolve("recording-%s.jfr".formatted(FILE_TIME.format(Instant.now()))).toAbsolutePath();
+    recording = new Recording(Configuration.getConfiguration("default"));
+    for (Class<? extends PhaseEvent> event : EVENTS) {
+      recording.enable(event).withThreshold(Duration.ZERO);
+    }
+    recording.setName("team01");
+    recording.setToDisk(true);
+    recording.setMaxSize(maxSize.toBytes());
+    recording.setDuration(duration);
+    recording.setDestination(file);
+    recording.start();
+    log.info("started a flight recording for {}, to be written to {}", duration, file);
+    return status();
+  }
+
+  /**
+   * This method stops the recording, if it is still running, and writes it
+   * to its file.
+   * @return the recording's status, including the file it was written to
+   * @throws IOException if the recording can't be written
+   */
+  public synchronized Map<String, Object> stop() throws IOException {
+    if (recording == null) {
+      throw new IllegalStateException("No recording has been started");
+    }
+    if (recording.getState() == RecordingState.RUNNING) {
+      recording.stop();
+    }
+    Map<String, Object> status = status();
+    status.put("bytes", Files.size(file));
+    closeRecording();
+    return status;
+  }
+
+  /**
+   * @return the state of the recording (RUNNING, or CLOSED once it has been
+   *         written, or NONE when there is none), and its file
+   */
+  public synchronized Map<String, Object> status() {
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("state", recording == null ? "NONE" : recording.getState().toString());
+    status.put("file", file == null ? null : file.toString());
+    return status;
+  }
+
+  /**
+   * This method closes the recording when the app shuts down, without
+   * writing it.
+   */
+  @PreDestroy
+  public synchronized void closeRecording() {
+    if (recording != null) {
+      recording.close();
+      recording = null;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.jfr;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * This is the base of the Java Flight Recorder events for the phases of a
+ * request.  Each event records the route and a hash of the principal of
+ * the request it belongs to.
+ *
+ * Events are only filled in when shouldCommit() says a recording wants
+ * them, so that when nothing is recording, an event costs about as much as
+ * reading the clock twice.
+ */
+@Category({ "team01", "Request" })
+@StackTrace(false)
+public abstract class PhaseEvent extends jdk.jfr.Event {
+
+  @Label("Route")
+  String route;
+
+  @Label("Principal Hash")
+  String principalHash;
+
+  /**
+   * This method sets the route and principal hash from the current
+   * request, if this thread is serving one.
+   */
+  void describeRequest() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    describe(attributes instanceof ServletRequestAttributes servletAttributes ? servletAttributes.getRequest() : null);
+  }
+
+  /**
+   * This method sets the route from a request, and the principal hash from
+   * the security context.
+   * @param request the request, or null if there is none
+   */
+  void describe(HttpServletRequest request) {
+    if (request != null) {
+      route = route(request);
+    }
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null) {
+      principalHash = principalHash(authentication.getName());
+    }
+  }
+
+  /**
+   * @param value a repository result or response body
+   * @return how many rows it holds: the size of a collection or page, 0 for null or an empty Optional, and otherwise 1
+   */
+  static int rowCount(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof Collection<?> collection) {
+      return collection.size();
+    } else if (value instanceof Slice<?> slice) {
+      return slice.getNumberOfElements();
+    } else if (value instanceof Optional<?> optional) {
+      return optional.isPresent() ? 1 : 0;
+    }
+    return 1;
+  }
+
+  /**
+   * @param request a request
+   * @return its method and the pattern of the handler that served it, e.g.
+   *         GET /api/restaurants, or its path if no handler matched
+   */
+  static String route(HttpServletRequest request) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+  }
+
+  /**
+   * @param principal the name of a principal, e.g. an email address
+   * @return a short hash of it, so that events for the same principal can be
+   *         told apart from others without recording who it is
+   */
+  static String principalHash(String principal) {
+    return UUID.nameUUIDFromBytes(principal.getBytes(StandardCharsets.UTF_8)).toString().substring(0, 8);
+  }
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.jfr;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A call to a Spring Data repository method; see RepositoryEventAspect.
+ */
+@Name("edu.ucsb.cs156.example.Repository")
+@Label("Repository Call")
+@Description("A call to a Spring Data repository method")
+public class RepositoryEvent extends PhaseEvent {
+
+  private static final Map<Class<?>, String> ENTITY_TYPES = new ConcurrentHashMap<>();
+
+  @Label("Entity Type")
+  String entityType;
+
+  @Label("Method")
+  String method;
+
+  @Label("Row Count")
+  int rowCount;
+
+  /**
+   * This method ends the event, and commits it if a recording wants it.
+   * @param repository the repository that was called
+   * @param method the name of the method that was called
+   * @param result what it returned, or null if it threw
+   */
+  public void finish(Object repository, String method, Object result) {
+    end();
+    if (shouldCommit()) {
+      describeRequest();
+      this.entityType = ENTITY_TYPES.computeIfAbsent(repository.getClass(), RepositoryEvent::entityType);
+      this.method = method;
+      this.rowCount = rowCount(result);
+      commit();
+    }
+  }
+
+  /**
+   * @param repositoryClass the class of a repository (usually a proxy)
+   * @return the simple name of the entity type of the first repository
+   *         interface it implements that names one, or "" if none does
+   */
+  static String entityType(Class<?> repositoryClass) {
+    for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(repositoryClass)) {
+      Class<?>[] arguments = GenericTypeResolver.resolveTypeArguments(type, Repository.class);
+      if (arguments != null) {
+        return arguments[0].getSimpleName();
+      }
+    }
+    return "";
+  }
+}
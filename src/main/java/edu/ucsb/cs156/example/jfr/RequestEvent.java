@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.jfr;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A request to /api, from when RequestEventFilter sees it until the
+ * response is written.
+ */
+@Name("edu.ucsb.cs156.example.Request")
+@Label("Request")
+@Description("A request to the API, including principal resolution, repository calls and serialization")
+public class RequestEvent extends PhaseEvent {
+
+  @Label("Status")
+  int status;
+
+  /**
+   * This method ends the event, and commits it if a recording wants it.
+   * @param request the request
+   * @param response its response
+   */
+  public void finish(HttpServletRequest request, HttpServletResponse response) {
+    end();
+    if (shouldCommit()) {
+      describe(request);
+      status = response.getStatus();
+      commit();
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.jfr;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * This filter records a RequestEvent for each request, which the events
+ * for its phases (AuthEvent, RepositoryEvent and SerializationEvent) fall
+ * within.  It runs just after Spring Security's filters, so that the
+ * principal is known.
+ */
+public class RequestEventFilter extends OncePerRequestFilter {
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    RequestEvent event = new RequestEvent();
+    event.begin();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      event.finish(request, response);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Writing a response body as JSON; see TimedJacksonHttpMessageConverter.
+ */
+@Name("edu.ucsb.cs156.example.Serialization")
+@Label("JSON Serialization")
+@Description("Writing a response body as JSON")
+public class SerializationEvent extends PhaseEvent {
+
+  @Label("Entity Type")
+  String entityType;
+
+  @Label("Row Count")
+  int rowCount;
+
+  /**
+   * This method ends the event, and commits it if a recording wants it.
+   * @param body the response body that was written
+   */
+  public void finish(Object body) {
+    end();
+    if (shouldCommit()) {
+      describeRequest();
+      Object first = body instanceof Iterable<?> rows && rows.iterator().hasNext() ? rows.iterator().next() : body;
+      entityType = first == null ? "" : first.getClass().getSimpleName();
+      rowCount = rowCount(body);
+      commit();
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.jfr;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * This is Spring's JSON message converter, recording a SerializationEvent
+ * for each response body it writes.
+ */
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+  /**
+   * @param objectMapper the mapper of the converter this one replaces
+   */
+  public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+    super(objectMapper);
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+    SerializationEvent event = new SerializationEvent();
+    event.begin();
+    try {
+      super.writeInternal(object, type, outputMessage);
+    } finally {
+      event.finish(object);
+    }
+  }
+}
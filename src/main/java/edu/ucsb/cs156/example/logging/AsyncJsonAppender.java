@@ -0,0 +1,182 @@
+package edu.ucsb.cs156.example.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * This logback appender writes events as JSON lines (see JsonLines) from a
+ * background thread, so that logging never waits for the output or for a
+ * lock.  Request threads add events to a lock-free queue; the writer
+ * thread takes them off in batches of up to batchSize and flushes the
+ * output once per batch.
+ *
+ * The queue holds at most capacity events.  When it is more than
+ * (capacity - discardingThreshold) full, DEBUG and INFO events are dropped
+ * rather than making the caller wait; WARN and ERROR events are only
+ * dropped when it is full.  The writer reports how many were dropped, in a
+ * WARN line of its own.
+ *
+ * DEBUG and INFO events can also be sampled per logger, e.g.
+ * {@code <sample>edu.ucsb.cs156.example.aop.LoggingAspect=0.1</sample>}
+ * keeps one in ten; see LogSampler.
+ */
+public class AsyncJsonAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+  private int capacity = 8192;
+  private int discardingThreshold = -1;
+  private int batchSize = 256;
+  private long flushIntervalMillis = 10;
+  private long maxFlushMillis = 1000;
+  private OutputStream out = System.out;
+  private final LogSampler sampler = new LogSampler();
+
+  private final Queue<ILoggingEvent> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder sampledOut = new LongAdder();
+  private long droppedReported;
+  private Thread writer;
+
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /** how much room is kept for WARN and ERROR events; a fifth of the capacity if not set */
+  public void setDiscardingThreshold(int discardingThreshold) {
+    this.discardingThreshold = discardingThreshold;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /** how long the writer sleeps when the queue is empty */
+  public void setFlushIntervalMillis(long flushIntervalMillis) {
+    this.flushIntervalMillis = flushIntervalMillis;
+  }
+
+  /** how long stop waits for the queued events to be written */
+  public void setMaxFlushMillis(long maxFlushMillis) {
+    this.maxFlushMillis = maxFlushMillis;
+  }
+
+  /** where the lines go; System.out if not set */
+  public void setOutputStream(OutputStream out) {
+    this.out = out;
+  }
+
+  /**
+   * @param spec a logger and the fraction of its DEBUG and INFO events to keep, e.g.
+   *        edu.ucsb.cs156.example.aop.LoggingAspect=0.1
+   */
+  public void addSample(String spec) {
+    sampler.add(spec);
+  }
+
+  @Override
+  public void start() {
+    if (discardingThreshold < 0) {
+      discardingThreshold = capacity / 5;
+    }
+    super.start();
+    writer = new Thread(this::writeUntilStopped, "async-json-log");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    boolean droppable = event.getLevel().toInt() < Level.WARN_INT;
+    if (droppable && !sampler.sample(event.getLoggerName())) {
+      sampledOut.increment();
+      return;
+    }
+    int size = queued.incrementAndGet();
+    if (size > capacity || (droppable && size > capacity - discardingThreshold)) {
+      queued.decrementAndGet();
+      dropped.increment();
+      return;
+    }
+    // the message, thread name and MDC are read now, on the logging thread
+    event.prepareForDeferredProcessing();
+    queue.offer(event);
+  }
+
+  /**
+   * If the output fails, the writer stops, and from then on events are
+   * dropped once the queue fills up.
+   */
+  private void writeUntilStopped() {
+    try {
+      JsonLines lines = new JsonLines(out);
+      while (isStarted() || !queue.isEmpty()) {
+        if (!writeBatch(lines)) {
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+        }
+      }
+    } catch (IOException e) {
+      addError("could not write log events; no more will be written", e);
+    }
+  }
+
+  /**
+   * @return whether there were any events to write
+   */
+  boolean writeBatch(JsonLines lines) throws IOException {
+    int written = 0;
+    ILoggingEvent event;
+    while (written < batchSize && (event = queue.poll()) != null) {
+      queued.decrementAndGet();
+      written++;
+      lines.write(event);
+    }
+    long droppedNow = dropped.sum();
+    if (droppedNow > droppedReported) {
+      lines.writeDropped(droppedNow - droppedReported);
+      droppedReported = droppedNow;
+      written++;
+    }
+    if (written > 0) {
+      lines.flush();
+    }
+    return written > 0;
+  }
+
+  @Override
+  public void stop() {
+    if (!isStarted()) {
+      return;
+    }
+    super.stop();
+    LockSupport.unpark(writer);
+    try {
+      writer.join(maxFlushMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return how many events were dropped because the queue was full
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * @return how many events were left out by sampling
+   */
+  public long getSampledOut() {
+    return sampledOut.sum();
+  }
+}
@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+
+/**
+ * This class writes logging events as JSON, one object per line, e.g.
+ * {"@timestamp":"2024-10-01T17:00:00.123Z","level":"INFO","logger":"...","thread":"...","message":"..."}
+ * with "mdc" and "stack_trace" fields when the event has them.
+ *
+ * It is not thread safe; AsyncJsonAppender uses one from its writer thread.
+ */
+public class JsonLines {
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  private final OutputStream out;
+  // the generator spills its own buffer whenever it fills, so the lines are
+  // kept here until flush, however long they are
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+  private final JsonGenerator generator;
+
+  /**
+   * @param out where the lines go; nothing is written to it until flush is
+   *            called
+   * @throws IOException if the generator can't be created
+   */
+  public JsonLines(OutputStream out) throws IOException {
+    this.out = out;
+    this.generator = FACTORY.createGenerator(buffer);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  /**
+   * @param event the event to write
+   * @throws IOException if the output can't be written
+   */
+  public void write(ILoggingEvent event) throws IOException {
+    writeStart(event.getInstant(), event.getLevel().toString(), event.getLoggerName(), event.getThreadName(),
+        event.getFormattedMessage());
+    Map<String, String> mdc = event.getMDCPropertyMap();
+    if (!mdc.isEmpty()) {
+      generator.writeObjectFieldStart("mdc");
+      for (Map.Entry<String, String> entry : mdc.entrySet()) {
+        generator.writeStringField(entry.getKey(), entry.getValue());
+      }
+      generator.writeEndObject();
+    }
+    IThrowableProxy throwable = event.getThrowableProxy();
+    if (throwable != null) {
+      generator.writeStringField("stack_trace", ThrowableProxyUtil.asString(throwable));
+    }
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+  }
+
+  /**
+   * This method writes a WARN line saying that events were dropped.
+   * @param count how many events were dropped since the last such line
+   * @throws IOException if the output can't be written
+   */
+  public void writeDropped(long count) throws IOException {
+    writeStart(Instant.now(), "WARN", AsyncJsonAppender.class.getName(), Thread.currentThread().getName(),
+        "dropped %d log events because the queue was full".formatted(count));
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+  }
+
+  private void writeStart(Instant timestamp, String level, String logger, String thread, String message)
+      throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("@timestamp", timestamp.toString());
+    generator.writeStringField("level", level);
+    generator.writeStringField("logger", logger);
+    generator.writeStringField("thread", thread);
+    generator.writeStringField("message", message);
+  }
+
+  /**
+   * This method writes the buffered lines to the output, and flushes it.
+   * @throws IOException if the output can't be written
+   */
+  public void flush() throws IOException {
+    generator.flush();
+    buffer.writeTo(out);
+    buffer.reset();
+    out.flush();
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.logging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class decides which events of a logger to keep, given the fraction
+ * of events to keep for that logger or the nearest package above it, e.g.
+ * 0.01 for edu.ucsb.cs156.example.services.  Loggers with no rate keep
+ * every event.
+ */
+public class LogSampler {
+
+  private final Map<String, Double> rates = new HashMap<>();
+  private final Map<String, Double> ratesByLogger = new ConcurrentHashMap<>();
+
+  /**
+   * This method sets the rate for a logger and the loggers under it.  It
+   * must be called before the sampler is used.
+   * @param spec the logger and rate, e.g. edu.ucsb.cs156.example.aop.LoggingAspect=0.1
+   */
+  public void add(String spec) {
+    int equals = spec.lastIndexOf('=');
+    double rate;
+    try {
+      rate = equals < 0 ? Double.NaN : Double.parseDouble(spec.substring(equals + 1).trim());
+    } catch (NumberFormatException e) {
+      rate = Double.NaN;
+    }
+    if (!(rate >= 0 && rate <= 1)) {
+      throw new IllegalArgumentException("Sample %s should be logger=rate, with a rate from 0 to 1".formatted(spec));
+    }
+    rates.put(spec.substring(0, equals).trim(), rate);
+    ratesByLogger.clear();
+  }
+
+  /**
+   * @param loggerName the name of a logger
+   * @return the fraction of its events to keep
+   */
+  public double rate(String loggerName) {
+    return ratesByLogger.computeIfAbsent(loggerName, name -> {
+      for (String prefix = name; !prefix.isEmpty(); prefix = prefix.substring(0, Math.max(prefix.lastIndexOf('.'), 0))) {
+        Double rate = rates.get(prefix);
+        if (rate != null) {
+          return rate;
+        }
+      }
+      return 1.0;
+    });
+  }
+
+  /**
+   * @param loggerName the name of a logger
+   * @return whether to keep an event of the logger
+   */
+  public boolean sample(String loggerName) {
+    double rate = rate(loggerName);
+    return rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate;
+  }
+}
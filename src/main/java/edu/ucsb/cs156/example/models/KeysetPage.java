@@ -0,0 +1,15 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+/**
+ * This is a model class for one page of a list that is paged by keyset
+ * rather than by offset, so that later pages are as fast as the first and
+ * rows added or removed meanwhile don't shift the pages.
+ *
+ * @param <T> the type of the items
+ * @param content the items on this page
+ * @param next the cursor to pass to get the next page, or null if this is the last page
+ */
+public record KeysetPage<T>(List<T> content, String next) {
+}
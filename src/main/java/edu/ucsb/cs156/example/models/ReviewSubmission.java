@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents the progress of a menu item review
+ * submitted while asynchronous review ingestion is on.
+ * 
+ * The trackingId is returned when the review is accepted; reviewId is set
+ * once the review has been saved.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ReviewSubmission {
+  private String trackingId;
+  private State state;
+  private Long reviewId;
+
+  /**
+   * QUEUED: accepted, not yet saved; SAVED: in the database; FAILED: could not be saved.
+   */
+  public enum State {
+    QUEUED, SAVED, FAILED
+  }
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.outbox;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * This is the default outbox sink: it appends each event to a local file as
+ * one line of JSON, for another process to tail.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+  private final Path path;
+  private final ObjectMapper mapper;
+
+  /**
+   * @param path the file to append to; it is created if it does not exist
+   * @param mapper used to write the events as JSON
+   */
+  public FileOutboxSink(Path path, ObjectMapper mapper) {
+    this.path = path;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public void deliver(List<OutboxEvent> events) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      for (OutboxEvent event : events) {
+        writer.write(mapper.writeValueAsString(event));
+        writer.write('\n');
+      }
+    }
+  }
+}
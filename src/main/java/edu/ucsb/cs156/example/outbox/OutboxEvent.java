@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.outbox;
+
+/**
+ * This is a row of the OUTBOX table, as delivered to an {@link OutboxSink}.
+ * @param id the row id
+ * @param entityType the simple name of the entity class, e.g. Articles
+ * @param action CREATED, UPDATED, DELETED or IMPORTED
+ * @param entityId the id of the entity as a string, or null for IMPORTED
+ * @param createdAt when the change was made, in epoch millis
+ */
+public record OutboxEvent(long id, String entityType, String action, String entityId, long createdAt) {
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.outbox;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * This class holds the settings for the change event outbox, bound from the
+ * app.outbox.* properties.
+ */
+
+@Data
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperties {
+  private boolean enabled = true;
+  /** how many events the relay reads, delivers and marks processed in one transaction */
+  private int batchSize = 500;
+  /** how long the relay waits after finding no more events before looking again */
+  private Duration pollInterval = Duration.ofSeconds(1);
+  /** how long processed events are kept before they are deleted */
+  private Duration retention = Duration.ofDays(7);
+  /** the file the default sink appends events to, one JSON object per line */
+  private String file = "outbox-events.ndjson";
+}
@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class delivers the events in the OUTBOX table to the {@link OutboxSink}s.
+ *
+ * A background task reads up to app.outbox.batch-size unprocessed rows with
+ * FOR UPDATE SKIP LOCKED, hands them to every sink, and marks them
+ * processed, all in one transaction; it repeats until a batch comes back
+ * short, then waits app.outbox.poll-interval.  SKIP LOCKED lets several
+ * instances relay at once without delivering the same row twice.  If a
+ * sink fails the transaction rolls back and the batch is retried on the
+ * next poll, so delivery is at least once.
+ *
+ * Processed rows are deleted once they are older than app.outbox.retention.
+ */
+@Slf4j
+public class OutboxRelay {
+
+  static final String SELECT_BATCH = "SELECT ID, ENTITY_TYPE, ACTION, ENTITY_ID, CREATED_AT FROM OUTBOX "
+      + "WHERE PROCESSED_AT IS NULL ORDER BY ID LIMIT ? FOR UPDATE SKIP LOCKED";
+  static final String MARK_PROCESSED = "UPDATE OUTBOX SET PROCESSED_AT = ? WHERE ID = ?";
+  static final String DELETE_PROCESSED = "DELETE FROM OUTBOX WHERE PROCESSED_AT < ?";
+
+  /** how often processed rows older than the retention are deleted */
+  static final long REAP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private static final RowMapper<OutboxEvent> ROW_MAPPER = (rs, rowNum) -> new OutboxEvent(
+      rs.getLong("ID"), rs.getString("ENTITY_TYPE"), rs.getString("ACTION"),
+      rs.getString("ENTITY_ID"), rs.getLong("CREATED_AT"));
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final List<OutboxSink> sinks;
+  private final OutboxProperties properties;
+  private final LongSupplier clock;
+  private ScheduledExecutorService executor;
+
+  /**
+   * @param jdbcTemplate used to read and update OUTBOX
+   * @param transactionManager used to run each batch in a transaction
+   * @param sinks where the events are delivered
+   * @param properties the app.outbox settings
+   * @param clock the current time in epoch millis, e.g. System::currentTimeMillis
+   */
+  public OutboxRelay(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+      List<OutboxSink> sinks, OutboxProperties properties, LongSupplier clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.sinks = sinks;
+    this.properties = properties;
+    this.clock = clock;
+  }
+
+  /**
+   * This method starts the background tasks that relay events and delete processed ones.
+   */
+  public void start() {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "outbox-relay");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long pollMillis = properties.getPollInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::relayAll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    executor.scheduleWithFixedDelay(this::reapProcessed, REAP_MILLIS, REAP_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method stops the background tasks, letting a batch in progress finish.
+   * @throws InterruptedException if interrupted while waiting for the batch
+   */
+  public void stop() throws InterruptedException {
+    if (executor != null) {
+      executor.shutdown();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * This method relays batches until there are no more unprocessed events
+   * (that aren't locked by another relay), or a batch fails.
+   * @return the number of events relayed
+   */
+  public long relayAll() {
+    long relayed = 0;
+    try {
+      int count;
+      do {
+        count = relayBatch();
+        relayed += count;
+      } while (count == properties.getBatchSize());
+    } catch (RuntimeException e) {
+      log.warn("outbox relay failed; will retry: {}", e.toString());
+    }
+    return relayed;
+  }
+
+  /**
+   * This method reads one batch of unprocessed events, delivers it to every
+   * sink, and marks it processed, in one transaction.
+   * @return the number of events in the batch
+   */
+  int relayBatch() {
+    return transactionTemplate.execute(status -> {
+      List<OutboxEvent> events = jdbcTemplate.query(SELECT_BATCH, ROW_MAPPER, properties.getBatchSize());
+      if (events.isEmpty()) {
+        return 0;
+      }
+      for (OutboxSink sink : sinks) {
+        try {
+          sink.deliver(events);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      long now = clock.getAsLong();
+      jdbcTemplate.batchUpdate(MARK_PROCESSED,
+          events.stream().map(event -> new Object[] { now, event.id() }).toList());
+      return events.size();
+    });
+  }
+
+  /**
+   * This method deletes processed events older than app.outbox.retention.
+   */
+  void reapProcessed() {
+    try {
+      int deleted = jdbcTemplate.update(DELETE_PROCESSED, clock.getAsLong() - properties.getRetention().toMillis());
+      log.debug("deleted {} processed outbox events", deleted);
+    } catch (RuntimeException e) {
+      log.warn("could not delete processed outbox events: {}", e.toString());
+    }
+  }
+}
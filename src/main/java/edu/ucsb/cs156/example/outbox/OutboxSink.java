@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This interface is a destination for change events from the outbox, e.g.
+ * a search index or a message broker.  Any bean implementing it receives
+ * every event; when there is none, events go to a {@link FileOutboxSink}.
+ *
+ * Delivery is at least once: if the relay stops between delivering a batch
+ * and marking it processed, the batch is delivered again, so sinks should
+ * use the event id to ignore duplicates.
+ */
+public interface OutboxSink {
+  /**
+   * This method delivers a batch of events, in id order.
+   * @param events the events
+   * @throws IOException if the events could not be delivered; they will be retried
+   */
+  void deliver(List<OutboxEvent> events) throws IOException;
+}
@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.outbox;
+
+import java.util.function.LongSupplier;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+
+/**
+ * This class adds a row to the OUTBOX table for each {@link EntityChangeEvent}.
+ *
+ * It is an ordinary (not transactional) event listener, so it runs while the
+ * publisher's transaction is still open and the row is inserted in that
+ * same transaction: it commits if and only if the change itself commits.
+ * Besides the controllers, CsvImporter (for each chunk) and
+ * ReviewIngestionQueue (for each batch) publish inside their transactions.
+ */
+public class OutboxWriter {
+
+  static final String INSERT = "INSERT INTO OUTBOX (ENTITY_TYPE, ACTION, ENTITY_ID, CREATED_AT) VALUES (?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final LongSupplier clock;
+
+  /**
+   * @param jdbcTemplate used to insert into OUTBOX; it joins the current transaction
+   * @param clock the current time in epoch millis, e.g. System::currentTimeMillis
+   */
+  public OutboxWriter(JdbcTemplate jdbcTemplate, LongSupplier clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.clock = clock;
+  }
+
+  /**
+   * This method inserts the event into OUTBOX.
+   * @param event the event
+   */
+  @EventListener
+  public void onChange(EntityChangeEvent event) {
+    jdbcTemplate.update(INSERT, event.entityType(), event.action().name(),
+        event.id() == null ? null : event.id().toString(), clock.getAsLong());
+  }
+}
@@ -0,0 +1,170 @@
+package edu.ucsb.cs156.example.pool;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class watches the Hikari connection pools, resizes them to fit the
+ * load, and tells LoadSheddingInterceptor when one is saturated.
+ *
+ * Each pool is resized every app.pool.tune-interval by Little's law: the
+ * connections in use on average are the total time connections were held
+ * (which is mostly database latency) over the interval.  The new size
+ * allows headroom over that average, and at least the peak number in use.
+ * If threads had to wait for a connection the pool grows by at least a
+ * quarter; otherwise it shrinks by at most a quarter, so that one quiet
+ * interval doesn't undo it.  Sizes stay between app.pool.min-size and
+ * app.pool.max-size.
+ */
+@Slf4j
+public class ConnectionPoolManager {
+
+  private record ManagedPool(HikariDataSource dataSource, PoolMonitor monitor) {
+  }
+
+  private final PoolProperties properties;
+  private final LongSupplier clock;
+  private final List<ManagedPool> pools = new CopyOnWriteArrayList<>();
+  private final LongAdder shed = new LongAdder();
+  private ScheduledExecutorService executor;
+
+  /**
+   * @param properties the app.pool settings
+   * @param clock the current time in epoch millis, e.g. System::currentTimeMillis
+   */
+  public ConnectionPoolManager(PoolProperties properties, LongSupplier clock) {
+    this.properties = properties;
+    this.clock = clock;
+  }
+
+  /**
+   * This method starts watching a pool.  It should be called before the
+   * pool is first used, so that its initial size is within the limits.
+   * @param dataSource the pool
+   */
+  public void manage(HikariDataSource dataSource) {
+    PoolMonitor monitor = new PoolMonitor(properties.getShedWait().toNanos(), clock);
+    dataSource.setMetricsTrackerFactory((poolName, poolStats) -> monitor);
+    if (properties.getAutotune()) {
+      dataSource.setMinimumIdle(properties.getMinSize());
+      dataSource.setMaximumPoolSize(clamp(dataSource.getMaximumPoolSize()));
+    }
+    pools.add(new ManagedPool(dataSource, monitor));
+  }
+
+  /**
+   * This method starts resizing the pools every app.pool.tune-interval, if app.pool.autotune is true.
+   */
+  public void start() {
+    if (!properties.getAutotune()) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "connection-pool-tuner");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long intervalMillis = properties.getTuneInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::tune, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method stops resizing the pools.
+   */
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * This method resizes each pool for the load it saw since the last time.
+   */
+  public void tune() {
+    for (ManagedPool pool : pools) {
+      HikariDataSource dataSource = pool.dataSource();
+      int current = dataSource.getMaximumPoolSize();
+      PoolMonitor.Sample sample = pool.monitor().sample();
+      int target = targetSize(current, sample);
+      if (target != current) {
+        log.info("resizing connection pool {} from {} to {} ({})", dataSource.getPoolName(), current, target, sample);
+        dataSource.setMaximumPoolSize(target);
+      }
+    }
+  }
+
+  int targetSize(int current, PoolMonitor.Sample sample) {
+    double meanInUse = (double) sample.usageMillis() / Math.max(1, sample.elapsedMillis());
+    int target = (int) Math.ceil(Math.max(meanInUse * properties.getHeadroom(), sample.peakInUse()));
+    int step = Math.max(1, current / 4);
+    if (sample.slowWaits() > 0 || sample.timeouts() > 0) {
+      target = Math.max(target, current + step);
+    } else {
+      target = Math.max(target, current - step);
+    }
+    return clamp(target);
+  }
+
+  private int clamp(int size) {
+    return Math.max(properties.getMinSize(), Math.min(properties.getMaxSize(), size));
+  }
+
+  /**
+   * @return whether shedding is on and some pool had a thread wait longer
+   *         than app.pool.shed-wait for a connection within app.pool.shed-window
+   */
+  public boolean isSaturated() {
+    if (!properties.getShedding()) {
+      return false;
+    }
+    long windowMillis = properties.getShedWindow().toMillis();
+    return pools.stream().anyMatch(pool -> pool.monitor().isSaturated(windowMillis));
+  }
+
+  /**
+   * This method should be called when a request is shed.
+   */
+  public void recordShed() {
+    shed.increment();
+  }
+
+  /**
+   * @return for each pool, its size, connections in use, idle and waited
+   *         for, and a histogram of how long threads waited; and how many requests were shed
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> poolStats = new LinkedHashMap<>();
+    for (ManagedPool pool : pools) {
+      HikariDataSource dataSource = pool.dataSource();
+      PoolMonitor monitor = pool.monitor();
+      Map<String, Object> stats = new LinkedHashMap<>();
+      stats.put("maximumPoolSize", dataSource.getMaximumPoolSize());
+      // null until the pool is first used
+      HikariPoolMXBean mxBean = dataSource.getHikariPoolMXBean();
+      stats.put("active", mxBean == null ? 0 : mxBean.getActiveConnections());
+      stats.put("idle", mxBean == null ? 0 : mxBean.getIdleConnections());
+      stats.put("waiting", mxBean == null ? 0 : mxBean.getThreadsAwaitingConnection());
+      stats.put("acquisitions", monitor.getAcquisitions());
+      stats.put("timeouts", monitor.getTimeouts());
+      stats.put("saturated", monitor.isSaturated(properties.getShedWindow().toMillis()));
+      stats.put("waits", monitor.getWaits().getCounts());
+      poolStats.put(String.valueOf(dataSource.getPoolName()), stats);
+    }
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("pools", poolStats);
+    stats.put("shed", shed.sum());
+    return stats;
+  }
+}
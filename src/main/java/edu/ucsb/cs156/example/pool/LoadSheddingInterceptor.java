@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.pool;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This interceptor turns away low-priority requests (app.pool.shed-paths)
+ * with a 503 while a connection pool is saturated, before they take a
+ * thread and a connection from the interactive requests, which go on as
+ * usual.  The Retry-After header (in seconds) is the shed window.
+ */
+@Slf4j
+public class LoadSheddingInterceptor implements HandlerInterceptor {
+
+  private final ConnectionPoolManager manager;
+  private final long retryAfterSeconds;
+
+  /**
+   * @param manager says whether a pool is saturated
+   * @param properties the app.pool settings
+   */
+  public LoadSheddingInterceptor(ConnectionPoolManager manager, PoolProperties properties) {
+    this.manager = manager;
+    this.retryAfterSeconds = Math.max(1, properties.getShedWindow().toSeconds());
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+      throws IOException {
+    if (!manager.isSaturated()) {
+      return true;
+    }
+    manager.recordShed();
+    log.warn("shedding {} {} while the connection pool is saturated", request.getMethod(), request.getRequestURI());
+    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.getWriter().write(
+        "{\"type\":\"ServiceUnavailable\",\"message\":\"The database is busy, retry after %d seconds\"}"
+            .formatted(retryAfterSeconds));
+    return false;
+  }
+}
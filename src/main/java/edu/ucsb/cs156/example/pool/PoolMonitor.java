@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.pool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+/**
+ * This class is told by a Hikari pool each time a connection is borrowed,
+ * returned or timed out, and keeps what ConnectionPoolManager needs to size
+ * the pool and to tell whether it is saturated.
+ */
+public class PoolMonitor implements IMetricsTracker {
+
+  /**
+   * What a pool saw since the previous sample.
+   * @param elapsedMillis how long since the previous sample
+   * @param usageMillis the total time connections were held, for those returned
+   * @param peakInUse the most connections borrowed at once
+   * @param slowWaits how many threads waited longer than the slow wait for a connection
+   * @param timeouts how many threads gave up waiting for a connection
+   */
+  public record Sample(long elapsedMillis, long usageMillis, int peakInUse, long slowWaits, long timeouts) {
+  }
+
+  private static final long NEVER = Long.MIN_VALUE;
+
+  private final long slowWaitNanos;
+  private final LongSupplier clock;
+  private final WaitHistogram waits = new WaitHistogram();
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final AtomicInteger inUse = new AtomicInteger();
+  private final AtomicInteger peakInUse = new AtomicInteger();
+  private final AtomicLong usageMillis = new AtomicLong();
+  private final AtomicLong slowWaits = new AtomicLong();
+  private final AtomicLong timeoutsSinceSample = new AtomicLong();
+  private final AtomicLong lastSlowWait = new AtomicLong(NEVER);
+  private long lastSample;
+
+  /**
+   * @param slowWaitNanos waits longer than this count as slow
+   * @param clock the current time in epoch millis, e.g. System::currentTimeMillis
+   */
+  public PoolMonitor(long slowWaitNanos, LongSupplier clock) {
+    this.slowWaitNanos = slowWaitNanos;
+    this.clock = clock;
+    this.lastSample = clock.getAsLong();
+  }
+
+  @Override
+  public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+    acquisitions.increment();
+    waits.record(elapsedAcquiredNanos);
+    peakInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+    if (elapsedAcquiredNanos > slowWaitNanos) {
+      slowWaits.incrementAndGet();
+      lastSlowWait.set(clock.getAsLong());
+    }
+  }
+
+  @Override
+  public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+    inUse.decrementAndGet();
+    usageMillis.addAndGet(elapsedBorrowedMillis);
+  }
+
+  @Override
+  public void recordConnectionTimeout() {
+    timeouts.increment();
+    timeoutsSinceSample.incrementAndGet();
+    lastSlowWait.set(clock.getAsLong());
+  }
+
+  /**
+   * @param windowMillis how recent a slow wait must be
+   * @return whether a thread waited too long for a connection (or gave up) in the last windowMillis
+   */
+  public boolean isSaturated(long windowMillis) {
+    return lastSlowWait.get() > clock.getAsLong() - windowMillis;
+  }
+
+  /**
+   * @return what the pool saw since the previous sample
+   */
+  public synchronized Sample sample() {
+    long now = clock.getAsLong();
+    Sample sample = new Sample(now - lastSample, usageMillis.getAndSet(0), peakInUse.getAndSet(inUse.get()),
+        slowWaits.getAndSet(0), timeoutsSinceSample.getAndSet(0));
+    lastSample = now;
+    return sample;
+  }
+
+  public WaitHistogram getWaits() {
+    return waits;
+  }
+
+  public long getAcquisitions() {
+    return acquisitions.sum();
+  }
+
+  public long getTimeouts() {
+    return timeouts.sum();
+  }
+}
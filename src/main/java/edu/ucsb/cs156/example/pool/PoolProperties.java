@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.pool;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * This class holds the settings for managing the database connection pools,
+ * bound from the app.pool.* properties.
+ */
+
+@Data
+@ConfigurationProperties(prefix = "app.pool")
+public class PoolProperties {
+  /** whether to resize the pools from the load they see */
+  private boolean autotune = true;
+  /** the smallest size autotuning shrinks a pool to; also its minimum idle connections */
+  private int minSize = 5;
+  /** the largest size autotuning grows a pool to; keep it under the database's max_connections */
+  private int maxSize = 40;
+  /** how often the pools are resized */
+  private Duration tuneInterval = Duration.ofSeconds(30);
+  /** how many connections to allow per connection in use on average */
+  private double headroom = 1.5;
+  /** whether to shed low-priority requests while a pool is saturated */
+  private boolean shedding = true;
+  /** a pool is saturated when a thread has waited longer than this for a connection... */
+  private Duration shedWait = Duration.ofMillis(100);
+  /** ...within this long */
+  private Duration shedWindow = Duration.ofSeconds(5);
+  /** the low-priority requests, as path patterns */
+  private List<String> shedPaths = List.of("/api/*/all", "/api/admin/export/**");
+}
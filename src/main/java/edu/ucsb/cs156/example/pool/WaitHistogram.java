@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.pool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts how long threads waited for a connection, in buckets
+ * of roughly doubling width from 1ms to 5s.
+ */
+public class WaitHistogram {
+
+  /** the upper bound of each bucket but the last, in millis */
+  static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+  private final LongAdder[] counts = new LongAdder[BOUNDS.length + 1];
+
+  public WaitHistogram() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * @param waitNanos how long a thread waited for a connection
+   */
+  public void record(long waitNanos) {
+    long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    int bucket = 0;
+    while (bucket < BOUNDS.length && waitMillis >= BOUNDS[bucket]) {
+      bucket++;
+    }
+    counts[bucket].increment();
+  }
+
+  /**
+   * @return the count in each bucket, labeled by its bounds, e.g. "1-2ms", in order
+   */
+  public Map<String, Long> getCounts() {
+    Map<String, Long> snapshot = new LinkedHashMap<>();
+    snapshot.put("<" + BOUNDS[0] + "ms", counts[0].sum());
+    for (int i = 1; i < BOUNDS.length; i++) {
+      snapshot.put(BOUNDS[i - 1] + "-" + BOUNDS[i] + "ms", counts[i].sum());
+    }
+    snapshot.put(">=" + BOUNDS[BOUNDS.length - 1] + "ms", counts[BOUNDS.length].sum());
+    return snapshot;
+  }
+}
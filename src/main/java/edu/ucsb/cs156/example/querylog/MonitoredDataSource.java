@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.querylog;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * This DataSource times every statement run on its connections and tells
+ * the QueryMonitor, along with the parameters bound to it.
+ *
+ * Connections and statements are wrapped in JDK proxies, so every other
+ * JDBC call goes straight through to the wrapped DataSource's objects.
+ */
+public class MonitoredDataSource extends DelegatingDataSource implements AutoCloseable {
+
+  static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+      "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+  static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+  private final QueryMonitor monitor;
+
+  /**
+   * @param target the DataSource whose statements are timed
+   * @param monitor where the timings go
+   */
+  public MonitoredDataSource(DataSource target, QueryMonitor monitor) {
+    super(target);
+    this.monitor = monitor;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return monitored(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return monitored(super.getConnection(username, password));
+  }
+
+  private Connection monitored(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+        (proxy, method, args) -> {
+          Object result = invoke(connection, method, args);
+          if (STATEMENT_METHODS.contains(method.getName())) {
+            // createStatement has no SQL; each execute call brings its own
+            String sql = args != null && args[0] instanceof String text ? text : null;
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { method.getReturnType() },
+                new StatementHandler((Statement) result, sql));
+          }
+          return result;
+        });
+  }
+
+  private class StatementHandler implements InvocationHandler {
+    private final Statement statement;
+    private final String preparedSql;
+    private final Map<Integer, Object> parameters = new TreeMap<>();
+
+    StatementHandler(Statement statement, String preparedSql) {
+      this.statement = statement;
+      this.preparedSql = preparedSql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.startsWith("set") && args.length >= 2 && args[0] instanceof Integer index) {
+        // setNull's second argument is the SQL type
+        parameters.put(index, name.equals("setNull") ? null : args[1]);
+      } else if (name.equals("clearParameters")) {
+        parameters.clear();
+      } else if (EXECUTE_METHODS.contains(name)) {
+        // the execute methods with arguments take the SQL first
+        String sql = args == null ? preparedSql : (String) args[0];
+        long begin = System.nanoTime();
+        try {
+          return MonitoredDataSource.invoke(statement, method, args);
+        } finally {
+          monitor.record(String.valueOf(sql), System.nanoTime() - begin, parameters);
+        }
+      }
+      return MonitoredDataSource.invoke(statement, method, args);
+    }
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Closes the wrapped DataSource, if it can be closed, e.g. a connection pool.
+   */
+  @Override
+  public void close() throws Exception {
+    if (getTargetDataSource() instanceof AutoCloseable closeable) {
+      closeable.close();
+    }
+  }
+}
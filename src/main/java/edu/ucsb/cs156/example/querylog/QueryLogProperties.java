@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.querylog;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * This class holds the settings for timing SQL statements, bound from the
+ * app.query-log.* properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.query-log")
+public class QueryLogProperties {
+  private boolean enabled = true;
+  /** statements that take longer than this are logged, with their parameters */
+  private Duration slowThreshold = Duration.ofMillis(200);
+  /** requests that run more statements than this are logged, with the statement they repeated most */
+  private int statementBudget = 50;
+  /** how many distinct statements are timed; statements seen after that are only counted per request */
+  private int maxStatements = 2000;
+  /** logged parameters longer than this are cut short */
+  private int maxParameterLength = 100;
+}
@@ -0,0 +1,170 @@
+package edu.ucsb.cs156.example.querylog;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class is told the time every SQL statement takes (by
+ * MonitoredDataSource), and keeps, for each normalized statement, how many
+ * times it ran and how long it took.  Statements slower than
+ * app.query-log.slow-threshold are logged with their parameters.
+ *
+ * Between beginRequest and endRequest (called by StatementCountingFilter),
+ * it also counts the statements the request's thread runs; requests that
+ * run more than app.query-log.statement-budget are logged with the
+ * statement they ran most, which is usually an N+1 query.
+ */
+@Slf4j
+public class QueryMonitor {
+
+  /**
+   * The timings of a normalized statement.
+   * @param sql the normalized statement
+   * @param count how many times it ran
+   * @param meanMillis how long it took on average
+   * @param maxMillis how long it took at most
+   * @param totalMillis how long it took in all
+   */
+  public record QueryStats(String sql, long count, double meanMillis, double maxMillis, double totalMillis) {
+  }
+
+  private static class Timings {
+    final LongAdder count = new LongAdder();
+    final LongAdder totalNanos = new LongAdder();
+    final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    QueryStats toStats(String sql) {
+      long n = count.sum();
+      double total = totalNanos.sum() / 1e6;
+      // n is 0 only if read before the first statement is counted
+      return new QueryStats(sql, n, total / Math.max(n, 1), maxNanos.get() / 1e6, total);
+    }
+  }
+
+  private static class RequestCounts {
+    int statements;
+    final Map<String, Integer> bySql = new HashMap<>();
+  }
+
+  private final QueryLogProperties properties;
+  private final long slowNanos;
+  private final Map<String, Timings> timings = new ConcurrentHashMap<>();
+  private final Map<String, String> normalized = new ConcurrentHashMap<>();
+  private final ThreadLocal<RequestCounts> requestCounts = new ThreadLocal<>();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder overBudget = new LongAdder();
+
+  /**
+   * @param properties the app.query-log settings
+   */
+  public QueryMonitor(QueryLogProperties properties) {
+    this.properties = properties;
+    this.slowNanos = properties.getSlowThreshold().toNanos();
+  }
+
+  /**
+   * This method records a statement that ran.
+   * @param sql the statement, as prepared
+   * @param nanos how long it took
+   * @param parameters the parameters bound to it, by index, for logging if it was slow
+   */
+  public void record(String sql, long nanos, Map<Integer, Object> parameters) {
+    String key = normalize(sql);
+    Timings statementTimings = timings.get(key);
+    if (statementTimings == null && timings.size() < properties.getMaxStatements()) {
+      statementTimings = timings.computeIfAbsent(key, k -> new Timings());
+    }
+    if (statementTimings != null) {
+      statementTimings.count.increment();
+      statementTimings.totalNanos.add(nanos);
+      statementTimings.maxNanos.accumulate(nanos);
+    }
+    RequestCounts counts = requestCounts.get();
+    if (counts != null) {
+      counts.statements++;
+      counts.bySql.merge(key, 1, Integer::sum);
+    }
+    if (nanos > slowNanos) {
+      log.warn("slow statement ({} ms): {} {}", TimeUnit.NANOSECONDS.toMillis(nanos), sql, format(parameters));
+    }
+  }
+
+  private String normalize(String sql) {
+    String key = normalized.get(sql);
+    if (key == null) {
+      key = SqlNormalizer.normalize(sql);
+      // statements built with literals could fill the cache
+      if (normalized.size() < properties.getMaxStatements()) {
+        normalized.put(sql, key);
+      }
+    }
+    return key;
+  }
+
+  String format(Map<Integer, Object> parameters) {
+    int max = properties.getMaxParameterLength();
+    return parameters.values().stream()
+        .map(value -> {
+          String text = value instanceof String ? "'" + value + "'" : String.valueOf(value);
+          return text.length() > max ? text.substring(0, max) + "..." : text;
+        })
+        .collect(Collectors.joining(", ", "[", "]"));
+  }
+
+  /**
+   * This method starts counting the statements run on this thread.
+   */
+  public void beginRequest() {
+    requestCounts.set(new RequestCounts());
+  }
+
+  /**
+   * This method stops counting the statements run on this thread, and logs
+   * the request if it ran more than the budget.
+   * @param request what to call the request in the log, e.g. GET /api/restaurants/all
+   * @return how many statements the request ran
+   */
+  public int endRequest(String request) {
+    RequestCounts counts = requestCounts.get();
+    requestCounts.remove();
+    requests.increment();
+    if (counts.statements > properties.getStatementBudget()) {
+      overBudget.increment();
+      Map.Entry<String, Integer> most = counts.bySql.entrySet().stream()
+          .max(Map.Entry.comparingByValue())
+          .orElseThrow();
+      log.warn("{} ran {} statements, over the budget of {}; it ran this one {} times: {}",
+          request, counts.statements, properties.getStatementBudget(), most.getValue(), most.getKey());
+    }
+    return counts.statements;
+  }
+
+  /**
+   * @param limit how many statements to return
+   * @return the statements that took longest on average, slowest first
+   */
+  public List<QueryStats> getSlowest(int limit) {
+    return timings.entrySet().stream()
+        .map(entry -> entry.getValue().toStats(entry.getKey()))
+        .sorted(Comparator.comparingDouble(QueryStats::meanMillis).reversed()
+            .thenComparing(QueryStats::sql))
+        .limit(limit)
+        .toList();
+  }
+
+  /**
+   * @return how many requests were counted, and how many ran more statements than the budget
+   */
+  public Map<String, Long> getRequestStats() {
+    return Map.of("requests", requests.sum(), "overBudget", overBudget.sum());
+  }
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.querylog;
+
+import java.util.regex.Pattern;
+
+/**
+ * This class reduces a SQL statement to a form that is the same for every
+ * run of the same query, so that their timings can be added up: literals
+ * become ?, IN lists become (?...), and whitespace is collapsed.
+ */
+public final class SqlNormalizer {
+
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+  private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private SqlNormalizer() {
+  }
+
+  /**
+   * @param sql a SQL statement, e.g. {@code select * from t where id in (1, 2,3)}
+   * @return its normalized form, e.g. {@code select * from t where id in (?...)}
+   */
+  public static String normalize(String sql) {
+    String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+    normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+    normalized = IN_LIST.matcher(normalized).replaceAll("(?...)");
+    return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+  }
+}
@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.querylog;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * This filter has the QueryMonitor count the statements each request runs.
+ * Statements run on other threads (e.g. by searches, exports and async
+ * listeners) are timed but not counted against the request.
+ */
+public class StatementCountingFilter extends OncePerRequestFilter {
+
+  private final QueryMonitor monitor;
+
+  /**
+   * @param monitor counts the statements
+   */
+  public StatementCountingFilter(QueryMonitor monitor) {
+    this.monitor = monitor;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    monitor.beginRequest();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      monitor.endRequest(request.getMethod() + " " + request.getRequestURI());
+    }
+  }
+}
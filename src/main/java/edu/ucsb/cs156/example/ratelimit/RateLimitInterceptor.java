@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This interceptor applies the rate limits in RateLimitProperties to each
+ * controller method, per user and route.  Requests over the limit get a 429
+ * with a Retry-After header (in seconds).
+ * 
+ * Requests from users who are not logged in are limited per client address.
+ * Behind a proxy that is only right when server.forward-headers-strategy is
+ * set, so that getRemoteAddr() is the client's address from X-Forwarded-For
+ * rather than the proxy's; otherwise every anonymous caller shares one bucket.
+ */
+@Slf4j
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+  private final TokenBucketRateLimiter limiter;
+  private final RateLimitProperties properties;
+  private final CurrentUserService currentUserService;
+  private final Map<Class<?>, RateLimitProperties.Limit> limits = new ConcurrentHashMap<>();
+
+  /**
+   * @param limiter the limiter holding the buckets
+   * @param properties the configured limits
+   * @param currentUserService used to find the user making the request
+   */
+  public RateLimitInterceptor(TokenBucketRateLimiter limiter, RateLimitProperties properties,
+      CurrentUserService currentUserService) {
+    this.limiter = limiter;
+    this.properties = properties;
+    this.currentUserService = currentUserService;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+      throws IOException {
+    if (!(handler instanceof HandlerMethod handlerMethod)) {
+      return true;
+    }
+    RateLimitProperties.Limit limit = limits.computeIfAbsent(handlerMethod.getBeanType(), this::limitFor);
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String route = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    String principal = currentUserService.getPrincipalName();
+    if (principal == null) {
+      principal = "anonymous:" + request.getRemoteAddr();
+    }
+
+    long waitNanos = limiter.tryAcquire(principal, route, limit);
+    if (waitNanos == 0) {
+      return true;
+    }
+
+    long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    log.warn("rate limit exceeded for {} on {}", principal, route);
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.getWriter().write(
+        "{\"type\":\"TooManyRequests\",\"message\":\"Rate limit exceeded, retry after %d seconds\"}"
+            .formatted(retryAfterSeconds));
+    return false;
+  }
+
+  private RateLimitProperties.Limit limitFor(Class<?> controller) {
+    Tag tag = controller.getAnnotation(Tag.class);
+    if (tag != null && properties.getTags().containsKey(tag.name())) {
+      return properties.getTags().get(tag.name());
+    }
+    return properties.getDefaultLimit();
+  }
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class holds the rate limit settings, bound from the app.rate-limit.* properties.
+ * 
+ * Limits are looked up by the name in the controller's {@code @Tag} annotation,
+ * e.g. app.rate-limit.tags.HelpRequest.capacity=20; controllers without an
+ * entry use the default limit.
+ */
+
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+  private boolean enabled = false;
+  private int maxKeys = 100_000;
+  private Duration sweepInterval = Duration.ofSeconds(1);
+  private Limit defaultLimit = new Limit(120, Duration.ofMinutes(1));
+  private Map<String, Limit> tags = new HashMap<>();
+
+  /**
+   * A limit of capacity requests per period, for each user and route.
+   * Up to capacity requests may be made in a burst; a capacity of zero or less means no limit.
+   */
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Limit {
+    private int capacity;
+    private Duration period;
+  }
+}
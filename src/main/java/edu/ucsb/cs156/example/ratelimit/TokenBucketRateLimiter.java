@@ -0,0 +1,125 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * This is a lock free token bucket rate limiter keyed by principal and route.
+ * 
+ * Each bucket is a single AtomicLong holding the time at which the bucket will
+ * be full again (the "generic cell rate algorithm" form of a token bucket), so
+ * taking a token is one compare-and-set.  A full bucket behaves exactly like a
+ * missing one, so idle buckets can be dropped at any time; when the number of
+ * keys passes maxKeys the full buckets are swept out, and if every bucket is
+ * still in use, new keys share one bucket per route until space frees up.
+ * A sweep walks every bucket, so it runs at most once per sweep interval;
+ * between sweeps new keys go straight to the shared buckets.
+ */
+public class TokenBucketRateLimiter {
+
+  record Key(String principal, String route) {
+  }
+
+  static final class Bucket {
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    Bucket(RateLimitProperties.Limit limit, long now) {
+      this.burstNanos = limit.getPeriod().toNanos();
+      this.nanosPerToken = Math.max(1, burstNanos / limit.getCapacity());
+      this.fullAt = new AtomicLong(now);
+    }
+
+    long tryAcquire(long now) {
+      while (true) {
+        long current = fullAt.get();
+        long next = Math.max(current, now) + nanosPerToken;
+        long allowedAt = next - burstNanos;
+        if (allowedAt > now) {
+          return allowedAt - now;
+        }
+        if (fullAt.compareAndSet(current, next)) {
+          return 0;
+        }
+      }
+    }
+
+    boolean isFull(long now) {
+      return fullAt.get() <= now;
+    }
+  }
+
+  private final Map<Key, Bucket> buckets = new ConcurrentHashMap<>();
+  private final Map<String, Bucket> overflow = new ConcurrentHashMap<>();
+  private final int maxKeys;
+  private final long sweepIntervalNanos;
+  private final LongSupplier nanoClock;
+  private final AtomicLong nextSweepAt;
+
+  /**
+   * @param maxKeys the number of principal/route buckets to keep before sweeping idle ones
+   * @param nanoClock the clock to use, normally System::nanoTime
+   */
+  public TokenBucketRateLimiter(int maxKeys, LongSupplier nanoClock) {
+    this(maxKeys, Duration.ofSeconds(1), nanoClock);
+  }
+
+  /**
+   * @param maxKeys the number of principal/route buckets to keep before sweeping idle ones
+   * @param sweepInterval the shortest time between two sweeps
+   * @param nanoClock the clock to use, normally System::nanoTime
+   */
+  public TokenBucketRateLimiter(int maxKeys, Duration sweepInterval, LongSupplier nanoClock) {
+    this.maxKeys = maxKeys;
+    this.sweepIntervalNanos = sweepInterval.toNanos();
+    this.nanoClock = nanoClock;
+    this.nextSweepAt = new AtomicLong(nanoClock.getAsLong());
+  }
+
+  /**
+   * This method takes a token from the bucket for the principal and route.
+   * @param principal the user making the request
+   * @param route the route being requested, e.g. "POST /api/helprequest/post"
+   * @param limit the limit that applies to the route
+   * @return 0 if the request is allowed, otherwise the number of nanoseconds until it would be
+   */
+  public long tryAcquire(String principal, String route, RateLimitProperties.Limit limit) {
+    if (limit.getCapacity() <= 0) {
+      return 0;
+    }
+    long now = nanoClock.getAsLong();
+    Key key = new Key(principal, route);
+    Bucket bucket = buckets.get(key);
+    if (bucket == null) {
+      if (buckets.size() >= maxKeys) {
+        sweep(now);
+      }
+      if (buckets.size() >= maxKeys) {
+        bucket = overflow.computeIfAbsent(route, r -> new Bucket(limit, now));
+      } else {
+        bucket = buckets.computeIfAbsent(key, k -> new Bucket(limit, now));
+      }
+    }
+    return bucket.tryAcquire(now);
+  }
+
+  /**
+   * @return the number of principal/route buckets currently held
+   */
+  public int size() {
+    return buckets.size();
+  }
+
+  private void sweep(long now) {
+    long due = nextSweepAt.getAndAccumulate(now, (next, t) -> t - next < 0 ? next : t + sweepIntervalNanos);
+    if (now - due < 0) {
+      return;
+    }
+    buckets.values().removeIf(b -> b.isFull(now));
+    overflow.values().removeIf(b -> b.isFull(now));
+  }
+}
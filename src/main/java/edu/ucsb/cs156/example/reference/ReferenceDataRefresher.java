@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.reference;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service keeps every ReferenceTable up to date: it reads them all
+ * when the app starts, again every app.reference-data.refresh-interval, and
+ * reads a table again as soon as a change to it made through this instance
+ * commits (see ApiController.publishChange).  Changes made through another
+ * instance appear here at the next scheduled refresh.
+ *
+ * A refresh that fails is logged, and the table keeps its previous snapshot.
+ */
+@Slf4j
+@Service
+public class ReferenceDataRefresher {
+
+  private final List<ReferenceTable<?, ?>> tables;
+  private final Duration interval;
+  private ScheduledExecutorService scheduler;
+
+  public ReferenceDataRefresher(List<ReferenceTable<?, ?>> tables,
+      @Value("${app.reference-data.refresh-interval:5m}") Duration interval) {
+    this.tables = tables;
+    this.interval = interval;
+  }
+
+  /**
+   * This method reads every table and starts the scheduled refreshes.
+   */
+  @PostConstruct
+  public void start() {
+    refreshAll();
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "reference-data-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long intervalMillis = interval.toMillis();
+    scheduler.scheduleWithFixedDelay(this::refreshAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method stops the scheduled refreshes.
+   */
+  @PreDestroy
+  public void stop() {
+    scheduler.shutdown();
+  }
+
+  /**
+   * This method reads a table again once a change to it has committed,
+   * or straight away when there is no transaction.
+   * @param event the change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onChange(EntityChangeEvent event) {
+    for (ReferenceTable<?, ?> table : tables) {
+      if (table.getEntityType().getSimpleName().equals(event.entityType())) {
+        refresh(table);
+      }
+    }
+  }
+
+  void refreshAll() {
+    tables.forEach(this::refresh);
+  }
+
+  private void refresh(ReferenceTable<?, ?> table) {
+    try {
+      table.refresh();
+    } catch (RuntimeException e) {
+      log.error("could not refresh the snapshot of {}", table.getEntityType().getSimpleName(), e);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.reference;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.data.repository.CrudRepository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * This is an in-memory copy of a small table that is read on nearly every
+ * page, such as the dining commons, kept as JSON that is ready to be sent.
+ *
+ * Each refresh reads the whole table, sorts it by id, serializes the list
+ * and each entity once, and then swaps in the new Snapshot, so readers
+ * always see a whole snapshot, never a half-built one, and never wait.
+ * ReferenceDataRefresher refreshes the tables when they change and on a
+ * schedule.
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the id
+ */
+public class ReferenceTable<T, ID extends Comparable<? super ID>> {
+
+  /**
+   * An immutable copy of a table.
+   * @param <ID> the type of the id
+   * @param all the JSON array of every entity, in order of id
+   * @param byId the JSON object of each entity, by id
+   * @param loadedAt when the table was read
+   */
+  public record Snapshot<ID>(byte[] all, Map<ID, byte[]> byId, Instant loadedAt) {
+
+    /**
+     * @param <T> the entity type
+     * @param <ID> the type of the id
+     * @param entities every entity in the table
+     * @param idOf gets the id of an entity
+     * @param mapper serializes the entities
+     * @return the snapshot of the entities
+     * @throws UncheckedIOException if an entity can't be serialized
+     */
+    public static <T, ID extends Comparable<? super ID>> Snapshot<ID> of(Iterable<T> entities,
+        Function<T, ID> idOf, ObjectMapper mapper) {
+      Instant loadedAt = Instant.now();
+      List<T> sorted = new ArrayList<>();
+      entities.forEach(sorted::add);
+      sorted.sort(Comparator.comparing(idOf));
+      try {
+        Map<ID, byte[]> byId = new LinkedHashMap<>();
+        for (T entity : sorted) {
+          byId.put(idOf.apply(entity), mapper.writeValueAsBytes(entity));
+        }
+        return new Snapshot<>(mapper.writeValueAsBytes(sorted), Map.copyOf(byId), loadedAt);
+      } catch (JsonProcessingException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private final Class<T> entityType;
+  private final CrudRepository<T, ID> repository;
+  private final Function<T, ID> idOf;
+  private final ObjectMapper mapper;
+  private volatile Snapshot<ID> snapshot;
+
+  /**
+   * @param entityType the class of the entity, e.g. UCSBDiningCommons.class
+   * @param repository reads the table
+   * @param idOf gets the id of an entity
+   * @param mapper serializes the entities, as the message converters would
+   */
+  public ReferenceTable(Class<T> entityType, CrudRepository<T, ID> repository, Function<T, ID> idOf,
+      ObjectMapper mapper) {
+    this.entityType = entityType;
+    this.repository = repository;
+    this.idOf = idOf;
+    this.mapper = mapper;
+  }
+
+  /**
+   * @return the class of the entity
+   */
+  public Class<T> getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * This method returns the current snapshot, reading the table first if it
+   * has never been read (e.g. because the database was down when the app started).
+   * @return the current snapshot
+   */
+  public Snapshot<ID> getSnapshot() {
+    Snapshot<ID> current = snapshot;
+    return current != null ? current : refresh();
+  }
+
+  /**
+   * This method reads the whole table and replaces the snapshot.  If it
+   * fails, the previous snapshot is kept.
+   * @return the new snapshot
+   */
+  public Snapshot<ID> refresh() {
+    Snapshot<ID> fresh = Snapshot.of(repository.findAll(), idOf, mapper);
+    snapshot = fresh;
+    return fresh;
+  }
+}
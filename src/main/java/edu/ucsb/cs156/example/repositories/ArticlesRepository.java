@@ -2,14 +2,30 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Articles;
 
-import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 /**
  * The ArticlesRepository is a repository for Articles entities
  */
 @Repository
-public interface ArticlesRepository extends CrudRepository<Articles, Long> {
-    
+public interface ArticlesRepository extends ProjectingRepository<Articles, Long> {
+    /**
+     * This method finds the article with a URL, served by the unique index on URL_HASH.
+     * @param urlHash the hash of the canonical URL, see CanonicalUrl.hash
+     * @return the article, if there is one
+     */
+    Optional<Articles> findByUrlHash(String urlHash);
+
+    /**
+     * This method finds the articles whose title or explanation contains a string, ignoring case.
+     * @param title the string to look for in the title
+     * @param explanation the string to look for in the explanation
+     * @param pageable which articles to return
+     * @return the articles
+     */
+    List<Articles> findByTitleContainingIgnoreCaseOrExplanationContainingIgnoreCase(String title, String explanation, Pageable pageable);
 }
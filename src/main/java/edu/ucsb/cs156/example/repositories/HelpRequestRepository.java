@@ -2,7 +2,6 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -10,6 +9,6 @@ import org.springframework.stereotype.Repository;
  */
 
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
+public interface HelpRequestRepository extends ProjectingRepository<HelpRequest, Long> {
   
 }
\ No newline at end of file
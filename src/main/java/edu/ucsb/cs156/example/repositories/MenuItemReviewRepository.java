@@ -3,7 +3,6 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -11,7 +10,7 @@ import org.springframework.stereotype.Repository;
  */
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository <MenuItemReview, Long> {
+public interface MenuItemReviewRepository extends ProjectingRepository<MenuItemReview, Long> {
 }
 
 
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * The ProjectingRepository is a CrudRepository that can also load only some
+ * of an entity's columns.  It is implemented for every repository by
+ * ProjectingRepositoryImpl (see JpaRepositoryConfig).
+ */
+@NoRepositoryBean
+public interface ProjectingRepository<T, ID> extends CrudRepository<T, ID> {
+  /**
+   * This method selects only the given fields of every entity.
+   * @param fields names of the entity's fields, e.g. id and title
+   * @return one map per entity, from field name to value, in the order the fields were given
+   * @throws edu.ucsb.cs156.example.errors.UnknownFieldException if the entity does not have one of the fields
+   */
+  List<Map<String, Object>> findAllFields(List<String> fields);
+}
@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * This is the base class for all repositories, adding findAllFields to
+ * what Spring Data JPA provides.
+ * 
+ * findAllFields runs a criteria query that selects just the requested
+ * columns, so long text columns that a list page doesn't show are neither
+ * read from the database nor serialized.  Only fields that are in the
+ * entity's JSON can be selected, so a column hidden with {@code @JsonIgnore}
+ * (e.g. Articles.urlHash) can't be read this way either.
+ */
+public class ProjectingRepositoryImpl<T, ID> extends SimpleJpaRepository<T, ID> implements ProjectingRepository<T, ID> {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final EntityManager entityManager;
+  private final Class<T> domainClass;
+  private volatile Set<String> selectable;
+
+  /**
+   * Constructor called by Spring Data for each repository.
+   * @param entityInformation describes the repository's entity
+   * @param entityManager the entity manager
+   */
+  public ProjectingRepositoryImpl(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+    super(entityInformation, entityManager);
+    this.entityManager = entityManager;
+    this.domainClass = entityInformation.getJavaType();
+  }
+
+  @Override
+  public List<Map<String, Object>> findAllFields(List<String> fields) {
+    List<String> selected = fields.stream().map(String::trim).distinct().toList();
+    Set<String> known = selectable();
+    List<String> unknown = selected.stream().filter(field -> !known.contains(field)).toList();
+    if (!unknown.isEmpty()) {
+      throw new UnknownFieldException(domainClass, unknown);
+    }
+
+    CriteriaQuery<Tuple> query = entityManager.getCriteriaBuilder().createTupleQuery();
+    Root<T> root = query.from(domainClass);
+    List<Selection<?>> selections = new ArrayList<>();
+    for (String field : selected) {
+      selections.add(root.get(field).alias(field));
+    }
+    query.multiselect(selections);
+
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (String field : selected) {
+        row.put(field, tuple.get(field));
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /**
+   * @return the fields that are both columns of the entity and properties in its JSON
+   */
+  private Set<String> selectable() {
+    Set<String> result = selectable;
+    if (result == null) {
+      Set<String> serialized = MAPPER.getSerializationConfig()
+          .introspect(MAPPER.constructType(domainClass))
+          .findProperties().stream()
+          .filter(BeanPropertyDefinition::couldSerialize)
+          .map(BeanPropertyDefinition::getName)
+          .collect(Collectors.toSet());
+      result = entityManager.getMetamodel().entity(domainClass).getSingularAttributes().stream()
+          .map(Attribute::getName)
+          .filter(serialized::contains)
+          .collect(Collectors.toUnmodifiableSet());
+      selectable = result;
+    }
+    return result;
+  }
+}
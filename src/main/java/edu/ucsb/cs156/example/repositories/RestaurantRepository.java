@@ -2,12 +2,42 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+public interface RestaurantRepository extends ProjectingRepository<Restaurant, Long> {
+    /**
+     * This method finds the restaurants whose name or description contains a string, ignoring case.
+     * @param name the string to look for in the name
+     * @param description the string to look for in the description
+     * @param pageable which restaurants to return
+     * @return the restaurants
+     */
+    List<Restaurant> findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(String name, String description, Pageable pageable);
+
+    /**
+     * This method finds a page of the restaurants whose name or description
+     * matches a LIKE pattern, ignoring case, in order of name and then id.
+     * It is served by the index on (NAME_LOWER, ID), and on Postgres by the
+     * trigram indexes for patterns that start with %.
+     * @param pattern a lowercase LIKE pattern, with backslash as the escape character, e.g. piz%
+     * @param afterNameLower the lowercase name of the last restaurant on the previous page, or "" for the first page
+     * @param afterId the id of the last restaurant on the previous page, or Long.MIN_VALUE for the first page
+     * @param pageable how many restaurants to return (only the first page is used)
+     * @return the restaurants
+     */
+    @Query("SELECT r FROM restaurants r"
+        + " WHERE (r.nameLower LIKE :pattern ESCAPE '\\' OR lower(r.description) LIKE :pattern ESCAPE '\\')"
+        + " AND (r.nameLower > :afterNameLower OR (r.nameLower = :afterNameLower AND r.id > :afterId))"
+        + " ORDER BY r.nameLower, r.id")
+    List<Restaurant> findPageByNameOrDescriptionLike(@Param("pattern") String pattern,
+        @Param("afterNameLower") String afterNameLower, @Param("afterId") long afterId, Pageable pageable);
 }
@@ -2,14 +2,23 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
+import java.util.List;
+
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 /**
  * The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities
  */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+public interface UCSBDiningCommonsRepository extends ProjectingRepository<UCSBDiningCommons, String> {
+    /**
+     * This method finds the dining commons whose name or code contains a string, ignoring case.
+     * @param name the string to look for in the name
+     * @param code the string to look for in the code
+     * @param pageable which dining commons to return
+     * @return the dining commons
+     */
+    List<UCSBDiningCommons> findByNameContainingIgnoreCaseOrCodeContainingIgnoreCase(String name, String code, Pageable pageable);
+}
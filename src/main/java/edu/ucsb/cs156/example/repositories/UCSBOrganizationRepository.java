@@ -2,14 +2,25 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
+import java.util.List;
+
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 /**
  * The UCSBOrganizationRepository is a repository for UCSBOrganization entities
  */
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
- 
-}
\ No newline at end of file
+public interface UCSBOrganizationRepository extends ProjectingRepository<UCSBOrganization, String> {
+    /**
+     * This method finds the organizations whose translation, short translation or code contains a string, ignoring case.
+     * @param orgTranslation the string to look for in the translation
+     * @param orgTranslationShort the string to look for in the short translation
+     * @param orgCode the string to look for in the code
+     * @param pageable which organizations to return
+     * @return the organizations
+     */
+    List<UCSBOrganization> findByOrgTranslationContainingIgnoreCaseOrOrgTranslationShortContainingIgnoreCaseOrOrgCodeContainingIgnoreCase(
+        String orgTranslation, String orgTranslationShort, String orgCode, Pageable pageable);
+}
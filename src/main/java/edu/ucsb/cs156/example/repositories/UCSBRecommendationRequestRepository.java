@@ -1,11 +1,10 @@
 package edu.ucsb.cs156.example.repositories;
 
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import edu.ucsb.cs156.example.entities.UCSBRecommendationRequest;
 
 @Repository
-public interface UCSBRecommendationRequestRepository extends CrudRepository<UCSBRecommendationRequest, Long> {
+public interface UCSBRecommendationRequestRepository extends ProjectingRepository<UCSBRecommendationRequest, Long> {
     
 }
@@ -0,0 +1,207 @@
+package edu.ucsb.cs156.example.search;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service keeps a TrigramIndex of the name and station of every dining
+ * commons menu item, so that menu items can be searched with misspellings.
+ *
+ * The index is loaded when the app starts and again every
+ * app.menu-items.search-reload-interval.  A menu item created, updated or
+ * deleted through this instance is indexed as soon as the change commits
+ * (see ApiController.publishChange), and the import reloads the whole index
+ * when it finishes.  Changes made through another instance appear here at
+ * the next scheduled reload.
+ *
+ * It is also the source of menu items for the search across entity types,
+ * where hits are ranked by their number of typos.
+ */
+@Slf4j
+@Service
+public class MenuItemSearchIndex implements SearchSource {
+
+  public static final String TYPE = "ucsbdiningcommonsmenuitem";
+
+  private final UCSBDiningCommonsMenuItemRepository repository;
+  private final Duration reloadInterval;
+  private final TrigramIndex index = new TrigramIndex();
+  private final Map<Long, UCSBDiningCommonsMenuItem> items = new ConcurrentHashMap<>();
+  // ids changed through this instance since the current reload read the menu items
+  private final Set<Long> changedSinceReload = new HashSet<>();
+  private final Object reloadLock = new Object();
+  private ScheduledExecutorService scheduler;
+
+  public MenuItemSearchIndex(UCSBDiningCommonsMenuItemRepository repository,
+      @Value("${app.menu-items.search-reload-interval:5m}") Duration reloadInterval) {
+    this.repository = repository;
+    this.reloadInterval = reloadInterval;
+  }
+
+  /**
+   * This method loads the index and starts the scheduled reloads.
+   */
+  @PostConstruct
+  public void start() {
+    load();
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "menu-item-search-reload");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long intervalMillis = reloadInterval.toMillis();
+    scheduler.scheduleWithFixedDelay(this::load, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method stops the scheduled reloads.
+   */
+  @PreDestroy
+  public void stop() {
+    scheduler.shutdown();
+  }
+
+  /**
+   * This method reloads the index.  If the menu items can't be read, the
+   * index keeps what it had (nothing, when the app is starting) until the
+   * next reload.
+   */
+  void load() {
+    try {
+      reload();
+    } catch (RuntimeException e) {
+      log.error("could not index menu items for search", e);
+    }
+  }
+
+  /**
+   * This method indexes a menu item once a change to it has committed, or
+   * straight away when there is no transaction.  Imports are left to the
+   * reload the import does when it finishes.
+   * @param event the change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onChange(EntityChangeEvent event) {
+    if (!UCSBDiningCommonsMenuItem.class.getSimpleName().equals(event.entityType())) {
+      return;
+    }
+    if (event.action() == ChangeAction.IMPORTED) {
+      return;
+    }
+    long id = (Long) event.id();
+    // gone if it was deleted since
+    Optional<UCSBDiningCommonsMenuItem> item = event.action() == ChangeAction.DELETED
+        ? Optional.empty()
+        : repository.findById(id);
+    synchronized (this) {
+      changedSinceReload.add(id);
+      item.ifPresentOrElse(this::put, () -> remove(id));
+    }
+  }
+
+  /**
+   * This method brings the index up to date with every menu item in the
+   * database.  Searches keep working while it runs.  A menu item changed
+   * through this instance while the menu items are being read keeps the
+   * newer state from the change rather than what the reload read.
+   */
+  public void reload() {
+    synchronized (reloadLock) {
+      long begin = System.currentTimeMillis();
+      synchronized (this) {
+        changedSinceReload.clear();
+      }
+      Iterable<UCSBDiningCommonsMenuItem> all = repository.findAll();
+      synchronized (this) {
+        Set<Long> ids = new HashSet<>();
+        for (UCSBDiningCommonsMenuItem item : all) {
+          if (!changedSinceReload.contains(item.getId())) {
+            put(item);
+          }
+          ids.add(item.getId());
+        }
+        for (Long id : List.copyOf(items.keySet())) {
+          if (!ids.contains(id) && !changedSinceReload.contains(id)) {
+            remove(id);
+          }
+        }
+      }
+      log.info("indexed {} menu items for search in {} ms", items.size(), System.currentTimeMillis() - begin);
+    }
+  }
+
+  /**
+   * This method adds a menu item to the index, or updates it.
+   * @param item the saved menu item
+   */
+  public void put(UCSBDiningCommonsMenuItem item) {
+    items.put(item.getId(), item);
+    index.put(item.getId(), Objects.toString(item.getName(), "") + " " + Objects.toString(item.getStation(), ""));
+  }
+
+  /**
+   * This method removes a menu item from the index.
+   * @param id the id of the deleted menu item
+   */
+  public void remove(long id) {
+    index.remove(id);
+    items.remove(id);
+  }
+
+  /**
+   * This method finds the menu items whose name and station match a query,
+   * allowing a typo or two per word.
+   * @param query the query, e.g. "psto pasta"
+   * @param diningCommonsCode if not null, only items at this dining commons
+   * @param limit the most items to return
+   * @return the matching items, best match first
+   */
+  public List<UCSBDiningCommonsMenuItem> search(String query, String diningCommonsCode, int limit) {
+    return index.search(query, limit, id -> {
+      // null if it was deleted since
+      UCSBDiningCommonsMenuItem item = items.get(id);
+      return item != null && (diningCommonsCode == null || diningCommonsCode.equals(item.getDiningCommonsCode()));
+    })
+        .stream()
+        .map(match -> items.get(match.id()))
+        // in case it was deleted since
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  @Override
+  public String getType() {
+    return TYPE;
+  }
+
+  @Override
+  public List<SearchHit> search(String query, int limit) {
+    return index.search(query, limit, id -> true).stream()
+        // empty if it was deleted since
+        .flatMap(match -> Optional.ofNullable(items.get(match.id()))
+            .map(item -> new SearchHit(TYPE, item.getId(), item.getName(), match.typos()))
+            .stream())
+        .toList();
+  }
+}
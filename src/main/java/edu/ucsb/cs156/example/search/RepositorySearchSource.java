@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.search;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This is a SearchSource that runs a repository query, typically a
+ * case-insensitive "containing" query on a few text fields.  Hits whose
+ * title contains the query rank before hits that only matched another field.
+ *
+ * The query runs in a read-only transaction whose timeout is the search
+ * deadline, which Spring passes on to the JDBC statement as its query
+ * timeout, so a query that misses the deadline is stopped by the database
+ * rather than left holding its connection.  JDBC query timeouts are in
+ * whole seconds, so the deadline is rounded up to the next second.
+ *
+ * @param <T> the entity type
+ */
+public class RepositorySearchSource<T> implements SearchSource {
+
+  private final String type;
+  private final BiFunction<String, Pageable, List<T>> finder;
+  private final Function<T, Object> id;
+  private final Function<T, String> title;
+  private final TransactionTemplate transactionTemplate;
+
+  /**
+   * @param type the type of entity, as in its API path, e.g. restaurants
+   * @param finder the repository query, given the query and the first page of results to return
+   * @param id gets the id of an entity
+   * @param title gets the title of an entity
+   * @param transactionManager runs the query
+   * @param timeout the search deadline (app.search.timeout)
+   */
+  public RepositorySearchSource(String type, BiFunction<String, Pageable, List<T>> finder,
+      Function<T, Object> id, Function<T, String> title,
+      PlatformTransactionManager transactionManager, Duration timeout) {
+    this.type = type;
+    this.finder = finder;
+    this.id = id;
+    this.title = title;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.transactionTemplate.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+  }
+
+  @Override
+  public String getType() {
+    return type;
+  }
+
+  @Override
+  public List<SearchHit> search(String query, int limit) {
+    String trimmed = query.trim();
+    String lowerQuery = trimmed.toLowerCase(Locale.ROOT);
+    return transactionTemplate.execute(status -> finder.apply(trimmed, PageRequest.of(0, limit))).stream()
+        .map(entity -> {
+          String entityTitle = title.apply(entity);
+          boolean inTitle = entityTitle != null && entityTitle.toLowerCase(Locale.ROOT).contains(lowerQuery);
+          return new SearchHit(type, id.apply(entity), entityTitle, inTitle ? 0 : 1);
+        })
+        .toList();
+  }
+}
@@ -0,0 +1,13 @@
+package edu.ucsb.cs156.example.search;
+
+/**
+ * One result of a search across entity types.
+ * @param type the type of entity, as in its API path, e.g. restaurants
+ * @param id the id of the entity
+ * @param title what to show for it, e.g. the restaurant's name
+ * @param rank how good a match it is, lower is better: the number of typos
+ *        for fuzzy sources; 0 for a match on the title and 1 for a match on
+ *        another field for substring sources
+ */
+public record SearchHit(String type, Object id, String title, int rank) {
+}
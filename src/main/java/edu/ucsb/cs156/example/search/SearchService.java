@@ -0,0 +1,171 @@
+package edu.ucsb.cs156.example.search;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service searches several types of entity at once, for the global
+ * search box.
+ *
+ * Each SearchSource is searched on its own virtual thread, and all of them
+ * share one deadline (app.search.timeout).  Sources that haven't answered by
+ * then, or that fail, are left out and listed as incomplete, so one slow
+ * source doesn't hold up the rest.  The hits are merged by rank, keeping only
+ * the best ones in a bounded heap.
+ *
+ * At most app.search.max-concurrent-queries sources are searched at once
+ * across all searches, so that a burst of searches can't take every pooled
+ * database connection; a source that doesn't get its turn before the
+ * deadline is left out too.  A source left out for being slow is not
+ * interrupted, but RepositorySearchSource gives its query a timeout of the
+ * same deadline, so it gives back its connection soon after.
+ */
+@Slf4j
+@Service
+public class SearchService {
+
+  /**
+   * The result of a search.
+   * @param hits the best hits, best first
+   * @param incomplete the types that were left out because they were too slow or failed
+   */
+  public record SearchResults(List<SearchHit> hits, List<String> incomplete) {
+  }
+
+  /** ranks hits best first: by rank, then shorter titles first */
+  static final Comparator<SearchHit> RANKING = Comparator.comparingInt(SearchHit::rank)
+      .thenComparingInt(hit -> Objects.toString(hit.title(), "").length())
+      .thenComparing(SearchHit::type)
+      .thenComparing(hit -> Objects.toString(hit.title(), ""))
+      .thenComparing(hit -> String.valueOf(hit.id()));
+
+  private final Map<String, SearchSource> sources = new LinkedHashMap<>();
+  private final Duration timeout;
+  private final Semaphore permits;
+  private ExecutorService searchers;
+
+  public SearchService(List<SearchSource> sources, @Value("${app.search.timeout:500ms}") Duration timeout,
+      @Value("${app.search.max-concurrent-queries:4}") int maxConcurrentQueries) {
+    sources.forEach(source -> this.sources.put(source.getType(), source));
+    this.timeout = timeout;
+    this.permits = new Semaphore(maxConcurrentQueries);
+  }
+
+  /**
+   * This method starts the executor that runs the searches.
+   */
+  @PostConstruct
+  public void start() {
+    searchers = Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  /**
+   * This method stops the executor; searches still running are abandoned.
+   */
+  @PreDestroy
+  public void stop() {
+    searchers.shutdownNow();
+  }
+
+  /**
+   * This method searches several types of entity at once.
+   * @param query the query, as typed
+   * @param types the types to search, or null or empty for all of them
+   * @param limit the most hits to return
+   * @return the best hits across all the types, and the types that were left out
+   * @throws IllegalArgumentException if one of the types can't be searched
+   */
+  public SearchResults search(String query, Collection<String> types, int limit) {
+    List<SearchSource> selected = select(types);
+    if (query.isBlank()) {
+      return new SearchResults(List.of(), List.of());
+    }
+    long deadline = System.nanoTime() + timeout.toNanos();
+    Map<String, Future<List<SearchHit>>> futures = new LinkedHashMap<>();
+    for (SearchSource source : selected) {
+      futures.put(source.getType(), searchers.submit(() -> search(source, query, limit, deadline)));
+    }
+
+    // the worst of the best hits so far is at the head
+    PriorityQueue<SearchHit> best = new PriorityQueue<>(RANKING.reversed());
+    List<String> incomplete = new ArrayList<>();
+    for (Map.Entry<String, Future<List<SearchHit>>> entry : futures.entrySet()) {
+      String type = entry.getKey();
+      Future<List<SearchHit>> future = entry.getValue();
+      try {
+        for (SearchHit hit : future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+          best.add(hit);
+          if (best.size() > limit) {
+            best.poll();
+          }
+        }
+      } catch (TimeoutException e) {
+        // not interrupted: interrupting a virtual thread blocked on a socket
+        // closes the socket, and with it a pooled database connection; the
+        // query timeout stops it instead
+        future.cancel(false);
+        log.warn("search of {} took longer than {}, so it is left out", type, timeout);
+        incomplete.add(type);
+      } catch (ExecutionException e) {
+        log.warn("search of {} failed, so it is left out", type, e.getCause());
+        incomplete.add(type);
+      } catch (InterruptedException e) {
+        // keep the interrupt, so that the remaining sources are left out too
+        Thread.currentThread().interrupt();
+        future.cancel(false);
+        incomplete.add(type);
+      }
+    }
+    return new SearchResults(best.stream().sorted(RANKING).toList(), incomplete);
+  }
+
+  private List<SearchHit> search(SearchSource source, String query, int limit, long deadline)
+      throws InterruptedException, TimeoutException {
+    if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+      throw new TimeoutException("too many searches at once");
+    }
+    try {
+      return source.search(query, limit);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private List<SearchSource> select(Collection<String> types) {
+    if (types == null || types.isEmpty()) {
+      return List.copyOf(sources.values());
+    }
+    List<SearchSource> selected = new ArrayList<>();
+    for (String type : types) {
+      SearchSource source = sources.get(type.trim().toLowerCase());
+      if (source == null) {
+        throw new IllegalArgumentException("Cannot search %s; the types are %s".formatted(type, sources.keySet()));
+      }
+      if (!selected.contains(source)) {
+        selected.add(source);
+      }
+    }
+    return selected;
+  }
+}
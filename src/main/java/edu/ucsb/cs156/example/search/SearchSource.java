@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.search;
+
+import java.util.List;
+
+/**
+ * A kind of entity that the search across entity types (SearchService) can
+ * search.  Every bean of this type is searched.
+ */
+public interface SearchSource {
+
+  /**
+   * @return the type of entity, as in its API path, e.g. restaurants
+   */
+  String getType();
+
+  /**
+   * @param query the query, as typed
+   * @param limit the most hits to return
+   * @return the best hits, in any order
+   */
+  List<SearchHit> search(String query, int limit);
+}
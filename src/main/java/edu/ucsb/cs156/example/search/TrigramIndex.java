@@ -0,0 +1,354 @@
+package edu.ucsb.cs156.example.search;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * This is an in-memory index for fuzzy search over short texts, such as
+ * names, identified by long ids.
+ *
+ * Texts are split into words, and each word into trigrams (padded at the
+ * start, so that a query word matches the words it is a prefix of).  A
+ * search first takes as candidates the texts that share enough trigrams
+ * with every query word to possibly be within its typo budget, then checks
+ * each candidate by edit distance: every query word must be within its
+ * budget of a word of the text, or of a prefix of one.  Results are ranked
+ * by the total number of typos, then by how short the text is.
+ *
+ * Each id is given a small ordinal the first time it is put, and posting
+ * lists are sorted arrays of ordinals, so the index takes about 4 bytes per
+ * distinct trigram of each text, and a search counts shared trigrams in an
+ * array rather than a map.  Searches may run concurrently with each other;
+ * changes are serialized with them by a read-write lock.
+ */
+public class TrigramIndex {
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+  /**
+   * A text that matched a search.
+   * @param id the id of the text
+   * @param typos the total edit distance between the query words and the words they matched
+   */
+  public record Match(long id, int typos) {
+  }
+
+  /** ranks matches, as {ordinal, typos, words}, best first */
+  private static final Comparator<int[]> RANKING = Comparator.<int[]>comparingInt(m -> m[1])
+      .thenComparingInt(m -> m[2])
+      .thenComparingInt(m -> m[0]);
+
+  private final Map<Long, Integer> ordinals = new HashMap<>();
+  private long[] ids = new long[16];
+  private String[][] texts = new String[16][];
+  private int size;
+  private final Map<String, Postings> postings = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * This method adds a text to the index, or replaces the text with this id.
+   * @param id the id of the text
+   * @param text the text; may be null, which is the same as removing it
+   */
+  public void put(long id, String text) {
+    String[] textWords = words(text);
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+      if (textWords.length == 0) {
+        return;
+      }
+      int ordinal = ordinals.computeIfAbsent(id, this::newOrdinal);
+      texts[ordinal] = textWords;
+      size++;
+      for (String trigram : trigrams(textWords, true)) {
+        postings.computeIfAbsent(trigram, t -> new Postings()).add(ordinal);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private int newOrdinal(long id) {
+    int ordinal = ordinals.size();
+    if (ordinal == ids.length) {
+      ids = Arrays.copyOf(ids, ordinal * 2);
+      texts = Arrays.copyOf(texts, ordinal * 2);
+    }
+    ids[ordinal] = id;
+    return ordinal;
+  }
+
+  /**
+   * This method removes a text from the index, if it is there.
+   * @param id the id of the text
+   */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeLocked(long id) {
+    Integer ordinal = ordinals.get(id);
+    if (ordinal == null || texts[ordinal] == null) {
+      return;
+    }
+    for (String trigram : trigrams(texts[ordinal], true)) {
+      Postings list = postings.get(trigram);
+      list.remove(ordinal);
+      if (list.size == 0) {
+        postings.remove(trigram);
+      }
+    }
+    texts[ordinal] = null;
+    size--;
+  }
+
+  /**
+   * @return how many texts are in the index
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * This method finds the texts that match a query, best first.
+   * @param query the query, e.g. "psto pasta"
+   * @param limit the most matches to return
+   * @param filter only texts whose ids pass the filter are returned
+   * @return the matches, best first; empty if the query has no words
+   */
+  public List<Match> search(String query, int limit, LongPredicate filter) {
+    String[] queryWords = words(query);
+    if (queryWords.length == 0) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      // the worst of the best matches so far is at the head
+      PriorityQueue<int[]> best = new PriorityQueue<>(RANKING.reversed());
+      for (int ordinal : candidates(queryWords)) {
+        if (!filter.test(ids[ordinal])) {
+          continue;
+        }
+        int typos = typos(queryWords, texts[ordinal]);
+        if (typos < 0) {
+          continue;
+        }
+        int[] match = { ordinal, typos, texts[ordinal].length };
+        if (best.size() < limit) {
+          best.add(match);
+        } else if (RANKING.compare(match, best.peek()) < 0) {
+          best.poll();
+          best.add(match);
+        }
+      }
+      return best.stream()
+          .sorted(RANKING)
+          .map(m -> new Match(ids[m[0]], m[1]))
+          .toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the ordinals of the texts that share, with every query word, as
+   *         many trigrams as a word within that query word's typo budget would
+   */
+  private int[] candidates(String[] queryWords) {
+    int[] shared = new int[ordinals.size()];
+    // how many query words each text has enough trigrams for so far
+    int[] wordsMatched = new int[ordinals.size()];
+    int[] touched = new int[16];
+    int[] candidates = new int[0];
+    for (int w = 0; w < queryWords.length; w++) {
+      Set<String> trigrams = trigrams(new String[] { queryWords[w] }, false);
+      int needed = Math.max(1, trigrams.size() - 3 * typoBudget(queryWords[w]));
+      int touchedCount = 0;
+      for (String trigram : trigrams) {
+        Postings list = postings.get(trigram);
+        for (int i = 0; list != null && i < list.size; i++) {
+          int ordinal = list.ordinals[i];
+          if (wordsMatched[ordinal] == w && shared[ordinal]++ == 0) {
+            if (touchedCount == touched.length) {
+              touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = ordinal;
+          }
+        }
+      }
+      int candidateCount = 0;
+      candidates = new int[touchedCount];
+      for (int i = 0; i < touchedCount; i++) {
+        int ordinal = touched[i];
+        if (shared[ordinal] >= needed) {
+          wordsMatched[ordinal]++;
+          candidates[candidateCount++] = ordinal;
+        }
+        shared[ordinal] = 0;
+      }
+      candidates = Arrays.copyOf(candidates, candidateCount);
+    }
+    return candidates;
+  }
+
+  /**
+   * @return the total typos, or -1 if some query word is over its budget for every word of the text
+   */
+  static int typos(String[] queryWords, String[] textWords) {
+    int total = 0;
+    for (String queryWord : queryWords) {
+      if (isPrefixOfAny(queryWord, textWords)) {
+        continue;
+      }
+      int budget = typoBudget(queryWord);
+      int best = budget + 1;
+      for (String textWord : textWords) {
+        best = Math.min(best, wordDistance(queryWord, textWord, best - 1));
+      }
+      if (best > budget) {
+        return -1;
+      }
+      total += best;
+    }
+    return total;
+  }
+
+  private static boolean isPrefixOfAny(String queryWord, String[] textWords) {
+    for (String textWord : textWords) {
+      if (textWord.startsWith(queryWord)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return how many typos a query word may have: none up to 3 letters, one up to 6, two after that
+   */
+  static int typoBudget(String queryWord) {
+    return queryWord.length() <= 3 ? 0 : queryWord.length() <= 6 ? 1 : 2;
+  }
+
+  /**
+   * @return the edit distance from the query word to the text word or to the
+   *         prefix of it with the same length, whichever is less, or max + 1 if both are more than max
+   */
+  static int wordDistance(String queryWord, String textWord, int max) {
+    int whole = editDistance(queryWord, textWord, max);
+    if (textWord.length() <= queryWord.length()) {
+      return whole;
+    }
+    return Math.min(whole, editDistance(queryWord, textWord.substring(0, queryWord.length()), max));
+  }
+
+  /**
+   * @return the Levenshtein distance between a and b, or max + 1 if it is more than max
+   */
+  static int editDistance(String a, String b, int max) {
+    if (Math.abs(a.length() - b.length()) > max) {
+      return max + 1;
+    }
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int rowMin = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      if (rowMin > max) {
+        return max + 1;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return Math.min(previous[b.length()], max + 1);
+  }
+
+  /**
+   * @param text any text
+   * @return its words, lowercased, without accents, and split on anything but letters and digits
+   */
+  static String[] words(String text) {
+    if (text == null) {
+      return new String[0];
+    }
+    String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+    return Arrays.stream(SEPARATORS.split(plain.toLowerCase(Locale.ROOT)))
+        .filter(word -> !word.isEmpty())
+        .toArray(String[]::new);
+  }
+
+  /**
+   * @param words some words
+   * @param padEnd whether to pad the end of each word too; query words
+   *        aren't, so that they match the words they are prefixes of
+   * @return the distinct trigrams of the words, each padded with two spaces at the start
+   */
+  static Set<String> trigrams(String[] words, boolean padEnd) {
+    Set<String> trigrams = new LinkedHashSet<>();
+    for (String word : words) {
+      String padded = "  " + word + (padEnd ? " " : "");
+      for (int i = 0; i + 3 <= padded.length(); i++) {
+        trigrams.add(padded.substring(i, i + 3));
+      }
+    }
+    return trigrams;
+  }
+
+  /**
+   * A sorted, growable array of ordinals.
+   */
+  static class Postings {
+    int[] ordinals = new int[4];
+    int size;
+
+    /** the ordinal must not be in the list already */
+    void add(int ordinal) {
+      int insertAt = -Arrays.binarySearch(ordinals, 0, size, ordinal) - 1;
+      if (size == ordinals.length) {
+        ordinals = Arrays.copyOf(ordinals, size * 2);
+      }
+      System.arraycopy(ordinals, insertAt, ordinals, insertAt + 1, size - insertAt);
+      ordinals[insertAt] = ordinal;
+      size++;
+    }
+
+    /** the ordinal must be in the list */
+    void remove(int ordinal) {
+      int at = Arrays.binarySearch(ordinals, 0, size, ordinal);
+      System.arraycopy(ordinals, at + 1, ordinals, at, size - at - 1);
+      size--;
+    }
+  }
+}
@@ -5,7 +5,10 @@ import edu.ucsb.cs156.example.models.CurrentUser;
 
 import java.util.Collection;
 
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
  * This is a service that provides information about the current user.
@@ -42,4 +45,28 @@ public abstract class CurrentUserService {
     return getUser() != null;
   }
 
+  /**
+   * This method returns the name of the authenticated principal, without
+   * loading the user from the database.
+   * @return the principal name, or null if no one is logged in
+   */
+  public String getPrincipalName() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+      return null;
+    }
+    return authentication.getName();
+  }
+
+  /**
+   * This method returns whether the current user is an admin, from the
+   * authorities granted at login, without loading the user from the database.
+   * @return whether the current user has ROLE_ADMIN
+   */
+  public boolean isAdmin() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication != null && authentication.getAuthorities().stream()
+        .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+  }
+
 }
@@ -1,14 +1,13 @@
 package edu.ucsb.cs156.example.services;
 
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jfr.AuthEvent;
 import edu.ucsb.cs156.example.models.CurrentUser;
-import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,7 +31,7 @@ import org.springframework.stereotype.Service;
 @Primary
 public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
-  private UserRepository userRepository;
+  private UserLogins userLogins;
 
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
@@ -41,23 +40,27 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   final private List<String> adminEmails = new ArrayList<String>();
 
   /**
-   * This method returns the current user as a User object.
+   * This method returns the current user as a CurrentUser object.
+   * It is built at most once per request; see RequestMemo.
    * @return the current user
    */
   public CurrentUser getCurrentUser() {
-    CurrentUser cu = CurrentUser.builder()
-      .user(this.getUser())
-      .roles(this.getRoles())
-      .build();
-    log.info("getCurrentUser returns {}",cu);
-    return cu;
+    return RequestMemo.get("currentUser", () -> {
+      CurrentUser cu = CurrentUser.builder()
+        .user(this.getUser())
+        .roles(this.getRoles())
+        .build();
+      log.info("getCurrentUser returns {}",cu);
+      return cu;
+    });
   }
 
   /**
    * This method obtains the current user that is logged in with OAuth2, if any.
    * The parameters are automatically injected by Spring.
    * 
-   * This method also has a side effect of storing the user in the database if they are not already there.
+   * This method also has a side effect of storing the user in the database if they are not already there,
+   * or updating their profile if it has changed; see UserLogins.
    * 
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
@@ -79,16 +82,6 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
     log.info("attrs={}",attrs);
 
-    Optional<User> ou = userRepository.findByEmail(email);
-    if (ou.isPresent()) {
-      User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
-      return u;
-    }
-
     User u = User.builder()
         .googleSub(googleSub)
         .email(email)
@@ -101,22 +94,38 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .hostedDomain(hostedDomain)
         .admin(adminEmails.contains(email))
         .build();
-    userRepository.save(u);
-    return u;
+    return userLogins.login(u);
   }
 
   /**
    * This method returns the current user as a User object.
+   * It is looked up at most once per request; see RequestMemo.
    * @return the current user
    */
   public User getUser() {
-    SecurityContext securityContext = SecurityContextHolder.getContext();
-    Authentication authentication = securityContext.getAuthentication();
+    return RequestMemo.get("user", this::resolveUser);
+  }
 
-    if (authentication instanceof OAuth2AuthenticationToken) {
-      return getOAuth2AuthenticatedUser(securityContext, authentication);
+  /**
+   * This method looks up the current user, recording a Java Flight Recorder
+   * AuthEvent for the time it takes.
+   * @return the current user
+   */
+  private User resolveUser() {
+    AuthEvent event = new AuthEvent();
+    event.begin();
+    User user = null;
+    try {
+      SecurityContext securityContext = SecurityContextHolder.getContext();
+      Authentication authentication = securityContext.getAuthentication();
+
+      if (authentication instanceof OAuth2AuthenticationToken) {
+        user = getOAuth2AuthenticatedUser(securityContext, authentication);
+      }
+      return user;
+    } finally {
+      event.finish(user != null);
     }
-    return null;
   }
 
   /**
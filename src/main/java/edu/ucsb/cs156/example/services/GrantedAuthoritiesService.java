@@ -20,16 +20,18 @@ public class GrantedAuthoritiesService {
 
     /**
      * The function retrieves and logs the granted authorities from the current security context in a
-     * Java application.
+     * Java application, once per request; see RequestMemo.
      * 
      * @return collection of authorities granted to the currently authenticated user.
      */
     public Collection<? extends GrantedAuthority> getGrantedAuthorities() {
-        SecurityContext securityContext = SecurityContextHolder.getContext();
-        Authentication authentication = securityContext.getAuthentication();
-        Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
-        log.info("authorities={}", authorities);
-        return authorities;
+        return RequestMemo.get("authorities", () -> {
+            SecurityContext securityContext = SecurityContextHolder.getContext();
+            Authentication authentication = securityContext.getAuthentication();
+            Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
+            log.info("authorities={}", authorities);
+            return authorities;
+        });
     }
 
 }
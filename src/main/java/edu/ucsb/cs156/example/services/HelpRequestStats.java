@@ -0,0 +1,215 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+
+/**
+ * This service keeps the HELPREQUEST_HOURLY rollup: for each hour (of the
+ * request time), team and room, how many help requests there are, how many
+ * are solved, and the total time it took to solve them.
+ *
+ * The rollup is updated by the help request controller in the same
+ * transaction as the help request itself, so reading statistics only has to
+ * read one row per hour, team and room rather than the whole HELPREQUEST table.
+ *
+ * Time to solve is measured when an update flips solved from false to true,
+ * from the request time to that moment, and kept on the help request so that
+ * it moves with the request's counts and is taken back out if the request is
+ * unsolved or deleted; requests that were created already solved, or solved
+ * before the rollup existed, count as solved but not timed.
+ */
+@Service
+public class HelpRequestStats {
+
+  /** the dimensions that statistics can be grouped by, and their columns */
+  static final Map<String, String> DIMENSIONS = Map.of(
+      "hour", "BUCKET_START",
+      "teamId", "TEAM_ID",
+      "tableOrBreakoutRoom", "TABLE_OR_BREAKOUT_ROOM");
+
+  static final String COLUMNS = "BUCKET_START, TEAM_ID, TABLE_OR_BREAKOUT_ROOM, REQUESTS, SOLVED, TIMED_SOLVES, SOLVE_SECONDS";
+
+  static final String POSTGRES_UPSERT = "INSERT INTO HELPREQUEST_HOURLY (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?) "
+      + "ON CONFLICT (BUCKET_START, TEAM_ID, TABLE_OR_BREAKOUT_ROOM) DO UPDATE SET "
+      + "REQUESTS = HELPREQUEST_HOURLY.REQUESTS + EXCLUDED.REQUESTS, "
+      + "SOLVED = HELPREQUEST_HOURLY.SOLVED + EXCLUDED.SOLVED, "
+      + "TIMED_SOLVES = HELPREQUEST_HOURLY.TIMED_SOLVES + EXCLUDED.TIMED_SOLVES, "
+      + "SOLVE_SECONDS = HELPREQUEST_HOURLY.SOLVE_SECONDS + EXCLUDED.SOLVE_SECONDS";
+
+  static final String MERGE_UPSERT = "MERGE INTO HELPREQUEST_HOURLY T USING (VALUES (CAST(? AS TIMESTAMP), "
+      + "CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), "
+      + "CAST(? AS BIGINT))) S (" + COLUMNS + ") "
+      + "ON T.BUCKET_START = S.BUCKET_START AND T.TEAM_ID = S.TEAM_ID AND T.TABLE_OR_BREAKOUT_ROOM = S.TABLE_OR_BREAKOUT_ROOM "
+      + "WHEN MATCHED THEN UPDATE SET REQUESTS = T.REQUESTS + S.REQUESTS, SOLVED = T.SOLVED + S.SOLVED, "
+      + "TIMED_SOLVES = T.TIMED_SOLVES + S.TIMED_SOLVES, SOLVE_SECONDS = T.SOLVE_SECONDS + S.SOLVE_SECONDS "
+      + "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (S.BUCKET_START, S.TEAM_ID, "
+      + "S.TABLE_OR_BREAKOUT_ROOM, S.REQUESTS, S.SOLVED, S.TIMED_SOLVES, S.SOLVE_SECONDS)";
+
+  /**
+   * This is the part of a help request that the rollup depends on, taken
+   * before an update so that the old counts can be taken out.
+   * @param requestTime when the help was requested
+   * @param teamId the team
+   * @param tableOrBreakoutRoom the room
+   * @param solved whether the request is solved
+   * @param solveSeconds how long it took to solve, or null if it was not timed
+   */
+  public record Snapshot(LocalDateTime requestTime, String teamId, String tableOrBreakoutRoom, boolean solved,
+      Long solveSeconds) {
+    public static Snapshot of(HelpRequest helpRequest) {
+      return new Snapshot(helpRequest.getRequestTime(), helpRequest.getTeamId(),
+          helpRequest.getTableOrBreakoutRoom(), helpRequest.getSolved(), helpRequest.getSolveSeconds());
+    }
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Clock clock;
+  private volatile String upsertSql;
+
+  @Autowired
+  public HelpRequestStats(JdbcTemplate jdbcTemplate) {
+    this(jdbcTemplate, Clock.systemDefaultZone());
+  }
+
+  HelpRequestStats(JdbcTemplate jdbcTemplate, Clock clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.clock = clock;
+  }
+
+  /**
+   * This method counts a new help request.
+   * @param helpRequest the help request
+   */
+  public void recordCreated(HelpRequest helpRequest) {
+    add(Snapshot.of(helpRequest), 1);
+  }
+
+  /**
+   * This method moves an updated help request's counts, if its hour, team,
+   * room or solved changed.  If it was just solved, its time to solve is set
+   * on it; if it was unsolved, its time to solve is cleared.
+   * @param before the help request before the update
+   * @param after the help request after the update, which the caller saves
+   */
+  public void recordUpdated(Snapshot before, HelpRequest after) {
+    if (!after.getSolved()) {
+      after.setSolveSeconds(null);
+    } else if (!before.solved() && after.getRequestTime() != null) {
+      after.setSolveSeconds(Math.max(0, Duration.between(after.getRequestTime(), LocalDateTime.now(clock)).getSeconds()));
+    }
+    Snapshot now = Snapshot.of(after);
+    if (now.equals(before)) {
+      return;
+    }
+    add(before, -1);
+    add(now, 1);
+  }
+
+  /**
+   * This method takes a deleted help request out of the counts.
+   * @param helpRequest the help request
+   */
+  public void recordDeleted(HelpRequest helpRequest) {
+    add(Snapshot.of(helpRequest), -1);
+  }
+
+  private void add(Snapshot snapshot, int sign) {
+    if (snapshot.requestTime() == null) {
+      return;
+    }
+    boolean timed = snapshot.solveSeconds() != null;
+    jdbcTemplate.update(getUpsertSql(),
+        snapshot.requestTime().truncatedTo(ChronoUnit.HOURS),
+        orEmpty(snapshot.teamId()),
+        orEmpty(snapshot.tableOrBreakoutRoom()),
+        sign,
+        snapshot.solved() ? sign : 0,
+        timed ? sign : 0,
+        timed ? sign * snapshot.solveSeconds() : 0);
+  }
+
+  private static String orEmpty(String value) {
+    return value == null ? "" : value;
+  }
+
+  private String getUpsertSql() {
+    if (upsertSql == null) {
+      upsertSql = upsertSql(jdbcTemplate.execute(
+          (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+    return upsertSql;
+  }
+
+  /**
+   * @param databaseProductName e.g. PostgreSQL or H2
+   * @return the statement that adds to a row of the rollup, creating it if needed
+   */
+  static String upsertSql(String databaseProductName) {
+    return "PostgreSQL".equals(databaseProductName) ? POSTGRES_UPSERT : MERGE_UPSERT;
+  }
+
+  /**
+   * This method sums the rollup over a range of hours, grouped by any of
+   * hour, teamId and tableOrBreakoutRoom.
+   * @param from if not null, only hours starting at or after this
+   * @param to if not null, only hours starting before this
+   * @param groupBy the dimensions to group by; all three if null or empty
+   * @return one map per group, with the dimensions, requests, solved and
+   *         avgSecondsToSolve (null when no request in the group was timed)
+   * @throws UnknownFieldException if groupBy has something else
+   */
+  public List<Map<String, Object>> getStats(LocalDateTime from, LocalDateTime to, List<String> groupBy) {
+    List<String> dimensions = groupBy == null || groupBy.isEmpty()
+        ? List.of("hour", "teamId", "tableOrBreakoutRoom")
+        : groupBy;
+    List<String> unknown = dimensions.stream().filter(d -> !DIMENSIONS.containsKey(d)).toList();
+    if (!unknown.isEmpty()) {
+      throw new UnknownFieldException(HelpRequest.class, unknown);
+    }
+    List<String> columns = dimensions.stream().map(DIMENSIONS::get).toList();
+
+    StringBuilder sql = new StringBuilder("SELECT ");
+    columns.forEach(column -> sql.append(column).append(", "));
+    sql.append("SUM(REQUESTS), SUM(SOLVED), SUM(TIMED_SOLVES), SUM(SOLVE_SECONDS) FROM HELPREQUEST_HOURLY WHERE 1 = 1");
+    List<Object> args = new ArrayList<>();
+    if (from != null) {
+      sql.append(" AND BUCKET_START >= ?");
+      args.add(from);
+    }
+    if (to != null) {
+      sql.append(" AND BUCKET_START < ?");
+      args.add(to);
+    }
+    String columnList = String.join(", ", columns);
+    sql.append(" GROUP BY ").append(columnList)
+        .append(" HAVING SUM(REQUESTS) > 0 ORDER BY ").append(columnList);
+
+    return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+      Map<String, Object> row = new LinkedHashMap<>();
+      int i = 1;
+      for (String dimension : dimensions) {
+        row.put(dimension, dimension.equals("hour") ? rs.getTimestamp(i).toLocalDateTime() : rs.getString(i));
+        i++;
+      }
+      row.put("requests", rs.getLong(i));
+      row.put("solved", rs.getLong(i + 1));
+      long timedSolves = rs.getLong(i + 2);
+      row.put("avgSecondsToSolve", timedSolves == 0 ? null : (double) rs.getLong(i + 3) / timedSolves);
+      return row;
+    }, args.toArray());
+  }
+}
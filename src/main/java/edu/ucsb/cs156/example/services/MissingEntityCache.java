@@ -0,0 +1,146 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that remembers ids that recently came back as not found,
+ * per entity type, so that repeated probes for missing ids can be answered
+ * without going to the database.  It also counts how many not found errors
+ * were returned for each entity type.
+ *
+ * The cache is disabled unless app.notFoundCache.ttlMillis is set to a
+ * positive value.  Entries are forgotten when an entity with that id is
+ * created (see ApiController.forgetMissing).
+ *
+ * Only ids looked up by ApiController.findOrThrow are remembered; other not
+ * found errors (e.g. for a URL or a tracking id) are only counted.
+ *
+ * The cache only hears about entities created through this instance.  When
+ * several instances run (whatever app.session.mode is; sticky servlet
+ * sessions spread users across instances too), an entity created through
+ * another instance keeps getting a cached 404 here for up to ttlMillis after
+ * it was created.  That is the staleness window to weigh when choosing
+ * app.notFoundCache.ttlMillis; leave it at 0 if it is not acceptable.
+ */
+
+@Service("missingEntities")
+public class MissingEntityCache {
+
+  @Value("${app.notFoundCache.ttlMillis:0}")
+  private long ttlMillis;
+
+  @Value("${app.notFoundCache.maxEntriesPerType:10000}")
+  private int maxEntriesPerType;
+
+  private final Map<Class<?>, Map<Object, Long>> missing = new ConcurrentHashMap<>();
+  private final Map<Class<?>, LongAdder> notFoundCounts = new ConcurrentHashMap<>();
+  private final Map<Class<?>, LongAdder> cacheHits = new ConcurrentHashMap<>();
+
+  /**
+   * This method returns whether the id was recently found to be missing.
+   * @param entityType the class of the entity, e.g. Articles.class
+   * @param id the id being looked up
+   * @return true if the id is known to be missing and the lookup can be skipped
+   */
+  public boolean isKnownMissing(Class<?> entityType, Object id) {
+    if (!isEnabled() || id == null) {
+      return false;
+    }
+    Map<Object, Long> ids = missing.get(entityType);
+    if (ids == null) {
+      return false;
+    }
+    Long expiresAt = ids.get(id);
+    if (expiresAt == null) {
+      return false;
+    }
+    if (expiresAt < System.currentTimeMillis()) {
+      ids.remove(id, expiresAt);
+      return false;
+    }
+    cacheHits.computeIfAbsent(entityType, k -> new LongAdder()).increment();
+    return true;
+  }
+
+  /**
+   * @return whether missing ids are remembered at all
+   */
+  public boolean isEnabled() {
+    return ttlMillis > 0;
+  }
+
+  /**
+   * This method counts a not found error.
+   * @param entityType the class of the entity, e.g. Articles.class
+   */
+  public void countNotFound(Class<?> entityType) {
+    notFoundCounts.computeIfAbsent(entityType, k -> new LongAdder()).increment();
+  }
+
+  /**
+   * This method remembers that a lookup by primary key returned not found.
+   * @param entityType the class of the entity, e.g. Articles.class
+   * @param id the id that was not found
+   */
+  public void recordNotFound(Class<?> entityType, Object id) {
+    if (!isEnabled() || id == null) {
+      return;
+    }
+    Map<Object, Long> ids = missing.computeIfAbsent(entityType, k -> new ConcurrentHashMap<>());
+    if (ids.size() >= maxEntriesPerType) {
+      // keep memory bounded when ids are being scanned; starting over is cheaper than evicting one at a time
+      ids.clear();
+    }
+    // expired entries were removed by isKnownMissing, so repeated probes don't extend the ttl
+    ids.putIfAbsent(id, System.currentTimeMillis() + ttlMillis);
+  }
+
+  /**
+   * This method forgets a missing id, e.g. because an entity with that id was just created.
+   * @param entityType the class of the entity, e.g. Articles.class
+   * @param id the id that now exists
+   */
+  public void forget(Class<?> entityType, Object id) {
+    Map<Object, Long> ids = missing.get(entityType);
+    if (ids != null && id != null) {
+      ids.remove(id);
+    }
+  }
+
+  /**
+   * This method forgets all missing ids of an entity type, e.g. after a bulk
+   * import that created entities without reporting their ids.
+   * @param entityType the class of the entity, e.g. Articles.class
+   */
+  public void forgetAll(Class<?> entityType) {
+    missing.remove(entityType);
+  }
+
+  /**
+   * This method returns the number of not found errors for each entity type.
+   * @return a map from entity name to count, sorted by entity name
+   */
+  public Map<String, Long> getNotFoundCounts() {
+    return snapshot(notFoundCounts);
+  }
+
+  /**
+   * This method returns the number of lookups answered from the cache for each entity type.
+   * @return a map from entity name to count, sorted by entity name
+   */
+  public Map<String, Long> getCacheHits() {
+    return snapshot(cacheHits);
+  }
+
+  private static Map<String, Long> snapshot(Map<Class<?>, LongAdder> counts) {
+    Map<String, Long> result = new TreeMap<>();
+    counts.forEach((type, count) -> result.put(type.getSimpleName(), count.sum()));
+    return result;
+  }
+}
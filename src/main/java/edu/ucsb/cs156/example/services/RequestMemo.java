@@ -0,0 +1,53 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.function.Supplier;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * This class remembers values, such as the current user, for the rest of
+ * the request they were computed in, so that each is resolved at most once
+ * per request however many times it is asked for.
+ *
+ * A value is recomputed if the request's authentication has changed since
+ * (e.g. at login).  Outside of a request (e.g. on a background thread)
+ * nothing is remembered.
+ */
+public final class RequestMemo {
+
+  private static final String PREFIX = RequestMemo.class.getName() + ".";
+
+  /**
+   * A remembered value, and the authentication it was computed for.
+   */
+  record Entry(Authentication authentication, Object value) {
+  }
+
+  private RequestMemo() {
+  }
+
+  /**
+   * @param <T> the type of the value
+   * @param key names the value; unique among the values remembered
+   * @param supplier computes the value, if it isn't remembered
+   * @return the value, possibly null
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T get(String key, Supplier<T> supplier) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return supplier.get();
+    }
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    Object remembered = attributes.getAttribute(PREFIX + key, RequestAttributes.SCOPE_REQUEST);
+    if (remembered instanceof Entry entry && entry.authentication() == authentication) {
+      return (T) entry.value();
+    }
+    T value = supplier.get();
+    attributes.setAttribute(PREFIX + key, new Entry(authentication, value), RequestAttributes.SCOPE_REQUEST);
+    return value;
+  }
+}
@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that lets concurrent identical calls share one
+ * execution: the first call for a key runs, and calls for the same key that
+ * arrive while it is running wait for it and get the same result (or
+ * exception).  Nothing is cached once the call has finished.
+ *
+ * It also counts, per name, how many calls ran and how many were coalesced
+ * into a call that was already running.
+ */
+
+@Service
+public class SingleFlightGroup {
+
+  /**
+   * This interface is a call that may throw anything, e.g. ProceedingJoinPoint::proceed.
+   */
+  public interface Call {
+    Object call() throws Throwable;
+  }
+
+  private record Counters(LongAdder executions, LongAdder coalesced) {
+  }
+
+  private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+  /**
+   * This method runs the call, or joins an identical call that is already running.
+   * @param name what the counters are kept under, e.g. the controller method
+   * @param key identifies identical calls; must implement equals and hashCode
+   * @param call the work to run
+   * @return the result of the call
+   * @throws Throwable whatever the call threw
+   */
+  public Object execute(String name, Object key, Call call) throws Throwable {
+    Counters count = counters.computeIfAbsent(name, k -> new Counters(new LongAdder(), new LongAdder()));
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      count.coalesced().increment();
+      try {
+        return running.get();
+      } catch (ExecutionException e) {
+        throw e.getCause();
+      }
+    }
+    count.executions().increment();
+    try {
+      Object result = call.call();
+      mine.complete(result);
+      return result;
+    } catch (Throwable t) {
+      mine.completeExceptionally(t);
+      throw t;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /**
+   * @return a map from name to its executions and coalesced counts, sorted by name
+   */
+  public Map<String, Map<String, Long>> getStats() {
+    Map<String, Map<String, Long>> stats = new TreeMap<>();
+    counters.forEach((name, count) -> stats.put(name,
+        Map.of("executions", count.executions().sum(), "coalesced", count.coalesced().sum())));
+    return stats;
+  }
+}
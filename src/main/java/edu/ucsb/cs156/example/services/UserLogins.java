@@ -0,0 +1,139 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.User;
+
+/**
+ * This service stores the user that just logged in, or brings their stored
+ * profile (picture, names, etc.) up to date.
+ *
+ * Logins of users whose stored profile is already current only read the
+ * USERS table.  Otherwise the row is written with one atomic upsert on the
+ * unique index on EMAIL, so concurrent first logins of the same user can't
+ * insert it twice, and concurrent logins of the same email on this
+ * instance share one upsert (see SingleFlightGroup).
+ *
+ * A user who is an admin stays one, even if the login says otherwise.
+ */
+@Service
+public class UserLogins {
+
+  static final String NAME = "UserLogins.login";
+
+  static final String COLUMNS = "EMAIL, GOOGLE_SUB, PICTURE_URL, FULL_NAME, GIVEN_NAME, FAMILY_NAME, "
+      + "EMAIL_VERIFIED, LOCALE, HOSTED_DOMAIN, ADMIN";
+
+  static final String SELECT = "SELECT ID, " + COLUMNS + " FROM USERS WHERE EMAIL = ?";
+
+  static final String POSTGRES_UPSERT = "INSERT INTO USERS (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+      + "ON CONFLICT (EMAIL) DO UPDATE SET GOOGLE_SUB = EXCLUDED.GOOGLE_SUB, PICTURE_URL = EXCLUDED.PICTURE_URL, "
+      + "FULL_NAME = EXCLUDED.FULL_NAME, GIVEN_NAME = EXCLUDED.GIVEN_NAME, FAMILY_NAME = EXCLUDED.FAMILY_NAME, "
+      + "EMAIL_VERIFIED = EXCLUDED.EMAIL_VERIFIED, LOCALE = EXCLUDED.LOCALE, HOSTED_DOMAIN = EXCLUDED.HOSTED_DOMAIN, "
+      + "ADMIN = USERS.ADMIN OR EXCLUDED.ADMIN";
+
+  static final String MERGE_UPSERT = "MERGE INTO USERS T USING (VALUES (CAST(? AS VARCHAR(255)), "
+      + "CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), "
+      + "CAST(? AS VARCHAR(255)), CAST(? AS BOOLEAN), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), "
+      + "CAST(? AS BOOLEAN))) S (" + COLUMNS + ") ON T.EMAIL = S.EMAIL "
+      + "WHEN MATCHED THEN UPDATE SET GOOGLE_SUB = S.GOOGLE_SUB, PICTURE_URL = S.PICTURE_URL, "
+      + "FULL_NAME = S.FULL_NAME, GIVEN_NAME = S.GIVEN_NAME, FAMILY_NAME = S.FAMILY_NAME, "
+      + "EMAIL_VERIFIED = S.EMAIL_VERIFIED, LOCALE = S.LOCALE, HOSTED_DOMAIN = S.HOSTED_DOMAIN, "
+      + "ADMIN = T.ADMIN OR S.ADMIN "
+      + "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (S.EMAIL, S.GOOGLE_SUB, S.PICTURE_URL, "
+      + "S.FULL_NAME, S.GIVEN_NAME, S.FAMILY_NAME, S.EMAIL_VERIFIED, S.LOCALE, S.HOSTED_DOMAIN, S.ADMIN)";
+
+  static final RowMapper<User> USER = (rs, rowNum) -> User.builder()
+      .id(rs.getLong("ID"))
+      .email(rs.getString("EMAIL"))
+      .googleSub(rs.getString("GOOGLE_SUB"))
+      .pictureUrl(rs.getString("PICTURE_URL"))
+      .fullName(rs.getString("FULL_NAME"))
+      .givenName(rs.getString("GIVEN_NAME"))
+      .familyName(rs.getString("FAMILY_NAME"))
+      .emailVerified(rs.getBoolean("EMAIL_VERIFIED"))
+      .locale(rs.getString("LOCALE"))
+      .hostedDomain(rs.getString("HOSTED_DOMAIN"))
+      .admin(rs.getBoolean("ADMIN"))
+      .build();
+
+  private final JdbcTemplate jdbcTemplate;
+  private final SingleFlightGroup singleFlightGroup;
+  private volatile String upsertSql;
+
+  public UserLogins(JdbcTemplate jdbcTemplate, SingleFlightGroup singleFlightGroup) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.singleFlightGroup = singleFlightGroup;
+  }
+
+  /**
+   * This method stores the user that logged in, or updates their profile
+   * if it has changed since it was stored.
+   * @param profile the user as described by the login; its id is ignored
+   * @return the stored user
+   */
+  public User login(User profile) {
+    User stored = find(profile.getEmail());
+    if (stored != null && stored.equals(merged(stored, profile))) {
+      return stored;
+    }
+    try {
+      return (User) singleFlightGroup.execute(NAME, profile.getEmail(), () -> upsert(profile));
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      // upsert throws nothing checked
+      throw new IllegalStateException(t);
+    }
+  }
+
+  /**
+   * @return what the stored user should look like after this login
+   */
+  static User merged(User stored, User profile) {
+    return new User(stored.getId(), profile.getEmail(), profile.getGoogleSub(), profile.getPictureUrl(),
+        profile.getFullName(), profile.getGivenName(), profile.getFamilyName(), profile.getEmailVerified(),
+        profile.getLocale(), profile.getHostedDomain(), stored.getAdmin() || profile.getAdmin());
+  }
+
+  private User find(String email) {
+    List<User> users = jdbcTemplate.query(SELECT, USER, email);
+    return users.isEmpty() ? null : users.get(0);
+  }
+
+  private User upsert(User profile) {
+    Object[] args = { profile.getEmail(), profile.getGoogleSub(), profile.getPictureUrl(), profile.getFullName(),
+        profile.getGivenName(), profile.getFamilyName(), profile.getEmailVerified(), profile.getLocale(),
+        profile.getHostedDomain(), profile.getAdmin() };
+    try {
+      jdbcTemplate.update(getUpsertSql(), args);
+    } catch (DuplicateKeyException e) {
+      // MERGE can lose a race to insert the same email on another instance;
+      // the row is there now, so it matches the second time
+      jdbcTemplate.update(getUpsertSql(), args);
+    }
+    return find(profile.getEmail());
+  }
+
+  private String getUpsertSql() {
+    if (upsertSql == null) {
+      upsertSql = upsertSql(jdbcTemplate.execute(
+          (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+    return upsertSql;
+  }
+
+  /**
+   * @param databaseProductName e.g. PostgreSQL or H2
+   * @return the statement that inserts a user, or updates the user with the same email
+   */
+  static String upsertSql(String databaseProductName) {
+    return "PostgreSQL".equals(databaseProductName) ? POSTGRES_UPSERT : MERGE_UPSERT;
+  }
+}
@@ -0,0 +1,202 @@
+package edu.ucsb.cs156.example.session;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * An HttpSession that is loaded from and saved to a JdbcSessionStore.
+ * 
+ * Each request works on its own copy; changes are handed back to the store
+ * by JdbcSessionFilter when the request completes.  The session tracks what
+ * kind of write it needs: attributes whose names start with SPRING_SECURITY_
+ * or org.springframework.security. (the login and the pending OAuth2
+ * authorization request) are written through, since the very next request
+ * may be served by another instance; everything else can be written behind.
+ */
+public class JdbcHttpSession implements HttpSession {
+
+  private final ServletContext servletContext;
+  private final long creationTime;
+  private final Map<String, Object> attributes;
+  private final boolean isNew;
+  private String id;
+  private String previousId;
+  private long lastAccessedTime;
+  private long persistedLastAccessedTime;
+  private int maxInactiveInterval;
+  private boolean dirty;
+  private boolean writeThrough;
+  private boolean invalidated;
+  private boolean stored;
+  private Runnable onInvalidate = () -> { };
+
+  JdbcHttpSession(ServletContext servletContext, String id, long creationTime, long lastAccessedTime,
+      int maxInactiveInterval, Map<String, Object> attributes, boolean isNew) {
+    this.servletContext = servletContext;
+    this.id = id;
+    this.creationTime = creationTime;
+    this.lastAccessedTime = lastAccessedTime;
+    this.persistedLastAccessedTime = isNew ? 0 : lastAccessedTime;
+    this.maxInactiveInterval = maxInactiveInterval;
+    this.attributes = new HashMap<>(attributes);
+    this.isNew = isNew;
+    this.stored = !isNew;
+  }
+
+  static boolean isSecurityAttribute(String name) {
+    return name.startsWith("SPRING_SECURITY_") || name.startsWith("org.springframework.security.");
+  }
+
+  @Override
+  public long getCreationTime() {
+    checkValid();
+    return creationTime;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public long getLastAccessedTime() {
+    checkValid();
+    return lastAccessedTime;
+  }
+
+  @Override
+  public ServletContext getServletContext() {
+    return servletContext;
+  }
+
+  @Override
+  public void setMaxInactiveInterval(int interval) {
+    maxInactiveInterval = interval;
+    dirty = true;
+  }
+
+  @Override
+  public int getMaxInactiveInterval() {
+    return maxInactiveInterval;
+  }
+
+  @Override
+  public Object getAttribute(String name) {
+    checkValid();
+    return attributes.get(name);
+  }
+
+  @Override
+  public Enumeration<String> getAttributeNames() {
+    checkValid();
+    return Collections.enumeration(attributes.keySet());
+  }
+
+  @Override
+  public void setAttribute(String name, Object value) {
+    if (value == null) {
+      removeAttribute(name);
+      return;
+    }
+    checkValid();
+    attributes.put(name, value);
+    changed(name);
+  }
+
+  @Override
+  public void removeAttribute(String name) {
+    checkValid();
+    if (attributes.remove(name) != null) {
+      changed(name);
+    }
+  }
+
+  @Override
+  public void invalidate() {
+    checkValid();
+    invalidated = true;
+    onInvalidate.run();
+  }
+
+  @Override
+  public boolean isNew() {
+    checkValid();
+    return isNew;
+  }
+
+  private void changed(String name) {
+    dirty = true;
+    writeThrough |= isSecurityAttribute(name);
+  }
+
+  private void checkValid() {
+    if (invalidated) {
+      throw new IllegalStateException("session " + id + " has been invalidated");
+    }
+  }
+
+  void changeId(String newId) {
+    if (previousId == null && stored) {
+      previousId = id;
+    }
+    id = newId;
+    writeThrough = true;
+  }
+
+  void setLastAccessedTime(long lastAccessedTime) {
+    this.lastAccessedTime = lastAccessedTime;
+  }
+
+  void setOnInvalidate(Runnable onInvalidate) {
+    this.onInvalidate = onInvalidate;
+  }
+
+  long getPersistedLastAccessedTime() {
+    return persistedLastAccessedTime;
+  }
+
+  /** @return the id this session was stored under before changeId, or null */
+  String getPreviousId() {
+    return previousId;
+  }
+
+  Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  boolean isDirty() {
+    return dirty;
+  }
+
+  boolean isWriteThrough() {
+    return writeThrough;
+  }
+
+  /** @return whether this session has a row in the database (or queued for one) */
+  boolean isStored() {
+    return stored;
+  }
+
+  boolean isInvalidated() {
+    return invalidated;
+  }
+
+  /** called by the store once this session's state has been saved or queued */
+  void saved() {
+    previousId = null;
+    stored = true;
+    persistedLastAccessedTime = lastAccessedTime;
+    dirty = false;
+    writeThrough = false;
+  }
+
+  /** @return the time (epoch millis) after which this session has expired */
+  long getExpiresAt() {
+    return maxInactiveInterval <= 0 ? Long.MAX_VALUE : lastAccessedTime + maxInactiveInterval * 1000L;
+  }
+}
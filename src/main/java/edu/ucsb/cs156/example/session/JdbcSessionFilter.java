@@ -0,0 +1,275 @@
+package edu.ucsb.cs156.example.session;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.HttpSession;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This filter replaces the servlet container's HttpSession with one kept in
+ * a JdbcSessionStore.  The session id travels in the SESSION cookie.
+ * 
+ * It must run before Spring Security's filter chain, so that the security
+ * context and the OAuth2 authorization request are kept in the shared store.
+ * 
+ * The session is saved just before the response is committed (on a redirect,
+ * an error, a flush, or once more than a buffer of content is written), so
+ * that a browser following a redirect, e.g. the OAuth2 login, never arrives
+ * before its session does.  Anything changed after that is saved again when
+ * the request finishes.
+ */
+@Slf4j
+public class JdbcSessionFilter extends OncePerRequestFilter {
+  public static final String COOKIE_NAME = "SESSION";
+
+  private final JdbcSessionStore store;
+
+  /**
+   * @param store where sessions are kept
+   */
+  public JdbcSessionFilter(JdbcSessionStore store) {
+    this.store = store;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    SessionRequestWrapper wrapped = new SessionRequestWrapper(request, response);
+    try {
+      filterChain.doFilter(wrapped, new SessionResponseWrapper(response, wrapped));
+    } finally {
+      wrapped.commit();
+    }
+  }
+
+  private void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+    if (response.isCommitted()) {
+      log.warn("response already committed, could not set the {} cookie for {}", COOKIE_NAME, request.getRequestURI());
+      return;
+    }
+    ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, value)
+        .httpOnly(true)
+        .secure(request.isSecure())
+        .sameSite("Lax")
+        .path("/")
+        .maxAge(maxAge)
+        .build();
+    response.addHeader("Set-Cookie", cookie.toString());
+  }
+
+  private class SessionRequestWrapper extends HttpServletRequestWrapper {
+    private final HttpServletResponse response;
+    private final String requestedSessionId;
+    private JdbcHttpSession session;
+    private boolean requestedSessionLoaded;
+
+    SessionRequestWrapper(HttpServletRequest request, HttpServletResponse response) {
+      super(request);
+      this.response = response;
+      Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+      this.requestedSessionId = cookie == null ? null : cookie.getValue();
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+      if (session != null && !session.isInvalidated()) {
+        return session;
+      }
+      if (!requestedSessionLoaded && requestedSessionId != null) {
+        requestedSessionLoaded = true;
+        session = store.findById(requestedSessionId, getServletContext());
+        if (session != null) {
+          session.setOnInvalidate(this::invalidated);
+          return session;
+        }
+      }
+      if (!create) {
+        return null;
+      }
+      if (session != null) {
+        // an invalidated session is deleted now, so the new one doesn't inherit it
+        store.save(session);
+      }
+      session = store.createSession(getServletContext());
+      session.setOnInvalidate(this::invalidated);
+      writeCookie(this, response, session.getId(), -1);
+      return session;
+    }
+
+    @Override
+    public HttpSession getSession() {
+      return getSession(true);
+    }
+
+    @Override
+    public String changeSessionId() {
+      HttpSession current = getSession(false);
+      if (current == null) {
+        throw new IllegalStateException("there is no session to change the id of");
+      }
+      String newId = store.newSessionId();
+      session.changeId(newId);
+      writeCookie(this, response, newId, -1);
+      return newId;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+      return requestedSessionId;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+      HttpSession current = getSession(false);
+      return current != null && current.getId().equals(requestedSessionId);
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+      return requestedSessionId != null;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+      return false;
+    }
+
+    private void invalidated() {
+      writeCookie(this, response, "", 0);
+    }
+
+    void commit() {
+      if (session != null) {
+        store.save(session);
+      }
+    }
+  }
+
+  private static class SessionResponseWrapper extends HttpServletResponseWrapper {
+    private final SessionRequestWrapper request;
+    private boolean sessionSaved;
+    private long contentWritten;
+
+    SessionResponseWrapper(HttpServletResponse response, SessionRequestWrapper request) {
+      super(response);
+      this.request = request;
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      saveSession();
+      super.sendRedirect(location);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      saveSession();
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      saveSession();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      saveSession();
+      super.flushBuffer();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      ServletOutputStream out = super.getOutputStream();
+      return new ServletOutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          written(1);
+          out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          written(len);
+          out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+          saveSession();
+          out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+          saveSession();
+          out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+          return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+          out.setWriteListener(writeListener);
+        }
+      };
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      PrintWriter out = super.getWriter();
+      return new PrintWriter(new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+          written(len);
+          out.write(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() {
+          saveSession();
+          out.flush();
+        }
+
+        @Override
+        public void close() {
+          saveSession();
+          out.close();
+        }
+      });
+    }
+
+    private void written(int len) {
+      contentWritten += len;
+      if (contentWritten > getBufferSize()) {
+        saveSession();
+      }
+    }
+
+    private void saveSession() {
+      if (!sessionSaved) {
+        sessionSaved = true;
+        request.commit();
+      }
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.session;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * This class holds the settings for the JDBC session store, bound from the
+ * app.session.jdbc.* properties.  They only matter when app.session.mode=jdbc.
+ */
+
+@Data
+@ConfigurationProperties(prefix = "app.session.jdbc")
+public class JdbcSessionProperties {
+  /** how long an idle session lives */
+  private Duration timeout = Duration.ofMinutes(30);
+  /** how often queued (write-behind) session updates are written to the database */
+  private Duration flushInterval = Duration.ofMillis(50);
+  /** how long a session read from the database is reused without reading it again; zero disables the near-cache */
+  private Duration nearCacheTtl = Duration.ofSeconds(1);
+  private int nearCacheMaxEntries = 10_000;
+  /** how often expired rows are deleted */
+  private Duration reapInterval = Duration.ofMinutes(1);
+}
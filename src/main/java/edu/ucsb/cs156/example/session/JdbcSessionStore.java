@@ -0,0 +1,330 @@
+package edu.ucsb.cs156.example.session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import jakarta.servlet.ServletContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class keeps HttpSessions in the HTTP_SESSIONS table so that any
+ * instance can serve any request, without sticky sessions.
+ * 
+ * To keep the cost per request low:
+ * <ul>
+ * <li>sessions read from the database are kept in a small near-cache for
+ * app.session.jdbc.near-cache-ttl, so a burst of requests from one browser
+ * reads the row once;</li>
+ * <li>ordinary attribute changes and last-access updates are queued and
+ * written in one JDBC batch every app.session.jdbc.flush-interval
+ * (write-behind); last-access updates are only written every
+ * TOUCH_INTERVAL_MILLIS;</li>
+ * <li>new sessions, id changes, and changes to the login or the OAuth2
+ * authorization request are written before the response is sent, because
+ * the next request (e.g. the redirect after login) may go to another
+ * instance.</li>
+ * </ul>
+ * A background task deletes expired rows every app.session.jdbc.reap-interval.
+ * 
+ * The near-cache means that an instance can keep using its copy of a session
+ * for up to near-cache-ttl after another instance changed it.  Logging in
+ * changes the session id, so this never hides a login.
+ */
+@Slf4j
+public class JdbcSessionStore {
+
+  static final String INSERT = "INSERT INTO HTTP_SESSIONS (SESSION_ID, CREATED_AT, LAST_ACCESSED_AT, MAX_INACTIVE_SECONDS, EXPIRES_AT, ATTRIBUTES) VALUES (?, ?, ?, ?, ?, ?)";
+  static final String UPDATE = "UPDATE HTTP_SESSIONS SET SESSION_ID = ?, LAST_ACCESSED_AT = ?, MAX_INACTIVE_SECONDS = ?, EXPIRES_AT = ?, ATTRIBUTES = ? WHERE SESSION_ID = ?";
+  static final String SELECT = "SELECT CREATED_AT, LAST_ACCESSED_AT, MAX_INACTIVE_SECONDS, ATTRIBUTES FROM HTTP_SESSIONS WHERE SESSION_ID = ?";
+  static final String DELETE = "DELETE FROM HTTP_SESSIONS WHERE SESSION_ID = ?";
+  static final String DELETE_EXPIRED = "DELETE FROM HTTP_SESSIONS WHERE EXPIRES_AT < ?";
+
+  /** last-access updates closer together than this are not written, so read-only requests don't each cost an UPDATE */
+  static final long TOUCH_INTERVAL_MILLIS = 10_000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final JdbcSessionProperties properties;
+  private final LongSupplier clock;
+  private final DefaultSerializer serializer = new DefaultSerializer();
+  private final DefaultDeserializer deserializer = new DefaultDeserializer(getClass().getClassLoader());
+
+  private final Map<String, Cached> nearCache = new ConcurrentHashMap<>();
+  private final Map<String, Snapshot> pending = new ConcurrentHashMap<>();
+  private final Object writeLock = new Object();
+  private ScheduledExecutorService executor;
+
+  record Snapshot(String id, long creationTime, long lastAccessedTime, int maxInactiveInterval,
+      Map<String, Object> attributes) {
+    long expiresAt() {
+      return maxInactiveInterval <= 0 ? Long.MAX_VALUE : lastAccessedTime + maxInactiveInterval * 1000L;
+    }
+  }
+
+  private record Cached(Snapshot snapshot, long cachedAt) {
+  }
+
+  /**
+   * @param jdbcTemplate used to read and write HTTP_SESSIONS
+   * @param properties the app.session.jdbc settings
+   * @param clock the current time in epoch millis, e.g. System::currentTimeMillis
+   */
+  public JdbcSessionStore(JdbcTemplate jdbcTemplate, JdbcSessionProperties properties, LongSupplier clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.properties = properties;
+    this.clock = clock;
+  }
+
+  /**
+   * This method starts the background tasks that write queued updates and delete expired rows.
+   */
+  public void start() {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "jdbc-session-store");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long flushMillis = properties.getFlushInterval().toMillis();
+    long reapMillis = properties.getReapInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    executor.scheduleWithFixedDelay(this::reapExpired, reapMillis, reapMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method stops the background tasks and writes anything still queued.
+   */
+  public void stop() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+    flush();
+  }
+
+  /**
+   * This method creates a new session.  Nothing is written until it is saved.
+   * @param servletContext returned by the session's getServletContext
+   * @return the new session
+   */
+  public JdbcHttpSession createSession(ServletContext servletContext) {
+    long now = clock.getAsLong();
+    return new JdbcHttpSession(servletContext, newSessionId(), now, now,
+        (int) properties.getTimeout().toSeconds(), Map.of(), true);
+  }
+
+  /**
+   * @return a new random session id
+   */
+  public String newSessionId() {
+    return UUID.randomUUID().toString();
+  }
+
+  /**
+   * This method looks up a session, and marks it as accessed now.
+   * @param id the session id, e.g. from the SESSION cookie
+   * @param servletContext returned by the session's getServletContext
+   * @return the session, or null if there is no such session or it has expired
+   */
+  public JdbcHttpSession findById(String id, ServletContext servletContext) {
+    long now = clock.getAsLong();
+    Snapshot snapshot = pending.get(id);
+    if (snapshot == null) {
+      snapshot = fromNearCache(id, now);
+    }
+    if (snapshot == null) {
+      snapshot = load(id);
+      if (snapshot == null) {
+        return null;
+      }
+      cache(snapshot, now);
+    }
+    if (snapshot.expiresAt() < now) {
+      delete(id);
+      return null;
+    }
+    JdbcHttpSession session = new JdbcHttpSession(servletContext, id, snapshot.creationTime(),
+        snapshot.lastAccessedTime(), snapshot.maxInactiveInterval(), snapshot.attributes(), false);
+    session.setLastAccessedTime(now);
+    return session;
+  }
+
+  /**
+   * This method saves the changes made to a session during a request; see
+   * the class comment for which changes are written immediately and which
+   * are queued.
+   * @param session the session
+   */
+  public void save(JdbcHttpSession session) {
+    String previousId = session.getPreviousId();
+    if (session.isInvalidated()) {
+      delete(session.getId());
+      if (previousId != null) {
+        delete(previousId);
+      }
+      return;
+    }
+    boolean touched = session.getLastAccessedTime() - session.getPersistedLastAccessedTime() >= TOUCH_INTERVAL_MILLIS;
+    if (session.isStored() && !session.isDirty() && !session.isWriteThrough() && !touched) {
+      return;
+    }
+    Snapshot snapshot = new Snapshot(session.getId(), session.getCreationTime(), session.getLastAccessedTime(),
+        session.getMaxInactiveInterval(), Map.copyOf(session.getAttributes()));
+    if (!session.isStored() || session.isWriteThrough()) {
+      synchronized (writeLock) {
+        pending.remove(snapshot.id());
+        if (previousId != null) {
+          pending.remove(previousId);
+          nearCache.remove(previousId);
+        }
+        if (session.isStored()) {
+          update(snapshot, previousId != null ? previousId : snapshot.id());
+        } else {
+          jdbcTemplate.update(INSERT, snapshot.id(), snapshot.creationTime(), snapshot.lastAccessedTime(),
+              snapshot.maxInactiveInterval(), snapshot.expiresAt(), serialize(snapshot.attributes()));
+        }
+      }
+    } else {
+      pending.put(snapshot.id(), snapshot);
+    }
+    cache(snapshot, clock.getAsLong());
+    session.saved();
+  }
+
+  /**
+   * This method deletes a session.
+   * @param id the session id
+   */
+  public void delete(String id) {
+    synchronized (writeLock) {
+      pending.remove(id);
+      nearCache.remove(id);
+      jdbcTemplate.update(DELETE, id);
+    }
+  }
+
+  /**
+   * This method writes all queued updates in one batch.
+   * @return the number of sessions written
+   */
+  public int flush() {
+    synchronized (writeLock) {
+      if (pending.isEmpty()) {
+        return 0;
+      }
+      List<Snapshot> batch = new ArrayList<>(pending.size());
+      for (String id : pending.keySet()) {
+        Snapshot snapshot = pending.remove(id);
+        if (snapshot != null) {
+          batch.add(snapshot);
+        }
+      }
+      try {
+        // rows that were deleted in the meantime (logout, reaper) are not recreated
+        jdbcTemplate.batchUpdate(UPDATE, batch, batch.size(), (ps, snapshot) -> {
+          ps.setString(1, snapshot.id());
+          ps.setLong(2, snapshot.lastAccessedTime());
+          ps.setInt(3, snapshot.maxInactiveInterval());
+          ps.setLong(4, snapshot.expiresAt());
+          ps.setBytes(5, serialize(snapshot.attributes()));
+          ps.setString(6, snapshot.id());
+        });
+      } catch (DataAccessException e) {
+        log.warn("could not write {} queued session updates, will retry: {}", batch.size(), e.toString());
+        batch.forEach(snapshot -> pending.putIfAbsent(snapshot.id(), snapshot));
+        return 0;
+      } catch (IllegalStateException e) {
+        log.error("dropping {} queued session updates: {}", batch.size(), e.toString());
+        return 0;
+      }
+      return batch.size();
+    }
+  }
+
+  /**
+   * This method deletes expired sessions.
+   * @return the number of rows deleted
+   */
+  public int reapExpired() {
+    long now = clock.getAsLong();
+    nearCache.values().removeIf(cached -> cached.snapshot().expiresAt() < now);
+    try {
+      int deleted = jdbcTemplate.update(DELETE_EXPIRED, now);
+      log.debug("deleted {} expired sessions", deleted);
+      return deleted;
+    } catch (DataAccessException e) {
+      log.warn("could not delete expired sessions: {}", e.toString());
+      return 0;
+    }
+  }
+
+  /**
+   * @return the number of session updates waiting to be written
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  private void update(Snapshot snapshot, String existingId) {
+    jdbcTemplate.update(UPDATE, snapshot.id(), snapshot.lastAccessedTime(), snapshot.maxInactiveInterval(),
+        snapshot.expiresAt(), serialize(snapshot.attributes()), existingId);
+  }
+
+  private byte[] serialize(Map<String, Object> attributes) {
+    try {
+      return serializer.serializeToByteArray(attributes);
+    } catch (IOException e) {
+      throw new IllegalStateException("session attributes must be Serializable", e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Snapshot load(String id) {
+    return jdbcTemplate.query(SELECT, rs -> {
+      if (!rs.next()) {
+        return null;
+      }
+      Map<String, Object> attributes;
+      try {
+        attributes = (Map<String, Object>) deserializer.deserializeFromByteArray(rs.getBytes(4));
+      } catch (Exception e) {
+        // e.g. a class in the session changed incompatibly in a new release; treat as logged out
+        log.warn("could not read session attributes, ignoring the session: {}", e.toString());
+        return null;
+      }
+      return new Snapshot(id, rs.getLong(1), rs.getLong(2), rs.getInt(3), attributes);
+    }, id);
+  }
+
+  private Snapshot fromNearCache(String id, long now) {
+    Cached cached = nearCache.get(id);
+    if (cached == null) {
+      return null;
+    }
+    if (now - cached.cachedAt() >= properties.getNearCacheTtl().toMillis()) {
+      nearCache.remove(id, cached);
+      return null;
+    }
+    return cached.snapshot();
+  }
+
+  private void cache(Snapshot snapshot, long now) {
+    if (properties.getNearCacheTtl().isZero()) {
+      return;
+    }
+    if (nearCache.size() >= properties.getNearCacheMaxEntries()) {
+      nearCache.clear();
+    }
+    nearCache.put(snapshot.id(), new Cached(snapshot, now));
+  }
+}
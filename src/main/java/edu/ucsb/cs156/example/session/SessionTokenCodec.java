@@ -0,0 +1,261 @@
+package edu.ucsb.cs156.example.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class turns an OAuth2 login into a compact signed token, and back.
+ * 
+ * A token is base64url(payload) + "." + base64url(HMAC-SHA256(payload)).  The
+ * payload holds the expiry, the client registration, the OAuth2 user attributes
+ * that CurrentUserServiceImpl reads, and the mapped authorities (ROLE_USER,
+ * ROLE_ADMIN, ROLE_MEMBER, ...).  Any instance configured with the same
+ * app.session.signing-key can verify a token issued by any other.
+ * 
+ * Verified tokens are remembered (up to a bound) so that the HMAC and decoding
+ * are done once per token rather than once per request.
+ * 
+ * This bean only exists when app.session.mode=stateless.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.session.mode", havingValue = "stateless")
+public class SessionTokenCodec {
+  private static final byte VERSION = 1;
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final int SIGNATURE_LENGTH = 32;
+  private static final int MAX_VERIFIED = 10_000;
+
+  /** The user attributes carried in the token; these are the ones CurrentUserServiceImpl reads. */
+  static final List<String> ATTRIBUTES = List.of(
+      "sub", "email", "picture", "name", "given_name", "family_name", "email_verified", "locale", "hd");
+
+  private final SecretKeySpec key;
+  private final Duration ttl;
+  private final ThreadLocal<Mac> macs;
+  private final ThreadLocal<byte[]> signatureBuffers = ThreadLocal.withInitial(() -> new byte[SIGNATURE_LENGTH]);
+  private final Map<String, OAuth2AuthenticationToken> verified = new ConcurrentHashMap<>();
+
+  /**
+   * @param signingKey the shared secret used to sign tokens; must be at least 32 characters
+   * @param ttl how long a token stays valid after login
+   */
+  public SessionTokenCodec(
+      @Value("${app.session.signing-key:}") String signingKey,
+      @Value("${app.session.ttl:8h}") Duration ttl) {
+    if (signingKey.length() < 32) {
+      throw new IllegalStateException("app.session.signing-key must be set to at least 32 characters when app.session.mode=stateless");
+    }
+    this.key = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    this.ttl = ttl;
+    this.macs = ThreadLocal.withInitial(this::newMac);
+  }
+
+  /**
+   * @return how long a token stays valid after login
+   */
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  /**
+   * This method encodes a login as a signed token.
+   * @param authentication the authentication produced by the OAuth2 login
+   * @return the signed token
+   */
+  public String encode(OAuth2AuthenticationToken authentication) {
+    OAuth2User user = authentication.getPrincipal();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      out.writeLong(Instant.now().plus(ttl).getEpochSecond());
+      out.writeUTF(authentication.getAuthorizedClientRegistrationId());
+      out.writeUTF(user.getName());
+      for (String attribute : ATTRIBUTES) {
+        Object value = user.getAttributes().get(attribute);
+        if (value instanceof Boolean b) {
+          out.writeByte('b');
+          out.writeBoolean(b);
+        } else if (value != null) {
+          out.writeByte('s');
+          out.writeUTF(value.toString());
+        } else {
+          out.writeByte('n');
+        }
+      }
+      out.writeShort(authentication.getAuthorities().size());
+      for (GrantedAuthority authority : authentication.getAuthorities()) {
+        out.writeUTF(authority.getAuthority());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return sign(bytes.toByteArray());
+  }
+
+  /**
+   * This method checks the signature and expiry of a token and rebuilds the login.
+   * @param token the token, as produced by encode
+   * @return the authentication, or null if the token is invalid or expired
+   */
+  public OAuth2AuthenticationToken decode(String token) {
+    OAuth2AuthenticationToken cached = verified.get(token);
+    if (cached != null) {
+      if (isExpired(cached)) {
+        verified.remove(token);
+        return null;
+      }
+      return cached;
+    }
+    byte[] payload = verify(token);
+    if (payload == null) {
+      return null;
+    }
+    OAuth2AuthenticationToken authentication = read(payload);
+    if (authentication == null || isExpired(authentication)) {
+      return null;
+    }
+    if (verified.size() >= MAX_VERIFIED) {
+      verified.clear();
+    }
+    verified.put(token, authentication);
+    return authentication;
+  }
+
+  /**
+   * This method signs arbitrary bytes, e.g. a serialized OAuth2 authorization request.
+   * @param payload the bytes to sign
+   * @return base64url(payload) + "." + base64url(signature)
+   */
+  public String sign(byte[] payload) {
+    String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(payload);
+    Mac mac = macs.get();
+    byte[] signature = mac.doFinal(encoded.getBytes(StandardCharsets.US_ASCII));
+    return encoded + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+  }
+
+  /**
+   * This method checks the signature of a value produced by sign.
+   * @param token the signed value
+   * @return the payload, or null if the signature does not match
+   */
+  public byte[] verify(String token) {
+    int dot = token.indexOf('.');
+    if (dot <= 0) {
+      return null;
+    }
+    try {
+      byte[] expected = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+      Mac mac = macs.get();
+      mac.reset();
+      for (int i = 0; i < dot; i++) {
+        mac.update((byte) token.charAt(i));
+      }
+      byte[] actual = signatureBuffers.get();
+      mac.doFinal(actual, 0);
+      if (!MessageDigest.isEqual(expected, actual)) {
+        return null;
+      }
+      return Base64.getUrlDecoder().decode(token.substring(0, dot));
+    } catch (IllegalArgumentException | GeneralSecurityException e) {
+      return null;
+    }
+  }
+
+  private OAuth2AuthenticationToken read(byte[] payload) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+      if (in.readByte() != VERSION) {
+        return null;
+      }
+      long expiresAt = in.readLong();
+      String registrationId = in.readUTF();
+      String name = in.readUTF();
+      Map<String, Object> attributes = new LinkedHashMap<>();
+      for (String attribute : ATTRIBUTES) {
+        switch (in.readByte()) {
+          case 'b' -> attributes.put(attribute, in.readBoolean());
+          case 's' -> attributes.put(attribute, in.readUTF());
+          default -> { }
+        }
+      }
+      attributes.put(ExpiringOAuth2User.EXPIRES_AT, expiresAt);
+      int count = in.readShort();
+      List<GrantedAuthority> authorities = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        authorities.add(new SimpleGrantedAuthority(in.readUTF()));
+      }
+      OAuth2User user = new ExpiringOAuth2User(authorities, attributes, name, expiresAt);
+      return new OAuth2AuthenticationToken(user, authorities, registrationId);
+    } catch (IOException e) {
+      log.warn("could not read session token: {}", e.toString());
+      return null;
+    }
+  }
+
+  private static boolean isExpired(OAuth2AuthenticationToken authentication) {
+    ExpiringOAuth2User user = (ExpiringOAuth2User) authentication.getPrincipal();
+    return user.getExpiresAt() < Instant.now().getEpochSecond();
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * An OAuth2User rebuilt from a token; it remembers when the token expires.
+   */
+  static final class ExpiringOAuth2User extends DefaultOAuth2User {
+    static final String EXPIRES_AT = "session_expires_at";
+    private final String name;
+    private final long expiresAt;
+
+    ExpiringOAuth2User(List<GrantedAuthority> authorities, Map<String, Object> attributes, String name, long expiresAt) {
+      super(authorities, attributes, EXPIRES_AT);
+      this.name = name;
+      this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    long getExpiresAt() {
+      return expiresAt;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.web.util.WebUtils;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * This AuthorizationRequestRepository keeps the OAuth2 authorization request
+ * (the state sent to the provider) in a short lived signed cookie instead of the
+ * HttpSession, so the provider's callback can land on a different instance
+ * than the one that started the login.
+ */
+public class SignedCookieAuthorizationRequestRepository implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+  static final String COOKIE_NAME = "OAUTH2_AUTH_REQUEST";
+  private static final int MAX_AGE_SECONDS = 300;
+
+  private final SessionTokenCodec codec;
+
+  /**
+   * @param codec used to sign and verify the cookie
+   */
+  public SignedCookieAuthorizationRequestRepository(SessionTokenCodec codec) {
+    this.codec = codec;
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+    Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+    if (cookie == null) {
+      return null;
+    }
+    // only deserialize bytes that we signed ourselves
+    byte[] payload = codec.verify(cookie.getValue());
+    if (payload == null) {
+      return null;
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+      return (OAuth2AuthorizationRequest) in.readObject();
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest, HttpServletRequest request,
+      HttpServletResponse response) {
+    if (authorizationRequest == null) {
+      writeCookie(request, response, "", 0);
+      return;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(authorizationRequest);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    writeCookie(request, response, codec.sign(bytes.toByteArray()), MAX_AGE_SECONDS);
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request, HttpServletResponse response) {
+    OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+    if (authorizationRequest != null) {
+      writeCookie(request, response, "", 0);
+    }
+    return authorizationRequest;
+  }
+
+  private void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAgeSeconds) {
+    ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, value)
+        .httpOnly(true)
+        .secure(request.isSecure())
+        .sameSite("Lax")
+        .path("/")
+        .maxAge(maxAgeSeconds)
+        .build();
+    response.addHeader("Set-Cookie", cookie.toString());
+  }
+}
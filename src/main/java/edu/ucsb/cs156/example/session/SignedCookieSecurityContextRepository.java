@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.session;
+
+import java.util.function.Supplier;
+
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.util.WebUtils;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * This SecurityContextRepository keeps the login in a signed cookie instead of
+ * the HttpSession, so that any instance behind the load balancer can serve any
+ * request.  See SessionTokenCodec for the token format.
+ */
+public class SignedCookieSecurityContextRepository implements SecurityContextRepository {
+  /** The name of the cookie holding the session token. */
+  public static final String COOKIE_NAME = "SESSION_TOKEN";
+
+  private final SessionTokenCodec codec;
+  private final SecurityContextHolderStrategy strategy = SecurityContextHolder.getContextHolderStrategy();
+
+  /**
+   * @param codec used to sign and verify the tokens
+   */
+  public SignedCookieSecurityContextRepository(SessionTokenCodec codec) {
+    this.codec = codec;
+  }
+
+  @Override
+  @Deprecated
+  public SecurityContext loadContext(HttpRequestResponseHolder holder) {
+    return loadDeferredContext(holder.getRequest()).get();
+  }
+
+  @Override
+  public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+    Supplier<SecurityContext> supplier = () -> {
+      SecurityContext context = strategy.createEmptyContext();
+      Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+      if (cookie != null) {
+        OAuth2AuthenticationToken authentication = codec.decode(cookie.getValue());
+        if (authentication != null) {
+          context.setAuthentication(authentication);
+        }
+      }
+      return context;
+    };
+    return new DeferredSecurityContext() {
+      private SecurityContext context;
+
+      @Override
+      public SecurityContext get() {
+        if (context == null) {
+          context = supplier.get();
+        }
+        return context;
+      }
+
+      @Override
+      public boolean isGenerated() {
+        return get().getAuthentication() == null;
+      }
+    };
+  }
+
+  @Override
+  public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+    Authentication authentication = context.getAuthentication();
+    if (!(authentication instanceof OAuth2AuthenticationToken token)
+        || token.getPrincipal() instanceof SessionTokenCodec.ExpiringOAuth2User) {
+      // nothing new to save: either not logged in, or the login came from the cookie already
+      return;
+    }
+    ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, codec.encode(token))
+        .httpOnly(true)
+        .secure(request.isSecure())
+        .sameSite("Lax")
+        .path("/")
+        .maxAge(codec.getTtl())
+        .build();
+    response.addHeader("Set-Cookie", cookie.toString());
+  }
+
+  @Override
+  public boolean containsContext(HttpServletRequest request) {
+    return WebUtils.getCookie(request, COOKIE_NAME) != null;
+  }
+}
@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.urlindex;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This service keeps an in-memory Bloom filter of the URL hashes in
+ * ARTICLES, so that posting an article whose URL is certainly new skips
+ * the lookup for a duplicate.
+ *
+ * The filter only sees articles added on this instance (and those present
+ * when it started); an article with the same URL added on another instance
+ * since then is still caught by the unique index on URL_HASH.
+ */
+@Slf4j
+@Service
+public class ArticleUrlIndex {
+
+  static final String SELECT_UNHASHED = "SELECT ID, URL FROM ARTICLES WHERE URL_HASH IS NULL AND URL IS NOT NULL ORDER BY ID";
+  static final String SET_HASH = "UPDATE ARTICLES SET URL_HASH = ? WHERE ID = ?";
+  static final String SELECT_HASHES = "SELECT URL_HASH FROM ARTICLES WHERE URL_HASH IS NOT NULL";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final BloomFilter filter;
+
+  /**
+   * @param jdbcTemplate used to read the existing hashes
+   * @param expectedArticles how many articles the filter is sized for
+   */
+  public ArticleUrlIndex(JdbcTemplate jdbcTemplate,
+      @Value("${app.articles.url-filter.expected-articles:100000}") long expectedArticles) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.filter = new BloomFilter(expectedArticles, 0.01);
+  }
+
+  /**
+   * This method hashes the URLs of articles saved before URL_HASH existed,
+   * and adds every hash to the filter.  Where existing articles share a
+   * URL, only the first gets the hash.
+   */
+  @PostConstruct
+  public void load() {
+    List<Map<String, Object>> unhashed = jdbcTemplate.queryForList(SELECT_UNHASHED);
+    for (Map<String, Object> row : unhashed) {
+      try {
+        jdbcTemplate.update(SET_HASH, CanonicalUrl.hash((String) row.get("URL")), row.get("ID"));
+      } catch (DuplicateKeyException e) {
+        log.warn("article {} has the same URL as an earlier article, so it is left out of the URL index", row.get("ID"));
+      }
+    }
+    jdbcTemplate.query(SELECT_HASHES, rs -> {
+      filter.add(rs.getString(1));
+    });
+  }
+
+  /**
+   * @param urlHash the hash of a canonical URL
+   * @return false if no article (saved on this instance) has this URL hash
+   */
+  public boolean mightContain(String urlHash) {
+    return filter.mightContain(urlHash);
+  }
+
+  /**
+   * This method should be called when an article is saved.
+   * @param urlHash the hash of the article's canonical URL
+   */
+  public void add(String urlHash) {
+    filter.add(urlHash);
+  }
+}
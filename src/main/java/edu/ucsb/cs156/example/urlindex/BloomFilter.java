@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.urlindex;
+
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This is a Bloom filter of hex SHA-256 hashes: {@link #mightContain} is
+ * false only for hashes that were never added, and true for other hashes
+ * with a probability that stays near the configured false positive rate
+ * until more than the expected number of hashes have been added.
+ *
+ * The bit positions are taken from the hash itself (which is already
+ * uniformly distributed), by double hashing with its first two 64-bit words.
+ * Adding and testing are lock free.
+ */
+public class BloomFilter {
+
+  private final AtomicLongArray bits;
+  private final long bitCount;
+  private final int hashCount;
+
+  /**
+   * @param expectedInsertions how many hashes the filter is sized for
+   * @param falsePositiveRate the wanted false positive rate at that size, e.g. 0.01
+   */
+  public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+    long n = Math.max(1, expectedInsertions);
+    long m = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+    this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+    this.bitCount = bits.length() * 64L;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+  }
+
+  /**
+   * @param sha256 a hex SHA-256 hash
+   */
+  public void add(String sha256) {
+    long h1 = word(sha256, 0);
+    long h2 = word(sha256, 16);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      bits.getAndAccumulate((int) (bit >>> 6), 1L << bit, (word, mask) -> word | mask);
+    }
+  }
+
+  /**
+   * @param sha256 a hex SHA-256 hash
+   * @return false if the hash was certainly never added
+   */
+  public boolean mightContain(String sha256) {
+    long h1 = word(sha256, 0);
+    long h2 = word(sha256, 16);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of hash functions, i.e. bits set per hash
+   */
+  int getHashCount() {
+    return hashCount;
+  }
+
+  /**
+   * @return the size of the filter in bits
+   */
+  long getBitCount() {
+    return bitCount;
+  }
+
+  private static long word(String hex, int offset) {
+    return HexFormat.fromHexDigitsToLong(hex, offset, offset + 16);
+  }
+}
@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.urlindex;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * This class reduces a URL to a canonical form, so that trivially different
+ * URLs for the same page compare equal, and hashes it for the
+ * ARTICLES.URL_HASH index.
+ *
+ * The canonical form ignores: http vs https, case and a leading "www." in the
+ * host, default ports, trailing slashes, the fragment, tracking parameters
+ * (utm_*, fbclid, gclid and the like), and the order of the other
+ * parameters.  Strings that can't be parsed as a URL are only trimmed.
+ */
+public final class CanonicalUrl {
+
+  /** query parameters that only say where the click came from */
+  static final Set<String> TRACKING_PARAMETERS = Set.of(
+      "fbclid", "gclid", "dclid", "msclkid", "mc_cid", "mc_eid", "igshid", "ref", "ref_src", "_hsenc", "_hsmi");
+
+  private CanonicalUrl() {
+  }
+
+  /**
+   * @param url a URL as submitted, e.g. {@code http://www.Example.com/a/?utm_source=x}
+   * @return the canonical form, e.g. {@code https://example.com/a}, or null if url is null
+   */
+  public static String canonicalize(String url) {
+    if (url == null) {
+      return null;
+    }
+    String trimmed = url.trim();
+    URI uri;
+    try {
+      uri = new URI(trimmed.contains("://") ? trimmed : "https://" + trimmed);
+    } catch (URISyntaxException e) {
+      return trimmed;
+    }
+    if (uri.getRawAuthority() == null) {
+      return trimmed;
+    }
+
+    String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+    String authority = uri.getRawAuthority().toLowerCase(Locale.ROOT);
+    if (scheme.equals("http") || scheme.equals("https")) {
+      scheme = "https";
+      authority = authority.replaceFirst(":(80|443)$", "");
+    }
+    if (authority.startsWith("www.")) {
+      authority = authority.substring(4);
+    }
+
+    String path = uri.getRawPath().replaceFirst("/+$", "");
+
+    StringBuilder canonical = new StringBuilder(scheme).append("://").append(authority).append(path);
+    String query = canonicalQuery(uri.getRawQuery());
+    if (!query.isEmpty()) {
+      canonical.append('?').append(query);
+    }
+    return canonical.toString();
+  }
+
+  private static String canonicalQuery(String rawQuery) {
+    if (rawQuery == null) {
+      return "";
+    }
+    List<String> kept = new ArrayList<>();
+    for (String parameter : rawQuery.split("&")) {
+      String name = parameter.split("=", 2)[0].toLowerCase(Locale.ROOT);
+      if (!parameter.isEmpty() && !name.startsWith("utm_") && !TRACKING_PARAMETERS.contains(name)) {
+        kept.add(parameter);
+      }
+    }
+    kept.sort(null);
+    return String.join("&", kept);
+  }
+
+  /**
+   * @param url a URL as submitted
+   * @return the hex SHA-256 of the canonical form, or null if url is null
+   */
+  public static String hash(String url) {
+    String canonical = canonicalize(url);
+    if (canonical == null) {
+      return null;
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
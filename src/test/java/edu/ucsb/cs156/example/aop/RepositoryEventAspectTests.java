@@ -0,0 +1,43 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+
+class RepositoryEventAspectTests {
+
+  RepositoryEventAspect aspect = new RepositoryEventAspect();
+  ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+
+  @BeforeEach
+  void setup() {
+    Signature signature = mock(Signature.class);
+    when(joinPoint.getSignature()).thenReturn(signature);
+    when(signature.getName()).thenReturn("findAll");
+    when(joinPoint.getThis()).thenReturn(mock(RestaurantRepository.class));
+  }
+
+  @Test
+  void record_returns_the_result() throws Throwable {
+    when(joinPoint.proceed()).thenReturn(List.of("a"));
+
+    assertEquals(List.of("a"), aspect.record(joinPoint));
+  }
+
+  @Test
+  void record_rethrows() throws Throwable {
+    when(joinPoint.proceed()).thenThrow(new IllegalStateException("failed"));
+
+    assertThrows(IllegalStateException.class, () -> aspect.record(joinPoint));
+  }
+}
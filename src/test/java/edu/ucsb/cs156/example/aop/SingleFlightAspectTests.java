@@ -0,0 +1,52 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.controllers.UCSBDatesController;
+import edu.ucsb.cs156.example.services.SingleFlightGroup;
+
+class SingleFlightAspectTests {
+
+  SingleFlightAspect aspect;
+  SingleFlightGroup group;
+
+  @BeforeEach
+  void setup() {
+    group = new SingleFlightGroup();
+    aspect = new SingleFlightAspect();
+    aspect.singleFlightGroup = group;
+  }
+
+  @Test
+  void coalesce_runs_the_method_and_counts_it_under_class_and_method_name() throws Throwable {
+    ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+    Signature signature = mock(Signature.class);
+    when(joinPoint.getSignature()).thenReturn(signature);
+    when(signature.getDeclaringType()).thenReturn(UCSBDatesController.class);
+    when(signature.getName()).thenReturn("getById");
+    when(signature.toLongString()).thenReturn("public UCSBDate getById(Long)");
+    when(joinPoint.getArgs()).thenReturn(new Object[] { 7L });
+    when(joinPoint.proceed()).thenReturn("date 7");
+
+    assertEquals("date 7", aspect.coalesce(joinPoint));
+    assertEquals(Map.of("UCSBDatesController.getById", Map.of("executions", 1L, "coalesced", 0L)),
+        group.getStats());
+  }
+
+  @Test
+  void keys_are_equal_for_equal_arguments() {
+    assertEquals(new SingleFlightAspect.Key("m", List.of(7L)),
+        new SingleFlightAspect.Key("m", Arrays.asList(new Object[] { 7L })));
+  }
+}
@@ -0,0 +1,133 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import edu.ucsb.cs156.example.logging.AsyncJsonAppender;
+
+/**
+ * Request-thread cost of logging the lines a request writes (the
+ * LoggingAspect line, the current user and its authorities), with the
+ * synchronous console appender Spring Boot uses by default, and with the
+ * AsyncJsonAppender used in production, unsampled and with the production
+ * sampling rates.  Both write to a file, so the output is real I/O.
+ *
+ * This is not run as part of the normal test suite (the class name does not
+ * match the surefire patterns); run it with:
+ * mvn test -Dtest=LoggingBenchmark
+ */
+public class LoggingBenchmark {
+
+  static final int REQUESTS_PER_THREAD = 20_000;
+  static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n";
+
+  @Test
+  public void request_thread_logging_overhead() throws Exception {
+    File file = File.createTempFile("logging-benchmark", ".log");
+    file.deleteOnExit();
+    for (int threads : new int[] { 1, 8, 64 }) {
+      for (String mode : new String[] { "console", "async json", "async json, sampled" }) {
+        run(file, mode, threads); // warm up
+        LoggerContext context = context();
+        Appender<ILoggingEvent> appender = appender(context, file, mode);
+        double nanos = requests(context, threads);
+        appender.stop();
+        long dropped = appender instanceof AsyncJsonAppender async ? async.getDropped() : 0;
+        System.out.printf("threads=%3d  %-20s %8.1f us/request  (%d lines dropped)%n", threads, mode, nanos / 1000,
+            dropped);
+      }
+    }
+  }
+
+  private void run(File file, String mode, int threads) throws Exception {
+    LoggerContext context = context();
+    Appender<ILoggingEvent> appender = appender(context, file, mode);
+    requests(context, threads);
+    appender.stop();
+  }
+
+  private static LoggerContext context() {
+    LoggerContext context = new LoggerContext();
+    context.setMDCAdapter(new LogbackMDCAdapter());
+    return context;
+  }
+
+  private static Appender<ILoggingEvent> appender(LoggerContext context, File file, String mode) throws Exception {
+    OutputStream out = new FileOutputStream(file);
+    Appender<ILoggingEvent> appender;
+    if (mode.equals("console")) {
+      PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+      encoder.setContext(context);
+      encoder.setPattern(PATTERN);
+      encoder.start();
+      OutputStreamAppender<ILoggingEvent> console = new OutputStreamAppender<>();
+      console.setEncoder(encoder);
+      console.setOutputStream(out);
+      appender = console;
+    } else {
+      AsyncJsonAppender async = new AsyncJsonAppender();
+      async.setOutputStream(out);
+      if (mode.endsWith("sampled")) {
+        async.addSample("edu.ucsb.cs156.example.aop.LoggingAspect=0.1");
+        async.addSample("edu.ucsb.cs156.example.services=0.01");
+      }
+      appender = async;
+    }
+    appender.setContext(context);
+    appender.start();
+    context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(appender);
+    return appender;
+  }
+
+  /**
+   * @return the mean nanoseconds each request spent logging
+   */
+  private static double requests(LoggerContext context, int threads) throws Exception {
+    org.slf4j.Logger aspect = context.getLogger("edu.ucsb.cs156.example.aop.LoggingAspect");
+    org.slf4j.Logger users = context.getLogger("edu.ucsb.cs156.example.services.CurrentUserServiceImpl");
+    org.slf4j.Logger authorities = context.getLogger("edu.ucsb.cs156.example.services.GrantedAuthoritiesService");
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+    LongAdder totalNanos = new LongAdder();
+    for (int t = 0; t < threads; t++) {
+      String user = "CurrentUser(user=User(id=%d, email=user%d@ucsb.edu, googleSub=1157, pictureUrl=https://lh3."
+          .formatted(t, t) + "googleusercontent.com/a/photo.jpg, fullName=Chris Gaucho, admin=false))";
+      pool.execute(() -> {
+        try {
+          start.await();
+          long begin = System.nanoTime();
+          for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+            aspect.info("===== GET /api/restaurants/all handled by allRestaurants in "
+                + "edu.ucsb.cs156.example.controllers.RestaurantsController");
+            users.info("getCurrentUser returns {}", user);
+            authorities.info("authorities={}", "[ROLE_USER, OAUTH2_USER, SCOPE_openid]");
+          }
+          totalNanos.add(System.nanoTime() - begin);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    start.countDown();
+    done.await();
+    pool.shutdown();
+    return (double) totalNanos.sum() / ((long) threads * REQUESTS_PER_THREAD);
+  }
+}
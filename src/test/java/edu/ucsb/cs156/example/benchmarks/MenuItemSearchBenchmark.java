@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.search.MenuItemSearchIndex;
+
+/**
+ * Latency of fuzzy menu item search over 100,000 generated menu items:
+ * how long the index takes to build, and the median and 99th percentile
+ * time per search, for exact, misspelled, prefix and dining commons
+ * filtered queries.
+ *
+ * This is not run as part of the normal test suite (the class name does not
+ * match the surefire patterns); run it with:
+ * mvn test -Dtest=MenuItemSearchBenchmark
+ */
+public class MenuItemSearchBenchmark {
+
+  static final int ITEMS = 100_000;
+  static final int SEARCHES = 2_000;
+
+  static final String[] COMMONS = { "carrillo", "de-la-guerra", "ortega", "portola" };
+  static final String[] STYLES = { "Baked", "Grilled", "Roasted", "Spicy", "Vegan", "Crispy", "Braised", "Fresh",
+      "Smoked", "Garlic", "Lemon", "Honey", "Teriyaki", "Cajun", "Herbed", "Creamy" };
+  static final String[] DISHES = { "Pesto Pasta", "Chicken Tikka Masala", "Tofu Stir Fry", "Tomato Soup",
+      "Cheese Pizza", "Beef Tacos", "Salmon Fillet", "Caesar Salad", "Mushroom Risotto", "Pork Carnitas",
+      "Vegetable Curry", "Clam Chowder", "Pad Thai", "Falafel Wrap", "Turkey Burger", "Eggplant Parmesan" };
+  static final String[] EXTRAS = { "with Rice", "with Quinoa", "with Chicken", "with Broccoli", "(v)", "(vgn)",
+      "with Garlic Bread", "" };
+  static final String[] STATIONS = { "Entrees", "Entree Specials", "Greens & Grains", "Grill", "Pizza",
+      "Soups", "Desserts", "International" };
+
+  @Test
+  public void search_latency_at_100k_items() {
+    Random random = new Random(42);
+    List<UCSBDiningCommonsMenuItem> items = new ArrayList<>(ITEMS);
+    for (int i = 1; i <= ITEMS; i++) {
+      items.add(UCSBDiningCommonsMenuItem.builder()
+          .id(i)
+          .diningCommonsCode(COMMONS[random.nextInt(COMMONS.length)])
+          .name(STYLES[random.nextInt(STYLES.length)] + " " + DISHES[random.nextInt(DISHES.length)] + " "
+              + EXTRAS[random.nextInt(EXTRAS.length)] + " #" + i)
+          .station(STATIONS[random.nextInt(STATIONS.length)])
+          .build());
+    }
+    UCSBDiningCommonsMenuItemRepository repository = mock(UCSBDiningCommonsMenuItemRepository.class);
+    when(repository.findAll()).thenReturn(items);
+    MenuItemSearchIndex index = new MenuItemSearchIndex(repository, Duration.ofMinutes(5));
+
+    long begin = System.nanoTime();
+    index.reload();
+    System.out.printf("built index of %d items in %d ms%n", ITEMS, (System.nanoTime() - begin) / 1_000_000);
+
+    report(index, "exact, 2 words", "tikka masala", null);
+    report(index, "misspelled, 2 words", "chiken tika", null);
+    report(index, "misspelled, 3 words", "spicey psto pasta", null);
+    report(index, "prefix, 1 word", "mush", null);
+    report(index, "common word", "with", null);
+    report(index, "filtered by commons", "clam chowdr", "ortega");
+    report(index, "no match", "lasagna", null);
+  }
+
+  static void report(MenuItemSearchIndex index, String name, String query, String commons) {
+    for (int i = 0; i < SEARCHES / 4; i++) {
+      index.search(query, commons, 50); // warm up
+    }
+    long[] nanos = new long[SEARCHES];
+    int found = 0;
+    for (int i = 0; i < SEARCHES; i++) {
+      long begin = System.nanoTime();
+      found = index.search(query, commons, 50).size();
+      nanos[i] = System.nanoTime() - begin;
+    }
+    Arrays.sort(nanos);
+    System.out.printf("%-22s %-20s p50 %7.2f ms  p99 %7.2f ms  (%d results)%n", name, "\"" + query + "\"",
+        nanos[SEARCHES / 2] / 1e6, nanos[SEARCHES * 99 / 100] / 1e6, found);
+  }
+}
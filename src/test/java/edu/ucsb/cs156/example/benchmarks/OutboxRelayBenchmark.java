@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.outbox.FileOutboxSink;
+import edu.ucsb.cs156.example.outbox.OutboxProperties;
+import edu.ucsb.cs156.example.outbox.OutboxRelay;
+import edu.ucsb.cs156.example.outbox.OutboxSink;
+
+/**
+ * Throughput of the outbox relay: how many events per second it reads,
+ * delivers and marks processed, for different batch sizes and numbers of
+ * relays working on the same table (as several instances of the app would).
+ *
+ * The database is an embedded H2, so the numbers show the cost per
+ * transaction and per row, not network round trips; against Postgres
+ * larger batches matter more.
+ *
+ * This is not run as part of the normal test suite (the class name does not
+ * match the surefire patterns); run it with:
+ * mvn test -Dtest=OutboxRelayBenchmark
+ */
+public class OutboxRelayBenchmark {
+
+  static final int EVENTS = 100_000;
+
+  static final String DDL = "CREATE TABLE OUTBOX (ID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+      + "ENTITY_TYPE VARCHAR(255) NOT NULL, ACTION VARCHAR(16) NOT NULL, ENTITY_ID VARCHAR(255), "
+      + "CREATED_AT BIGINT NOT NULL, PROCESSED_AT BIGINT)";
+
+  @Test
+  public void relay_throughput() throws Exception {
+    LongAdder delivered = new LongAdder();
+    OutboxSink counting = events -> delivered.add(events.size());
+    run(50, 1, counting); // warm up
+    for (int batchSize : new int[] { 50, 500, 5_000 }) {
+      for (int relays : new int[] { 1, 4 }) {
+        report("no-op sink, batch=" + batchSize + ", relays=" + relays, run(batchSize, relays, counting));
+      }
+    }
+    Path file = Files.createTempFile("outbox-benchmark", ".ndjson");
+    try {
+      report("file sink, batch=500, relays=1", run(500, 1, new FileOutboxSink(file, new ObjectMapper())));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  static void report(String name, double eventsPerSecond) {
+    System.out.printf("%-36s %10.0f events/s%n", name, eventsPerSecond);
+  }
+
+  private double run(int batchSize, int relays, OutboxSink sink) throws Exception {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+        "jdbc:h2:mem:outbox-benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+    jdbcTemplate.execute(DDL);
+    List<Object[]> rows = new ArrayList<>(EVENTS);
+    for (int i = 0; i < EVENTS; i++) {
+      rows.add(new Object[] { "Articles", "CREATED", Integer.toString(i), System.currentTimeMillis() });
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO OUTBOX (ENTITY_TYPE, ACTION, ENTITY_ID, CREATED_AT) VALUES (?, ?, ?, ?)", rows);
+
+    OutboxProperties properties = new OutboxProperties();
+    properties.setBatchSize(batchSize);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    ExecutorService pool = Executors.newFixedThreadPool(relays);
+    try {
+      List<Future<Long>> results = new ArrayList<>();
+      long begin = System.nanoTime();
+      for (int i = 0; i < relays; i++) {
+        OutboxRelay relay = new OutboxRelay(jdbcTemplate, transactionManager, List.of(sink), properties,
+            System::currentTimeMillis);
+        results.add(pool.submit(relay::relayAll));
+      }
+      long relayed = 0;
+      for (Future<Long> result : results) {
+        relayed += result.get();
+      }
+      long elapsed = System.nanoTime() - begin;
+      if (relayed != EVENTS) {
+        throw new IllegalStateException("relayed " + relayed + " of " + EVENTS + " events");
+      }
+      return relayed * 1e9 / elapsed;
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
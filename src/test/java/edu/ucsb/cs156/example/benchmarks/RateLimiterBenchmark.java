@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.ratelimit.RateLimitProperties;
+import edu.ucsb.cs156.example.ratelimit.TokenBucketRateLimiter;
+
+/**
+ * Contention benchmark for the token bucket rate limiter.
+ * 
+ * This is not run as part of the normal test suite (the class name does not
+ * match the surefire patterns); run it with:
+ * mvn test -Dtest=RateLimiterBenchmark
+ */
+public class RateLimiterBenchmark {
+
+  static final int CALLS_PER_THREAD = 200_000;
+
+  @Test
+  public void contention_at_high_thread_counts() throws Exception {
+    RateLimitProperties.Limit limit = new RateLimitProperties.Limit(1_000_000, Duration.ofSeconds(1));
+    for (int threads : new int[] { 1, 8, 64, 256 }) {
+      // all threads share one route, half of them share one principal: the worst case for CAS contention
+      TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100_000, System::nanoTime);
+      run(threads, limiter, limit); // warm up
+      limiter = new TokenBucketRateLimiter(100_000, System::nanoTime);
+      double nanosPerCall = run(threads, limiter, limit);
+      System.out.printf("threads=%4d  %8.1f ns/call%n", threads, nanosPerCall);
+    }
+  }
+
+  private double run(int threads, TokenBucketRateLimiter limiter, RateLimitProperties.Limit limit) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+    LongAdder totalNanos = new LongAdder();
+    for (int t = 0; t < threads; t++) {
+      String principal = (t % 2 == 0) ? "shared@ucsb.edu" : "user" + t + "@ucsb.edu";
+      pool.execute(() -> {
+        try {
+          start.await();
+          long begin = System.nanoTime();
+          for (int i = 0; i < CALLS_PER_THREAD; i++) {
+            limiter.tryAcquire(principal, "POST /api/helprequest/post", limit);
+          }
+          totalNanos.add(System.nanoTime() - begin);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    start.countDown();
+    done.await();
+    pool.shutdown();
+    return (double) totalNanos.sum() / ((long) threads * CALLS_PER_THREAD);
+  }
+}
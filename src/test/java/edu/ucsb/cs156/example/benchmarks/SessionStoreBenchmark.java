@@ -0,0 +1,126 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+
+import edu.ucsb.cs156.example.session.JdbcHttpSession;
+import edu.ucsb.cs156.example.session.JdbcSessionFilter;
+import edu.ucsb.cs156.example.session.JdbcSessionProperties;
+import edu.ucsb.cs156.example.session.JdbcSessionStore;
+import jakarta.servlet.Servlet;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Per-request latency of the JDBC session store compared to in-memory sessions.
+ * 
+ * Each "request" goes through a filter chain whose handler reads one session
+ * attribute (and, for the write cases, sets one).  The database is an
+ * embedded H2, so the numbers show the store's own overhead, not network
+ * round trips; against Postgres the near-cache and write-behind matter more.
+ * 
+ * This is not run as part of the normal test suite (the class name does not
+ * match the surefire patterns); run it with:
+ * mvn test -Dtest=SessionStoreBenchmark
+ */
+public class SessionStoreBenchmark {
+
+  static final int SESSIONS = 1_000;
+  static final int REQUESTS = 200_000;
+
+  static final String DDL = "CREATE TABLE HTTP_SESSIONS (SESSION_ID VARCHAR(64) PRIMARY KEY, CREATED_AT BIGINT NOT NULL, "
+      + "LAST_ACCESSED_AT BIGINT NOT NULL, MAX_INACTIVE_SECONDS INT NOT NULL, EXPIRES_AT BIGINT NOT NULL, ATTRIBUTES BLOB)";
+
+  @Test
+  public void per_request_latency() throws Exception {
+    report("in-memory, read", inMemory(false));
+    report("in-memory, write", inMemory(true));
+    report("jdbc, near-cache, read", jdbc(Duration.ofSeconds(1), false));
+    report("jdbc, near-cache, write-behind", jdbc(Duration.ofSeconds(1), true));
+    report("jdbc, no near-cache, read", jdbc(Duration.ZERO, false));
+    report("jdbc, no near-cache, write-behind", jdbc(Duration.ZERO, true));
+  }
+
+  static void report(String name, double nanosPerRequest) {
+    System.out.printf("%-36s %10.1f us/request%n", name, nanosPerRequest / 1000);
+  }
+
+  static Servlet handler(boolean write) {
+    return new HttpServlet() {
+      @Override
+      protected void service(HttpServletRequest request, HttpServletResponse response) {
+        Object count = request.getSession(false).getAttribute("count");
+        if (write) {
+          request.getSession(false).setAttribute("count", count == null ? 1 : (Integer) count + 1);
+        }
+      }
+    };
+  }
+
+  private double inMemory(boolean write) throws Exception {
+    // what the servlet container does: a map from id to session
+    Map<String, MockHttpSession> sessions = new ConcurrentHashMap<>();
+    for (int i = 0; i < SESSIONS; i++) {
+      sessions.put("session-" + i, new MockHttpSession(null, "session-" + i));
+    }
+    Servlet servlet = handler(write);
+    for (int round = 0; round < 2; round++) { // the first round is a warm up
+      long begin = System.nanoTime();
+      for (int i = 0; i < REQUESTS; i++) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setSession(sessions.get("session-" + (i % SESSIONS)));
+        new MockFilterChain(servlet).doFilter(request, new MockHttpServletResponse());
+      }
+      if (round == 1) {
+        return (double) (System.nanoTime() - begin) / REQUESTS;
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  private double jdbc(Duration nearCacheTtl, boolean write) throws Exception {
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+        "jdbc:h2:mem:session-benchmark;DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+    jdbcTemplate.execute(DDL);
+    JdbcSessionProperties properties = new JdbcSessionProperties();
+    properties.setNearCacheTtl(nearCacheTtl);
+    JdbcSessionStore store = new JdbcSessionStore(jdbcTemplate, properties, System::currentTimeMillis);
+    store.start();
+    try {
+      String[] ids = new String[SESSIONS];
+      for (int i = 0; i < SESSIONS; i++) {
+        JdbcHttpSession session = store.createSession(null);
+        store.save(session);
+        ids[i] = session.getId();
+      }
+      JdbcSessionFilter filter = new JdbcSessionFilter(store);
+      Servlet servlet = handler(write);
+      for (int round = 0; round < 2; round++) {
+        long begin = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+          MockHttpServletRequest request = new MockHttpServletRequest();
+          request.setCookies(new Cookie(JdbcSessionFilter.COOKIE_NAME, ids[i % SESSIONS]));
+          filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(servlet));
+        }
+        if (round == 1) {
+          return (double) (System.nanoTime() - begin) / REQUESTS;
+        }
+      }
+      throw new IllegalStateException();
+    } finally {
+      store.stop();
+    }
+  }
+}
@@ -6,18 +6,25 @@ import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
+import edu.ucsb.cs156.example.urlindex.ArticleUrlIndex;
+import edu.ucsb.cs156.example.urlindex.CanonicalUrl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -40,6 +47,12 @@ public class ArticlesControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    ArticleUrlIndex articleUrlIndex;
+
+    @Autowired
+    MissingEntityCache missingEntityCache;
+
     @Test
     public void logged_out_users_cannot_get_all() throws Exception {
         mockMvc.perform(get("/api/articles/all"))
@@ -134,11 +147,134 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
         // Assert
         verify(articleRepository, times(1)).save(article);  // Corrected call
+        verify(articleRepository, never()).findByUrlHash(any());
+        verify(articleUrlIndex, times(1)).add(CanonicalUrl.hash("https://first.com"));
         String expectedJson = mapper.writeValueAsString(article);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
     }
 
+    @WithMockUser(roles = { "ADMIN" })
+    @Test
+    public void posting_an_article_with_a_known_url_returns_the_existing_article() throws Exception {
+
+        // Arrange
+        String urlHash = CanonicalUrl.hash("https://first.com");
+        Articles existing = Articles.builder()
+                .id(3L)
+                .title("First Article")
+                .url("https://first.com")
+                .explanation("This is the first article.")
+                .email("first@example.com")
+                .dateAdded(LocalDateTime.parse("2024-10-23T00:00:00"))
+                .build();
+
+        when(articleUrlIndex.mightContain(eq(urlHash))).thenReturn(true);
+        when(articleRepository.findByUrlHash(eq(urlHash))).thenReturn(Optional.of(existing));
+
+        // Act
+        MvcResult response = mockMvc.perform(
+                post("/api/articles/post")
+                        .param("title", "The First Article Again")
+                        .param("url", "http://www.first.com/?utm_source=newsletter")
+                        .param("explanation", "Posted twice.")
+                        .param("email", "second@example.com")
+                        .param("dateAdded", "2024-10-24T00:00:00")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // Assert
+        verify(articleRepository, never()).save(any());
+        verify(articleUrlIndex, never()).add(any());
+        assertEquals(mapper.writeValueAsString(existing), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN" })
+    @Test
+    public void posting_an_article_saves_it_when_the_url_filter_gives_a_false_positive() throws Exception {
+
+        // Arrange
+        String urlHash = CanonicalUrl.hash("https://first.com");
+        Articles article = Articles.builder()
+                .title("First Article")
+                .url("https://first.com")
+                .explanation("This is the first article.")
+                .email("first@example.com")
+                .dateAdded(LocalDateTime.parse("2024-10-23T00:00:00"))
+                .build();
+
+        when(articleUrlIndex.mightContain(eq(urlHash))).thenReturn(true);
+        when(articleRepository.findByUrlHash(eq(urlHash))).thenReturn(Optional.empty());
+        when(articleRepository.save(eq(article))).thenReturn(article);
+
+        // Act
+        MvcResult response = mockMvc.perform(
+                post("/api/articles/post")
+                        .param("title", "First Article")
+                        .param("url", "https://first.com")
+                        .param("explanation", "This is the first article.")
+                        .param("email", "first@example.com")
+                        .param("dateAdded", "2024-10-23T00:00:00")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // Assert
+        verify(articleRepository, times(1)).findByUrlHash(urlHash);
+        verify(articleRepository, times(1)).save(article);
+        verify(articleUrlIndex, times(1)).add(urlHash);
+        assertEquals(mapper.writeValueAsString(article), response.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void logged_out_users_cannot_get_article_by_url() throws Exception {
+        mockMvc.perform(get("/api/articles/byUrl?url=https://first.com"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_article_by_an_equivalent_url() throws Exception {
+        // arrange
+        String urlHash = CanonicalUrl.hash("https://first.com");
+        Articles article = Articles.builder()
+                .id(3L)
+                .title("First Article")
+                .url("https://first.com")
+                .explanation("This is the first article.")
+                .email("first@example.com")
+                .dateAdded(LocalDateTime.parse("2022-01-01T00:00:00"))
+                .build();
+
+        when(articleRepository.findByUrlHash(eq(urlHash))).thenReturn(Optional.of(article));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/byUrl").param("url", "HTTP://First.com/#top"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(articleRepository, times(1)).findByUrlHash(urlHash);
+        assertEquals(mapper.writeValueAsString(article), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void get_by_url_looks_in_the_database_even_when_the_url_filter_misses() throws Exception {
+        // arrange
+        String urlHash = CanonicalUrl.hash("https://nowhere.com");
+        when(articleRepository.findByUrlHash(eq(urlHash))).thenReturn(Optional.empty());
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/byUrl").param("url", "https://nowhere.com"))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        verify(articleUrlIndex, never()).mightContain(any());
+        verify(articleRepository, times(1)).findByUrlHash(urlHash);
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("EntityNotFoundException", json.get("type"));
+        assertEquals("Articles with id https://nowhere.com not found", json.get("message"));
+    }
+
 
 
     @Test
@@ -193,6 +329,54 @@ public class ArticlesControllerTests extends ControllerTestCase {
         assertEquals("Articles with id 7 not found", json.get("message")); // Corrected message to plural "Articles"
     }
 
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void repeated_lookups_of_a_missing_article_skip_the_database_when_the_cache_is_enabled() throws Exception {
+        ReflectionTestUtils.setField(missingEntityCache, "ttlMillis", 60_000L);
+        try {
+            // arrange
+            when(articleRepository.findById(eq(77L))).thenReturn(Optional.empty());
+
+            // act
+            mockMvc.perform(get("/api/articles?id=77"))
+                    .andExpect(status().isNotFound());
+            MvcResult response = mockMvc.perform(get("/api/articles?id=77"))
+                    .andExpect(status().isNotFound()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findById(eq(77L));
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("EntityNotFoundException", json.get("type"));
+            assertEquals("Articles with id 77 not found", json.get("message"));
+        } finally {
+            ReflectionTestUtils.setField(missingEntityCache, "ttlMillis", 0L);
+            missingEntityCache.forget(Articles.class, 77L);
+        }
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void missing_urls_are_not_remembered_by_the_cache() throws Exception {
+        ReflectionTestUtils.setField(missingEntityCache, "ttlMillis", 60_000L);
+        try {
+            // arrange
+            String urlHash = CanonicalUrl.hash("https://nowhere.com");
+            when(articleRepository.findByUrlHash(eq(urlHash))).thenReturn(Optional.empty());
+
+            // act
+            mockMvc.perform(get("/api/articles/byUrl").param("url", "https://nowhere.com"))
+                    .andExpect(status().isNotFound());
+            mockMvc.perform(get("/api/articles/byUrl").param("url", "https://nowhere.com"))
+                    .andExpect(status().isNotFound());
+
+            // assert
+            verify(articleRepository, times(2)).findByUrlHash(urlHash);
+            assertEquals(false, missingEntityCache.isKnownMissing(Articles.class, "https://nowhere.com"));
+        } finally {
+            ReflectionTestUtils.setField(missingEntityCache, "ttlMillis", 0L);
+        }
+    }
+
     @WithMockUser(roles = { "ADMIN", "USER" })
     @Test
     public void admin_can_edit_an_existing_article() throws Exception {
@@ -232,6 +416,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
         // assert
         verify(articleRepository, times(1)).findById(67L);
         verify(articleRepository, times(1)).save(editedArticle); 
+        verify(articleUrlIndex, times(1)).add(CanonicalUrl.hash("https://edited.com"));
         String responseString = response.getResponse().getContentAsString();
         assertEquals(requestBody, responseString);
 
@@ -324,4 +509,61 @@ public class ArticlesControllerTests extends ControllerTestCase {
             assertEquals("Articles with id 15 not found", json.get("message"));
     }
 
-}
\ No newline at end of file
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_only_id_and_title_of_all_articles() throws Exception {
+
+        // Arrange
+        List<Map<String, Object>> rows = List.of(
+                Map.of("id", 1, "title", "First Article"),
+                Map.of("id", 2, "title", "Second Article"));
+        when(articleRepository.findAllFields(eq(List.of("id", "title")))).thenReturn(rows);
+
+        // Act
+        MvcResult response = mockMvc.perform(get("/api/articles/all").param("fields", "id", "title"))
+                .andExpect(status().isOk()).andReturn();
+
+        // Assert
+        verify(articleRepository, times(1)).findAllFields(eq(List.of("id", "title")));
+        verify(articleRepository, never()).findAll();
+        assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_change_an_article_url_to_one_another_article_has() throws Exception {
+        // arrange
+        Articles originalArticle = Articles.builder()
+                .title("Original Article")
+                .url("https://original.com")
+                .explanation("This is the original content.")
+                .email("original@example.com")
+                .dateAdded(LocalDateTime.parse("2022-01-01T00:00:00"))
+                .build();
+
+        Articles editedArticle = Articles.builder()
+                .title("Original Article")
+                .url("https://taken.com")
+                .explanation("This is the original content.")
+                .email("original@example.com")
+                .dateAdded(LocalDateTime.parse("2022-01-01T00:00:00"))
+                .build();
+
+        when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(originalArticle));
+        when(articleRepository.save(any())).thenThrow(new DataIntegrityViolationException("ARTICLES_URL_HASH_IDX"));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        put("/api/articles?id=67")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(editedArticle))
+                                .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("DataIntegrityViolationException", json.get("type"));
+        assertEquals("An article with this URL already exists", json.get("message"));
+    }
+}
@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.events.ChangeFeed;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.Set;
+
+@WebMvcTest(controllers = EventsController.class)
+@Import(TestConfig.class)
+public class EventsControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  ChangeFeed changeFeed;
+
+  @Test
+  public void logged_out_users_cannot_subscribe() throws Exception {
+    mockMvc.perform(get("/api/events"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_subscribe_to_all_types() throws Exception {
+    // arrange
+    when(changeFeed.subscribe(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    mockMvc.perform(get("/api/events"))
+        .andExpect(request().asyncStarted());
+
+    // assert
+    ArgumentCaptor<SseEmitter> emitter = ArgumentCaptor.forClass(SseEmitter.class);
+    verify(changeFeed).subscribe(emitter.capture(), eq(null));
+    assertEquals(30 * 60 * 1000L, emitter.getValue().getTimeout());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_subscribe_to_some_types() throws Exception {
+    // arrange
+    when(changeFeed.subscribe(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    mockMvc.perform(get("/api/events?types=UCSBDate,Articles"))
+        .andExpect(request().asyncStarted());
+
+    // assert
+    verify(changeFeed).subscribe(any(), eq(Set.of("UCSBDate", "Articles")));
+  }
+}
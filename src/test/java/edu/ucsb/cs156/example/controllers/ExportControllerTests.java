@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.export.ExportTable;
+import edu.ucsb.cs156.example.export.TableExporter;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@WebMvcTest(controllers = ExportController.class)
+@Import(TestConfig.class)
+public class ExportControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  TableExporter tableExporter;
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void export__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/export/helprequest"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void export__admin_logged_in_streams_the_table() throws Exception {
+    // arrange
+    when(tableExporter.reserve(eq(ExportTable.HELPREQUEST), eq(LocalDateTime.of(2024, 10, 1, 0, 0)), isNull()))
+        .thenReturn(out -> {
+          out.write("exported".getBytes(StandardCharsets.UTF_8));
+          return 1L;
+        });
+
+    // act
+    MvcResult started = mockMvc.perform(get("/api/admin/export/helprequest?from=2024-10-01T00:00:00"))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals("application/gzip", response.getResponse().getContentType());
+    assertEquals("attachment; filename=\"helprequest.csv.gz\"", response.getResponse().getHeader("Content-Disposition"));
+    assertEquals("exported", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void export__is_turned_away_while_too_many_exports_are_running() throws Exception {
+    MvcResult response = mockMvc.perform(get("/api/admin/export/helprequest"))
+        .andExpect(status().isServiceUnavailable()).andReturn();
+
+    assertEquals("60", response.getResponse().getHeader("Retry-After"));
+    assertEquals(Map.of("message", "Too many exports are running, retry after 60 seconds"), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void export__unknown_table_is_a_bad_request() throws Exception {
+    MvcResult response = mockMvc.perform(get("/api/admin/export/users"))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    assertEquals(Map.of("message", "Table users cannot be exported"), responseToJson(response));
+  }
+}
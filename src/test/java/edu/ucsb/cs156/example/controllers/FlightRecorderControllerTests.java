@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.jfr.FlightRecordings;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.Duration;
+import java.util.Map;
+
+@WebMvcTest(controllers = FlightRecorderController.class)
+@Import(TestConfig.class)
+public class FlightRecorderControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  FlightRecordings flightRecordings;
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void users_cannot_start_recordings() throws Exception {
+    mockMvc.perform(post("/api/admin/jfr/start").with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin_can_get_the_status() throws Exception {
+    // arrange
+    when(flightRecordings.status()).thenReturn(Map.of("state", "NONE"));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/jfr"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of("state", "NONE"), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin_can_start_a_recording() throws Exception {
+    // arrange
+    when(flightRecordings.start(Duration.ofMinutes(2))).thenReturn(Map.of("state", "RUNNING", "file", "/tmp/r.jfr"));
+
+    // act
+    MvcResult response = mockMvc.perform(post("/api/admin/jfr/start").param("duration", "PT2M").with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of("state", "RUNNING", "file", "/tmp/r.jfr"), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin_can_stop_a_recording() throws Exception {
+    // arrange
+    when(flightRecordings.stop()).thenReturn(Map.of("state", "STOPPED", "file", "/tmp/r.jfr", "bytes", 1234));
+
+    // act
+    MvcResult response = mockMvc.perform(post("/api/admin/jfr/stop").with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of("state", "STOPPED", "file", "/tmp/r.jfr", "bytes", 1234), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void starting_a_second_recording_is_a_conflict() throws Exception {
+    // arrange
+    when(flightRecordings.start(null)).thenThrow(new IllegalStateException("A recording is already running"));
+
+    // act
+    MvcResult response = mockMvc.perform(post("/api/admin/jfr/start").with(csrf()))
+        .andExpect(status().isConflict()).andReturn();
+
+    // assert
+    assertEquals(Map.of("message", "A recording is already running"), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void too_long_a_duration_is_a_bad_request() throws Exception {
+    // arrange
+    when(flightRecordings.start(Duration.ofHours(1)))
+        .thenThrow(new IllegalArgumentException("The duration must be more than 0 and at most PT10M"));
+
+    // act
+    MvcResult response = mockMvc.perform(post("/api/admin/jfr/start").param("duration", "PT1H").with(csrf()))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    // assert
+    assertEquals(Map.of("message", "The duration must be more than 0 and at most PT10M"), responseToJson(response));
+  }
+}
@@ -4,10 +4,13 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestStats;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -42,6 +45,9 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        HelpRequestStats helpRequestStats;
+
         // Authorization tests for /api/helprequest/admin/all (ALL)
         @Test
         public void logged_out_users_cannot_get_all() throws Exception {
@@ -135,6 +141,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(helpRequestRepository, times(1)).save(helpRequest1);
+                verify(helpRequestStats, times(1)).recordCreated(helpRequest1);
                 String expectedJson = mapper.writeValueAsString(helpRequest1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -266,6 +273,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 // assert
                 verify(helpRequestRepository, times(1)).findById(123L);
                 verify(helpRequestRepository, times(1)).save(helpRequestEdited); // should be saved with correct user
+                verify(helpRequestStats, times(1)).recordUpdated(
+                                new HelpRequestStats.Snapshot(reqTime1, "F24-01", "Table_01", false, null), helpRequestEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -334,6 +343,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 // assert
                 verify(helpRequestRepository, times(1)).findById(123L);
                 verify(helpRequestRepository, times(1)).delete(any());
+                verify(helpRequestStats, times(1)).recordDeleted(any());
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 123 deleted", json.get("message"));
@@ -358,4 +368,47 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 123 not found", json.get("message"));
         }
-}
\ No newline at end of file
+
+        // tests for GET /api/helprequest/stats
+
+        @Test
+        public void logged_out_users_cannot_get_stats() throws Exception {
+                mockMvc.perform(get("/api/helprequest/stats"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_stats() throws Exception {
+                // arrange
+                LocalDateTime from = LocalDateTime.parse("2024-10-02T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2024-10-03T00:00:00");
+                when(helpRequestStats.getStats(from, to, List.of("teamId"))).thenReturn(
+                                List.of(Map.of("teamId", "F24-16", "requests", 3L, "solved", 1L, "avgSecondsToSolve", 600.0)));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                get("/api/helprequest/stats?from=2024-10-02T00:00:00&to=2024-10-03T00:00:00&groupBy=teamId"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(List.of(Map.of("teamId", "F24-16", "requests", 3, "solved", 1, "avgSecondsToSolve", 600.0)),
+                                mapper.readValue(response.getResponse().getContentAsString(), List.class));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void unknown_group_by_is_a_bad_request() throws Exception {
+                // arrange
+                when(helpRequestStats.getStats(null, null, List.of("week"))).thenThrow(
+                                new UnknownFieldException(HelpRequest.class, List.of("week")));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/stats?groupBy=week"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                assertEquals(Map.of("type", "UnknownFieldException", "message", "HelpRequest has no field(s) week"),
+                                responseToJson(response));
+        }
+}
@@ -4,6 +4,8 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.ingest.ReviewIngestionQueue;
+import edu.ucsb.cs156.example.models.ReviewSubmission;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import java.util.ArrayList;
@@ -27,6 +29,7 @@ import java.time.LocalDateTime;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +45,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    ReviewIngestionQueue reviewIngestionQueue;
+
     // Authorization tests for /api/menuItemReview/admin/all
 
     @Test
@@ -193,7 +199,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .comments("It was very good")
                                 .build();
 
-                when(menuItemReviewRepository.save(eq(review_1))).thenReturn(review_1);
+                when(reviewIngestionQueue.save(eq(review_1))).thenReturn(review_1);
 
                 // act  (DOUBT HERE)
                 MvcResult response = mockMvc.perform(
@@ -207,7 +213,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).save(review_1);
+                verify(reviewIngestionQueue, times(1)).save(review_1);
                 String expectedJson = mapper.writeValueAsString(review_1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -340,4 +346,173 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
         }
 
+
+        // Tests for asynchronous review ingestion
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void when_async_is_on_a_review_is_queued_and_accepted() throws Exception {
+                // arrange
+                MenuItemReview review_1 = MenuItemReview.builder()
+                                .reviewerEmail("rohanpreetam21@gmail.com")
+                                .stars(4)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("It was very good")
+                                .build();
+                ReviewSubmission submission = ReviewSubmission.builder()
+                                .trackingId("abc-123")
+                                .state(ReviewSubmission.State.QUEUED)
+                                .build();
+                when(reviewIngestionQueue.getEnabled()).thenReturn(true);
+                when(reviewIngestionQueue.submit(eq(review_1))).thenReturn(submission);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/MENUITEMREVIEW/post")
+                                    .param("reviewerEmail","rohanpreetam21@gmail.com")
+                                    .param("stars", "4")
+                                    .param("dateReviewed", "2022-01-03T00:00:00")
+                                    .param("comments", "It was very good")
+                                    .with(csrf()))
+                                .andExpect(status().isAccepted())
+                                .andExpect(header().string("Location", "/api/MENUITEMREVIEW/status?trackingId=abc-123"))
+                                .andReturn();
+
+                // assert
+                verify(reviewIngestionQueue, never()).save(any());
+                assertEquals(mapper.writeValueAsString(submission), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void when_async_is_on_and_the_queue_is_full_the_client_is_asked_to_retry() throws Exception {
+                // arrange
+                when(reviewIngestionQueue.getEnabled()).thenReturn(true);
+                when(reviewIngestionQueue.submit(any())).thenReturn(null);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/MENUITEMREVIEW/post")
+                                    .param("reviewerEmail","rohanpreetam21@gmail.com")
+                                    .param("stars", "4")
+                                    .param("dateReviewed", "2022-01-03T00:00:00")
+                                    .param("comments", "It was very good")
+                                    .with(csrf()))
+                                .andExpect(status().isTooManyRequests())
+                                .andExpect(header().string("Retry-After", "1"))
+                                .andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("TooManyRequests", json.get("type"));
+                assertEquals("Review queue is full, retry after 1 seconds", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void when_async_is_on_invalid_reviews_are_rejected_before_queueing() throws Exception {
+                // arrange
+                when(reviewIngestionQueue.getEnabled()).thenReturn(true);
+
+                // act
+                MvcResult blankEmail = mockMvc.perform(
+                                post("/api/MENUITEMREVIEW/post")
+                                    .param("reviewerEmail"," ")
+                                    .param("stars", "4")
+                                    .param("dateReviewed", "2022-01-03T00:00:00")
+                                    .param("comments", "It was very good")
+                                    .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+                MvcResult tooFewStars = mockMvc.perform(
+                                post("/api/MENUITEMREVIEW/post")
+                                    .param("reviewerEmail","rohanpreetam21@gmail.com")
+                                    .param("stars", "0")
+                                    .param("dateReviewed", "2022-01-03T00:00:00")
+                                    .param("comments", "It was very good")
+                                    .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+                MvcResult tooManyStars = mockMvc.perform(
+                                post("/api/MENUITEMREVIEW/post")
+                                    .param("reviewerEmail","rohanpreetam21@gmail.com")
+                                    .param("stars", "6")
+                                    .param("dateReviewed", "2022-01-03T00:00:00")
+                                    .param("comments", "It was very good")
+                                    .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(reviewIngestionQueue, never()).submit(any());
+                assertEquals("reviewerEmail must not be blank", responseToJson(blankEmail).get("message"));
+                assertEquals("stars must be between 1 and 5", responseToJson(tooFewStars).get("message"));
+                assertEquals("stars must be between 1 and 5", responseToJson(tooManyStars).get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void invalid_reviews_are_rejected_when_saved_directly_too() throws Exception {
+                // act
+                MvcResult blankEmail = mockMvc.perform(
+                                post("/api/MENUITEMREVIEW/post")
+                                    .param("reviewerEmail","")
+                                    .param("stars", "4")
+                                    .param("dateReviewed", "2022-01-03T00:00:00")
+                                    .param("comments", "It was very good")
+                                    .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+                MvcResult tooManyStars = mockMvc.perform(
+                                post("/api/MENUITEMREVIEW/post")
+                                    .param("reviewerEmail","rohanpreetam21@gmail.com")
+                                    .param("stars", "9")
+                                    .param("dateReviewed", "2022-01-03T00:00:00")
+                                    .param("comments", "It was very good")
+                                    .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(reviewIngestionQueue, never()).save(any());
+                assertEquals("reviewerEmail must not be blank", responseToJson(blankEmail).get("message"));
+                assertEquals("stars must be between 1 and 5", responseToJson(tooManyStars).get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_get_submission_status() throws Exception {
+                mockMvc.perform(get("/api/MENUITEMREVIEW/status?trackingId=abc-123"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_get_submission_status() throws Exception {
+                // arrange
+                ReviewSubmission submission = ReviewSubmission.builder()
+                                .trackingId("abc-123")
+                                .state(ReviewSubmission.State.SAVED)
+                                .reviewId(17L)
+                                .build();
+                when(reviewIngestionQueue.getStatus(eq("abc-123"))).thenReturn(submission);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/MENUITEMREVIEW/status?trackingId=abc-123"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(submission), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_404_for_an_unknown_tracking_id() throws Exception {
+                // arrange
+                when(reviewIngestionQueue.getStatus(eq("nope"))).thenReturn(null);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/MENUITEMREVIEW/status?trackingId=nope"))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("EntityNotFoundException", json.get("type"));
+                assertEquals("ReviewSubmission with id nope not found", json.get("message"));
+        }
 }
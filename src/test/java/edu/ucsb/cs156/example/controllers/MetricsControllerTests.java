@@ -0,0 +1,214 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.events.ChangeFeed;
+import edu.ucsb.cs156.example.ingest.ReviewIngestionQueue;
+import edu.ucsb.cs156.example.pool.ConnectionPoolManager;
+import edu.ucsb.cs156.example.querylog.QueryMonitor;
+import edu.ucsb.cs156.example.querylog.QueryMonitor.QueryStats;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
+import edu.ucsb.cs156.example.services.SingleFlightGroup;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+import java.util.Map;
+
+@WebMvcTest(controllers = MetricsController.class)
+@Import(TestConfig.class)
+public class MetricsControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  ReviewIngestionQueue reviewIngestionQueue;
+
+  @MockBean
+  ChangeFeed changeFeed;
+
+  @MockBean
+  ConnectionPoolManager connectionPoolManager;
+
+  @MockBean
+  QueryMonitor queryMonitor;
+
+  @Autowired
+  MissingEntityCache missingEntityCache;
+
+  @Autowired
+  SingleFlightGroup singleFlightGroup;
+
+  @Test
+  public void notFound__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics/notFound"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void notFound__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics/notFound"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void notFound__admin_logged_in() throws Exception {
+    // arrange
+    missingEntityCache.countNotFound(Articles.class);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/metrics/notFound"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(missingEntityCache.getNotFoundCounts().get("Articles").intValue(),
+        ((Map<?, ?>) json.get("notFound")).get("Articles"));
+    assertEquals(Map.of(), json.get("cacheHits"));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void reviewQueue__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics/reviewQueue"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void reviewQueue__admin_logged_in() throws Exception {
+    // arrange
+    when(reviewIngestionQueue.getStats()).thenReturn(Map.of("enabled", true, "queued", 3));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/metrics/reviewQueue"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of("enabled", true, "queued", 3), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void singleFlight__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics/singleFlight"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void singleFlight__admin_logged_in() throws Throwable {
+    // arrange
+    singleFlightGroup.execute("UCSBDatesController.allUCSBDates", "key", () -> "result");
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/metrics/singleFlight"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of("UCSBDatesController.allUCSBDates", Map.of("executions", 1, "coalesced", 0)),
+        responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void events__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics/events"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void events__admin_logged_in() throws Exception {
+    // arrange
+    when(changeFeed.getStats()).thenReturn(Map.of("subscribers", 2L, "published", 5L, "dropped", 0L));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/metrics/events"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of("subscribers", 2, "published", 5, "dropped", 0), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void pool__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics/pool"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void pool__admin_logged_in() throws Exception {
+    // arrange
+    when(connectionPoolManager.getStats()).thenReturn(Map.of(
+        "pools", Map.of("primary", Map.of("maximumPoolSize", 10, "waits", Map.of("<1ms", 4))),
+        "shed", 2L));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/metrics/pool"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of(
+        "pools", Map.of("primary", Map.of("maximumPoolSize", 10, "waits", Map.of("<1ms", 4))),
+        "shed", 2), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void queries__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics/queries"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void queries__admin_logged_in() throws Exception {
+    // arrange
+    when(queryMonitor.getRequestStats()).thenReturn(Map.of("requests", 10L, "overBudget", 1L));
+    when(queryMonitor.getSlowest(20)).thenReturn(List.of(
+        new QueryStats("select * from restaurants where id=?", 4, 2.5, 4.0, 10.0)));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/metrics/queries"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of("requests", 10, "overBudget", 1, "slowest", List.of(Map.of(
+        "sql", "select * from restaurants where id=?", "count", 4,
+        "meanMillis", 2.5, "maxMillis", 4.0, "totalMillis", 10.0))), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void queries__negative_limit_returns_no_statements() throws Exception {
+    // arrange
+    when(queryMonitor.getRequestStats()).thenReturn(Map.of("requests", 0L, "overBudget", 0L));
+    when(queryMonitor.getSlowest(0)).thenReturn(List.of());
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/metrics/queries").param("limit", "-1"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(Map.of("requests", 0, "overBudget", 0, "slowest", List.of()), responseToJson(response));
+  }
+}
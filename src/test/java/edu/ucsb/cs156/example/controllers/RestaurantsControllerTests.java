@@ -4,15 +4,19 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -294,4 +298,94 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for /api/restaurants/search
+
+        static Restaurant restaurant(long id, String name) {
+                return Restaurant.builder().id(id).name(name).description("Food").nameLower(name.toLowerCase()).build();
+        }
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/restaurants/search?q=piz"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_first_page_of_a_prefix_search() throws Exception {
+                // arrange
+                Restaurant first = restaurant(3, "Pizza Mizza");
+                Restaurant second = restaurant(1, "Pizza My Heart");
+                Restaurant third = restaurant(2, "Pizzeria Bello");
+                when(restaurantRepository.findPageByNameOrDescriptionLike("piz%", "", Long.MIN_VALUE, PageRequest.of(0, 3)))
+                                .thenReturn(List.of(first, second, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/search").param("q", " Piz").param("size", "2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(
+                                new KeysetPage<>(List.of(first, second), RestaurantsController.encodeCursor(second)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_last_page_of_a_contains_search() throws Exception {
+                // arrange
+                Restaurant last = restaurant(9, "Deli: 50%_Off");
+                when(restaurantRepository.findPageByNameOrDescriptionLike("%50\\%\\_off%", "pizza my heart", 1L, PageRequest.of(0, 3)))
+                                .thenReturn(List.of(last));
+                String after = RestaurantsController.encodeCursor(restaurant(1, "Pizza My Heart"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/search")
+                                .param("q", "50%_OFF").param("match", "contains").param("after", after).param("size", "2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(new KeysetPage<>(List.of(last), null)),
+                                response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_page_size_is_between_1_and_the_maximum() throws Exception {
+                // arrange
+                when(restaurantRepository.findPageByNameOrDescriptionLike(any(), any(), eq(Long.MIN_VALUE), any()))
+                                .thenReturn(List.of());
+
+                // act
+                mockMvc.perform(get("/api/restaurants/search?size=0")).andExpect(status().isOk());
+                mockMvc.perform(get("/api/restaurants/search?size=1000")).andExpect(status().isOk());
+
+                // assert
+                verify(restaurantRepository).findPageByNameOrDescriptionLike("%", "", Long.MIN_VALUE, PageRequest.of(0, 2));
+                verify(restaurantRepository).findPageByNameOrDescriptionLike("%", "", Long.MIN_VALUE,
+                                PageRequest.of(0, RestaurantsController.MAX_PAGE_SIZE + 1));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_with_an_unknown_match_is_a_bad_request() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/restaurants/search?q=piz&match=suffix"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                assertEquals(Map.of("message", "match must be prefix or contains, not suffix"), responseToJson(response));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_with_an_invalid_cursor_is_a_bad_request() throws Exception {
+                Base64.Encoder encoder = Base64.getUrlEncoder();
+                for (String after : List.of("not base64!", encoder.encodeToString("no colon".getBytes()),
+                                encoder.encodeToString("x:pizza".getBytes()))) {
+                        MvcResult response = mockMvc.perform(get("/api/restaurants/search").param("after", after))
+                                        .andExpect(status().isBadRequest()).andReturn();
+
+                        assertEquals(Map.of("message", "Invalid cursor " + after), responseToJson(response));
+                }
+        }
 }
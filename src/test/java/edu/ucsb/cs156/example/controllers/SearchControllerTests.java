@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.search.SearchHit;
+import edu.ucsb.cs156.example.search.SearchService;
+import edu.ucsb.cs156.example.search.SearchService.SearchResults;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+import java.util.Map;
+
+@WebMvcTest(controllers = SearchController.class)
+@Import(TestConfig.class)
+public class SearchControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  SearchService searchService;
+
+  @Test
+  public void logged_out_users_cannot_search() throws Exception {
+    mockMvc.perform(get("/api/search?q=pasta"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_search_all_types() throws Exception {
+    // arrange
+    SearchResults results = new SearchResults(List.of(
+        new SearchHit("restaurants", 1L, "Pasta Place", 0),
+        new SearchHit("ucsborganization", "PASTA", "Pasta Club", 0)),
+        List.of("articles"));
+    when(searchService.search("pasta", null, SearchController.SEARCH_LIMIT)).thenReturn(results);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/search?q=pasta"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(results), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_search_some_types() throws Exception {
+    // arrange
+    SearchResults results = new SearchResults(List.of(new SearchHit("articles", 3L, "Pasta", 0)), List.of());
+    when(searchService.search("pasta", List.of("articles", "restaurants"), SearchController.SEARCH_LIMIT))
+        .thenReturn(results);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/search?q=pasta&types=articles,restaurants"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(results), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void search_of_an_unknown_type_is_a_bad_request() throws Exception {
+    // arrange
+    when(searchService.search("pasta", List.of("users"), SearchController.SEARCH_LIMIT))
+        .thenThrow(new IllegalArgumentException("Cannot search users; the types are [articles]"));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/search?q=pasta&types=users"))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    // assert
+    assertEquals(Map.of("message", "Cannot search users; the types are [articles]"), responseToJson(response));
+  }
+}
@@ -2,20 +2,28 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.csvimport.CsvImportTargets;
+import edu.ucsb.cs156.example.csvimport.CsvImporter;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -37,9 +45,15 @@ import static org.mockito.Mockito.when;
 public class UCSBDatesControllerTests extends ControllerTestCase {
         
 
+        @Autowired
+        MissingEntityCache missingEntityCache;
+
         @MockBean
         UCSBDateRepository ucsbDateRepository;
 
+        @MockBean
+        CsvImporter csvImporter;
+
         @MockBean
         UserRepository userRepository;
 
@@ -317,4 +331,64 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for POST /api/ucsbdates/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/import").with(csrf())
+                                .contentType("text/csv").content("quarterYYYYQ,name,localDateTime\n20244,First day,2024-09-26T08:00:00\n20244,,2024-09-27T08:00:00\n"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_csv_and_gets_progress_per_line() throws Exception {
+                // arrange
+                StringWriter received = new StringWriter();
+                when(csvImporter.importCsv(any(Reader.class), eq(CsvImportTargets.UCSB_DATES), any())).thenAnswer(invocation -> {
+                        invocation.<Reader>getArgument(0).transferTo(received);
+                        CsvImporter.Listener listener = invocation.getArgument(2);
+                        listener.rejected(3, "name is required");
+                        listener.progress(2, 1);
+                        return new CsvImporter.Result(2, 1, 1);
+                });
+
+                // act
+                MvcResult started = mockMvc.perform(post("/api/ucsbdates/import").with(csrf())
+                                .contentType("text/csv").content("quarterYYYYQ,name,localDateTime\n20244,First day,2024-09-26T08:00:00\n20244,,2024-09-27T08:00:00\n"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("quarterYYYYQ,name,localDateTime\n20244,First day,2024-09-26T08:00:00\n20244,,2024-09-27T08:00:00\n", received.toString());
+                assertEquals("""
+                                {"type":"error","line":3,"message":"name is required"}
+                                {"type":"progress","rowsRead":2,"rowsImported":1}
+                                {"type":"done","rowsRead":2,"rowsImported":1,"rowsRejected":1}
+                                """, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_failed_import_still_forgets_missing_ids() throws Exception {
+                // arrange
+                ReflectionTestUtils.setField(missingEntityCache, "ttlMillis", 60_000L);
+                missingEntityCache.recordNotFound(UCSBDate.class, 1L);
+                assertEquals(true, missingEntityCache.isKnownMissing(UCSBDate.class, 1L));
+                when(csvImporter.importCsv(any(Reader.class), eq(CsvImportTargets.UCSB_DATES), any()))
+                                .thenThrow(new IOException("connection reset"));
+
+                // act
+                MvcResult started = mockMvc.perform(post("/api/ucsbdates/import").with(csrf())
+                                .contentType("text/csv").content("x\n"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                started.getAsyncResult();
+                ReflectionTestUtils.setField(missingEntityCache, "ttlMillis", 0L);
+
+                // assert
+                assertEquals(false, missingEntityCache.isKnownMissing(UCSBDate.class, 1L));
+        }
 }
@@ -4,17 +4,24 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+import edu.ucsb.cs156.example.reference.ReferenceTable;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -28,18 +35,31 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
 @Import(TestConfig.class)
+@RecordApplicationEvents
 public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
+        @Autowired
+        ApplicationEvents events;
+
         @MockBean
         UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ReferenceTable<UCSBDiningCommons, String> diningCommonsTable;
+
+        void snapshotOf(UCSBDiningCommons... commons) {
+                when(diningCommonsTable.getSnapshot())
+                                .thenReturn(ReferenceTable.Snapshot.of(Arrays.asList(commons), UCSBDiningCommons::getCode, mapper));
+        }
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -51,6 +71,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                snapshotOf();
                 mockMvc.perform(get("/api/ucsbdiningcommons/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -95,7 +116,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.85277)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(commons));
+                snapshotOf(commons);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo"))
@@ -103,7 +124,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("carrillo"));
+                verifyNoInteractions(ucsbDiningCommonsRepository);
+                assertEquals(MediaType.APPLICATION_JSON_VALUE, response.getResponse().getContentType());
                 String expectedJson = mapper.writeValueAsString(commons);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -115,7 +137,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                snapshotOf();
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=munger-hall"))
@@ -123,7 +145,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("munger-hall"));
+                verifyNoInteractions(ucsbDiningCommonsRepository);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("EntityNotFoundException", json.get("type"));
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
@@ -158,7 +180,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 ArrayList<UCSBDiningCommons> expectedCommons = new ArrayList<>();
                 expectedCommons.addAll(Arrays.asList(carrillo, dlg));
 
-                when(ucsbDiningCommonsRepository.findAll()).thenReturn(expectedCommons);
+                snapshotOf(dlg, carrillo);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
@@ -166,12 +188,31 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                verifyNoInteractions(ucsbDiningCommonsRepository);
                 String expectedJson = mapper.writeValueAsString(expectedCommons);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_some_fields_of_all_ucsbdiningcommons() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> expected = List.of(Map.of("code", "carrillo", "name", "Carrillo"));
+                when(ucsbDiningCommonsRepository.findAllFields(eq(List.of("code", "name")))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?fields=code,name"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(diningCommonsTable, times(0)).getSnapshot();
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void an_admin_user_can_post_a_new_commons() throws Exception {
@@ -197,6 +238,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                assertEquals(List.of(new EntityChangeEvent("UCSBDiningCommons", ChangeAction.CREATED, "ortega")),
+                                events.stream(EntityChangeEvent.class).toList());
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -228,6 +271,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
                 verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                assertEquals(List.of(new EntityChangeEvent("UCSBDiningCommons", ChangeAction.DELETED, "portola")),
+                                events.stream(EntityChangeEvent.class).toList());
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -294,6 +339,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
                 verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                assertEquals(List.of(new EntityChangeEvent("UCSBDiningCommons", ChangeAction.UPDATED, "carrillo")),
+                                events.stream(EntityChangeEvent.class).toList());
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -2,20 +2,31 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.csvimport.CsvImportTargets;
+import edu.ucsb.cs156.example.csvimport.CsvImporter;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.search.MenuItemSearchIndex;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -36,12 +47,21 @@ import static org.mockito.Mockito.when;
 @Import(TestConfig.class)
 public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase {
         
+    @Autowired
+    MissingEntityCache missingEntityCache;
+
     @MockBean
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @MockBean
+    CsvImporter csvImporter;
+
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    MenuItemSearchIndex menuItemSearchIndex;
+
     // Authorization tests for /api/ucsbdiningcommonsmenuitem/admin/all
 
     @Test
@@ -304,4 +324,145 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all_menu_items() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(
+                                Map.of("id", 1, "name", "Chicken Caesar Salad", "station", "Entrees"));
+                when(ucsbDiningCommonsMenuItemRepository.findAllFields(eq(List.of("id", "name", "station"))))
+                                .thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all?fields=id,name,station"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAllFields(eq(List.of("id", "name", "station")));
+                verify(ucsbDiningCommonsMenuItemRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(rows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_400_for_unknown_fields() throws Exception {
+
+                // arrange
+                when(ucsbDiningCommonsMenuItemRepository.findAllFields(eq(List.of("id", "price"))))
+                                .thenThrow(new UnknownFieldException(UCSBDiningCommonsMenuItem.class, List.of("price")));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all?fields=id,price"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UnknownFieldException", json.get("type"));
+                assertEquals("UCSBDiningCommonsMenuItem has no field(s) price", json.get("message"));
+        }
+
+        // Tests for POST /api/ucsbdiningcommonsmenuitem/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import_menu_items() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import").with(csrf())
+                                .contentType("text/csv").content("diningCommonsCode,name,station\nortega,Baked Pesto Pasta,Entrees\nortega,,Desserts\n"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_menu_items_and_gets_progress_per_line() throws Exception {
+                // arrange
+                StringWriter received = new StringWriter();
+                when(csvImporter.importCsv(any(Reader.class), eq(CsvImportTargets.MENU_ITEMS), any())).thenAnswer(invocation -> {
+                        invocation.<Reader>getArgument(0).transferTo(received);
+                        CsvImporter.Listener listener = invocation.getArgument(2);
+                        listener.rejected(3, "name is required");
+                        listener.progress(2, 1);
+                        return new CsvImporter.Result(2, 1, 1);
+                });
+
+                // act
+                MvcResult started = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import").with(csrf())
+                                .contentType("text/csv").content("diningCommonsCode,name,station\nortega,Baked Pesto Pasta,Entrees\nortega,,Desserts\n"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("diningCommonsCode,name,station\nortega,Baked Pesto Pasta,Entrees\nortega,,Desserts\n", received.toString());
+                verify(menuItemSearchIndex, times(1)).reload();
+                assertEquals("""
+                                {"type":"error","line":3,"message":"name is required"}
+                                {"type":"progress","rowsRead":2,"rowsImported":1}
+                                {"type":"done","rowsRead":2,"rowsImported":1,"rowsRejected":1}
+                                """, response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/search
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/search?q=pasta"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_search_menu_items() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem pasta = UCSBDiningCommonsMenuItem.builder()
+                                .id(1L)
+                                .diningCommonsCode("ortega")
+                                .name("Baked Pesto Pasta with Chicken")
+                                .station("Entree Specials")
+                                .build();
+                when(menuItemSearchIndex.search(eq("psto pasta"), eq("ortega"), eq(50))).thenReturn(List.of(pasta));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/search")
+                                .param("q", "psto pasta").param("commons", "ortega"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(List.of(pasta)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_without_commons_searches_every_dining_commons() throws Exception {
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/search").param("q", "pasta"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(menuItemSearchIndex, times(1)).search("pasta", null, 50);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_failed_import_still_forgets_missing_ids_and_reloads_the_search_index() throws Exception {
+                // arrange
+                ReflectionTestUtils.setField(missingEntityCache, "ttlMillis", 60_000L);
+                missingEntityCache.recordNotFound(UCSBDiningCommonsMenuItem.class, 1L);
+                assertEquals(true, missingEntityCache.isKnownMissing(UCSBDiningCommonsMenuItem.class, 1L));
+                when(csvImporter.importCsv(any(Reader.class), eq(CsvImportTargets.MENU_ITEMS), any()))
+                                .thenThrow(new IOException("connection reset"));
+
+                // act
+                MvcResult started = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import").with(csrf())
+                                .contentType("text/csv").content("x\n"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                started.getAsyncResult();
+                ReflectionTestUtils.setField(missingEntityCache, "ttlMillis", 0L);
+
+                // assert
+                assertEquals(false, missingEntityCache.isKnownMissing(UCSBDiningCommonsMenuItem.class, 1L));
+                verify(menuItemSearchIndex, times(1)).reload();
+        }
 }
@@ -4,10 +4,12 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.reference.ReferenceTable;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,6 +30,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
@@ -40,6 +43,14 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ReferenceTable<UCSBOrganization, String> organizationTable;
+
+        void snapshotOf(UCSBOrganization... organizations) {
+                when(organizationTable.getSnapshot())
+                                .thenReturn(ReferenceTable.Snapshot.of(Arrays.asList(organizations), UCSBOrganization::getOrgCode, mapper));
+        }
+
         // Authorization tests for /api/ucsborganization/admin/all
 
         @Test
@@ -51,6 +62,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                snapshotOf();
                 mockMvc.perform(get("/api/ucsborganization/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -117,7 +129,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .build();
 
                 UCSBOrganization sky = UCSBOrganization.builder()
-                                .orgCode("OSLI")
+                                .orgCode("SKY")
                                 .orgTranslationShort("SKYDIVING CLUB")
                                 .orgTranslation("SKYDIVING CLUB AT UCSB")
                                 .inactive(true)
@@ -126,7 +138,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 ArrayList<UCSBOrganization> expectedOrganizations = new ArrayList<>();
                 expectedOrganizations.addAll(Arrays.asList(osli, sky));
 
-                when(ucsbOrganizationRepository.findAll()).thenReturn(expectedOrganizations);
+                snapshotOf(sky, osli);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsborganization/all"))
@@ -134,12 +146,31 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbOrganizationRepository, times(1)).findAll();
+                verifyNoInteractions(ucsbOrganizationRepository);
                 String expectedJson = mapper.writeValueAsString(expectedOrganizations);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_some_fields_of_all_ucsborganization() throws Exception {
+
+                // arrange
+
+                List<Map<String, Object>> expected = List.of(Map.of("orgCode", "SKY"));
+                when(ucsbOrganizationRepository.findAllFields(eq(List.of("orgCode")))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/all?fields=orgCode"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(organizationTable, times(0)).getSnapshot();
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
 
         // Tests with mocks for database actions
 
@@ -156,7 +187,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .inactive(true)
                                 .build();
 
-                when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(organizations));
+                snapshotOf(organizations);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR"))
@@ -164,7 +195,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbOrganizationRepository, times(1)).findById(eq("ZPR"));
+                verifyNoInteractions(ucsbOrganizationRepository);
                 String expectedJson = mapper.writeValueAsString(organizations);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -176,7 +207,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 // arrange
 
-                when(ucsbOrganizationRepository.findById(eq("art"))).thenReturn(Optional.empty());
+                snapshotOf();
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsborganization?orgCode=art"))
@@ -184,7 +215,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbOrganizationRepository, times(1)).findById(eq("art"));
+                verifyNoInteractions(ucsbOrganizationRepository);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("EntityNotFoundException", json.get("type"));
                 assertEquals("UCSBOrganization with id art not found", json.get("message"));
@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.csvimport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class CsvImportTargetsTests {
+
+  @Test
+  void menu_item_values_are_trimmed() {
+    Object[] values = CsvImportTargets.MENU_ITEMS.parser()
+        .parse(Map.of("diningCommonsCode", " ortega ", "name", "Baked Pesto Pasta", "station", "Entrees"));
+
+    assertArrayEquals(new Object[] { "ortega", "Baked Pesto Pasta", "Entrees" }, values);
+  }
+
+  @Test
+  void menu_item_fields_are_required() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CsvImportTargets.MENU_ITEMS
+        .parser().parse(Map.of("diningCommonsCode", "ortega", "name", " ", "station", "Entrees")));
+    assertEquals("name is required", e.getMessage());
+  }
+
+  @Test
+  void values_longer_than_the_column_are_rejected() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CsvImportTargets.MENU_ITEMS
+        .parser().parse(Map.of("diningCommonsCode", "ortega", "name", "x".repeat(256), "station", "Entrees")));
+    assertEquals("name is longer than 255 characters", e.getMessage());
+  }
+
+  @Test
+  void date_values_are_parsed() {
+    Object[] values = CsvImportTargets.UCSB_DATES.parser()
+        .parse(Map.of("quarterYYYYQ", "20244", "name", "First day of classes", "localDateTime", "2024-09-26T08:00:00"));
+
+    assertArrayEquals(new Object[] { "20244", "First day of classes", LocalDateTime.of(2024, 9, 26, 8, 0) }, values);
+  }
+
+  @Test
+  void quarter_must_be_YYYYQ() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CsvImportTargets.UCSB_DATES
+        .parser().parse(Map.of("quarterYYYYQ", "20245", "name", "x", "localDateTime", "2024-09-26T08:00:00")));
+    assertEquals("quarterYYYYQ must be YYYYQ with Q from 1 to 4, was 20245", e.getMessage());
+  }
+
+  @Test
+  void localDateTime_must_be_iso() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CsvImportTargets.UCSB_DATES
+        .parser().parse(Map.of("quarterYYYYQ", "20244", "name", "x", "localDateTime", "9/26/2024")));
+    assertEquals("localDateTime must be an ISO date-time, e.g. 2024-09-26T08:00:00, was 9/26/2024", e.getMessage());
+  }
+
+  @Test
+  void sql_statements_name_the_columns() {
+    assertEquals("INSERT INTO ucsbdates (quarteryyyyq, name, local_date_time) VALUES (?, ?, ?)",
+        CsvImportTargets.UCSB_DATES.insertSql());
+    assertEquals("COPY ucsbdiningcommonsmenuitem (diningcommonscode, name, station) FROM STDIN WITH (FORMAT csv)",
+        CsvImportTargets.MENU_ITEMS.copySql());
+  }
+}
@@ -0,0 +1,203 @@
+package edu.ucsb.cs156.example.csvimport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+
+public class CsvImporterTests {
+
+  /** the tables from db/migration/changes/UCSBDiningCommonsMenuItem.json and UCSBDates.json */
+  static final String MENU_ITEM_DDL = "CREATE TABLE ucsbdiningcommonsmenuitem (ID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+      + "DININGCOMMONSCODE VARCHAR(255), NAME VARCHAR(255), STATION VARCHAR(255))";
+  static final String DATES_DDL = "CREATE TABLE UCSBDATES (ID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+      + "LOCAL_DATE_TIME TIMESTAMP, NAME VARCHAR(255), QUARTERYYYYQ VARCHAR(255))";
+
+  /** records what the importer reports, one string per call */
+  static class RecordingListener implements CsvImporter.Listener {
+    final List<String> events = new ArrayList<>();
+
+    @Override
+    public void progress(long rowsRead, long rowsImported) {
+      events.add("progress %d %d".formatted(rowsRead, rowsImported));
+    }
+
+    @Override
+    public void rejected(long line, String message) {
+      events.add("line %d: %s".formatted(line, message));
+    }
+  }
+
+  JdbcTemplate jdbcTemplate;
+  CsvImporter importer;
+  RecordingListener listener = new RecordingListener();
+  /** the events published, with whether a transaction was open at the time */
+  List<String> published = new ArrayList<>();
+
+  void publish(Object event) {
+    published.add(event + (TransactionSynchronizationManager.isActualTransactionActive() ? " in a transaction" : ""));
+  }
+
+  @BeforeEach
+  void setup() {
+    DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute(MENU_ITEM_DDL);
+    jdbcTemplate.execute(DATES_DDL);
+    importer = new CsvImporter(jdbcTemplate, new DataSourceTransactionManager(dataSource), this::publish, 2);
+  }
+
+  @AfterEach
+  void teardown() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  CsvImporter.Result run(String csv, CsvImportTarget target) throws IOException {
+    return importer.importCsv(new StringReader(csv), target, listener);
+  }
+
+  @Test
+  void valid_rows_are_imported_in_chunks_and_bad_rows_are_reported() throws Exception {
+    String csv = """
+        station,name,diningCommonsCode,calories
+        Entrees,Baked Pesto Pasta,ortega,600
+        Desserts,,ortega,300
+        Grill,Cheeseburger,carrillo
+        Grill,"Fries, large",carrillo,400
+        Salads,Caesar,de-la-guerra,200
+        """;
+
+    CsvImporter.Result result = run(csv, CsvImportTargets.MENU_ITEMS);
+
+    assertEquals(new CsvImporter.Result(5, 3, 2), result);
+    assertEquals(List.of(
+        "line 3: name is required",
+        "line 4: expected 4 fields but found 3",
+        "progress 4 2",
+        "progress 5 3"), listener.events);
+    assertEquals(List.of("Baked Pesto Pasta", "Fries, large", "Caesar"),
+        jdbcTemplate.queryForList("SELECT NAME FROM ucsbdiningcommonsmenuitem ORDER BY ID", String.class));
+    String imported = new EntityChangeEvent("UCSBDiningCommonsMenuItem", ChangeAction.IMPORTED, null) + " in a transaction";
+    assertEquals(List.of(imported, imported), published);
+  }
+
+  @Test
+  void dates_are_imported() throws Exception {
+    run("quarterYYYYQ,name,localDateTime\n20244,First day of classes,2024-09-26T08:00:00\n", CsvImportTargets.UCSB_DATES);
+
+    assertEquals("20244", jdbcTemplate.queryForObject("SELECT QUARTERYYYYQ FROM UCSBDATES", String.class));
+    assertEquals(LocalDateTime.of(2024, 9, 26, 8, 0),
+        jdbcTemplate.queryForObject("SELECT LOCAL_DATE_TIME FROM UCSBDATES", LocalDateTime.class));
+  }
+
+  @Test
+  void missing_columns_stop_the_import() throws Exception {
+    CsvImporter.Result result = run("name,station\nCaesar,Salads\n", CsvImportTargets.MENU_ITEMS);
+
+    assertEquals(new CsvImporter.Result(0, 0, 0), result);
+    assertEquals(List.of("line 1: missing column(s) diningCommonsCode"), listener.events);
+  }
+
+  @Test
+  void empty_file_imports_nothing() throws Exception {
+    assertEquals(new CsvImporter.Result(0, 0, 0), run("", CsvImportTargets.MENU_ITEMS));
+    assertEquals(List.of(), listener.events);
+  }
+
+  @Test
+  void malformed_csv_stops_reading_but_keeps_what_was_imported() throws Exception {
+    String csv = "diningCommonsCode,name,station\nortega,a,b\nortega,b,c\nortega,\"c,d\n";
+
+    CsvImporter.Result result = run(csv, CsvImportTargets.MENU_ITEMS);
+
+    assertEquals(new CsvImporter.Result(2, 2, 0), result);
+    assertEquals(List.of("progress 2 2", "line 4: quoted field is never closed; the rest of the file was not read"),
+        listener.events);
+  }
+
+  @Test
+  void failed_chunk_is_rolled_back_and_reported() throws Exception {
+    CsvImportTarget missingTable = new CsvImportTarget("no_such_table", "Nothing", List.of("name"), List.of("name"),
+        row -> new Object[] { row.get("name") });
+
+    CsvImporter.Result result = run("name\na\nb\nc\n", missingTable);
+
+    assertEquals(new CsvImporter.Result(3, 0, 3), result);
+    assertEquals(4, listener.events.size());
+    assertEquals("line 2: lines 2 to 3 not imported: ", listener.events.get(0).substring(0, 35));
+    assertEquals("progress 2 0", listener.events.get(1));
+    assertEquals("line 4: lines 4 to 4 not imported: ", listener.events.get(2).substring(0, 35));
+    assertEquals("progress 3 0", listener.events.get(3));
+    assertEquals(List.of(), published);
+  }
+
+  CopyManager postgres() throws Exception {
+    DataSource dataSource = mock(DataSource.class);
+    Connection connection = mock(Connection.class);
+    PGConnection pgConnection = mock(PGConnection.class);
+    CopyManager copyManager = mock(CopyManager.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.isWrapperFor(PGConnection.class)).thenReturn(true);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    importer = new CsvImporter(new JdbcTemplate(dataSource), new DataSourceTransactionManager(dataSource), this::publish, 2);
+    return copyManager;
+  }
+
+  @Test
+  void postgres_chunks_are_sent_with_copy() throws Exception {
+    CopyManager copyManager = postgres();
+    List<String> copied = new ArrayList<>();
+    when(copyManager.copyIn(eq(CsvImportTargets.MENU_ITEMS.copySql()), any(Reader.class))).thenAnswer(invocation -> {
+      Reader reader = invocation.getArgument(1);
+      StringWriter text = new StringWriter();
+      reader.transferTo(text);
+      copied.add(text.toString());
+      return 1L;
+    });
+
+    CsvImporter.Result result = run("diningCommonsCode,name,station\nortega,\"say \"\"hi\"\"\",Grill\nortega,x,y\nortega,z,w\n",
+        CsvImportTargets.MENU_ITEMS);
+
+    assertEquals(new CsvImporter.Result(3, 3, 0), result);
+    assertEquals(List.of("\"ortega\",\"say \"\"hi\"\"\",\"Grill\"\n\"ortega\",\"x\",\"y\"\n", "\"ortega\",\"z\",\"w\"\n"),
+        copied);
+  }
+
+  @Test
+  void postgres_copy_failure_is_reported() throws Exception {
+    CopyManager copyManager = postgres();
+    when(copyManager.copyIn(any(String.class), any(Reader.class))).thenThrow(new IOException("connection reset"));
+
+    CsvImporter.Result result = run("diningCommonsCode,name,station\nortega,x,y\n", CsvImportTargets.MENU_ITEMS);
+
+    assertEquals(new CsvImporter.Result(1, 0, 1), result);
+    assertEquals("line 2: lines 2 to 2 not imported: connection reset", listener.events.get(0));
+  }
+}
@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.csvimport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class CsvParserTests {
+
+  @Test
+  void reads_records_and_their_line_numbers() throws Exception {
+    CsvParser parser = new CsvParser(new StringReader("a,b,c\r\n1,,3\n\n\r\nx,y,z"));
+
+    assertEquals(List.of("a", "b", "c"), parser.next());
+    assertEquals(1, parser.getRecordLine());
+    assertEquals(List.of("1", "", "3"), parser.next());
+    assertEquals(2, parser.getRecordLine());
+    assertEquals(List.of("x", "y", "z"), parser.next());
+    assertEquals(5, parser.getRecordLine());
+    assertNull(parser.next());
+  }
+
+  @Test
+  void quoted_fields_may_contain_commas_quotes_and_line_breaks() throws Exception {
+    CsvParser parser = new CsvParser(new StringReader("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\nnext,\"\"\r"));
+
+    assertEquals(List.of("a,b", "say \"hi\"", "two\nlines"), parser.next());
+    assertEquals(List.of("next", ""), parser.next());
+    assertEquals(3, parser.getRecordLine());
+    assertNull(parser.next());
+  }
+
+  @Test
+  void carriage_return_alone_ends_a_line() throws Exception {
+    CsvParser parser = new CsvParser(new StringReader("a\rb\r"));
+
+    assertEquals(List.of("a"), parser.next());
+    assertEquals(List.of("b"), parser.next());
+    assertEquals(2, parser.getRecordLine());
+    assertNull(parser.next());
+  }
+
+  @Test
+  void byte_order_mark_is_ignored() throws Exception {
+    CsvParser parser = new CsvParser(new StringReader("\uFEFFname,station\n"));
+
+    assertEquals(List.of("name", "station"), parser.next());
+  }
+
+  @Test
+  void empty_input_has_no_records() throws Exception {
+    assertNull(new CsvParser(new StringReader("")).next());
+  }
+
+  @Test
+  void unclosed_quote_is_an_error() throws Exception {
+    CsvParser parser = new CsvParser(new StringReader("a\n\"b\nc"));
+    parser.next();
+
+    CsvParser.CsvFormatException e = assertThrows(CsvParser.CsvFormatException.class, parser::next);
+    assertEquals(2, e.getLine());
+    assertEquals("quoted field is never closed", e.getMessage());
+  }
+}
@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class ReadWriteRoutingDataSourceTests {
+
+  SingleConnectionDataSource primary;
+  SingleConnectionDataSource replica;
+  ReadWriteRoutingDataSource dataSource;
+  JdbcTemplate jdbcTemplate;
+  TransactionTemplate transactions;
+
+  static SingleConnectionDataSource database(String name) {
+    SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+        "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "", true);
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE WHICH (NAME VARCHAR(16))");
+    jdbcTemplate.update("INSERT INTO WHICH VALUES (?)", name);
+    return dataSource;
+  }
+
+  @BeforeEach
+  void setup() {
+    primary = database("primary");
+    replica = database("replica");
+    dataSource = new ReadWriteRoutingDataSource(primary, replica);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    dataSource.close();
+  }
+
+  String which() {
+    return jdbcTemplate.queryForObject("SELECT NAME FROM WHICH", String.class);
+  }
+
+  @Test
+  void read_only_transactions_use_the_replica() {
+    transactions.setReadOnly(true);
+    assertEquals("replica", transactions.execute(status -> which()));
+  }
+
+  @Test
+  void read_write_transactions_use_the_primary() {
+    assertEquals("primary", transactions.execute(status -> which()));
+  }
+
+  @Test
+  void statements_outside_transactions_use_the_primary() {
+    assertEquals("primary", which());
+  }
+
+  @Test
+  void targets_are_exposed_and_non_closeable_targets_are_left_alone() throws Exception {
+    assertSame(primary, dataSource.getPrimary());
+    assertSame(replica, dataSource.getReplica());
+    new ReadWriteRoutingDataSource(new SimpleDriverDataSource(), new SimpleDriverDataSource()).close();
+  }
+}
@@ -0,0 +1,217 @@
+package edu.ucsb.cs156.example.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class ChangeFeedTests {
+
+  /**
+   * An emitter that records each frame it is asked to send, and can be made
+   * to block or fail.
+   */
+  static class RecordingEmitter extends SseEmitter {
+    final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+    final CountDownLatch sending = new CountDownLatch(1);
+    volatile CountDownLatch gate;
+    volatile IOException failWith;
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      sending.countDown();
+      if (failWith != null) {
+        throw failWith;
+      }
+      try {
+        if (gate != null) {
+          gate.await();
+        }
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      StringBuilder frame = new StringBuilder();
+      builder.build().forEach(part -> frame.append(part.getData()));
+      frames.add(frame.toString());
+    }
+
+    String nextFrame() throws InterruptedException {
+      return frames.poll(5, TimeUnit.SECONDS);
+    }
+  }
+
+  static EntityChangeEvent event(String type, Object id) {
+    return new EntityChangeEvent(type, ChangeAction.CREATED, id);
+  }
+
+  ChangeFeed feed;
+
+  @BeforeEach
+  public void setup() {
+    // heartbeats are sent by calling sendHeartbeats, not on a timer
+    feed = new ChangeFeed(2, Duration.ofHours(1));
+    feed.start();
+  }
+
+  @AfterEach
+  public void teardown() {
+    feed.stop();
+  }
+
+  @Test
+  public void events_are_sent_to_subscribers_of_their_type() throws Exception {
+    RecordingEmitter all = new RecordingEmitter();
+    RecordingEmitter dates = new RecordingEmitter();
+    RecordingEmitter articles = new RecordingEmitter();
+    RecordingEmitter empty = new RecordingEmitter();
+    feed.subscribe(all, null);
+    feed.subscribe(dates, Set.of("ucsbdate"));
+    feed.subscribe(articles, Set.of("Articles"));
+    feed.subscribe(empty, Set.of());
+
+    feed.onChange(event("UCSBDate", 7L));
+
+    String expected = "event:UCSBDate\ndata:" + event("UCSBDate", 7L) + "\n\n";
+    assertEquals(expected, all.nextFrame());
+    assertEquals(expected, dates.nextFrame());
+    assertEquals(expected, empty.nextFrame());
+    assertNull(articles.frames.poll(100, TimeUnit.MILLISECONDS));
+    assertEquals(Map.of("subscribers", 4L, "published", 1L, "dropped", 0L), feed.getStats());
+  }
+
+  @Test
+  public void oldest_events_are_dropped_for_a_slow_subscriber() throws Exception {
+    RecordingEmitter slow = new RecordingEmitter();
+    slow.gate = new CountDownLatch(1);
+    feed.subscribe(slow, null);
+
+    feed.onChange(event("UCSBDate", 1L));
+    assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+    // the buffer holds two, so 2 is dropped to make room for 4
+    feed.onChange(event("UCSBDate", 2L));
+    feed.onChange(event("UCSBDate", 3L));
+    feed.onChange(event("UCSBDate", 4L));
+    slow.gate.countDown();
+
+    assertEquals("event:UCSBDate\ndata:" + event("UCSBDate", 1L) + "\n\n", slow.nextFrame());
+    assertEquals("event:dropped\ndata:1\n\n", slow.nextFrame());
+    assertEquals("event:UCSBDate\ndata:" + event("UCSBDate", 3L) + "\n\n", slow.nextFrame());
+    assertEquals("event:UCSBDate\ndata:" + event("UCSBDate", 4L) + "\n\n", slow.nextFrame());
+    assertEquals(Map.of("subscribers", 1L, "published", 4L, "dropped", 1L), feed.getStats());
+  }
+
+  @Test
+  public void heartbeats_are_sent_only_to_idle_subscribers() throws Exception {
+    RecordingEmitter emitter = new RecordingEmitter();
+    feed.subscribe(emitter, null);
+
+    feed.sendHeartbeats();
+    assertEquals(":heartbeat\n\n", emitter.nextFrame());
+
+    feed.onChange(event("Articles", 1L));
+    assertEquals("event:Articles\ndata:" + event("Articles", 1L) + "\n\n", emitter.nextFrame());
+    feed.sendHeartbeats();
+    assertNull(emitter.frames.poll(100, TimeUnit.MILLISECONDS));
+
+    feed.sendHeartbeats();
+    assertEquals(":heartbeat\n\n", emitter.nextFrame());
+  }
+
+  @Test
+  public void subscriber_is_removed_when_sending_fails() throws Exception {
+    RecordingEmitter emitter = new RecordingEmitter();
+    emitter.failWith = new IOException("Broken pipe");
+    feed.subscribe(emitter, null);
+
+    feed.onChange(event("Articles", 1L));
+
+    assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (feed.getStats().get("subscribers") != 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0L, feed.getStats().get("subscribers"));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void subscriber_is_removed_on_completion_timeout_or_error() {
+    SseEmitter completed = mock(SseEmitter.class);
+    SseEmitter timedOut = mock(SseEmitter.class);
+    SseEmitter failed = mock(SseEmitter.class);
+    feed.subscribe(completed, null);
+    feed.subscribe(timedOut, null);
+    feed.subscribe(failed, null);
+    assertEquals(3L, feed.getStats().get("subscribers"));
+
+    ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+    verify(completed).onCompletion(onCompletion.capture());
+    onCompletion.getValue().run();
+    ArgumentCaptor<Runnable> onTimeout = ArgumentCaptor.forClass(Runnable.class);
+    verify(timedOut).onTimeout(onTimeout.capture());
+    onTimeout.getValue().run();
+    ArgumentCaptor<Consumer<Throwable>> onError = ArgumentCaptor.forClass(Consumer.class);
+    verify(failed).onError(onError.capture());
+    onError.getValue().accept(new IOException("Broken pipe"));
+
+    assertEquals(0L, feed.getStats().get("subscribers"));
+  }
+
+  @Test
+  public void stop_completes_every_emitter() {
+    SseEmitter emitter = mock(SseEmitter.class);
+    feed.subscribe(emitter, null);
+
+    feed.stop();
+
+    verify(emitter).complete();
+    assertEquals(0L, feed.getStats().get("subscribers"));
+  }
+
+  @Test
+  public void subscriber_buffer_drops_oldest_and_drains_once() {
+    ChangeFeed.Subscriber subscriber = new ChangeFeed.Subscriber(mock(SseEmitter.class), null, 2);
+
+    assertTrue(subscriber.offer(event("A", 1)));
+    assertFalse(subscriber.offer(event("A", 2)));
+    assertFalse(subscriber.offer(event("A", 3)));
+    assertFalse(subscriber.heartbeatDue());
+
+    assertEquals(new ChangeFeed.Subscriber.Next(event("A", 2), 1), subscriber.next());
+    assertEquals(new ChangeFeed.Subscriber.Next(event("A", 3), 0), subscriber.next());
+    assertNull(subscriber.next());
+
+    assertTrue(subscriber.offer(event("A", 4)));
+  }
+
+  @Test
+  public void closed_subscriber_accepts_nothing() {
+    ChangeFeed.Subscriber subscriber = new ChangeFeed.Subscriber(mock(SseEmitter.class), null, 2);
+    subscriber.offer(event("A", 1));
+
+    subscriber.close();
+
+    assertNull(subscriber.next());
+    assertFalse(subscriber.offer(event("A", 2)));
+    assertFalse(subscriber.heartbeatDue());
+  }
+}
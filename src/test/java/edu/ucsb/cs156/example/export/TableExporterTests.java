@@ -0,0 +1,137 @@
+package edu.ucsb.cs156.example.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class TableExporterTests {
+
+  /** the table from db/migration/changes/HelpRequest.json */
+  static final String DDL = "CREATE TABLE HELPREQUEST (ID BIGINT AUTO_INCREMENT PRIMARY KEY, REQUESTER_EMAIL VARCHAR(255), "
+      + "TEAM_ID VARCHAR(255), TABLE_OR_BREAKOUT_ROOM VARCHAR(255), REQUEST_TIME TIMESTAMP, EXPLANATION VARCHAR(255), "
+      + "SOLVED BOOLEAN)";
+
+  JdbcTemplate jdbcTemplate;
+  TableExporter exporter;
+
+  @BeforeEach
+  void setup() {
+    DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute(DDL);
+    jdbcTemplate.update("INSERT INTO HELPREQUEST (REQUESTER_EMAIL, TEAM_ID, TABLE_OR_BREAKOUT_ROOM, REQUEST_TIME, EXPLANATION, SOLVED) "
+        + "VALUES ('a@ucsb.edu', 's22-5pm-3', '7', '2024-09-30 10:00:00', 'plain', false)");
+    jdbcTemplate.update("INSERT INTO HELPREQUEST (REQUESTER_EMAIL, TEAM_ID, TABLE_OR_BREAKOUT_ROOM, REQUEST_TIME, EXPLANATION, SOLVED) "
+        + "VALUES ('b@ucsb.edu', 's22-5pm-3', '8', '2024-10-02 10:00:00', 'needs \"help\", now', true)");
+    jdbcTemplate.update("INSERT INTO HELPREQUEST (REQUESTER_EMAIL, TEAM_ID, TABLE_OR_BREAKOUT_ROOM, REQUEST_TIME, EXPLANATION, SOLVED) "
+        + "VALUES ('c@ucsb.edu', 's22-6pm-1', '9', NULL, 'no time', false)");
+    exporter = new TableExporter(dataSource, new DataSourceTransactionManager(dataSource), 2, 1);
+  }
+
+  @AfterEach
+  void teardown() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  String export(LocalDateTime from, LocalDateTime to, long expectedRows) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(expectedRows, exporter.export(ExportTable.HELPREQUEST, from, to, out));
+    return new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+        StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void whole_table_is_exported_as_csv() throws Exception {
+    assertEquals("""
+        id,requester_email,team_id,table_or_breakout_room,request_time,explanation,solved
+        1,a@ucsb.edu,s22-5pm-3,7,2024-09-30T10:00,plain,false
+        2,b@ucsb.edu,s22-5pm-3,8,2024-10-02T10:00,"needs ""help"", now",true
+        3,c@ucsb.edu,s22-6pm-1,9,,no time,false
+        """, export(null, null, 3));
+  }
+
+  @Test
+  void rows_are_filtered_by_date() throws Exception {
+    LocalDateTime october = LocalDateTime.of(2024, 10, 1, 0, 0);
+
+    assertEquals(2, export(october, null, 1).lines().count());
+    assertEquals(2, export(null, october, 1).lines().count());
+    assertEquals(1, export(october, october, 0).lines().count());
+  }
+
+  @Test
+  void only_max_concurrent_exports_can_be_reserved_at_once() throws Exception {
+    TableExporter.Export first = exporter.reserve(ExportTable.HELPREQUEST, null, null);
+    assertNull(exporter.reserve(ExportTable.HELPREQUEST, null, null));
+
+    assertEquals(3, first.writeTo(new ByteArrayOutputStream()));
+
+    assertNotNull(exporter.reserve(ExportTable.HELPREQUEST, null, null));
+  }
+
+  @Test
+  void a_failed_export_frees_its_slot() {
+    TableExporter.Export failing = exporter.reserve(ExportTable.HELPREQUEST, null, null);
+
+    assertThrows(IOException.class, () -> failing.writeTo(new BrokenOutputStream()));
+
+    assertNotNull(exporter.reserve(ExportTable.HELPREQUEST, null, null));
+  }
+
+  /** a response whose client goes away after the gzip header was sent */
+  static class BrokenOutputStream extends OutputStream {
+    final IOException failure = new IOException("client went away");
+    boolean headerWritten;
+
+    @Override
+    public void write(int b) throws IOException {
+      throw failure;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (headerWritten) {
+        throw failure;
+      }
+      headerWritten = true;
+    }
+  }
+
+  @Test
+  void write_failures_while_reading_rows_are_thrown() {
+    // enough random text that gzip writes to the response before the query is done
+    jdbcTemplate.update("INSERT INTO HELPREQUEST (EXPLANATION) SELECT RANDOM_UUID() FROM SYSTEM_RANGE(1, 20000)");
+    BrokenOutputStream broken = new BrokenOutputStream();
+
+    assertSame(broken.failure, assertThrows(IOException.class,
+        () -> exporter.export(ExportTable.HELPREQUEST, null, null, broken)));
+  }
+
+  @Test
+  void tables_are_looked_up_ignoring_case() {
+    assertEquals(Optional.of(ExportTable.MENUITEMREVIEW), ExportTable.forName("MenuItemReview"));
+    assertEquals(Optional.empty(), ExportTable.forName("users"));
+    assertEquals("DATE_REQUESTED", ExportTable.UCSBRECOMMENDATIONREQUESTS.getDateColumn());
+  }
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class IdempotencyFilterTests {
+
+  IdempotencyProperties properties = new IdempotencyProperties();
+  JdbcTemplate jdbcTemplate = IdempotencyStoreTests.newDatabase();
+  IdempotencyStore store = new IdempotencyStore(jdbcTemplate, properties, System::currentTimeMillis);
+  CurrentUserService currentUserService = mock(CurrentUserService.class);
+  IdempotencyFilter filter = new IdempotencyFilter(store, currentUserService);
+  AtomicInteger inserts = new AtomicInteger();
+  int status = 200;
+
+  // stands in for a controller's /post handler
+  HttpServlet handler = new HttpServlet() {
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+      int id = inserts.incrementAndGet();
+      response.setStatus(status);
+      response.setContentType("application/json");
+      response.getWriter().write("{\"id\":" + id + ",\"title\":\"" + request.getParameter("title") + "\"}");
+    }
+  };
+
+  @BeforeEach
+  void setup() {
+    when(currentUserService.getPrincipalName()).thenReturn("cgaucho@ucsb.edu");
+  }
+
+  MockHttpServletResponse post(String uri, String key, String title) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+    if (key != null) {
+      request.addHeader(IdempotencyFilter.HEADER, key);
+    }
+    request.setParameter("title", title);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain(handler));
+    return response;
+  }
+
+  @Test
+  void a_retry_gets_the_original_response_without_inserting_again() throws Exception {
+    MockHttpServletResponse original = post("/api/articles/post", "abc", "First");
+    MockHttpServletResponse retry = post("/api/articles/post", "abc", "First");
+
+    assertEquals(1, inserts.get());
+    assertEquals("{\"id\":1,\"title\":\"First\"}", original.getContentAsString());
+    assertNull(original.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    assertEquals(200, retry.getStatus());
+    assertEquals("application/json", retry.getContentType());
+    assertEquals(original.getContentAsString(), retry.getContentAsString());
+    assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+  }
+
+  @Test
+  void requests_without_a_key_are_not_affected() throws Exception {
+    post("/api/articles/post", null, "First");
+    post("/api/articles/post", null, "First");
+    assertEquals(2, inserts.get());
+  }
+
+  @Test
+  void keys_are_scoped_to_the_user_and_the_endpoint() throws Exception {
+    when(currentUserService.getPrincipalName()).thenReturn("cgaucho@ucsb.edu", "cgaucho@ucsb.edu", "ldelplaya@ucsb.edu");
+    post("/api/articles/post", "abc", "First");
+    post("/api/helprequest/post", "abc", "First");
+    post("/api/articles/post", "abc", "First");
+    assertEquals(3, inserts.get());
+  }
+
+  @Test
+  void reusing_a_key_for_different_parameters_is_refused() throws Exception {
+    post("/api/articles/post", "abc", "First");
+    MockHttpServletResponse response = post("/api/articles/post", "abc", "Second");
+    assertEquals(422, response.getStatus());
+    assertEquals("{\"type\":\"UnprocessableEntity\",\"message\":\"Idempotency-Key was already used for a different request\"}",
+        response.getContentAsString());
+    assertEquals(1, inserts.get());
+  }
+
+  @Test
+  void failed_requests_are_not_stored() throws Exception {
+    status = 500;
+    assertEquals(500, post("/api/articles/post", "abc", "First").getStatus());
+    status = 200;
+    MockHttpServletResponse retry = post("/api/articles/post", "abc", "First");
+    assertEquals("{\"id\":2,\"title\":\"First\"}", retry.getContentAsString());
+    assertEquals(2, inserts.get());
+  }
+
+  @Test
+  void requests_from_users_who_are_not_logged_in_skip_the_store() throws Exception {
+    when(currentUserService.getPrincipalName()).thenReturn(null);
+    post("/api/articles/post", "abc", "First");
+    post("/api/articles/post", "abc", "First");
+    assertEquals(2, inserts.get());
+    assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM IDEMPOTENCY_KEYS", Integer.class));
+  }
+
+  @Test
+  void invalid_keys_are_rejected() throws Exception {
+    assertEquals(400, post("/api/articles/post", " ", "First").getStatus());
+    assertEquals(400, post("/api/articles/post", "x".repeat(256), "First").getStatus());
+    assertEquals(0, inserts.get());
+  }
+
+  @Test
+  void a_duplicate_of_a_request_still_running_elsewhere_gets_a_409() throws Exception {
+    properties.setWaitTimeout(Duration.ofMillis(50));
+    IdempotencyStore otherInstance = new IdempotencyStore(jdbcTemplate, properties, System::currentTimeMillis);
+    String id = IdempotencyFilter.sha256("cgaucho@ucsb.edu\n/api/articles/post\nabc");
+    assertNull(otherInstance.claim(id, IdempotencyFilter.sha256("title=First\n")));
+
+    MockHttpServletResponse response = post("/api/articles/post", "abc", "First");
+
+    assertEquals(409, response.getStatus());
+    assertEquals(0, inserts.get());
+  }
+
+  @Test
+  void only_post_endpoints_are_filtered() throws Exception {
+    MockHttpServletRequest put = new MockHttpServletRequest("PUT", "/api/articles");
+    put.addHeader(IdempotencyFilter.HEADER, "abc");
+    MockHttpServletRequest other = new MockHttpServletRequest("POST", "/api/articles/import");
+    other.addHeader(IdempotencyFilter.HEADER, "abc");
+    MockHttpServletRequest post = new MockHttpServletRequest("POST", "/api/articles/post");
+    post.addHeader(IdempotencyFilter.HEADER, "abc");
+
+    assertEquals(true, filter.shouldNotFilter(put));
+    assertEquals(true, filter.shouldNotFilter(other));
+    assertEquals(false, filter.shouldNotFilter(post));
+  }
+}
@@ -0,0 +1,213 @@
+package edu.ucsb.cs156.example.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class IdempotencyStoreTests {
+
+  /** the table from db/migration/changes/IdempotencyKeys.json */
+  static final String DDL = "CREATE TABLE IDEMPOTENCY_KEYS (ID VARCHAR(64) PRIMARY KEY, REQUEST_HASH VARCHAR(64) NOT NULL, "
+      + "STATUS INT NOT NULL, CONTENT_TYPE VARCHAR(255), BODY BLOB, CREATED_AT BIGINT NOT NULL, EXPIRES_AT BIGINT NOT NULL)";
+
+  static JdbcTemplate newDatabase() {
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(
+        new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute(DDL);
+    return jdbcTemplate;
+  }
+
+  static IdempotencyStore.StoredResponse response(String body) {
+    return new IdempotencyStore.StoredResponse("hash", 200, "application/json", body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  AtomicLong now = new AtomicLong(1_000_000);
+  JdbcTemplate jdbcTemplate;
+  IdempotencyProperties properties = new IdempotencyProperties();
+  // two stores on one database stand in for two instances of the app
+  IdempotencyStore first;
+  IdempotencyStore second;
+
+  @BeforeEach
+  void setup() {
+    properties.setWaitTimeout(Duration.ofSeconds(5));
+    jdbcTemplate = newDatabase();
+    first = new IdempotencyStore(jdbcTemplate, properties, now::get);
+    second = new IdempotencyStore(jdbcTemplate, properties, now::get);
+  }
+
+  @AfterEach
+  void teardown() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  int rows() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM IDEMPOTENCY_KEYS", Integer.class);
+  }
+
+  @Test
+  void the_first_claim_runs_and_later_claims_get_the_response() throws Exception {
+    assertNull(first.claim("key", "hash"));
+    IdempotencyStore.StoredResponse response = response("{\"id\":1}");
+    first.complete("key", response);
+
+    assertSame(response, first.claim("key", "hash"));
+    IdempotencyStore.StoredResponse fromDatabase = second.claim("key", "hash");
+    assertEquals(200, fromDatabase.status());
+    assertEquals("application/json", fromDatabase.contentType());
+    assertArrayEquals(response.body(), fromDatabase.body());
+    assertEquals(1, first.getCacheSize());
+  }
+
+  @Test
+  void an_abandoned_key_can_be_claimed_again() throws Exception {
+    assertNull(first.claim("key", "hash"));
+    first.abandon("key");
+    assertEquals(0, rows());
+    assertNull(second.claim("key", "hash"));
+  }
+
+  @Test
+  void a_key_in_progress_on_another_instance_times_out() throws Exception {
+    properties.setWaitTimeout(Duration.ofMillis(120));
+    assertNull(first.claim("key", "hash"));
+    assertThrows(TimeoutException.class, () -> second.claim("key", "hash"));
+  }
+
+  @Test
+  void a_key_left_in_progress_by_a_dead_instance_is_reclaimed() throws Exception {
+    assertNull(first.claim("key", "hash"));
+    now.addAndGet(properties.getInProgressTimeout().toMillis() + 1);
+    assertNull(second.claim("key", "hash"));
+  }
+
+  @Test
+  void a_key_renewed_by_its_instance_is_not_reclaimed() throws Exception {
+    properties.setWaitTimeout(Duration.ofMillis(120));
+    long timeout = properties.getInProgressTimeout().toMillis();
+    assertEquals(0, first.heartbeat());
+    assertNull(first.claim("key", "hash"));
+    now.addAndGet(timeout * 2 / 3);
+    assertEquals(1, first.heartbeat());
+    now.addAndGet(timeout * 2 / 3);
+
+    assertThrows(TimeoutException.class, () -> second.claim("key", "hash"));
+    first.complete("key", response("done"));
+    assertEquals(0, first.heartbeat());
+  }
+
+  @Test
+  void a_failed_heartbeat_is_logged_and_retried() throws Exception {
+    assertNull(first.claim("key", "hash"));
+    jdbcTemplate.execute("DROP TABLE IDEMPOTENCY_KEYS");
+    assertEquals(0, first.heartbeat());
+    jdbcTemplate.execute(DDL);
+  }
+
+  @Test
+  void background_tasks_start_and_stop() throws Exception {
+    properties.setInProgressTimeout(Duration.ofMillis(30));
+    first.start();
+    try {
+      assertNull(first.claim("key", "hash"));
+      now.addAndGet(1000);
+      Thread.sleep(100);
+      long expiresAt = jdbcTemplate.queryForObject("SELECT EXPIRES_AT FROM IDEMPOTENCY_KEYS", Long.class);
+      assertEquals(now.get() + 30, expiresAt);
+    } finally {
+      first.stop();
+    }
+  }
+
+  @Test
+  void waiting_on_another_instance_returns_its_response() throws Exception {
+    assertNull(first.claim("key", "hash"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<IdempotencyStore.StoredResponse> waiting = executor.submit(() -> second.claim("key", "hash"));
+      Thread.sleep(100);
+      first.complete("key", response("done"));
+      assertEquals("done", new String(waiting.get().body(), StandardCharsets.UTF_8));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void expired_keys_are_deleted() throws Exception {
+    assertNull(first.claim("old", "hash"));
+    first.complete("old", response("old"));
+    now.addAndGet(properties.getTtl().toMillis() + 1);
+    assertNull(first.claim("new", "hash"));
+    first.complete("new", response("new"));
+
+    assertEquals(1, first.reapExpired());
+    assertEquals(1, rows());
+    assertEquals(1, first.getCacheSize());
+    assertNull(second.claim("old", "hash"));
+  }
+
+  @Test
+  void the_cache_is_bounded() throws Exception {
+    properties.setCacheMaxEntries(2);
+    IdempotencyStore store = new IdempotencyStore(jdbcTemplate, properties, now::get);
+    for (String key : List.of("a", "b", "c")) {
+      assertNull(store.claim(key, "hash"));
+      store.complete(key, response(key));
+    }
+    assertEquals(2, store.getCacheSize());
+    assertEquals("a", new String(store.claim("a", "hash").body(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void concurrent_duplicates_run_once() throws Exception {
+    int threads = 16;
+    AtomicInteger runs = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<IdempotencyStore.StoredResponse>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        // half of the requests go to each instance
+        IdempotencyStore store = i % 2 == 0 ? first : second;
+        results.add(executor.submit(() -> {
+          IdempotencyStore.StoredResponse stored = store.claim("key", "hash");
+          if (stored != null) {
+            return stored;
+          }
+          runs.incrementAndGet();
+          Thread.sleep(50);
+          IdempotencyStore.StoredResponse response = response("ran once");
+          store.complete("key", response);
+          return response;
+        }));
+      }
+      for (Future<IdempotencyStore.StoredResponse> result : results) {
+        assertEquals("ran once", new String(result.get().body(), StandardCharsets.UTF_8));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, runs.get());
+    assertEquals(1, rows());
+  }
+}
@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+public class MpscRingBufferTests {
+
+  @Test
+  void capacity_is_rounded_up_to_a_power_of_two() {
+    assertEquals(1, new MpscRingBuffer<String>(1).getCapacity());
+    assertEquals(2, new MpscRingBuffer<String>(2).getCapacity());
+    assertEquals(4, new MpscRingBuffer<String>(3).getCapacity());
+    assertEquals(1024, new MpscRingBuffer<String>(1000).getCapacity());
+    assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>(0));
+    assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>((1 << 30) + 1));
+  }
+
+  @Test
+  void offer_fails_when_full_and_drain_makes_room_in_order() {
+    MpscRingBuffer<String> buffer = new MpscRingBuffer<>(2);
+    assertTrue(buffer.offer("a"));
+    assertTrue(buffer.offer("b"));
+    assertFalse(buffer.offer("c"));
+    assertEquals(2, buffer.size());
+
+    List<String> drained = new ArrayList<>();
+    assertEquals(1, buffer.drain(drained::add, 1));
+    assertTrue(buffer.offer("c"));
+    assertEquals(2, buffer.drain(drained::add, 10));
+    assertEquals(0, buffer.drain(drained::add, 10));
+    assertEquals(List.of("a", "b", "c"), drained);
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  void concurrent_producers_lose_nothing() throws Exception {
+    int producers = 8;
+    int perProducer = 20_000;
+    MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(64);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int base = p * perProducer;
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < perProducer; i++) {
+          while (!buffer.offer(base + i)) {
+            Thread.onSpinWait();
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+
+    Set<Integer> seen = new HashSet<>();
+    int[] lastPerProducer = new int[producers];
+    java.util.Arrays.fill(lastPerProducer, -1);
+    while (seen.size() < producers * perProducer) {
+      buffer.drain(value -> {
+        seen.add(value);
+        // each producer's elements come out in the order it offered them
+        int producer = value / perProducer;
+        assertTrue(value % perProducer > lastPerProducer[producer]);
+        lastPerProducer[producer] = value % perProducer;
+      }, 100);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(producers * perProducer, seen.size());
+    assertEquals(0, buffer.size());
+  }
+}
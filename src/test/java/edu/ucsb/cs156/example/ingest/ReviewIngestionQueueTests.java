@@ -0,0 +1,295 @@
+package edu.ucsb.cs156.example.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+import edu.ucsb.cs156.example.models.ReviewSubmission;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
+
+public class ReviewIngestionQueueTests {
+
+  @TempDir
+  Path tempDir;
+
+  ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  MenuItemReviewRepository repository = mock(MenuItemReviewRepository.class);
+  PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+  MissingEntityCache missingEntityCache = mock(MissingEntityCache.class);
+  ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+  AtomicLong nextId = new AtomicLong(1);
+  ReviewIngestionQueue queue;
+
+  static MenuItemReview review(String comments) {
+    return MenuItemReview.builder()
+        .reviewerEmail("cgaucho@ucsb.edu")
+        .stars(4)
+        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .comments(comments)
+        .build();
+  }
+
+  void savesAssignIds() {
+    when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<MenuItemReview> reviews = invocation.getArgument(0);
+      reviews.forEach(review -> review.setId(nextId.getAndIncrement()));
+      return reviews;
+    });
+  }
+
+  ReviewIngestionQueue queue(int capacity, int batchSize, long flushIntervalMillis, String journal) throws Exception {
+    queue = new ReviewIngestionQueue(repository, transactionManager, missingEntityCache, eventPublisher, mapper, true, capacity, batchSize, flushIntervalMillis, journal, false, 100, 1);
+    queue.start();
+    return queue;
+  }
+
+  ReviewSubmission awaitDone(String trackingId) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (System.nanoTime() < deadline) {
+      ReviewSubmission submission = queue.getStatus(trackingId);
+      if (submission.getState() != ReviewSubmission.State.QUEUED) {
+        return submission;
+      }
+      Thread.sleep(5);
+    }
+    throw new AssertionError("review " + trackingId + " was not written");
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    if (queue != null) {
+      queue.stop();
+    }
+  }
+
+  @Test
+  void disabled_queue_does_nothing() throws Exception {
+    ReviewIngestionQueue disabled = new ReviewIngestionQueue(repository, transactionManager, missingEntityCache, eventPublisher, mapper, false, 16, 10, 10, "", false, 100, 1);
+    disabled.start();
+    disabled.stop();
+    assertFalse(disabled.getEnabled());
+    assertThrows(IllegalStateException.class, () -> disabled.submit(review("too early")));
+    assertEquals(false, disabled.getStats().get("enabled"));
+  }
+
+  @Test
+  void submitted_reviews_are_saved_after_the_flush_interval() throws Exception {
+    savesAssignIds();
+    queue(16, 100, 20, "");
+
+    ReviewSubmission submission = queue.submit(review("tasty"));
+    assertEquals(ReviewSubmission.State.QUEUED, submission.getState());
+
+    ReviewSubmission done = awaitDone(submission.getTrackingId());
+    assertEquals(ReviewSubmission.State.SAVED, done.getState());
+    assertEquals(1L, done.getReviewId());
+    assertEquals(1L, queue.getStats().get("saved"));
+    assertEquals(1L, queue.getStats().get("accepted"));
+    assertTrue(queue.getEnabled());
+    InOrder inTransaction = inOrder(transactionManager, repository, eventPublisher, missingEntityCache);
+    inTransaction.verify(transactionManager).getTransaction(any());
+    inTransaction.verify(repository).saveAll(anyList());
+    inTransaction.verify(eventPublisher).publishEvent(new EntityChangeEvent("MenuItemReview", ChangeAction.CREATED, 1L));
+    inTransaction.verify(transactionManager).commit(any());
+    inTransaction.verify(missingEntityCache).forget(MenuItemReview.class, 1L);
+  }
+
+  @Test
+  void a_review_saved_directly_is_announced_in_its_transaction() throws Exception {
+    queue = new ReviewIngestionQueue(repository, transactionManager, missingEntityCache, eventPublisher, mapper, false,
+        16, 10, 10, "", false, 100, 1);
+    MenuItemReview review = review("right now");
+    when(repository.save(review)).thenAnswer(invocation -> {
+      review.setId(7);
+      return review;
+    });
+
+    assertEquals(7L, queue.save(review).getId());
+
+    InOrder inTransaction = inOrder(transactionManager, repository, eventPublisher, missingEntityCache);
+    inTransaction.verify(transactionManager).getTransaction(any());
+    inTransaction.verify(repository).save(review);
+    inTransaction.verify(eventPublisher).publishEvent(new EntityChangeEvent("MenuItemReview", ChangeAction.CREATED, 7L));
+    inTransaction.verify(transactionManager).commit(any());
+    inTransaction.verify(missingEntityCache).forget(MenuItemReview.class, 7L);
+  }
+
+  @Test
+  void a_full_batch_is_saved_without_waiting_for_the_interval() throws Exception {
+    savesAssignIds();
+    queue(16, 3, TimeUnit.HOURS.toMillis(1), "");
+
+    ReviewSubmission first = queue.submit(review("one"));
+    queue.submit(review("two"));
+    ReviewSubmission third = queue.submit(review("three"));
+
+    assertEquals(ReviewSubmission.State.SAVED, awaitDone(third.getTrackingId()).getState());
+    assertEquals(ReviewSubmission.State.SAVED, queue.getStatus(first.getTrackingId()).getState());
+    verify(repository, times(1)).saveAll(anyList());
+    assertEquals(1L, queue.getStats().get("batches"));
+  }
+
+  @Test
+  void a_full_queue_rejects_submissions() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+      release.await();
+      return invocation.getArgument(0);
+    });
+    queue(2, 1, 1, "");
+
+    // the first is taken by the writer, which then blocks; two more fill the buffer
+    queue.submit(review("one"));
+    Thread.sleep(50);
+    queue.submit(review("two"));
+    queue.submit(review("three"));
+    assertNull(queue.submit(review("four")));
+    assertEquals(1L, queue.getStats().get("rejected"));
+    assertEquals(2, queue.getStats().get("queued"));
+    release.countDown();
+  }
+
+  @Test
+  void reviews_that_cannot_be_saved_are_marked_failed() throws Exception {
+    when(repository.saveAll(anyList())).thenThrow(new IllegalStateException("database is down"));
+    queue(16, 1, 1, "");
+
+    ReviewSubmission submission = queue.submit(review("doomed"));
+
+    assertEquals(ReviewSubmission.State.FAILED, awaitDone(submission.getTrackingId()).getState());
+    verify(repository, times(3)).saveAll(anyList());
+    assertEquals(1L, queue.getStats().get("failed"));
+    verify(eventPublisher, never()).publishEvent(any(Object.class));
+  }
+
+  @Test
+  void a_batch_that_fails_briefly_is_saved_on_a_later_attempt() throws Exception {
+    when(repository.saveAll(anyList()))
+        .thenThrow(new IllegalStateException("connection reset"))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    queue(16, 1, 1, "");
+
+    ReviewSubmission submission = queue.submit(review("lucky"));
+
+    assertEquals(ReviewSubmission.State.SAVED, awaitDone(submission.getTrackingId()).getState());
+    verify(repository, times(2)).saveAll(anyList());
+  }
+
+  @Test
+  void one_bad_review_only_fails_itself() throws Exception {
+    when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<MenuItemReview> reviews = invocation.getArgument(0);
+      if (reviews.stream().anyMatch(review -> review.getComments().equals("bad"))) {
+        throw new IllegalStateException("value too long");
+      }
+      reviews.forEach(review -> review.setId(nextId.getAndIncrement()));
+      return reviews;
+    });
+    Path journal = tempDir.resolve("reviews.log");
+    queue(16, 3, TimeUnit.HOURS.toMillis(1), journal.toString());
+
+    ReviewSubmission good = queue.submit(review("good"));
+    ReviewSubmission bad = queue.submit(review("bad"));
+    ReviewSubmission alsoGood = queue.submit(review("also good"));
+
+    assertEquals(ReviewSubmission.State.SAVED, awaitDone(good.getTrackingId()).getState());
+    assertEquals(ReviewSubmission.State.FAILED, awaitDone(bad.getTrackingId()).getState());
+    assertEquals(ReviewSubmission.State.SAVED, awaitDone(alsoGood.getTrackingId()).getState());
+    // three tries of the batch, then one per review
+    verify(repository, times(6)).saveAll(anyList());
+    assertEquals(2L, queue.getStats().get("saved"));
+    assertEquals(1L, queue.getStats().get("failed"));
+    queue.stop();
+    queue = null;
+    assertEquals(0, Files.size(journal));
+  }
+
+  @Test
+  void stop_saves_whatever_is_still_queued() throws Exception {
+    savesAssignIds();
+    queue(16, 100, TimeUnit.HOURS.toMillis(1), "");
+    ReviewSubmission submission = queue.submit(review("last one"));
+
+    queue.stop();
+
+    assertEquals(ReviewSubmission.State.SAVED, queue.getStatus(submission.getTrackingId()).getState());
+    queue = null;
+  }
+
+  @Test
+  void statuses_are_kept_for_the_most_recent_submissions() throws Exception {
+    savesAssignIds();
+    queue(256, 1000, 1, "");
+    ReviewSubmission oldest = queue.submit(review("0"));
+    for (int i = 1; i <= 100; i++) {
+      queue.submit(review(Integer.toString(i)));
+    }
+    assertNull(queue.getStatus(oldest.getTrackingId()));
+  }
+
+  @Test
+  void the_journal_is_emptied_once_everything_is_saved() throws Exception {
+    savesAssignIds();
+    Path journal = tempDir.resolve("journal/reviews.log");
+    queue(16, 1, 1, journal.toString());
+
+    ReviewSubmission submission = queue.submit(review("journaled"));
+    awaitDone(submission.getTrackingId());
+    queue.stop();
+    queue = null;
+
+    assertEquals(0, Files.size(journal));
+  }
+
+  @Test
+  void unsaved_reviews_in_the_journal_are_saved_on_startup() throws Exception {
+    savesAssignIds();
+    Path journal = tempDir.resolve("reviews.log");
+    try (ReviewJournal writer = new ReviewJournal(journal, true, mapper)) {
+      writer.appendAccepted("saved-before-crash", review("one"));
+      writer.appendAccepted("lost-in-crash", review("two"));
+      writer.appendAccepted("also-lost", review("three"));
+      writer.appendDone(List.of("saved-before-crash"), true);
+    }
+    Files.writeString(journal, "{\"op\":\"A\",\"tracking", java.nio.file.StandardOpenOption.APPEND);
+
+    // capacity 1 forces some of the replay to be written before the writer starts
+    queue(1, 1, 1, journal.toString());
+
+    assertEquals(ReviewSubmission.State.SAVED, awaitDone("lost-in-crash").getState());
+    assertEquals(ReviewSubmission.State.SAVED, awaitDone("also-lost").getState());
+    assertNull(queue.getStatus("saved-before-crash"));
+    verify(repository, times(2)).saveAll(anyList());
+  }
+}
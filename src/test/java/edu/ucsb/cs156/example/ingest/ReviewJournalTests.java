@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+
+public class ReviewJournalTests {
+
+  @TempDir
+  Path tempDir;
+
+  ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+  MenuItemReview review = MenuItemReview.builder().reviewerEmail("cgaucho@ucsb.edu").stars(5).comments("yum").build();
+
+  @Test
+  void only_accepted_reviews_without_an_outcome_are_unfinished() throws Exception {
+    try (ReviewJournal journal = new ReviewJournal(tempDir.resolve("reviews.log"), false, mapper)) {
+      journal.appendAccepted("saved", review);
+      journal.appendAccepted("failed", review);
+      journal.appendAccepted("pending", review);
+      journal.appendDone(List.of("saved"), true);
+      journal.appendDone(List.of("failed"), false);
+
+      Map<String, MenuItemReview> unfinished = journal.readUnfinished();
+
+      assertEquals(List.of("pending"), List.copyOf(unfinished.keySet()));
+      assertEquals(review, unfinished.get("pending"));
+      assertTrue(journal.size() > 0);
+      journal.truncate();
+      assertEquals(0, journal.size());
+      assertTrue(journal.readUnfinished().isEmpty());
+    }
+  }
+
+  @Test
+  void entries_after_a_torn_line_are_not_lost() throws Exception {
+    Path path = tempDir.resolve("reviews.log");
+    try (ReviewJournal journal = new ReviewJournal(path, true, mapper)) {
+      journal.appendAccepted("before", review);
+    }
+    Files.writeString(path, "{\"op\":\"A\",\"trackingId\":\"to", StandardOpenOption.APPEND);
+
+    try (ReviewJournal journal = new ReviewJournal(path, true, mapper)) {
+      journal.appendAccepted("after", review);
+      assertEquals(List.of("before", "after"), List.copyOf(journal.readUnfinished().keySet()));
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.session.JdbcHttpSession;
+import edu.ucsb.cs156.example.session.JdbcSessionFilter;
+import edu.ucsb.cs156.example.session.JdbcSessionStore;
+
+/**
+ * Starts two instances of the application in app.session.mode=jdbc against
+ * one embedded H2 database and checks that a session saved by one instance
+ * is used by the other, including the CSRF-protected logout.
+ */
+public class JdbcSessionIT {
+
+  static final String[] ARGS = {
+      "--spring.profiles.active=integration",
+      "--server.port=0",
+      "--spring.datasource.url=jdbc:h2:mem:jdbc-session-it;DB_CLOSE_DELAY=-1",
+      "--app.session.mode=jdbc",
+      "--app.session.jdbc.near-cache-ttl=0"
+  };
+
+  static ConfigurableApplicationContext first;
+  static ConfigurableApplicationContext second;
+  static HttpClient client = HttpClient.newHttpClient();
+
+  @BeforeAll
+  public static void startInstances() {
+    first = new SpringApplicationBuilder(ExampleApplication.class).run(ARGS);
+    second = new SpringApplicationBuilder(ExampleApplication.class).run(ARGS);
+  }
+
+  @AfterAll
+  public static void stopInstances() {
+    second.close();
+    first.close();
+  }
+
+  static String loggedInSession(ConfigurableApplicationContext instance, String email) {
+    List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_MEMBER");
+    Map<String, Object> attributes = Map.of(
+        "sub", "sub-" + email,
+        "email", email,
+        "email_verified", true,
+        "name", "Chris Gaucho");
+    OAuth2AuthenticationToken login = new OAuth2AuthenticationToken(
+        new DefaultOAuth2User(authorities, attributes, "sub"), authorities, "my-oauth-provider");
+
+    JdbcSessionStore store = instance.getBean(JdbcSessionStore.class);
+    JdbcHttpSession session = store.createSession(null);
+    session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, new SecurityContextImpl(login));
+    store.save(session);
+    return session.getId();
+  }
+
+  static URI uri(ConfigurableApplicationContext instance, String path) {
+    int port = ((WebServerApplicationContext) instance).getWebServer().getPort();
+    return URI.create("http://localhost:" + port + path);
+  }
+
+  static HttpResponse<String> getCurrentUser(ConfigurableApplicationContext instance, String sessionId) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(uri(instance, "/api/currentUser"))
+        .header("Cookie", JdbcSessionFilter.COOKIE_NAME + "=" + sessionId)
+        .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test
+  public void a_session_saved_by_one_instance_is_used_by_the_other() throws Exception {
+    String sessionId = loggedInSession(first, "cgaucho@ucsb.edu");
+
+    HttpResponse<String> fromSecond = getCurrentUser(second, sessionId);
+
+    assertEquals(200, fromSecond.statusCode());
+    assertTrue(fromSecond.body().contains("cgaucho@ucsb.edu"));
+    assertEquals(200, getCurrentUser(first, sessionId).statusCode());
+  }
+
+  @Test
+  public void logging_out_on_one_instance_logs_out_of_every_instance() throws Exception {
+    String sessionId = loggedInSession(first, "ldelplaya@ucsb.edu");
+    assertEquals(200, getCurrentUser(second, sessionId).statusCode());
+
+    HttpRequest logout = HttpRequest.newBuilder(uri(second, "/logout"))
+        .header("Cookie", JdbcSessionFilter.COOKIE_NAME + "=" + sessionId + "; XSRF-TOKEN=it-token")
+        .header("X-XSRF-TOKEN", "it-token")
+        .POST(HttpRequest.BodyPublishers.noBody())
+        .build();
+    HttpResponse<String> response = client.send(logout, HttpResponse.BodyHandlers.ofString());
+
+    assertEquals(302, response.statusCode());
+    assertEquals(403, getCurrentUser(first, sessionId).statusCode());
+    assertEquals(403, getCurrentUser(second, sessionId).statusCode());
+  }
+
+  @Test
+  public void an_unknown_session_is_not_logged_in() throws Exception {
+    assertEquals(403, getCurrentUser(second, "not-a-session").statusCode());
+  }
+}
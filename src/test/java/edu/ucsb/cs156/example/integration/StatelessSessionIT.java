@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.session.SessionTokenCodec;
+import edu.ucsb.cs156.example.session.SignedCookieSecurityContextRepository;
+
+/**
+ * Starts two instances of the application against one embedded H2 database
+ * and checks that a login issued by one instance is honoured by the other.
+ */
+public class StatelessSessionIT {
+
+  static final String[] ARGS = {
+      "--spring.profiles.active=integration",
+      "--server.port=0",
+      "--spring.datasource.url=jdbc:h2:mem:stateless-session-it;DB_CLOSE_DELAY=-1",
+      "--app.session.mode=stateless",
+      "--app.session.signing-key=integration-test-signing-key-0123456789"
+  };
+
+  static ConfigurableApplicationContext first;
+  static ConfigurableApplicationContext second;
+  static HttpClient client = HttpClient.newHttpClient();
+
+  @BeforeAll
+  public static void startInstances() {
+    first = new SpringApplicationBuilder(ExampleApplication.class).run(ARGS);
+    second = new SpringApplicationBuilder(ExampleApplication.class).run(ARGS);
+  }
+
+  @AfterAll
+  public static void stopInstances() {
+    second.close();
+    first.close();
+  }
+
+  static OAuth2AuthenticationToken login(String email) {
+    List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_MEMBER");
+    Map<String, Object> attributes = Map.of(
+        "sub", "sub-" + email,
+        "email", email,
+        "email_verified", true,
+        "name", "Chris Gaucho");
+    return new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, attributes, "sub"), authorities,
+        "my-oauth-provider");
+  }
+
+  static HttpResponse<String> getCurrentUser(ConfigurableApplicationContext instance, String token) throws Exception {
+    int port = ((WebServerApplicationContext) instance).getWebServer().getPort();
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/currentUser"))
+        .header("Cookie", SignedCookieSecurityContextRepository.COOKIE_NAME + "=" + token)
+        .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test
+  public void a_login_issued_by_one_instance_is_accepted_by_the_other() throws Exception {
+    String token = first.getBean(SessionTokenCodec.class).encode(login("cgaucho@ucsb.edu"));
+
+    HttpResponse<String> fromSecond = getCurrentUser(second, token);
+    HttpResponse<String> fromFirst = getCurrentUser(first, token);
+
+    assertEquals(200, fromSecond.statusCode());
+    assertTrue(fromSecond.body().contains("cgaucho@ucsb.edu"));
+    assertTrue(fromSecond.body().contains("ROLE_MEMBER"));
+    assertEquals(200, fromFirst.statusCode());
+    assertTrue(first.getBean(UserRepository.class).findByEmail("cgaucho@ucsb.edu").isPresent());
+  }
+
+  @Test
+  public void a_tampered_token_is_rejected_by_every_instance() throws Exception {
+    String token = first.getBean(SessionTokenCodec.class).encode(login("cgaucho@ucsb.edu"));
+    String forged = first.getBean(SessionTokenCodec.class).encode(login("admingaucho@ucsb.edu"));
+    String tampered = forged.substring(0, forged.indexOf('.')) + token.substring(token.indexOf('.'));
+
+    assertEquals(403, getCurrentUser(first, tampered).statusCode());
+    assertEquals(403, getCurrentUser(second, tampered).statusCode());
+  }
+}
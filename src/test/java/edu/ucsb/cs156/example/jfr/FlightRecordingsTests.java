@@ -0,0 +1,85 @@
+package edu.ucsb.cs156.example.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class FlightRecordingsTests {
+
+  @TempDir
+  Path directory;
+
+  FlightRecordings recordings;
+
+  @AfterEach
+  void teardown() {
+    recordings.closeRecording();
+  }
+
+  FlightRecordings recordings(Duration maxDuration) {
+    recordings = new FlightRecordings(directory.resolve("jfr"), DataSize.ofMegabytes(10), maxDuration);
+    return recordings;
+  }
+
+  @Test
+  void a_recording_is_written_when_stopped() throws Exception {
+    recordings(Duration.ofMinutes(1));
+    assertEquals("NONE", recordings.status().get("state"));
+
+    Map<String, Object> started = recordings.start(null);
+    assertEquals("RUNNING", started.get("state"));
+    Path file = Path.of((String) started.get("file"));
+    assertTrue(file.startsWith(directory.resolve("jfr")));
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> recordings.start(Duration.ofSeconds(10)));
+    assertEquals("A recording is already running", e.getMessage());
+
+    Map<String, Object> stopped = recordings.stop();
+    assertEquals("CLOSED", stopped.get("state"));
+    assertEquals(Files.size(file), stopped.get("bytes"));
+    assertTrue(Files.size(file) > 0);
+    assertEquals(Map.of("state", "NONE", "file", file.toString()), recordings.status());
+  }
+
+  @Test
+  void a_recording_stops_by_itself_after_its_duration() throws Exception {
+    recordings(Duration.ofMinutes(1));
+    recordings.start(Duration.ofMillis(200));
+    for (int i = 0; i < 100 && "RUNNING".equals(recordings.status().get("state")); i++) {
+      Thread.sleep(100);
+    }
+    assertEquals("CLOSED", recordings.status().get("state"));
+
+    // another can start before the last is collected
+    assertEquals("RUNNING", recordings.start(Duration.ofSeconds(10)).get("state"));
+    assertEquals("CLOSED", recordings.stop().get("state"));
+  }
+
+  @Test
+  void stop_needs_a_recording() {
+    recordings(Duration.ofMinutes(1));
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> recordings.stop());
+    assertEquals("No recording has been started", e.getMessage());
+  }
+
+  @Test
+  void durations_must_be_positive_and_at_most_the_maximum() {
+    recordings(Duration.ofMinutes(1));
+
+    for (Duration duration : new Duration[] { Duration.ZERO, Duration.ofSeconds(-1), Duration.ofMinutes(2) }) {
+      IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> recordings.start(duration));
+      assertEquals("The duration must be more than 0 and at most PT1M", e.getMessage());
+    }
+  }
+}
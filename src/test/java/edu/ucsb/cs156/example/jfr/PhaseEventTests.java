@@ -0,0 +1,184 @@
+package edu.ucsb.cs156.example.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class PhaseEventTests {
+
+  @TempDir
+  Path directory;
+
+  Recording recording;
+
+  MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/restaurants");
+
+  @BeforeEach
+  void setup() {
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/restaurants");
+  }
+
+  @AfterEach
+  void teardown() {
+    RequestContextHolder.resetRequestAttributes();
+    SecurityContextHolder.clearContext();
+    if (recording != null) {
+      recording.close();
+    }
+  }
+
+  void startRecording() {
+    recording = new Recording();
+    for (Class<? extends PhaseEvent> event : FlightRecordings.EVENTS) {
+      recording.enable(event).withThreshold(Duration.ZERO);
+    }
+    recording.start();
+  }
+
+  List<RecordedEvent> stopRecording() throws IOException {
+    recording.stop();
+    Path file = directory.resolve("test.jfr");
+    recording.dump(file);
+    return RecordingFile.readAllEvents(file).stream()
+        .filter(event -> event.getEventType().getName().startsWith("edu.ucsb.cs156.example."))
+        .toList();
+  }
+
+  @Test
+  void events_describe_the_request_they_belong_to() throws Exception {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("cgaucho@ucsb.edu", null));
+    startRecording();
+
+    new RequestEventFilter().doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+      AuthEvent auth = new AuthEvent();
+      auth.begin();
+      auth.finish(true);
+      RepositoryEvent repository = new RepositoryEvent();
+      repository.begin();
+      repository.finish(mock(RestaurantRepository.class), "findAll", List.of("a", "b"));
+      new TimedJacksonHttpMessageConverter(new ObjectMapper())
+          .write(List.of(3, 4, 5), MediaType.APPLICATION_JSON, new MockHttpOutputMessage());
+    });
+
+    List<RecordedEvent> events = stopRecording();
+    assertEquals(List.of("edu.ucsb.cs156.example.Auth", "edu.ucsb.cs156.example.Repository",
+        "edu.ucsb.cs156.example.Serialization", "edu.ucsb.cs156.example.Request"),
+        events.stream().map(event -> event.getEventType().getName()).toList());
+    String principalHash = PhaseEvent.principalHash("cgaucho@ucsb.edu");
+    for (RecordedEvent event : events) {
+      assertEquals("GET /api/restaurants", event.getString("route"));
+      assertEquals(principalHash, event.getString("principalHash"));
+    }
+    assertEquals(true, events.get(0).getBoolean("found"));
+    assertEquals("Restaurant", events.get(1).getString("entityType"));
+    assertEquals("findAll", events.get(1).getString("method"));
+    assertEquals(2, events.get(1).getInt("rowCount"));
+    assertEquals("Integer", events.get(2).getString("entityType"));
+    assertEquals(3, events.get(2).getInt("rowCount"));
+    assertEquals(200, events.get(3).getInt("status"));
+  }
+
+  @Test
+  void events_outside_requests_have_no_route_or_principal() throws Exception {
+    startRecording();
+
+    RepositoryEvent repository = new RepositoryEvent();
+    repository.begin();
+    repository.finish(new Object(), "findAll", null);
+    SerializationEvent empty = new SerializationEvent();
+    empty.begin();
+    empty.finish(new ArrayList<>());
+    SerializationEvent nothing = new SerializationEvent();
+    nothing.begin();
+    nothing.finish(null);
+    MockHttpServletRequest unmatched = new MockHttpServletRequest("GET", "/api/nowhere");
+    RequestEvent request = new RequestEvent();
+    request.begin();
+    request.finish(unmatched, new MockHttpServletResponse());
+
+    List<RecordedEvent> events = stopRecording();
+    assertEquals(4, events.size());
+    assertEquals(null, events.get(0).getString("route"));
+    assertEquals(null, events.get(0).getString("principalHash"));
+    assertEquals("", events.get(0).getString("entityType"));
+    assertEquals(0, events.get(0).getInt("rowCount"));
+    assertEquals("ArrayList", events.get(1).getString("entityType"));
+    assertEquals("", events.get(2).getString("entityType"));
+    assertEquals("GET /api/nowhere", events.get(3).getString("route"));
+  }
+
+  @Test
+  void events_are_not_filled_in_when_nothing_is_recording() throws Exception {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    RepositoryEvent repository = new RepositoryEvent();
+    repository.begin();
+    repository.finish(mock(RestaurantRepository.class), "findAll", List.of());
+    AuthEvent auth = new AuthEvent();
+    auth.begin();
+    auth.finish(false);
+    SerializationEvent serialization = new SerializationEvent();
+    serialization.begin();
+    serialization.finish(List.of());
+    RequestEvent event = new RequestEvent();
+    event.begin();
+    event.finish(request, new MockHttpServletResponse());
+
+    assertEquals(null, repository.entityType);
+    assertEquals(null, repository.route);
+    assertEquals(null, serialization.entityType);
+    assertEquals(null, event.route);
+  }
+
+  @Test
+  void row_counts() {
+    assertEquals(0, PhaseEvent.rowCount(null));
+    assertEquals(2, PhaseEvent.rowCount(List.of(1, 2)));
+    assertEquals(3, PhaseEvent.rowCount(new PageImpl<>(List.of(1, 2, 3))));
+    assertEquals(1, PhaseEvent.rowCount(Optional.of(1)));
+    assertEquals(0, PhaseEvent.rowCount(Optional.empty()));
+    assertEquals(1, PhaseEvent.rowCount("one"));
+  }
+
+  @Test
+  void principal_hashes_are_short_and_distinct() {
+    assertEquals(8, PhaseEvent.principalHash("cgaucho@ucsb.edu").length());
+    assertEquals(PhaseEvent.principalHash("cgaucho@ucsb.edu"), PhaseEvent.principalHash("cgaucho@ucsb.edu"));
+    assertNotEquals(PhaseEvent.principalHash("cgaucho@ucsb.edu"), PhaseEvent.principalHash("ldelplaya@ucsb.edu"));
+  }
+
+  @Test
+  void entity_types_come_from_the_repository_interface() {
+    assertEquals("Restaurant", RepositoryEvent.entityType(mock(RestaurantRepository.class).getClass()));
+    assertEquals("", RepositoryEvent.entityType(Object.class));
+  }
+}
@@ -0,0 +1,166 @@
+package edu.ucsb.cs156.example.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.status.Status;
+
+class AsyncJsonAppenderTests {
+
+  LoggerContext context = new LoggerContext();
+  ObjectMapper mapper = new ObjectMapper();
+  ByteArrayOutputStream out = new ByteArrayOutputStream();
+  AsyncJsonAppender appender = new AsyncJsonAppender();
+
+  @BeforeEach
+  void setup() {
+    context.setMDCAdapter(new LogbackMDCAdapter());
+  }
+
+  Logger logger(String name) {
+    Logger logger = context.getLogger(name);
+    logger.addAppender(appender);
+    logger.setAdditive(false);
+    return logger;
+  }
+
+  List<Map<?, ?>> written() throws Exception {
+    List<Map<?, ?>> lines = new ArrayList<>();
+    for (String line : out.toString().split("\n")) {
+      lines.add(mapper.readValue(line, Map.class));
+    }
+    return lines;
+  }
+
+  LoggingEvent event(Level level, String message) {
+    return new LoggingEvent("fqcn", context.getLogger("test"), level, message, null, null);
+  }
+
+  @Test
+  void events_are_written_by_the_writer_thread() throws Exception {
+    appender.setContext(context);
+    appender.setOutputStream(out);
+    appender.setBatchSize(2);
+    appender.setFlushIntervalMillis(1);
+    appender.start();
+    Logger logger = logger("edu.ucsb.cs156.example.Test");
+
+    for (int i = 0; i < 5; i++) {
+      logger.info("event {}", i);
+    }
+    appender.stop();
+    appender.stop();
+
+    List<Map<?, ?>> written = written();
+    assertEquals(5, written.size());
+    assertEquals("event 4", written.get(4).get("message"));
+    assertEquals(Thread.currentThread().getName(), written.get(0).get("thread"));
+    assertEquals(0, appender.getDropped());
+  }
+
+  @Test
+  void info_events_are_sampled_but_warnings_are_not() throws Exception {
+    appender.setContext(context);
+    appender.setOutputStream(out);
+    appender.setDiscardingThreshold(0);
+    appender.addSample("sampled=0");
+    appender.start();
+    Logger logger = logger("sampled.Logger");
+
+    logger.info("left out");
+    logger.warn("kept");
+    appender.stop();
+
+    List<Map<?, ?>> written = written();
+    assertEquals(1, written.size());
+    assertEquals("kept", written.get(0).get("message"));
+    assertEquals(1, appender.getSampledOut());
+  }
+
+  @Test
+  void info_events_are_dropped_first_when_the_queue_fills_up() throws Exception {
+    appender.setCapacity(4);
+    appender.setDiscardingThreshold(2);
+
+    for (int i = 0; i < 3; i++) {
+      appender.append(event(Level.INFO, "info " + i));
+    }
+    for (int i = 0; i < 3; i++) {
+      appender.append(event(Level.WARN, "warn " + i));
+    }
+    JsonLines lines = new JsonLines(out);
+
+    assertTrue(appender.writeBatch(lines));
+    assertFalse(appender.writeBatch(lines));
+
+    assertEquals(2, appender.getDropped());
+    assertEquals(List.of("info 0", "info 1", "warn 0", "warn 1", "dropped 2 log events because the queue was full"),
+        written().stream().map(line -> line.get("message")).toList());
+  }
+
+  @Test
+  void the_discarding_threshold_defaults_to_a_fifth_of_the_capacity() throws Exception {
+    appender.setCapacity(10);
+    appender.setOutputStream(out);
+    appender.start();
+    appender.stop();
+
+    for (int i = 0; i < 10; i++) {
+      appender.append(event(Level.INFO, "info " + i));
+    }
+
+    assertEquals(2, appender.getDropped());
+  }
+
+  @Test
+  void the_writer_stops_when_the_output_fails() throws Exception {
+    appender.setContext(context);
+    appender.setOutputStream(new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("disk full");
+      }
+    });
+    appender.start();
+
+    logger("test").error("failed");
+    appender.stop();
+
+    List<String> errors = context.getStatusManager().getCopyOfStatusList().stream()
+        .filter(status -> status.getLevel() == Status.ERROR)
+        .map(Status::getMessage)
+        .toList();
+    assertEquals(List.of("could not write log events; no more will be written"), errors);
+  }
+
+  @Test
+  void stop_gives_up_waiting_when_interrupted() {
+    appender.setOutputStream(out);
+    appender.setMaxFlushMillis(60_000);
+    appender.start();
+
+    Thread.currentThread().interrupt();
+    appender.stop();
+
+    assertTrue(Thread.interrupted());
+    assertFalse(appender.isStarted());
+  }
+}
@@ -0,0 +1,67 @@
+package edu.ucsb.cs156.example.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+class JsonLinesTests {
+
+  LoggerContext context = new LoggerContext();
+  ObjectMapper mapper = new ObjectMapper();
+  ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+  @BeforeEach
+  void setup() {
+    context.setMDCAdapter(new LogbackMDCAdapter());
+  }
+
+  @Test
+  void events_are_written_one_object_per_line() throws Exception {
+    LoggingEvent event = new LoggingEvent("fqcn", context.getLogger("a.b.C"), Level.INFO,
+        "user {} said \"hi\"", null, new Object[] { "joe" });
+    event.setThreadName("main");
+    event.setTimeStamp(1_700_000_000_123L);
+    LoggingEvent failure = new LoggingEvent("fqcn", context.getLogger("a.b.D"), Level.ERROR,
+        "failed", new IllegalStateException("broken"), null);
+    failure.setMDCPropertyMap(Map.of("request", "42"));
+
+    JsonLines lines = new JsonLines(out);
+    lines.write(event);
+    lines.write(failure);
+    assertEquals(0, out.size());
+    lines.flush();
+
+    String[] written = out.toString().split("\n");
+    assertEquals(2, written.length);
+    assertEquals(Map.of("@timestamp", "2023-11-14T22:13:20.123Z", "level", "INFO", "logger", "a.b.C",
+        "thread", "main", "message", "user joe said \"hi\""), mapper.readValue(written[0], Map.class));
+    Map<?, ?> second = mapper.readValue(written[1], Map.class);
+    assertEquals("ERROR", second.get("level"));
+    assertEquals(Map.of("request", "42"), second.get("mdc"));
+    assertTrue(((String) second.get("stack_trace")).startsWith("java.lang.IllegalStateException: broken"));
+  }
+
+  @Test
+  void dropped_events_are_reported() throws Exception {
+    JsonLines lines = new JsonLines(out);
+    lines.writeDropped(3);
+    lines.flush();
+
+    Map<?, ?> written = mapper.readValue(out.toString(), Map.class);
+    assertEquals("WARN", written.get("level"));
+    assertEquals(AsyncJsonAppender.class.getName(), written.get("logger"));
+    assertEquals("dropped 3 log events because the queue was full", written.get("message"));
+  }
+}
@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LogSamplerTests {
+
+  LogSampler sampler = new LogSampler();
+
+  @Test
+  void loggers_take_the_rate_of_the_nearest_package() {
+    sampler.add("edu.ucsb.cs156.example.services=0.5");
+    sampler.add(" edu.ucsb.cs156.example.services.CurrentUserServiceImpl = 0.01 ");
+
+    assertEquals(0.01, sampler.rate("edu.ucsb.cs156.example.services.CurrentUserServiceImpl"));
+    assertEquals(0.5, sampler.rate("edu.ucsb.cs156.example.services.GrantedAuthoritiesService"));
+    assertEquals(1.0, sampler.rate("edu.ucsb.cs156.example.aop.LoggingAspect"));
+    assertEquals(1.0, sampler.rate("ROOT"));
+  }
+
+  @Test
+  void adding_a_rate_applies_to_loggers_already_seen() {
+    assertEquals(1.0, sampler.rate("edu.ucsb.cs156.example.aop.LoggingAspect"));
+
+    sampler.add("edu.ucsb.cs156.example.aop=0.1");
+
+    assertEquals(0.1, sampler.rate("edu.ucsb.cs156.example.aop.LoggingAspect"));
+  }
+
+  @Test
+  void sample_keeps_events_by_rate() {
+    sampler.add("never=0");
+    sampler.add("almost.always=0.999999999");
+
+    assertTrue(sampler.sample("always"));
+    assertFalse(sampler.sample("never"));
+    assertTrue(sampler.sample("almost.always"));
+  }
+
+  @Test
+  void bad_specs_are_rejected() {
+    for (String spec : new String[] { "no.rate", "bad.rate=x", "negative=-0.1", "too.big=1.5" }) {
+      IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> sampler.add(spec));
+      assertEquals("Sample %s should be logger=rate, with a rate from 0 to 1".formatted(spec), e.getMessage());
+    }
+  }
+}
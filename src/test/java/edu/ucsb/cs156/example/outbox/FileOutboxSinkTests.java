@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class FileOutboxSinkTests {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void events_are_appended_as_json_lines() throws Exception {
+    Path file = dir.resolve("outbox.ndjson");
+    FileOutboxSink sink = new FileOutboxSink(file, new ObjectMapper());
+
+    sink.deliver(List.of(new OutboxEvent(1, "Articles", "CREATED", "7", 1_000)));
+    sink.deliver(List.of(new OutboxEvent(2, "UCSBDate", "IMPORTED", null, 2_000)));
+
+    assertEquals(List.of(
+        "{\"id\":1,\"entityType\":\"Articles\",\"action\":\"CREATED\",\"entityId\":\"7\",\"createdAt\":1000}",
+        "{\"id\":2,\"entityType\":\"UCSBDate\",\"action\":\"IMPORTED\",\"entityId\":null,\"createdAt\":2000}"),
+        Files.readAllLines(file));
+  }
+}
@@ -0,0 +1,192 @@
+package edu.ucsb.cs156.example.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+
+public class OutboxRelayTests {
+
+  /** the table from db/migration/changes/Outbox.json */
+  static final String DDL = "CREATE TABLE OUTBOX (ID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+      + "ENTITY_TYPE VARCHAR(255) NOT NULL, ACTION VARCHAR(16) NOT NULL, ENTITY_ID VARCHAR(255), "
+      + "CREATED_AT BIGINT NOT NULL, PROCESSED_AT BIGINT)";
+
+  /** A sink that records the ids of each batch it is given. */
+  static class RecordingSink implements OutboxSink {
+    final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+      batches.add(events.stream().map(OutboxEvent::id).toList());
+    }
+  }
+
+  DataSource dataSource;
+  JdbcTemplate jdbcTemplate;
+  DataSourceTransactionManager transactionManager;
+  OutboxWriter writer;
+  OutboxProperties properties = new OutboxProperties();
+  RecordingSink sink = new RecordingSink();
+  OutboxRelay relay;
+
+  @BeforeEach
+  void setup() {
+    dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute(DDL);
+    transactionManager = new DataSourceTransactionManager(dataSource);
+    writer = new OutboxWriter(jdbcTemplate, () -> 1_000L);
+    properties.setBatchSize(2);
+    relay = newRelay(sink);
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    relay.stop();
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  OutboxRelay newRelay(OutboxSink... sinks) {
+    return new OutboxRelay(jdbcTemplate, transactionManager, List.of(sinks), properties, () -> 2_000L);
+  }
+
+  void write(int count) {
+    for (long id = 1; id <= count; id++) {
+      writer.onChange(new EntityChangeEvent("Articles", ChangeAction.CREATED, id));
+    }
+  }
+
+  int unprocessed() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OUTBOX WHERE PROCESSED_AT IS NULL", Integer.class);
+  }
+
+  @Test
+  void events_are_relayed_in_batches_and_marked_processed() {
+    write(5);
+
+    assertEquals(5, relay.relayAll());
+
+    assertEquals(List.of(List.of(1L, 2L), List.of(3L, 4L), List.of(5L)), sink.batches);
+    assertEquals(List.of(2_000L), jdbcTemplate.queryForList("SELECT DISTINCT PROCESSED_AT FROM OUTBOX", Long.class));
+    assertEquals(0, relay.relayAll());
+    assertEquals(3, sink.batches.size());
+  }
+
+  @Test
+  void every_sink_gets_the_events() {
+    RecordingSink other = new RecordingSink();
+    relay = newRelay(sink, other);
+    write(1);
+
+    relay.relayAll();
+
+    assertEquals(List.of(List.of(1L)), sink.batches);
+    assertEquals(List.of(List.of(1L)), other.batches);
+  }
+
+  @Test
+  void batch_is_retried_when_a_sink_fails() {
+    AtomicInteger failures = new AtomicInteger(1);
+    relay = newRelay(sink, events -> {
+      if (failures.getAndDecrement() > 0) {
+        throw new IOException("sink unavailable");
+      }
+    });
+    write(3);
+
+    assertEquals(0, relay.relayAll());
+    assertEquals(3, unprocessed());
+
+    assertEquals(3, relay.relayAll());
+    assertEquals(0, unprocessed());
+    // the first sink got the first batch twice: delivery is at least once
+    assertEquals(List.of(List.of(1L, 2L), List.of(1L, 2L), List.of(3L)), sink.batches);
+  }
+
+  @Test
+  void concurrent_relays_skip_each_others_rows() throws Exception {
+    CountDownLatch delivering = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingSink blocked = new RecordingSink();
+    OutboxRelay first = newRelay(events -> {
+      blocked.deliver(events);
+      delivering.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+    });
+    write(3);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<Integer> firstBatch = executor.submit(first::relayBatch);
+    assertTrue(delivering.await(5, TimeUnit.SECONDS));
+    // rows 1 and 2 are locked by the first relay
+    assertEquals(1, relay.relayAll());
+    release.countDown();
+    assertEquals(2, firstBatch.get(5, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    assertEquals(List.of(List.of(1L, 2L)), blocked.batches);
+    assertEquals(List.of(List.of(3L)), sink.batches);
+    assertEquals(0, unprocessed());
+  }
+
+  @Test
+  void background_task_relays_events() throws Exception {
+    properties.setPollInterval(Duration.ofMillis(10));
+    relay.start();
+
+    write(3);
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (unprocessed() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, unprocessed());
+  }
+
+  @Test
+  void processed_events_are_deleted_after_the_retention() {
+    properties.setRetention(Duration.ofMillis(500));
+    write(3);
+    jdbcTemplate.update("UPDATE OUTBOX SET PROCESSED_AT = 1000 WHERE ID = 1");
+    jdbcTemplate.update("UPDATE OUTBOX SET PROCESSED_AT = 1600 WHERE ID = 2");
+
+    relay.reapProcessed();
+
+    assertEquals(List.of(2L, 3L), jdbcTemplate.queryForList("SELECT ID FROM OUTBOX ORDER BY ID", Long.class));
+  }
+
+  @Test
+  void failure_to_delete_is_logged() {
+    jdbcTemplate.execute("DROP TABLE OUTBOX");
+
+    // does not throw; the next run will try again
+    relay.reapProcessed();
+  }
+}
@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+
+public class OutboxWriterTests {
+
+  JdbcTemplate jdbcTemplate;
+  TransactionTemplate transactionTemplate;
+  OutboxWriter writer;
+
+  @BeforeEach
+  void setup() {
+    DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute(OutboxRelayTests.DDL);
+    transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    writer = new OutboxWriter(jdbcTemplate, () -> 1_000L);
+  }
+
+  @AfterEach
+  void teardown() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  List<Map<String, Object>> rows() {
+    return jdbcTemplate.queryForList("SELECT ENTITY_TYPE, ACTION, ENTITY_ID, CREATED_AT, PROCESSED_AT FROM OUTBOX ORDER BY ID");
+  }
+
+  @Test
+  void events_are_inserted_with_the_change() {
+    transactionTemplate.executeWithoutResult(status -> {
+      writer.onChange(new EntityChangeEvent("UCSBDiningCommons", ChangeAction.UPDATED, "ortega"));
+    });
+    writer.onChange(new EntityChangeEvent("UCSBDate", ChangeAction.IMPORTED, null));
+
+    List<Map<String, Object>> rows = rows();
+    assertEquals(2, rows.size());
+    assertEquals("UCSBDiningCommons", rows.get(0).get("ENTITY_TYPE"));
+    assertEquals("UPDATED", rows.get(0).get("ACTION"));
+    assertEquals("ortega", rows.get(0).get("ENTITY_ID"));
+    assertEquals(1_000L, rows.get(0).get("CREATED_AT"));
+    assertEquals(null, rows.get(0).get("PROCESSED_AT"));
+    assertEquals("IMPORTED", rows.get(1).get("ACTION"));
+    assertEquals(null, rows.get(1).get("ENTITY_ID"));
+  }
+
+  @Test
+  void event_is_rolled_back_with_the_change() {
+    assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+      writer.onChange(new EntityChangeEvent("Articles", ChangeAction.DELETED, 7L));
+      throw new IllegalStateException("the change failed");
+    }));
+
+    assertEquals(List.of(), rows());
+  }
+}
@@ -0,0 +1,195 @@
+package edu.ucsb.cs156.example.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+class ConnectionPoolManagerTests {
+
+  AtomicLong clock = new AtomicLong(0);
+  PoolProperties properties = new PoolProperties();
+  ConnectionPoolManager manager;
+  HikariDataSource dataSource;
+
+  @BeforeEach
+  void setup() {
+    properties.setMinSize(2);
+    properties.setMaxSize(16);
+    properties.setHeadroom(1.5);
+    manager = new ConnectionPoolManager(properties, clock::get);
+    dataSource = dataSource("primary");
+  }
+
+  @AfterEach
+  void teardown() {
+    manager.stop();
+    dataSource.close();
+  }
+
+  static HikariDataSource dataSource(String name) {
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID());
+    dataSource.setPoolName(name);
+    dataSource.setMaximumPoolSize(20);
+    return dataSource;
+  }
+
+  /** the monitor the manager gave the pool */
+  IMetricsTracker tracker(HikariDataSource pool) {
+    return pool.getMetricsTrackerFactory().create(pool.getPoolName(), null);
+  }
+
+  @Test
+  void manage_fits_the_pool_within_the_limits() {
+    manager.manage(dataSource);
+
+    assertEquals(16, dataSource.getMaximumPoolSize());
+    assertEquals(2, dataSource.getMinimumIdle());
+  }
+
+  @Test
+  void manage_leaves_the_size_alone_without_autotuning() {
+    properties.setAutotune(false);
+
+    manager.manage(dataSource);
+    manager.start();
+
+    assertEquals(20, dataSource.getMaximumPoolSize());
+  }
+
+  @Test
+  void the_pool_reports_connections_to_the_manager() throws Exception {
+    manager.manage(dataSource);
+    HikariDataSource unused = dataSource("replica");
+    manager.manage(unused);
+
+    try (Connection connection = dataSource.getConnection()) {
+      Map<String, Object> stats = manager.getStats();
+      @SuppressWarnings("unchecked")
+      Map<String, Map<String, Object>> pools = (Map<String, Map<String, Object>>) stats.get("pools");
+
+      assertEquals(0L, stats.get("shed"));
+      assertEquals(16, pools.get("primary").get("maximumPoolSize"));
+      assertEquals(1, pools.get("primary").get("active"));
+      assertEquals(0, pools.get("primary").get("waiting"));
+      assertEquals(1L, pools.get("primary").get("acquisitions"));
+      assertEquals(0L, pools.get("primary").get("timeouts"));
+      assertEquals(false, pools.get("primary").get("saturated"));
+      assertEquals(1L, ((Map<?, ?>) pools.get("primary").get("waits")).get("<1ms"));
+      assertEquals(Map.of("maximumPoolSize", 16, "active", 0, "idle", 0, "waiting", 0, "acquisitions", 0L,
+          "timeouts", 0L, "saturated", false, "waits", new WaitHistogram().getCounts()), pools.get("replica"));
+    } finally {
+      unused.close();
+    }
+  }
+
+  @Test
+  void tune_grows_a_pool_that_threads_waited_for() {
+    manager.manage(dataSource);
+    dataSource.setMaximumPoolSize(8);
+    IMetricsTracker tracker = tracker(dataSource);
+    tracker.recordConnectionAcquiredNanos(TimeUnit.SECONDS.toNanos(1));
+    clock.addAndGet(30_000);
+
+    manager.tune();
+
+    assertEquals(10, dataSource.getMaximumPoolSize());
+  }
+
+  @Test
+  void tune_shrinks_an_idle_pool_gradually_down_to_the_minimum() {
+    manager.manage(dataSource);
+    clock.addAndGet(30_000);
+
+    manager.tune();
+    assertEquals(12, dataSource.getMaximumPoolSize());
+
+    for (int i = 0; i < 10; i++) {
+      clock.addAndGet(30_000);
+      manager.tune();
+    }
+    assertEquals(2, dataSource.getMaximumPoolSize());
+  }
+
+  @Test
+  void tune_leaves_a_pool_that_fits_the_load() {
+    manager.manage(dataSource);
+    dataSource.setMaximumPoolSize(6);
+    IMetricsTracker tracker = tracker(dataSource);
+    // 4 connections in use all the time: 4 * 1.5 = 6
+    tracker.recordConnectionUsageMillis(4 * 30_000);
+    clock.addAndGet(30_000);
+
+    manager.tune();
+
+    assertEquals(6, dataSource.getMaximumPoolSize());
+  }
+
+  @Test
+  void target_size_follows_littles_law_with_headroom() {
+    // 10 connections in use on average, so 15 with headroom
+    assertEquals(15, manager.targetSize(4, new PoolMonitor.Sample(1_000, 10_000, 10, 0, 0)));
+    // but not below the peak
+    assertEquals(9, manager.targetSize(9, new PoolMonitor.Sample(1_000, 1_000, 9, 0, 0)));
+    // and not over the maximum
+    assertEquals(16, manager.targetSize(16, new PoolMonitor.Sample(1_000, 100_000, 16, 0, 0)));
+    // timeouts grow the pool by a quarter
+    assertEquals(10, manager.targetSize(8, new PoolMonitor.Sample(1_000, 0, 8, 0, 3)));
+    // even with no time elapsed
+    assertEquals(3, manager.targetSize(2, new PoolMonitor.Sample(0, 0, 0, 0, 1)));
+  }
+
+  @Test
+  void saturated_when_a_pool_had_a_slow_wait_recently() {
+    properties.setShedWait(Duration.ofMillis(100));
+    properties.setShedWindow(Duration.ofSeconds(5));
+    HikariDataSource other = dataSource("replica");
+    manager.manage(dataSource);
+    manager.manage(other);
+    assertFalse(manager.isSaturated());
+
+    tracker(other).recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(101));
+    assertTrue(manager.isSaturated());
+
+    properties.setShedding(false);
+    assertFalse(manager.isSaturated());
+    other.close();
+  }
+
+  @Test
+  void shed_requests_are_counted() {
+    manager.recordShed();
+    manager.recordShed();
+
+    assertEquals(Map.of("pools", Map.of(), "shed", 2L), manager.getStats());
+  }
+
+  @Test
+  void start_tunes_the_pools_on_an_interval() throws Exception {
+    properties.setTuneInterval(Duration.ofMillis(10));
+    manager.manage(dataSource);
+    clock.addAndGet(30_000);
+
+    manager.start();
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (dataSource.getMaximumPoolSize() == 16 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertTrue(dataSource.getMaximumPoolSize() < 16);
+  }
+}
@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class LoadSheddingInterceptorTests {
+
+  ConnectionPoolManager manager = mock(ConnectionPoolManager.class);
+  PoolProperties properties = new PoolProperties();
+
+  @Test
+  void requests_go_ahead_while_the_pool_keeps_up() throws Exception {
+    LoadSheddingInterceptor interceptor = new LoadSheddingInterceptor(manager, properties);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertTrue(interceptor.preHandle(new MockHttpServletRequest("GET", "/api/restaurants/all"), response, null));
+    assertEquals(200, response.getStatus());
+    verify(manager, never()).recordShed();
+  }
+
+  @Test
+  void requests_are_shed_while_the_pool_is_saturated() throws Exception {
+    when(manager.isSaturated()).thenReturn(true);
+    LoadSheddingInterceptor interceptor = new LoadSheddingInterceptor(manager, properties);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    assertFalse(interceptor.preHandle(new MockHttpServletRequest("GET", "/api/restaurants/all"), response, null));
+    assertEquals(503, response.getStatus());
+    assertEquals("5", response.getHeader("Retry-After"));
+    assertEquals("application/json", response.getContentType());
+    assertEquals("{\"type\":\"ServiceUnavailable\",\"message\":\"The database is busy, retry after 5 seconds\"}",
+        response.getContentAsString());
+    verify(manager).recordShed();
+  }
+
+  @Test
+  void retry_after_is_at_least_a_second() throws Exception {
+    when(manager.isSaturated()).thenReturn(true);
+    properties.setShedWindow(Duration.ofMillis(200));
+    LoadSheddingInterceptor interceptor = new LoadSheddingInterceptor(manager, properties);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    interceptor.preHandle(new MockHttpServletRequest("GET", "/api/admin/export/helprequest"), response, null);
+
+    assertEquals("1", response.getHeader("Retry-After"));
+  }
+}
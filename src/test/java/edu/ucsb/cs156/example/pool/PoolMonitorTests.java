@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class PoolMonitorTests {
+
+  static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+  AtomicLong clock = new AtomicLong(1_000);
+  PoolMonitor monitor = new PoolMonitor(SLOW, clock::get);
+
+  @Test
+  void sample_reports_usage_peak_and_slow_waits_since_the_previous_sample() {
+    monitor.recordConnectionAcquiredNanos(1_000);
+    monitor.recordConnectionAcquiredNanos(SLOW + 1);
+    monitor.recordConnectionAcquiredNanos(SLOW);
+    monitor.recordConnectionUsageMillis(40);
+    monitor.recordConnectionTimeout();
+    clock.addAndGet(500);
+
+    assertEquals(new PoolMonitor.Sample(500, 40, 3, 1, 1), monitor.sample());
+
+    monitor.recordConnectionUsageMillis(10);
+    clock.addAndGet(100);
+
+    // two connections are still borrowed
+    assertEquals(new PoolMonitor.Sample(100, 10, 2, 0, 0), monitor.sample());
+    assertEquals(3, monitor.getAcquisitions());
+    assertEquals(1, monitor.getTimeouts());
+    assertEquals(2L, monitor.getWaits().getCounts().get("100-200ms"));
+  }
+
+  @Test
+  void saturated_after_a_slow_wait_until_the_window_passes() {
+    assertFalse(monitor.isSaturated(5_000));
+
+    monitor.recordConnectionAcquiredNanos(SLOW);
+    assertFalse(monitor.isSaturated(5_000));
+
+    monitor.recordConnectionAcquiredNanos(SLOW * 3);
+    clock.addAndGet(4_999);
+    assertTrue(monitor.isSaturated(5_000));
+
+    clock.addAndGet(1);
+    assertFalse(monitor.isSaturated(5_000));
+  }
+
+  @Test
+  void saturated_after_a_timeout() {
+    monitor.recordConnectionTimeout();
+
+    assertTrue(monitor.isSaturated(5_000));
+  }
+}
@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class WaitHistogramTests {
+
+  @Test
+  void waits_are_counted_in_their_buckets() {
+    WaitHistogram histogram = new WaitHistogram();
+
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(300));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(150));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(199));
+    histogram.record(TimeUnit.SECONDS.toNanos(30));
+
+    Map<String, Long> counts = histogram.getCounts();
+    assertEquals(List.of("<1ms", "1-2ms", "2-5ms", "5-10ms", "10-20ms", "20-50ms", "50-100ms", "100-200ms",
+        "200-500ms", "500-1000ms", "1000-2000ms", "2000-5000ms", ">=5000ms"), List.copyOf(counts.keySet()));
+    assertEquals(1L, counts.get("<1ms"));
+    assertEquals(1L, counts.get("1-2ms"));
+    assertEquals(2L, counts.get("100-200ms"));
+    assertEquals(1L, counts.get(">=5000ms"));
+    assertEquals(5L, counts.values().stream().mapToLong(Long::longValue).sum());
+  }
+}
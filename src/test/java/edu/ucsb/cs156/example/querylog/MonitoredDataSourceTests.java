@@ -0,0 +1,123 @@
+package edu.ucsb.cs156.example.querylog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import edu.ucsb.cs156.example.querylog.QueryMonitor.QueryStats;
+
+class MonitoredDataSourceTests {
+
+  QueryMonitor monitor = new QueryMonitor(new QueryLogProperties());
+  DriverManagerDataSource target = new DriverManagerDataSource(
+      "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+  MonitoredDataSource dataSource = new MonitoredDataSource(target, monitor);
+
+  @BeforeEach
+  void setup() throws SQLException {
+    try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE T (ID INT, NAME VARCHAR(20))");
+    }
+  }
+
+  List<String> timed() {
+    return monitor.getSlowest(100).stream().map(QueryStats::sql).sorted().toList();
+  }
+
+  @Test
+  void prepared_statements_are_timed() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+      insert.setInt(1, 1);
+      insert.setString(2, "one");
+      assertEquals(1, insert.executeUpdate());
+      insert.clearParameters();
+      insert.setInt(1, 2);
+      insert.setNull(2, Types.VARCHAR);
+      insert.addBatch();
+      insert.setEscapeProcessing(true);
+      insert.executeBatch();
+      assertTrue(connection.getAutoCommit());
+    }
+
+    try (Connection connection = dataSource.getConnection("sa", "");
+        PreparedStatement select = connection.prepareStatement("SELECT NAME FROM T WHERE ID = ?")) {
+      select.setInt(1, 1);
+      try (ResultSet rs = select.executeQuery()) {
+        assertTrue(rs.next());
+        assertEquals("one", rs.getString(1));
+      }
+    }
+
+    assertEquals(List.of("INSERT INTO T VALUES (?...)", "SELECT NAME FROM T WHERE ID = ?"), timed());
+    assertEquals(2, monitor.getSlowest(100).stream()
+        .filter(stats -> stats.sql().startsWith("INSERT")).findFirst().orElseThrow().count());
+  }
+
+  @Test
+  void plain_statements_are_timed() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        Statement scrollable = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)) {
+      statement.executeUpdate("INSERT INTO T VALUES (1, 'one')");
+      try (ResultSet rs = scrollable.executeQuery("SELECT COUNT(*) FROM T")) {
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+      }
+    }
+
+    assertEquals(List.of("INSERT INTO T VALUES (?...)", "SELECT COUNT(*) FROM T"), timed());
+  }
+
+  @Test
+  void failed_statements_are_timed_and_rethrown() throws SQLException {
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      assertThrows(SQLException.class, () -> statement.executeQuery("SELECT * FROM MISSING"));
+    }
+
+    assertEquals(List.of("SELECT * FROM MISSING"), timed());
+  }
+
+  @Test
+  void callable_statements_are_timed() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        CallableStatement call = connection.prepareCall("SELECT ?")) {
+      call.setInt(1, 1);
+      // H2 has no named parameters
+      assertThrows(SQLException.class, () -> call.setString("name", "x"));
+      call.execute();
+    }
+
+    assertEquals(List.of("SELECT ?"), timed());
+  }
+
+  @Test
+  void close_closes_a_pool() throws Exception {
+    DataSource pool = mock(DataSource.class, withSettings().extraInterfaces(AutoCloseable.class));
+
+    new MonitoredDataSource(pool, monitor).close();
+    dataSource.close();
+
+    verify((AutoCloseable) pool).close();
+  }
+}
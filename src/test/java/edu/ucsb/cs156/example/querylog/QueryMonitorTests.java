@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.querylog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.querylog.QueryMonitor.QueryStats;
+
+class QueryMonitorTests {
+
+  static final long MS = 1_000_000;
+
+  QueryLogProperties properties = new QueryLogProperties();
+
+  @Test
+  void statements_are_timed_by_normalized_form() {
+    QueryMonitor monitor = new QueryMonitor(properties);
+
+    monitor.record("select * from restaurants where id=1", 2 * MS, Map.of());
+    monitor.record("select * from restaurants where id=2", 4 * MS, Map.of());
+    monitor.record("select * from articles", 1 * MS, Map.of());
+
+    assertEquals(List.of(
+        new QueryStats("select * from restaurants where id=?", 2, 3.0, 4.0, 6.0),
+        new QueryStats("select * from articles", 1, 1.0, 1.0, 1.0)),
+        monitor.getSlowest(10));
+    assertEquals(List.of(new QueryStats("select * from restaurants where id=?", 2, 3.0, 4.0, 6.0)),
+        monitor.getSlowest(1));
+  }
+
+  @Test
+  void statements_past_the_maximum_are_not_timed() {
+    properties.setMaxStatements(1);
+    QueryMonitor monitor = new QueryMonitor(properties);
+
+    monitor.record("select * from restaurants", MS, Map.of());
+    monitor.record("select * from articles", MS, Map.of());
+    monitor.record("select * from restaurants", MS, Map.of());
+
+    assertEquals(List.of(new QueryStats("select * from restaurants", 2, 1.0, 1.0, 2.0)), monitor.getSlowest(10));
+  }
+
+  @Test
+  void slow_statements_are_still_timed() {
+    properties.setSlowThreshold(Duration.ofMillis(10));
+    QueryMonitor monitor = new QueryMonitor(properties);
+
+    monitor.record("select * from restaurants where name=?", 20 * MS, Map.of(1, "Pizza"));
+
+    assertEquals(List.of(new QueryStats("select * from restaurants where name=?", 1, 20.0, 20.0, 20.0)),
+        monitor.getSlowest(10));
+  }
+
+  @Test
+  void format_quotes_strings_and_cuts_long_values_short() {
+    properties.setMaxParameterLength(5);
+    QueryMonitor monitor = new QueryMonitor(properties);
+    Map<Integer, Object> parameters = new TreeMap<>(Map.of(1, "abc", 2, 12, 3, "abcdefgh"));
+    parameters.put(4, null);
+
+    assertEquals("['abc', 12, 'abcd..., null]", monitor.format(parameters));
+  }
+
+  @Test
+  void requests_are_counted() {
+    properties.setStatementBudget(2);
+    QueryMonitor monitor = new QueryMonitor(properties);
+
+    monitor.beginRequest();
+    monitor.record("select * from restaurants", MS, Map.of());
+    monitor.record("select * from articles", MS, Map.of());
+    assertEquals(2, monitor.endRequest("GET /api/restaurants/all"));
+
+    monitor.beginRequest();
+    monitor.record("select * from restaurants", MS, Map.of());
+    monitor.record("select * from articles where id=1", MS, Map.of());
+    monitor.record("select * from articles where id=2", MS, Map.of());
+    assertEquals(3, monitor.endRequest("GET /api/restaurants/all"));
+
+    // not counted against any request
+    monitor.record("select * from restaurants", MS, Map.of());
+
+    assertEquals(Map.of("requests", 2L, "overBudget", 1L), monitor.getRequestStats());
+  }
+}
@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.querylog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class SqlNormalizerTests {
+
+  @Test
+  void literals_become_placeholders() {
+    assertEquals("select * from restaurants where name=? and id>? and price<?",
+        SqlNormalizer.normalize("select * from restaurants where name='Joe''s' and id>-12 and price<3.50"));
+  }
+
+  @Test
+  void in_lists_are_collapsed() {
+    assertEquals("select * from restaurants where id in (?...)",
+        SqlNormalizer.normalize("select * from restaurants where id in (1, 2,3)"));
+    assertEquals("select * from restaurants where id in (?...)",
+        SqlNormalizer.normalize("select * from restaurants where id in ( ?,? )"));
+  }
+
+  @Test
+  void numbers_inside_names_are_kept() {
+    assertEquals("select r1_0.id from restaurants r1_0 where r1_0.id=?",
+        SqlNormalizer.normalize("select r1_0.id from restaurants r1_0 where r1_0.id=?"));
+  }
+
+  @Test
+  void whitespace_is_collapsed() {
+    assertEquals("select * from restaurants", SqlNormalizer.normalize("  select *\n\tfrom   restaurants \n"));
+  }
+}
@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.querylog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ServletException;
+
+class StatementCountingFilterTests {
+
+  QueryMonitor monitor = new QueryMonitor(new QueryLogProperties());
+  StatementCountingFilter filter = new StatementCountingFilter(monitor);
+
+  @Test
+  void statements_run_by_the_request_are_counted() throws Exception {
+    filter.doFilter(new MockHttpServletRequest("GET", "/api/restaurants/all"), new MockHttpServletResponse(),
+        (request, response) -> monitor.record("select * from restaurants", 1, Map.of()));
+
+    assertEquals(Map.of("requests", 1L, "overBudget", 0L), monitor.getRequestStats());
+  }
+
+  @Test
+  void requests_that_fail_are_counted() {
+    assertThrows(ServletException.class, () -> filter.doFilter(
+        new MockHttpServletRequest("GET", "/api/restaurants/all"), new MockHttpServletResponse(),
+        (request, response) -> {
+          throw new ServletException("failed");
+        }));
+
+    assertEquals(Map.of("requests", 1L, "overBudget", 0L), monitor.getRequestStats());
+  }
+}
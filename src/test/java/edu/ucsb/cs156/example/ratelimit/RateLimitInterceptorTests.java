@@ -0,0 +1,83 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import edu.ucsb.cs156.example.controllers.HelpRequestController;
+import edu.ucsb.cs156.example.controllers.UCSBDatesController;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+
+class RateLimitInterceptorTests {
+
+  AtomicLong clock = new AtomicLong(0);
+  CurrentUserService currentUserService = mock(CurrentUserService.class);
+  RateLimitInterceptor interceptor;
+
+  @BeforeEach
+  void setup() {
+    RateLimitProperties properties = new RateLimitProperties();
+    properties.setDefaultLimit(new RateLimitProperties.Limit(2, Duration.ofSeconds(10)));
+    properties.setTags(Map.of("HelpRequest", new RateLimitProperties.Limit(1, Duration.ofSeconds(10))));
+    interceptor = new RateLimitInterceptor(new TokenBucketRateLimiter(100, clock::get), properties, currentUserService);
+  }
+
+  private HandlerMethod handler(Object controller, String methodName) throws Exception {
+    // the /all endpoints take the fields to return
+    return new HandlerMethod(controller, controller.getClass().getMethod(methodName, List.class));
+  }
+
+  private MockHttpServletRequest request(String method, String pattern) {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, pattern);
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+    return request;
+  }
+
+  @Test
+  void limits_are_taken_from_the_controller_tag() throws Exception {
+    when(currentUserService.getPrincipalName()).thenReturn("user");
+    HandlerMethod helpRequests = handler(new HelpRequestController(), "allHelpRequests");
+
+    assertTrue(interceptor.preHandle(request("GET", "/api/helprequest/all"), new MockHttpServletResponse(), helpRequests));
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    assertFalse(interceptor.preHandle(request("GET", "/api/helprequest/all"), response, helpRequests));
+    assertEquals(429, response.getStatus());
+    assertEquals("10", response.getHeader("Retry-After"));
+    assertTrue(response.getContentAsString().contains("TooManyRequests"));
+  }
+
+  @Test
+  void controllers_without_a_configured_tag_use_the_default_limit() throws Exception {
+    HandlerMethod dates = handler(new UCSBDatesController(), "allUCSBDates");
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ucsbdates/all");
+    request.setRemoteAddr("10.0.0.1");
+
+    assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), dates));
+    assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), dates));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    assertFalse(interceptor.preHandle(request, response, dates));
+    assertEquals("5", response.getHeader("Retry-After"));
+  }
+
+  @Test
+  void requests_not_handled_by_controllers_are_not_limited() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      assertTrue(interceptor.preHandle(request("GET", "/index.html"), new MockHttpServletResponse(), new Object()));
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketRateLimiterTests {
+
+  AtomicLong clock = new AtomicLong(1_000_000_000L);
+  RateLimitProperties.Limit threePerSecond = new RateLimitProperties.Limit(3, Duration.ofSeconds(1));
+
+  @Test
+  void allows_a_burst_of_capacity_then_limits() {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, clock::get);
+    assertEquals(0, limiter.tryAcquire("user", "GET /api/x", threePerSecond));
+    assertEquals(0, limiter.tryAcquire("user", "GET /api/x", threePerSecond));
+    assertEquals(0, limiter.tryAcquire("user", "GET /api/x", threePerSecond));
+    long wait = limiter.tryAcquire("user", "GET /api/x", threePerSecond);
+    assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1) / 3, "wait was " + wait);
+
+    clock.addAndGet(wait);
+    assertEquals(0, limiter.tryAcquire("user", "GET /api/x", threePerSecond));
+  }
+
+  @Test
+  void buckets_are_per_principal_and_route() {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, clock::get);
+    RateLimitProperties.Limit one = new RateLimitProperties.Limit(1, Duration.ofSeconds(1));
+    assertEquals(0, limiter.tryAcquire("user", "GET /api/x", one));
+    assertTrue(limiter.tryAcquire("user", "GET /api/x", one) > 0);
+    assertEquals(0, limiter.tryAcquire("other", "GET /api/x", one));
+    assertEquals(0, limiter.tryAcquire("user", "POST /api/x", one));
+    assertEquals(3, limiter.size());
+  }
+
+  @Test
+  void zero_capacity_means_no_limit() {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, clock::get);
+    RateLimitProperties.Limit none = new RateLimitProperties.Limit(0, Duration.ofSeconds(1));
+    for (int i = 0; i < 10; i++) {
+      assertEquals(0, limiter.tryAcquire("user", "GET /api/x", none));
+    }
+    assertEquals(0, limiter.size());
+  }
+
+  @Test
+  void idle_buckets_are_swept_when_full() {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, clock::get);
+    limiter.tryAcquire("a", "GET /api/x", threePerSecond);
+    limiter.tryAcquire("b", "GET /api/x", threePerSecond);
+    assertEquals(2, limiter.size());
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    limiter.tryAcquire("c", "GET /api/x", threePerSecond);
+    assertEquals(1, limiter.size());
+  }
+
+  @Test
+  void new_keys_share_an_overflow_bucket_when_all_buckets_are_busy() {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, clock::get);
+    RateLimitProperties.Limit one = new RateLimitProperties.Limit(1, Duration.ofSeconds(1));
+    assertEquals(0, limiter.tryAcquire("a", "GET /api/x", one));
+    assertEquals(0, limiter.tryAcquire("b", "GET /api/x", one));
+    assertTrue(limiter.tryAcquire("c", "GET /api/x", one) > 0);
+    assertEquals(1, limiter.size());
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    assertEquals(0, limiter.tryAcquire("c", "GET /api/x", one));
+    assertEquals(1, limiter.size());
+  }
+
+  @Test
+  void sweeps_run_at_most_once_per_interval() {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, Duration.ofSeconds(1), clock::get);
+    limiter.tryAcquire("a", "GET /api/x", threePerSecond);
+    limiter.tryAcquire("b", "GET /api/x", threePerSecond);
+    limiter.tryAcquire("c", "GET /api/x", threePerSecond);
+    assertEquals(2, limiter.size());
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    limiter.tryAcquire("d", "GET /api/x", threePerSecond);
+    assertEquals(2, limiter.size());
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    limiter.tryAcquire("e", "GET /api/x", threePerSecond);
+    assertEquals(1, limiter.size());
+  }
+}
@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.reference;
+
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+
+public class ReferenceDataRefresherTests {
+
+  ReferenceTable<UCSBDiningCommons, String> commonsTable;
+  ReferenceTable<UCSBOrganization, String> organizationTable;
+  ReferenceDataRefresher refresher;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() {
+    commonsTable = mock(ReferenceTable.class);
+    when(commonsTable.getEntityType()).thenReturn(UCSBDiningCommons.class);
+    organizationTable = mock(ReferenceTable.class);
+    when(organizationTable.getEntityType()).thenReturn(UCSBOrganization.class);
+  }
+
+  @AfterEach
+  void teardown() {
+    refresher.stop();
+  }
+
+  void start(Duration interval) {
+    refresher = new ReferenceDataRefresher(List.of(commonsTable, organizationTable), interval);
+    refresher.start();
+  }
+
+  @Test
+  void every_table_is_read_at_start_and_on_the_schedule() {
+    start(Duration.ofMillis(20));
+
+    verify(commonsTable, timeout(5000).atLeast(3)).refresh();
+    verify(organizationTable, timeout(5000).atLeast(3)).refresh();
+  }
+
+  @Test
+  void a_change_refreshes_only_its_table() {
+    start(Duration.ofHours(1));
+
+    refresher.onChange(new EntityChangeEvent("UCSBOrganization", ChangeAction.UPDATED, "ZPR"));
+    refresher.onChange(new EntityChangeEvent("Articles", ChangeAction.CREATED, 1L));
+
+    verify(commonsTable, times(1)).refresh();
+    verify(organizationTable, times(2)).refresh();
+  }
+
+  @Test
+  void a_failed_refresh_does_not_stop_the_others_or_the_schedule() {
+    when(commonsTable.refresh()).thenThrow(new DataAccessResourceFailureException("database is down"));
+
+    start(Duration.ofMillis(20));
+
+    verify(organizationTable, timeout(5000).atLeast(3)).refresh();
+    verify(commonsTable, atLeast(2)).refresh();
+  }
+}
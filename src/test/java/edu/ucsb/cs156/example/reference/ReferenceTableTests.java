@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.reference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+public class ReferenceTableTests {
+
+  ObjectMapper mapper = new ObjectMapper();
+  UCSBDiningCommonsRepository repository;
+  ReferenceTable<UCSBDiningCommons, String> table;
+
+  static UCSBDiningCommons commons(String code, String name) {
+    return UCSBDiningCommons.builder().code(code).name(name).latitude(34.4).longitude(-119.8).build();
+  }
+
+  @BeforeEach
+  void setup() {
+    repository = mock(UCSBDiningCommonsRepository.class);
+    table = new ReferenceTable<>(UCSBDiningCommons.class, repository, UCSBDiningCommons::getCode, mapper);
+  }
+
+  @Test
+  void snapshot_is_sorted_by_id_and_serialized() throws Exception {
+    UCSBDiningCommons portola = commons("portola", "Portola");
+    UCSBDiningCommons carrillo = commons("carrillo", "Carrillo");
+    when(repository.findAll()).thenReturn(List.of(portola, carrillo));
+
+    ReferenceTable.Snapshot<String> snapshot = table.getSnapshot();
+
+    assertArrayEquals(mapper.writeValueAsBytes(List.of(carrillo, portola)), snapshot.all());
+    assertArrayEquals(mapper.writeValueAsBytes(carrillo), snapshot.byId().get("carrillo"));
+    assertArrayEquals(mapper.writeValueAsBytes(portola), snapshot.byId().get("portola"));
+    assertEquals(2, snapshot.byId().size());
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.byId().remove("carrillo"));
+    assertEquals(UCSBDiningCommons.class, table.getEntityType());
+  }
+
+  @Test
+  void table_is_read_once_until_it_is_refreshed() {
+    when(repository.findAll()).thenReturn(List.of(commons("carrillo", "Carrillo")));
+
+    ReferenceTable.Snapshot<String> first = table.getSnapshot();
+    assertSame(first, table.getSnapshot());
+    verify(repository, times(1)).findAll();
+
+    ReferenceTable.Snapshot<String> second = table.refresh();
+    assertNotSame(first, second);
+    assertSame(second, table.getSnapshot());
+    verify(repository, times(2)).findAll();
+  }
+
+  @Test
+  void refresh_that_fails_keeps_the_previous_snapshot() {
+    when(repository.findAll())
+        .thenReturn(List.of(commons("carrillo", "Carrillo")))
+        .thenThrow(new DataAccessResourceFailureException("database is down"));
+    ReferenceTable.Snapshot<String> first = table.getSnapshot();
+
+    assertThrows(DataAccessResourceFailureException.class, table::refresh);
+
+    assertSame(first, table.getSnapshot());
+  }
+
+  @Test
+  void entity_that_cannot_be_serialized_fails_the_snapshot() throws Exception {
+    ObjectMapper failing = mock(ObjectMapper.class);
+    when(failing.writeValueAsBytes(any())).thenThrow(new JsonProcessingException("no serializer") {
+    });
+
+    assertThrows(UncheckedIOException.class,
+        () -> ReferenceTable.Snapshot.of(List.of(commons("carrillo", "Carrillo")), UCSBDiningCommons::getCode, failing));
+  }
+}
@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import edu.ucsb.cs156.example.config.JpaRepositoryConfig;
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import edu.ucsb.cs156.example.urlindex.CanonicalUrl;
+
+@DataJpaTest
+@Import(JpaRepositoryConfig.class)
+public class ArticlesRepositoryTests {
+
+  // ExampleApplication autowires this, and @DataJpaTest doesn't scan services
+  @MockBean
+  WiremockService wiremockService;
+
+  @Autowired
+  ArticlesRepository repository;
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  static Articles article(String url) {
+    return Articles.builder()
+        .title("First Article")
+        .url(url)
+        .explanation("This is the first article.")
+        .email("first@example.com")
+        .dateAdded(LocalDateTime.parse("2024-10-23T00:00:00"))
+        .build();
+  }
+
+  @Test
+  void saving_an_article_hashes_its_canonical_url() {
+    Articles saved = repository.save(article("http://www.first.com/news/?utm_medium=email"));
+
+    assertEquals(CanonicalUrl.hash("https://first.com/news"), saved.getUrlHash());
+    assertEquals(Optional.of(saved), repository.findByUrlHash(CanonicalUrl.hash("https://first.com/news")));
+  }
+
+  @Test
+  void updating_the_url_updates_the_hash() {
+    Articles saved = repository.save(article("https://first.com"));
+
+    saved.setUrl("https://second.com");
+    repository.save(saved);
+    entityManager.flush();
+
+    assertEquals(Optional.empty(), repository.findByUrlHash(CanonicalUrl.hash("https://first.com")));
+    assertEquals(Optional.of(saved), repository.findByUrlHash(CanonicalUrl.hash("https://second.com")));
+  }
+
+  @Test
+  void two_articles_cannot_have_the_same_canonical_url() {
+    repository.save(article("https://first.com"));
+
+    assertThrows(DataIntegrityViolationException.class,
+        () -> repository.save(article("http://first.com/")));
+  }
+
+  @Test
+  void articles_can_be_found_by_title_or_explanation_ignoring_case() {
+    Articles first = repository.save(article("https://first.com"));
+    Articles second = article("https://second.com");
+    second.setTitle("Second Article");
+    second.setExplanation("Follows the FIRST one.");
+    repository.save(second);
+    Articles third = article("https://third.com");
+    third.setTitle("Third Article");
+    third.setExplanation("Unrelated.");
+    repository.save(third);
+
+    assertEquals(List.of(first, second),
+        repository.findByTitleContainingIgnoreCaseOrExplanationContainingIgnoreCase("first", "first", PageRequest.of(0, 5)));
+    assertEquals(List.of(first),
+        repository.findByTitleContainingIgnoreCaseOrExplanationContainingIgnoreCase("first", "first", PageRequest.of(0, 1)));
+  }
+}
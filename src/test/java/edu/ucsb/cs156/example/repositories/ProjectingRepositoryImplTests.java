@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import edu.ucsb.cs156.example.config.JpaRepositoryConfig;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@Import(JpaRepositoryConfig.class)
+public class ProjectingRepositoryImplTests {
+
+  // ExampleApplication autowires this, and @DataJpaTest doesn't scan services
+  @MockBean
+  WiremockService wiremockService;
+
+  @Autowired
+  RestaurantRepository repository;
+
+  @Test
+  void findAllFields_returns_only_the_requested_fields_in_order() {
+    Restaurant saved = repository.save(Restaurant.builder()
+        .name("Freebirds").description("Burritos").build());
+
+    List<Map<String, Object>> rows = repository.findAllFields(List.of("name", " id", "name"));
+
+    assertEquals(List.of(Map.of("name", "Freebirds", "id", saved.getId())), rows);
+    assertEquals(List.of("name", "id"), List.copyOf(rows.get(0).keySet()));
+  }
+
+  @Test
+  void findAllFields_rejects_unknown_fields() {
+    UnknownFieldException e = assertThrows(UnknownFieldException.class,
+        () -> repository.findAllFields(List.of("id", "price", "calories")));
+    assertEquals("Restaurant has no field(s) price, calories", e.getMessage());
+  }
+
+  @Test
+  void findAllFields_rejects_fields_left_out_of_the_json() {
+    UnknownFieldException e = assertThrows(UnknownFieldException.class,
+        () -> repository.findAllFields(List.of("id", "nameLower")));
+    assertEquals("Restaurant has no field(s) nameLower", e.getMessage());
+    assertEquals(List.of(), repository.findAllFields(List.of("id")));
+  }
+}
@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import edu.ucsb.cs156.example.config.JpaRepositoryConfig;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@Import(JpaRepositoryConfig.class)
+public class RestaurantRepositoryTests {
+
+  // ExampleApplication autowires this, and @DataJpaTest doesn't scan services
+  @MockBean
+  WiremockService wiremockService;
+
+  @Autowired
+  RestaurantRepository repository;
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  Restaurant pizzeria;
+  Restaurant pizzaMyHeart;
+  Restaurant percent;
+  Restaurant deli;
+  Restaurant nameless;
+
+  Restaurant save(String name, String description) {
+    return repository.save(Restaurant.builder().name(name).description(description).build());
+  }
+
+  List<String> names(List<Restaurant> restaurants) {
+    return restaurants.stream().map(Restaurant::getName).toList();
+  }
+
+  @BeforeEach
+  void setup() {
+    pizzeria = save("Pizzeria Bello", "Wood fired");
+    pizzaMyHeart = save("PIZZA My Heart", "Pizza by the slice");
+    percent = save("Pizza 50% Off", "Discounts");
+    deli = save("Deli", "Sandwiches and pizza");
+    nameless = save(null, "Pizza, no name");
+    // load NAME_LOWER, which the database computes
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Test
+  void the_database_computes_the_lowercase_name() {
+    assertEquals("pizza my heart", repository.findById(pizzaMyHeart.getId()).get().getNameLower());
+    assertEquals("", repository.findById(nameless.getId()).get().getNameLower());
+  }
+
+  @Test
+  void prefix_search_matches_names_and_descriptions_in_order_of_name() {
+    assertEquals(Arrays.asList(null, "Pizza 50% Off", "PIZZA My Heart", "Pizzeria Bello"),
+        names(repository.findPageByNameOrDescriptionLike("pizz%", "", Long.MIN_VALUE, PageRequest.of(0, 10))));
+    assertEquals(List.of("Pizza 50% Off"),
+        names(repository.findPageByNameOrDescriptionLike("pizza 50\\%%", "", Long.MIN_VALUE, PageRequest.of(0, 10))));
+  }
+
+  @Test
+  void contains_search_pages_by_keyset() {
+    List<Restaurant> first = repository.findPageByNameOrDescriptionLike("%pizza%", "", Long.MIN_VALUE, PageRequest.of(0, 3));
+    Restaurant last = first.get(2);
+    List<Restaurant> second = repository.findPageByNameOrDescriptionLike("%pizza%", last.getNameLower(), last.getId(),
+        PageRequest.of(0, 3));
+
+    assertEquals(Arrays.asList(null, "Deli", "Pizza 50% Off"), names(first));
+    assertEquals(List.of("PIZZA My Heart"), names(second));
+  }
+
+  @Test
+  void blank_search_pages_through_every_restaurant() {
+    Restaurant twin = save("Deli", "Another one");
+    entityManager.flush();
+
+    List<Restaurant> first = repository.findPageByNameOrDescriptionLike("%", "", Long.MIN_VALUE, PageRequest.of(0, 2));
+    Restaurant last = first.get(1);
+    List<Restaurant> second = repository.findPageByNameOrDescriptionLike("%", last.getNameLower(), last.getId(),
+        PageRequest.of(0, 2));
+
+    assertEquals(List.of(nameless.getId(), deli.getId()), first.stream().map(Restaurant::getId).toList());
+    assertEquals(List.of(twin.getId(), percent.getId()), second.stream().map(Restaurant::getId).toList());
+  }
+}
@@ -0,0 +1,173 @@
+package edu.ucsb.cs156.example.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.events.ChangeAction;
+import edu.ucsb.cs156.example.events.EntityChangeEvent;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+public class MenuItemSearchIndexTests {
+
+  static final UCSBDiningCommonsMenuItem PASTA = item(1, "ortega", "Baked Pesto Pasta", "Entrees");
+  static final UCSBDiningCommonsMenuItem PESTO = item(2, "portola", "Pesto Gnocchi", "Entree Specials");
+  static final UCSBDiningCommonsMenuItem SOUP = item(3, "ortega", "Tomato Soup", "Soups");
+
+  UCSBDiningCommonsMenuItemRepository repository = mock(UCSBDiningCommonsMenuItemRepository.class);
+  MenuItemSearchIndex index;
+  MenuItemSearchIndex started;
+
+  static UCSBDiningCommonsMenuItem item(long id, String commons, String name, String station) {
+    return UCSBDiningCommonsMenuItem.builder().id(id).diningCommonsCode(commons).name(name).station(station).build();
+  }
+
+  @BeforeEach
+  void setup() {
+    when(repository.findAll()).thenReturn(List.of(PASTA, PESTO, SOUP));
+    index = new MenuItemSearchIndex(repository, Duration.ofHours(1));
+    index.reload();
+  }
+
+  @AfterEach
+  void teardown() {
+    if (started != null) {
+      started.stop();
+    }
+  }
+
+  @Test
+  void search_matches_name_and_station_with_typos() {
+    assertEquals(List.of(PASTA, PESTO), index.search("psto", null, 10));
+    assertEquals(List.of(PASTA, PESTO), index.search("entre", null, 10));
+    assertEquals(List.of(SOUP), index.search("tomatoe soups", null, 10));
+  }
+
+  @Test
+  void search_can_be_limited_to_a_dining_commons() {
+    assertEquals(List.of(PASTA), index.search("pesto", "ortega", 10));
+    assertEquals(List.of(), index.search("soup", "portola", 10));
+  }
+
+  @Test
+  void put_and_remove_update_the_index() {
+    UCSBDiningCommonsMenuItem renamed = item(3, "ortega", "Clam Chowder", null);
+    index.put(renamed);
+    index.remove(1);
+
+    assertEquals(List.of(), index.search("soup", null, 10));
+    assertEquals(List.of(renamed), index.search("chowder", null, 10));
+    assertEquals(List.of(PESTO), index.search("pesto", null, 10));
+  }
+
+  @Test
+  void reload_drops_items_that_are_gone() {
+    when(repository.findAll()).thenReturn(List.of(PESTO));
+
+    index.reload();
+
+    assertEquals(List.of(PESTO), index.search("pesto", null, 10));
+    assertEquals(List.of(), index.search("soup", null, 10));
+  }
+
+  @Test
+  void reload_keeps_changes_committed_while_it_reads_the_menu_items() {
+    UCSBDiningCommonsMenuItem created = item(4, "ortega", "Pesto Flatbread", "Pizza");
+    UCSBDiningCommonsMenuItem renamed = item(3, "ortega", "Clam Chowder", "Soups");
+    when(repository.findById(4L)).thenReturn(Optional.of(created));
+    when(repository.findById(3L)).thenReturn(Optional.of(renamed));
+    when(repository.findAll()).thenAnswer(invocation -> {
+      // committed after the reload read them
+      index.onChange(new EntityChangeEvent("UCSBDiningCommonsMenuItem", ChangeAction.CREATED, 4L));
+      index.onChange(new EntityChangeEvent("UCSBDiningCommonsMenuItem", ChangeAction.UPDATED, 3L));
+      return List.of(PASTA, PESTO, SOUP);
+    });
+
+    index.reload();
+
+    assertEquals(List.of(created), index.search("flatbread", null, 10));
+    assertEquals(List.of(renamed), index.search("chowder", null, 10));
+    assertEquals(List.of(), index.search("tomato", null, 10));
+  }
+
+  @Test
+  void search_skips_an_item_removed_while_it_was_being_put() {
+    UCSBDiningCommonsMenuItem bread = spy(item(4, "ortega", "Garlic Bread", "Sides"));
+    doAnswer(invocation -> {
+      index.remove(4L);
+      return invocation.callRealMethod();
+    }).when(bread).getName();
+
+    index.put(bread);
+
+    assertEquals(List.of(), index.search("garlic", "ortega", 10));
+    assertEquals(List.of(), index.search("garlic", null, 10));
+  }
+
+  @Test
+  void start_starts_empty_if_the_menu_items_cannot_be_read() {
+    when(repository.findAll()).thenThrow(new InvalidDataAccessResourceUsageException("no such column"));
+    started = new MenuItemSearchIndex(repository, Duration.ofHours(1));
+
+    started.start();
+
+    assertEquals(List.of(), started.search("pesto", null, 10));
+  }
+
+  @Test
+  void start_indexes_every_menu_item_and_reloads_on_the_schedule() {
+    started = new MenuItemSearchIndex(repository, Duration.ofMillis(20));
+
+    started.start();
+
+    assertEquals(List.of(SOUP), started.search("soup", null, 10));
+    // once for setup, once at start, then on the schedule
+    verify(repository, timeout(5000).atLeast(4)).findAll();
+  }
+
+  @Test
+  void committed_changes_are_indexed() {
+    UCSBDiningCommonsMenuItem renamed = item(3, "ortega", "Clam Chowder", null);
+    when(repository.findById(3L)).thenReturn(Optional.of(renamed));
+    when(repository.findById(2L)).thenReturn(Optional.empty());
+
+    index.onChange(new EntityChangeEvent("UCSBDiningCommonsMenuItem", ChangeAction.UPDATED, 3L));
+    index.onChange(new EntityChangeEvent("UCSBDiningCommonsMenuItem", ChangeAction.CREATED, 2L));
+    index.onChange(new EntityChangeEvent("UCSBDiningCommonsMenuItem", ChangeAction.DELETED, 1L));
+
+    assertEquals(List.of(renamed), index.search("chowder", null, 10));
+    assertEquals(List.of(), index.search("pesto", null, 10));
+  }
+
+  @Test
+  void imports_and_other_entities_are_left_to_the_reload() {
+    index.onChange(new EntityChangeEvent("UCSBDiningCommonsMenuItem", ChangeAction.IMPORTED, null));
+    index.onChange(new EntityChangeEvent("UCSBDiningCommons", ChangeAction.DELETED, "ortega"));
+
+    verify(repository, never()).findById(anyLong());
+    assertEquals(List.of(PASTA, PESTO), index.search("pesto", null, 10));
+  }
+
+  @Test
+  void as_a_search_source_ranks_hits_by_typos() {
+    assertEquals("ucsbdiningcommonsmenuitem", index.getType());
+    assertEquals(List.of(new SearchHit("ucsbdiningcommonsmenuitem", 3L, "Tomato Soup", 0)), index.search("soup", 10));
+    assertEquals(List.of(new SearchHit("ucsbdiningcommonsmenuitem", 1L, "Baked Pesto Pasta", 1)), index.search("psta", 10));
+  }
+}
@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+
+public class RepositorySearchSourceTests {
+
+  static final Restaurant PASTA_PLACE = Restaurant.builder().id(1).name("Pasta Place").description("Italian").build();
+  static final Restaurant DELI = Restaurant.builder().id(2).name("Deli").description("Sandwiches and pasta salad").build();
+  static final Restaurant NAMELESS = Restaurant.builder().id(3).description("Pasta").build();
+
+  List<String> queries = new ArrayList<>();
+  List<Pageable> pages = new ArrayList<>();
+  PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+  RepositorySearchSource<Restaurant> source = new RepositorySearchSource<>("restaurants",
+      (query, page) -> {
+        queries.add(query);
+        pages.add(page);
+        return List.of(DELI, PASTA_PLACE, NAMELESS);
+      },
+      Restaurant::getId, Restaurant::getName, transactionManager, Duration.ofMillis(2500));
+
+  @Test
+  void search_ranks_title_matches_first() {
+    assertEquals("restaurants", source.getType());
+    assertEquals(List.of(
+        new SearchHit("restaurants", 2L, "Deli", 1),
+        new SearchHit("restaurants", 1L, "Pasta Place", 0),
+        new SearchHit("restaurants", 3L, null, 1)),
+        source.search(" PASTA ", 5));
+    assertEquals(List.of("PASTA"), queries);
+    assertEquals(List.of(PageRequest.of(0, 5)), pages);
+  }
+
+  @Test
+  void search_runs_read_only_with_the_deadline_as_its_timeout_in_whole_seconds() {
+    source.search("pasta", 5);
+
+    ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+    verify(transactionManager).getTransaction(definition.capture());
+    assertTrue(definition.getValue().isReadOnly());
+    assertEquals(3, definition.getValue().getTimeout());
+  }
+}
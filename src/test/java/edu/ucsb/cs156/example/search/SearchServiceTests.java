@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiFunction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.search.SearchService.SearchResults;
+
+public class SearchServiceTests {
+
+  static final SearchHit PASTA_PLACE = new SearchHit("restaurants", 1L, "Pasta Place", 0);
+  static final SearchHit DELI = new SearchHit("restaurants", 2L, "Deli", 1);
+  static final SearchHit PASTA = new SearchHit("ucsbdiningcommonsmenuitem", 7L, "Baked Pesto Pasta", 0);
+  static final SearchHit PESTO = new SearchHit("ucsbdiningcommonsmenuitem", 8L, "Pesto Gnocchi", 2);
+  static final SearchHit ARTICLE = new SearchHit("articles", 3L, "Pasta", 0);
+
+  /** released at the end of each test, so that slow searches finish */
+  CountDownLatch release = new CountDownLatch(1);
+
+  SearchService service;
+
+  static SearchSource source(String type, BiFunction<String, Integer, List<SearchHit>> search) {
+    return new SearchSource() {
+      @Override
+      public String getType() {
+        return type;
+      }
+
+      @Override
+      public List<SearchHit> search(String query, int limit) {
+        return search.apply(query, limit);
+      }
+    };
+  }
+
+  SearchSource slow(String type) {
+    return source(type, (query, limit) -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return List.of(new SearchHit(type, 99L, "Too late", 0));
+    });
+  }
+
+  @BeforeEach
+  void setup() {
+    service = new SearchService(List.of(
+        source("restaurants", (query, limit) -> List.of(DELI, PASTA_PLACE)),
+        source("ucsbdiningcommonsmenuitem", (query, limit) -> List.of(PESTO, PASTA)),
+        source("articles", (query, limit) -> List.of(ARTICLE)),
+        slow("ucsborganization"),
+        source("ucsbdiningcommons", (query, limit) -> {
+          throw new IllegalStateException("database is down");
+        })),
+        Duration.ofMillis(100), 10);
+    service.start();
+  }
+
+  @AfterEach
+  void teardown() {
+    release.countDown();
+    service.stop();
+  }
+
+  @Test
+  void search_merges_the_best_hits_of_the_selected_types() {
+    assertEquals(new SearchResults(List.of(ARTICLE, PASTA_PLACE, PASTA, DELI, PESTO), List.of()),
+        service.search("pasta", List.of("restaurants", " UCSBDiningCommonsMenuItem", "articles", "restaurants"), 10));
+  }
+
+  @Test
+  void search_keeps_only_the_best_hits() {
+    assertEquals(new SearchResults(List.of(ARTICLE, PASTA_PLACE, PASTA), List.of()),
+        service.search("pasta", List.of("restaurants", "ucsbdiningcommonsmenuitem", "articles"), 3));
+  }
+
+  @Test
+  void search_leaves_out_types_that_are_slow_or_fail() {
+    long begin = System.nanoTime();
+
+    SearchResults results = service.search("pasta", null, 10);
+
+    assertEquals(List.of(ARTICLE, PASTA_PLACE, PASTA, DELI, PESTO), results.hits());
+    assertEquals(List.of("ucsborganization", "ucsbdiningcommons"), results.incomplete());
+    assertTrue(System.nanoTime() - begin < Duration.ofSeconds(2).toNanos());
+  }
+
+  @Test
+  void search_leaves_out_types_that_cannot_get_a_turn_before_the_deadline() {
+    SearchService oneAtATime = new SearchService(List.of(
+        slow("ucsborganization"),
+        source("articles", (query, limit) -> List.of(ARTICLE))),
+        Duration.ofMillis(100), 1);
+    oneAtATime.start();
+    try {
+      // the slow search keeps its turn after it is left out
+      assertEquals(List.of("ucsborganization"), oneAtATime.search("pasta", List.of("ucsborganization"), 10).incomplete());
+
+      assertEquals(new SearchResults(List.of(), List.of("articles")), oneAtATime.search("pasta", List.of("articles"), 10));
+
+      release.countDown();
+      assertEquals(new SearchResults(List.of(ARTICLE), List.of()), oneAtATime.search("pasta", List.of("articles"), 10));
+    } finally {
+      oneAtATime.stop();
+    }
+  }
+
+  @Test
+  void search_of_all_types_when_none_are_given() {
+    assertEquals(List.of("ucsborganization", "ucsbdiningcommons"), service.search("pasta", List.of(), 10).incomplete());
+  }
+
+  @Test
+  void search_leaves_out_the_remaining_types_when_interrupted() {
+    Thread.currentThread().interrupt();
+    try {
+      SearchResults results = service.search("pasta", List.of("ucsborganization"), 10);
+
+      assertEquals(new SearchResults(List.of(), List.of("ucsborganization")), results);
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  void search_of_a_blank_query_finds_nothing() {
+    assertEquals(new SearchResults(List.of(), List.of()), service.search("  ", null, 10));
+  }
+
+  @Test
+  void search_of_an_unknown_type_throws() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> service.search("pasta", List.of("articles", "users"), 10));
+    assertEquals("Cannot search users; the types are [restaurants, ucsbdiningcommonsmenuitem, articles, ucsborganization, ucsbdiningcommons]",
+        e.getMessage());
+  }
+}
@@ -0,0 +1,126 @@
+package edu.ucsb.cs156.example.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.search.TrigramIndex.Match;
+
+public class TrigramIndexTests {
+
+  TrigramIndex index;
+
+  @BeforeEach
+  void setup() {
+    index = new TrigramIndex();
+    index.put(1, "Baked Pesto Pasta with Chicken Entrees");
+    index.put(2, "Pesto Pasta Entrees");
+    index.put(3, "Chicken Tikka Masala Entrees");
+    index.put(4, "Cr\u00e8me Br\u00fbl\u00e9e Desserts");
+    index.put(5, "Tomato Soup Soups");
+  }
+
+  static List<Long> ids(List<Match> matches) {
+    return matches.stream().map(Match::id).toList();
+  }
+
+  @Test
+  void exact_words_match_and_shorter_texts_rank_first() {
+    assertEquals(List.of(new Match(2, 0), new Match(1, 0)), index.search("pesto pasta", 10, id -> true));
+  }
+
+  @Test
+  void misspelled_words_match_within_their_budget() {
+    assertEquals(List.of(new Match(2, 2), new Match(1, 2)), index.search("psto pastaa", 10, id -> true));
+    // "chiken" is one typo from "chicken", "tika" one from "tikka"
+    assertEquals(List.of(new Match(3, 2)), index.search("chiken tika", 10, id -> true));
+    // two typos are too many for a 6 letter word
+    assertEquals(List.of(), index.search("psstoo", 10, id -> true));
+  }
+
+  @Test
+  void words_match_the_start_of_longer_words() {
+    assertEquals(List.of(3L, 1L), ids(index.search("chick", 10, id -> true)));
+    assertEquals(List.of(4L), ids(index.search("bru", 10, id -> true)));
+    // short words must be exact
+    assertEquals(List.of(), ids(index.search("brx", 10, id -> true)));
+  }
+
+  @Test
+  void exact_matches_rank_before_typos() {
+    index.put(6, "Pasto Bar");
+    assertEquals(List.of(new Match(2, 0), new Match(1, 0), new Match(6, 1)), index.search("pasta", 10, id -> true));
+    assertEquals(List.of(new Match(2, 0)), index.search("pasta", 1, id -> true));
+  }
+
+  @Test
+  void accents_and_case_are_ignored() {
+    assertEquals(List.of(4L), ids(index.search("CREME brulee", 10, id -> true)));
+  }
+
+  @Test
+  void every_query_word_must_match() {
+    assertEquals(List.of(), index.search("pesto soup", 10, id -> true));
+  }
+
+  @Test
+  void results_are_filtered_and_limited() {
+    assertEquals(List.of(3L), ids(index.search("entrees", 10, id -> id == 3)));
+    assertEquals(List.of(2L, 3L), ids(index.search("entrees", 2, id -> true)));
+  }
+
+  @Test
+  void queries_without_words_match_nothing() {
+    assertEquals(List.of(), index.search(" - ", 10, id -> true));
+    assertEquals(List.of(), index.search(null, 10, id -> true));
+  }
+
+  @Test
+  void put_replaces_and_remove_removes() {
+    index.put(2, "Pesto Gnocchi Entrees");
+    assertEquals(List.of(1L), ids(index.search("pesto pasta", 10, id -> true)));
+    assertEquals(List.of(2L), ids(index.search("gnocchi", 10, id -> true)));
+
+    index.remove(2);
+    index.remove(2);
+    index.remove(99);
+    assertEquals(List.of(), ids(index.search("gnocchi", 10, id -> true)));
+    assertEquals(4, index.size());
+
+    index.put(5, null);
+    assertEquals(List.of(), ids(index.search("soup", 10, id -> true)));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  void posting_lists_grow_and_stay_sorted() {
+    TrigramIndex many = new TrigramIndex();
+    for (long id = 20; id > 0; id--) {
+      many.put(id, "pasta number " + id);
+    }
+    many.remove(10);
+    assertEquals(19, many.search("pasta", 100, id -> true).size());
+    assertEquals(List.of(7L), ids(many.search("pasta 7", 100, id -> true)));
+  }
+
+  @Test
+  void edit_distance_gives_up_past_the_maximum() {
+    assertEquals(1, TrigramIndex.editDistance("pasta", "psta", 2));
+    assertEquals(2, TrigramIndex.editDistance("pasta", "pstaa", 2));
+    assertEquals(3, TrigramIndex.editDistance("pasta", "soup", 2));
+    assertEquals(2, TrigramIndex.editDistance("ax", "xa", 1));
+    assertEquals(2, TrigramIndex.editDistance("a", "abc", 1));
+  }
+
+  @Test
+  void words_and_trigrams() {
+    assertArrayEquals(new String[] { "creme", "brulee", "2" }, TrigramIndex.words(" Cr\u00e8me-Br\u00fbl\u00e9e (2) "));
+    assertEquals(Set.of("  p", " pa", "pas", "  a"), TrigramIndex.trigrams(new String[] { "pas", "a" }, false));
+    assertEquals(Set.of("  a", " ab", "ab "), TrigramIndex.trigrams(new String[] { "ab" }, true));
+  }
+}
@@ -3,6 +3,8 @@ package edu.ucsb.cs156.example.services;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,8 @@ import org.junit.jupiter.api.Test;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
 import org.mockito.Answers;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 class CurrentUserServiceTests extends ControllerTestCase {
 
@@ -27,4 +31,24 @@ class CurrentUserServiceTests extends ControllerTestCase {
     assertTrue(currentUserService.isLoggedIn());
   }
 
+  @Test
+  void test_isAdmin_reads_the_granted_authorities() {
+    CurrentUserService currentUserService = mock(CurrentUserService.class, Answers.CALLS_REAL_METHODS);
+    try {
+      SecurityContextHolder.clearContext();
+      assertFalse(currentUserService.isAdmin());
+
+      SecurityContextHolder.getContext().setAuthentication(
+          new TestingAuthenticationToken("user", null, "ROLE_USER"));
+      assertFalse(currentUserService.isAdmin());
+
+      SecurityContextHolder.getContext().setAuthentication(
+          new TestingAuthenticationToken("admin", null, "ROLE_USER", "ROLE_ADMIN"));
+      assertTrue(currentUserService.isAdmin());
+    } finally {
+      SecurityContextHolder.clearContext();
+    }
+    verify(currentUserService, never()).getUser();
+  }
+
 }
@@ -0,0 +1,241 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+
+public class HelpRequestStatsTests {
+
+  /** the table from db/migration/changes/HelpRequestHourly.json */
+  static final String DDL = "CREATE TABLE HELPREQUEST_HOURLY (BUCKET_START TIMESTAMP NOT NULL, TEAM_ID VARCHAR(255) NOT NULL, "
+      + "TABLE_OR_BREAKOUT_ROOM VARCHAR(255) NOT NULL, REQUESTS BIGINT NOT NULL, SOLVED BIGINT NOT NULL, "
+      + "TIMED_SOLVES BIGINT NOT NULL, SOLVE_SECONDS BIGINT NOT NULL, "
+      + "PRIMARY KEY (BUCKET_START, TEAM_ID, TABLE_OR_BREAKOUT_ROOM))";
+
+  static final LocalDateTime TEN = LocalDateTime.parse("2024-10-02T10:00:00");
+  static final LocalDateTime ELEVEN = LocalDateTime.parse("2024-10-02T11:00:00");
+
+  JdbcTemplate jdbcTemplate;
+  HelpRequestStats stats;
+
+  @BeforeEach
+  void setup() {
+    jdbcTemplate = new JdbcTemplate(
+        new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute(DDL);
+    // it is 10:45 UTC, in a zone whose local time is UTC
+    Clock clock = Clock.fixed(Instant.parse("2024-10-02T10:45:00Z"), ZoneOffset.UTC);
+    stats = new HelpRequestStats(jdbcTemplate, clock);
+  }
+
+  @AfterEach
+  void teardown() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  static HelpRequest request(LocalDateTime requestTime, String teamId, String room, boolean solved) {
+    return HelpRequest.builder()
+        .requesterEmail("a@ucsb.edu")
+        .teamId(teamId)
+        .tableOrBreakoutRoom(room)
+        .requestTime(requestTime)
+        .solved(solved)
+        .build();
+  }
+
+  static Map<String, Object> row(Object... keysAndValues) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      row.put((String) keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return row;
+  }
+
+  @Test
+  void new_requests_are_counted_per_hour_team_and_room() {
+    stats.recordCreated(request(TEN.plusMinutes(5), "s22-5pm-3", "7", false));
+    stats.recordCreated(request(TEN.plusMinutes(30), "s22-5pm-3", "7", true));
+    stats.recordCreated(request(ELEVEN, "s22-5pm-3", "8", false));
+    stats.recordCreated(request(ELEVEN, null, null, false));
+    stats.recordCreated(request(null, "s22-5pm-3", "7", false));
+
+    assertEquals(List.of(
+        row("hour", TEN, "teamId", "s22-5pm-3", "tableOrBreakoutRoom", "7", "requests", 2L, "solved", 1L, "avgSecondsToSolve", null),
+        row("hour", ELEVEN, "teamId", "", "tableOrBreakoutRoom", "", "requests", 1L, "solved", 0L, "avgSecondsToSolve", null),
+        row("hour", ELEVEN, "teamId", "s22-5pm-3", "tableOrBreakoutRoom", "8", "requests", 1L, "solved", 0L, "avgSecondsToSolve", null)),
+        stats.getStats(null, null, null));
+  }
+
+  @Test
+  void solving_a_request_records_its_time_to_solve() {
+    HelpRequest helpRequest = request(TEN.plusMinutes(15), "s22-5pm-3", "7", false);
+    stats.recordCreated(helpRequest);
+    stats.recordCreated(request(TEN.plusMinutes(20), "s22-5pm-3", "7", false));
+
+    HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setSolved(true);
+    stats.recordUpdated(before, helpRequest);
+
+    // solved at 10:45, 30 minutes after it was requested
+    assertEquals(List.of(row("teamId", "s22-5pm-3", "requests", 2L, "solved", 1L, "avgSecondsToSolve", 1800.0)),
+        stats.getStats(null, null, List.of("teamId")));
+  }
+
+  @Test
+  void update_moves_the_counts_to_the_new_team() {
+    HelpRequest helpRequest = request(TEN, "s22-5pm-3", "7", true);
+    stats.recordCreated(helpRequest);
+
+    HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setTeamId("s22-6pm-1");
+    stats.recordUpdated(before, helpRequest);
+
+    assertEquals(List.of(row("teamId", "s22-6pm-1", "requests", 1L, "solved", 1L, "avgSecondsToSolve", null)),
+        stats.getStats(null, null, List.of("teamId")));
+  }
+
+  @Test
+  void unsolving_a_request_only_changes_the_solved_count() {
+    HelpRequest helpRequest = request(TEN, "s22-5pm-3", "7", true);
+    stats.recordCreated(helpRequest);
+
+    HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setSolved(false);
+    stats.recordUpdated(before, helpRequest);
+
+    assertEquals(List.of(row("tableOrBreakoutRoom", "7", "requests", 1L, "solved", 0L, "avgSecondsToSolve", null)),
+        stats.getStats(null, null, List.of("tableOrBreakoutRoom")));
+  }
+
+  @Test
+  void moving_a_solved_request_moves_its_time_to_solve() {
+    HelpRequest helpRequest = request(TEN.plusMinutes(15), "s22-5pm-3", "7", false);
+    stats.recordCreated(helpRequest);
+    HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setSolved(true);
+    stats.recordUpdated(before, helpRequest);
+
+    before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setTeamId("s22-6pm-1");
+    stats.recordUpdated(before, helpRequest);
+
+    assertEquals(List.of(row("teamId", "s22-6pm-1", "requests", 1L, "solved", 1L, "avgSecondsToSolve", 1800.0)),
+        stats.getStats(null, null, List.of("teamId")));
+    assertEquals(0L, jdbcTemplate.queryForObject(
+        "SELECT TIMED_SOLVES + SOLVE_SECONDS FROM HELPREQUEST_HOURLY WHERE TEAM_ID = 's22-5pm-3'", Long.class));
+  }
+
+  @Test
+  void unsolving_and_solving_again_counts_the_time_once() {
+    HelpRequest helpRequest = request(TEN.plusMinutes(15), "s22-5pm-3", "7", false);
+    stats.recordCreated(helpRequest);
+    HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setSolved(true);
+    stats.recordUpdated(before, helpRequest);
+
+    before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setSolved(false);
+    stats.recordUpdated(before, helpRequest);
+    assertEquals(null, helpRequest.getSolveSeconds());
+
+    before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setSolved(true);
+    stats.recordUpdated(before, helpRequest);
+
+    assertEquals(1800L, helpRequest.getSolveSeconds());
+    assertEquals(List.of(row("teamId", "s22-5pm-3", "requests", 1L, "solved", 1L, "avgSecondsToSolve", 1800.0)),
+        stats.getStats(null, null, List.of("teamId")));
+    assertEquals(1L, jdbcTemplate.queryForObject("SELECT TIMED_SOLVES FROM HELPREQUEST_HOURLY", Long.class));
+  }
+
+  @Test
+  void deleting_a_timed_request_takes_its_time_out() {
+    HelpRequest helpRequest = request(TEN.plusMinutes(15), "s22-5pm-3", "7", false);
+    stats.recordCreated(helpRequest);
+    stats.recordCreated(request(TEN, "s22-5pm-3", "7", false));
+    HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setSolved(true);
+    stats.recordUpdated(before, helpRequest);
+
+    stats.recordDeleted(helpRequest);
+
+    assertEquals(List.of(row("teamId", "s22-5pm-3", "requests", 1L, "solved", 0L, "avgSecondsToSolve", null)),
+        stats.getStats(null, null, List.of("teamId")));
+  }
+
+  @Test
+  void solving_a_request_without_a_time_is_not_counted() {
+    HelpRequest helpRequest = request(null, "s22-5pm-3", "7", false);
+    stats.recordCreated(helpRequest);
+
+    HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setSolved(true);
+    stats.recordUpdated(before, helpRequest);
+
+    assertEquals(List.of(), stats.getStats(null, null, null));
+  }
+
+  @Test
+  void update_that_changes_nothing_counted_does_nothing() {
+    HelpRequest helpRequest = request(TEN, "s22-5pm-3", "7", false);
+    stats.recordCreated(helpRequest);
+
+    HelpRequestStats.Snapshot before = HelpRequestStats.Snapshot.of(helpRequest);
+    helpRequest.setExplanation("still stuck");
+    stats.recordUpdated(before, helpRequest);
+
+    assertEquals(1L, jdbcTemplate.queryForObject("SELECT REQUESTS FROM HELPREQUEST_HOURLY", Long.class));
+  }
+
+  @Test
+  void deleted_requests_are_not_counted() {
+    HelpRequest helpRequest = request(TEN, "s22-5pm-3", "7", true);
+    stats.recordCreated(helpRequest);
+    stats.recordCreated(request(ELEVEN, "s22-5pm-3", "7", false));
+
+    stats.recordDeleted(helpRequest);
+
+    assertEquals(List.of(row("hour", ELEVEN, "requests", 1L, "solved", 0L, "avgSecondsToSolve", null)),
+        stats.getStats(null, null, List.of("hour")));
+  }
+
+  @Test
+  void stats_are_limited_to_the_hours_asked_for() {
+    stats.recordCreated(request(TEN, "s22-5pm-3", "7", false));
+    stats.recordCreated(request(ELEVEN, "s22-5pm-3", "7", false));
+    stats.recordCreated(request(ELEVEN.plusHours(1), "s22-5pm-3", "7", false));
+
+    assertEquals(List.of(row("hour", ELEVEN, "requests", 1L, "solved", 0L, "avgSecondsToSolve", null)),
+        stats.getStats(ELEVEN, ELEVEN.plusHours(1), List.of("hour")));
+  }
+
+  @Test
+  void unknown_group_by_is_rejected() {
+    UnknownFieldException e = assertThrows(UnknownFieldException.class,
+        () -> stats.getStats(null, null, List.of("teamId", "week")));
+    assertEquals("HelpRequest has no field(s) week", e.getMessage());
+  }
+
+  @Test
+  void postgres_uses_on_conflict() {
+    assertEquals(HelpRequestStats.POSTGRES_UPSERT, HelpRequestStats.upsertSql("PostgreSQL"));
+    assertEquals(HelpRequestStats.MERGE_UPSERT, HelpRequestStats.upsertSql("H2"));
+  }
+}
@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.Restaurant;
+
+class MissingEntityCacheTests {
+
+  MissingEntityCache cache;
+
+  @BeforeEach
+  void setup() {
+    cache = new MissingEntityCache();
+    ReflectionTestUtils.setField(cache, "ttlMillis", 60_000L);
+    ReflectionTestUtils.setField(cache, "maxEntriesPerType", 2);
+  }
+
+  @Test
+  void disabled_cache_only_counts() {
+    ReflectionTestUtils.setField(cache, "ttlMillis", 0L);
+    cache.countNotFound(Articles.class);
+    cache.recordNotFound(Articles.class, 7L);
+    assertFalse(cache.isEnabled());
+    assertFalse(cache.isKnownMissing(Articles.class, 7L));
+    assertEquals(Map.of("Articles", 1L), cache.getNotFoundCounts());
+    assertEquals(Map.of(), cache.getCacheHits());
+  }
+
+  @Test
+  void missing_id_is_remembered_per_entity_type() {
+    assertFalse(cache.isKnownMissing(Articles.class, 7L));
+    cache.recordNotFound(Articles.class, 7L);
+    assertTrue(cache.isKnownMissing(Articles.class, 7L));
+    assertFalse(cache.isKnownMissing(Articles.class, 8L));
+    assertFalse(cache.isKnownMissing(Restaurant.class, 7L));
+    assertEquals(Map.of("Articles", 1L), cache.getCacheHits());
+  }
+
+  @Test
+  void null_ids_are_ignored() {
+    cache.recordNotFound(Articles.class, null);
+    cache.forget(Articles.class, null);
+    assertFalse(cache.isKnownMissing(Articles.class, null));
+  }
+
+  @Test
+  void forgetAll_removes_every_id_of_the_type() {
+    cache.recordNotFound(Articles.class, 7L);
+    cache.recordNotFound(Restaurant.class, 7L);
+    cache.forgetAll(Articles.class);
+    assertFalse(cache.isKnownMissing(Articles.class, 7L));
+    assertTrue(cache.isKnownMissing(Restaurant.class, 7L));
+  }
+
+  @Test
+  void forget_removes_the_id() {
+    cache.forget(Articles.class, 7L);
+    cache.recordNotFound(Articles.class, 7L);
+    cache.forget(Articles.class, 7L);
+    assertFalse(cache.isKnownMissing(Articles.class, 7L));
+  }
+
+  @Test
+  void expired_entries_are_not_used() {
+    ReflectionTestUtils.setField(cache, "ttlMillis", -1L);
+    cache.recordNotFound(Articles.class, 7L);
+    ReflectionTestUtils.setField(cache, "ttlMillis", 60_000L);
+    assertFalse(cache.isKnownMissing(Articles.class, 7L));
+
+    ReflectionTestUtils.setField(cache, "ttlMillis", 1L);
+    cache.recordNotFound(Articles.class, 8L);
+    long start = System.currentTimeMillis();
+    while (System.currentTimeMillis() - start < 5) {
+      Thread.onSpinWait();
+    }
+    assertFalse(cache.isKnownMissing(Articles.class, 8L));
+    cache.recordNotFound(Articles.class, 8L);
+    assertTrue(cache.isKnownMissing(Articles.class, 8L));
+  }
+
+  @Test
+  void cache_is_bounded() {
+    cache.recordNotFound(Articles.class, 1L);
+    cache.recordNotFound(Articles.class, 2L);
+    cache.recordNotFound(Articles.class, 3L);
+    assertFalse(cache.isKnownMissing(Articles.class, 1L));
+    assertFalse(cache.isKnownMissing(Articles.class, 2L));
+    assertTrue(cache.isKnownMissing(Articles.class, 3L));
+    assertEquals(Map.of(), cache.getNotFoundCounts());
+  }
+}
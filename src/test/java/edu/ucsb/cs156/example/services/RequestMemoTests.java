@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class RequestMemoTests {
+
+  AtomicInteger calls = new AtomicInteger();
+
+  @AfterEach
+  void teardown() {
+    RequestContextHolder.resetRequestAttributes();
+    SecurityContextHolder.clearContext();
+  }
+
+  String compute() {
+    return "value " + calls.incrementAndGet();
+  }
+
+  void startRequest() {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+  }
+
+  @Test
+  void values_are_computed_once_per_request() {
+    startRequest();
+    assertEquals("value 1", RequestMemo.get("key", this::compute));
+    assertEquals("value 1", RequestMemo.get("key", this::compute));
+    assertEquals("value 2", RequestMemo.get("other", this::compute));
+
+    startRequest();
+    assertEquals("value 3", RequestMemo.get("key", this::compute));
+  }
+
+  @Test
+  void null_values_are_remembered() {
+    startRequest();
+    assertNull(RequestMemo.get("key", () -> {
+      calls.incrementAndGet();
+      return null;
+    }));
+    assertNull(RequestMemo.get("key", this::compute));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void values_are_recomputed_when_the_authentication_changes() {
+    startRequest();
+    assertEquals("value 1", RequestMemo.get("key", this::compute));
+
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("cgaucho", null));
+
+    assertEquals("value 2", RequestMemo.get("key", this::compute));
+    assertEquals("value 2", RequestMemo.get("key", this::compute));
+  }
+
+  @Test
+  void nothing_is_remembered_outside_a_request() {
+    assertEquals("value 1", RequestMemo.get("key", this::compute));
+    assertEquals("value 2", RequestMemo.get("key", this::compute));
+  }
+}
@@ -0,0 +1,148 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightGroupTests {
+
+  SingleFlightGroup group;
+  ExecutorService executor;
+
+  @BeforeEach
+  void setup() {
+    group = new SingleFlightGroup();
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void teardown() {
+    executor.shutdownNow();
+  }
+
+  private void awaitCoalesced(String name, long expected) throws InterruptedException {
+    while (group.getStats().get(name).get("coalesced") < expected) {
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  void sequential_calls_each_run() throws Throwable {
+    AtomicInteger runs = new AtomicInteger();
+    assertEquals(1, group.execute("m", "k", runs::incrementAndGet));
+    assertEquals(2, group.execute("m", "k", runs::incrementAndGet));
+    assertEquals(Map.of("m", Map.of("executions", 2L, "coalesced", 0L)), group.getStats());
+  }
+
+  @Test
+  void concurrent_identical_calls_share_one_execution() throws Throwable {
+    CountDownLatch release = new CountDownLatch(1);
+    Object result = new Object();
+    AtomicInteger runs = new AtomicInteger();
+
+    Future<Object> first = executor.submit(() -> {
+      try {
+        return group.execute("m", "k", () -> {
+          runs.incrementAndGet();
+          release.await();
+          return result;
+        });
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+    });
+    while (runs.get() == 0) {
+      Thread.sleep(5);
+    }
+    Future<Object> second = executor.submit(() -> {
+      try {
+        return group.execute("m", "k", runs::incrementAndGet);
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+    });
+    awaitCoalesced("m", 1);
+    release.countDown();
+
+    assertSame(result, first.get());
+    assertSame(result, second.get());
+    assertEquals(1, runs.get());
+    assertEquals(Map.of("m", Map.of("executions", 1L, "coalesced", 1L)), group.getStats());
+  }
+
+  @Test
+  void concurrent_calls_with_different_keys_both_run() throws Throwable {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Object> first = executor.submit(() -> {
+      try {
+        return group.execute("m", "k1", () -> {
+          release.await();
+          return "one";
+        });
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+    });
+    assertEquals("two", group.execute("m", "k2", () -> "two"));
+    release.countDown();
+    assertEquals("one", first.get());
+    assertEquals(Map.of("m", Map.of("executions", 2L, "coalesced", 0L)), group.getStats());
+  }
+
+  @Test
+  void exception_is_thrown_to_every_caller() throws Throwable {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    IllegalStateException failure = new IllegalStateException("boom");
+
+    Future<Throwable> first = executor.submit(() -> {
+      try {
+        group.execute("m", "k", () -> {
+          started.countDown();
+          release.await();
+          throw failure;
+        });
+        return null;
+      } catch (Throwable t) {
+        return t;
+      }
+    });
+    started.await();
+    Future<Throwable> second = executor.submit(() -> {
+      try {
+        group.execute("m", "k", () -> "not run");
+        return null;
+      } catch (Throwable t) {
+        return t;
+      }
+    });
+    awaitCoalesced("m", 1);
+    release.countDown();
+
+    assertSame(failure, first.get());
+    assertSame(failure, second.get());
+
+    // the failed flight is not kept around
+    assertEquals("ran", group.execute("m", "k", () -> "ran"));
+  }
+
+  @Test
+  void exception_propagates_to_sole_caller() {
+    IllegalStateException failure = new IllegalStateException("boom");
+    assertSame(failure, assertThrows(IllegalStateException.class,
+        () -> group.execute("m", "k", () -> {
+          throw failure;
+        })));
+  }
+}
@@ -0,0 +1,239 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import edu.ucsb.cs156.example.entities.User;
+
+public class UserLoginsTests {
+
+  /** the table from db/migration/changes/Users.json, with the index from UsersEmailUnique.json */
+  static final String DDL = "CREATE TABLE USERS (ID BIGINT AUTO_INCREMENT PRIMARY KEY, ADMIN BOOLEAN NOT NULL, "
+      + "EMAIL VARCHAR(255), EMAIL_VERIFIED BOOLEAN NOT NULL, FAMILY_NAME VARCHAR(255), FULL_NAME VARCHAR(255), "
+      + "GIVEN_NAME VARCHAR(255), GOOGLE_SUB VARCHAR(255), HOSTED_DOMAIN VARCHAR(255), LOCALE VARCHAR(255), "
+      + "PICTURE_URL VARCHAR(255)); CREATE UNIQUE INDEX USERS_EMAIL_IDX ON USERS (EMAIL)";
+
+  /** counts updates, and fails the next ones with a duplicate key if asked to */
+  static class CountingJdbcTemplate extends JdbcTemplate {
+    final AtomicInteger updates = new AtomicInteger();
+    final AtomicInteger duplicatesToThrow = new AtomicInteger();
+
+    CountingJdbcTemplate(DataSource dataSource) {
+      super(dataSource);
+    }
+
+    @Override
+    public int update(String sql, Object... args) {
+      updates.incrementAndGet();
+      if (duplicatesToThrow.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+        throw new DuplicateKeyException("another instance inserted it first");
+      }
+      return super.update(sql, args);
+    }
+  }
+
+  CountingJdbcTemplate jdbcTemplate;
+  SingleFlightGroup singleFlightGroup;
+  UserLogins userLogins;
+
+  @BeforeEach
+  void setup() {
+    jdbcTemplate = new CountingJdbcTemplate(
+        new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute(DDL);
+    singleFlightGroup = new SingleFlightGroup();
+    userLogins = new UserLogins(jdbcTemplate, singleFlightGroup);
+  }
+
+  @AfterEach
+  void teardown() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  static User profile(String email, String pictureUrl, boolean admin) {
+    return User.builder()
+        .email(email)
+        .googleSub("sub-" + email)
+        .pictureUrl(pictureUrl)
+        .fullName("Chris Gaucho")
+        .givenName("Chris")
+        .familyName("Gaucho")
+        .emailVerified(true)
+        .locale("en")
+        .hostedDomain("ucsb.edu")
+        .admin(admin)
+        .build();
+  }
+
+  int rows(String email) {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM USERS WHERE EMAIL = ?", Integer.class, email);
+  }
+
+  @Test
+  void first_login_stores_the_user() {
+    User profile = profile("cgaucho@ucsb.edu", "https://example.org/a.png", false);
+
+    User stored = userLogins.login(profile);
+
+    assertTrue(stored.getId() > 0);
+    assertEquals(UserLogins.merged(stored, profile), stored);
+    assertEquals(1, rows("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void login_with_the_same_profile_only_reads() {
+    User first = userLogins.login(profile("cgaucho@ucsb.edu", "https://example.org/a.png", false));
+    jdbcTemplate.updates.set(0);
+
+    User second = userLogins.login(profile("cgaucho@ucsb.edu", "https://example.org/a.png", false));
+
+    assertEquals(first, second);
+    assertEquals(0, jdbcTemplate.updates.get());
+  }
+
+  @Test
+  void login_with_a_changed_profile_updates_it() {
+    User first = userLogins.login(profile("cgaucho@ucsb.edu", "https://example.org/a.png", false));
+    User changed = profile("cgaucho@ucsb.edu", "https://example.org/b.png", false);
+    changed.setFullName("Chris P. Gaucho");
+
+    User second = userLogins.login(changed);
+
+    assertEquals(first.getId(), second.getId());
+    assertEquals("https://example.org/b.png", second.getPictureUrl());
+    assertEquals("Chris P. Gaucho", second.getFullName());
+    assertEquals(1, rows("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void admins_are_made_but_never_unmade() {
+    assertFalse(userLogins.login(profile("cgaucho@ucsb.edu", null, false)).getAdmin());
+    assertTrue(userLogins.login(profile("cgaucho@ucsb.edu", null, true)).getAdmin());
+    jdbcTemplate.updates.set(0);
+
+    assertTrue(userLogins.login(profile("cgaucho@ucsb.edu", null, false)).getAdmin());
+    assertEquals(0, jdbcTemplate.updates.get());
+  }
+
+  @Test
+  void an_upsert_that_loses_a_race_to_insert_is_retried() {
+    jdbcTemplate.duplicatesToThrow.set(1);
+
+    User stored = userLogins.login(profile("cgaucho@ucsb.edu", null, false));
+
+    assertEquals(2, jdbcTemplate.updates.get());
+    assertEquals("cgaucho@ucsb.edu", stored.getEmail());
+    assertEquals(1, rows("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void an_upsert_that_fails_twice_throws() {
+    jdbcTemplate.duplicatesToThrow.set(2);
+
+    assertThrows(DuplicateKeyException.class, () -> userLogins.login(profile("cgaucho@ucsb.edu", null, false)));
+    assertEquals(0, rows("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void a_checked_exception_is_wrapped() throws Throwable {
+    SingleFlightGroup failing = mock(SingleFlightGroup.class);
+    Exception checked = new Exception("can't happen");
+    when(failing.execute(eq(UserLogins.NAME), eq("cgaucho@ucsb.edu"), any())).thenThrow(checked);
+
+    IllegalStateException thrown = assertThrows(IllegalStateException.class,
+        () -> new UserLogins(jdbcTemplate, failing).login(profile("cgaucho@ucsb.edu", null, false)));
+    assertSame(checked, thrown.getCause());
+  }
+
+  @Test
+  void upsert_sql_depends_on_the_database() {
+    assertEquals(UserLogins.POSTGRES_UPSERT, UserLogins.upsertSql("PostgreSQL"));
+    assertEquals(UserLogins.MERGE_UPSERT, UserLogins.upsertSql("H2"));
+  }
+
+  /**
+   * Logs the same new user in from many threads at once, half of them
+   * through a second UserLogins that stands for another instance of the app.
+   */
+  @Test
+  void parallel_first_logins_store_one_user() throws Exception {
+    UserLogins otherInstance = new UserLogins(jdbcTemplate, new SingleFlightGroup());
+    int threads = 32;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<User>> logins = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        UserLogins instance = i % 2 == 0 ? userLogins : otherInstance;
+        logins.add(executor.submit(() -> {
+          start.await();
+          return instance.login(profile("freshman@ucsb.edu", "https://example.org/f.png", false));
+        }));
+      }
+      start.countDown();
+
+      List<User> users = new ArrayList<>();
+      for (Future<User> login : logins) {
+        users.add(login.get());
+      }
+      Set<Long> ids = users.stream().map(User::getId).collect(Collectors.toSet());
+      assertEquals(1, ids.size());
+      assertEquals(1, rows("freshman@ucsb.edu"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void parallel_logins_of_different_users_store_each_once() throws Exception {
+    int threads = 32;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<User>> logins = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        String email = "student" + (i % 8) + "@ucsb.edu";
+        logins.add(executor.submit(() -> {
+          start.await();
+          return userLogins.login(profile(email, null, false));
+        }));
+      }
+      start.countDown();
+
+      for (Future<User> login : logins) {
+        login.get();
+      }
+      assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM USERS", Integer.class));
+      assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT EMAIL) FROM USERS", Integer.class));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package edu.ucsb.cs156.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+public class JdbcSessionFilterTests {
+
+  JdbcSessionStore store = new JdbcSessionStore(JdbcSessionStoreTests.newDatabase(), new JdbcSessionProperties(),
+      System::currentTimeMillis);
+  JdbcSessionFilter filter = new JdbcSessionFilter(store);
+
+  interface Handler {
+    void handle(HttpServletRequest request, HttpServletResponse response) throws Exception;
+  }
+
+  interface RequestHandler {
+    void handle(HttpServletRequest request) throws Exception;
+  }
+
+  MockHttpServletResponse perform(String sessionId, RequestHandler handler) throws Exception {
+    return perform(sessionId, (Handler) (request, response) -> handler.handle(request));
+  }
+
+  MockHttpServletResponse perform(String sessionId, Handler handler) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    if (sessionId != null) {
+      request.setCookies(new Cookie(JdbcSessionFilter.COOKIE_NAME, sessionId));
+    }
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    HttpServlet servlet = new HttpServlet() {
+      @Override
+      protected void service(HttpServletRequest req, HttpServletResponse res) throws ServletException {
+        try {
+          handler.handle(req, res);
+        } catch (Exception e) {
+          throw new ServletException(e);
+        }
+      }
+    };
+    filter.doFilter(request, response, new MockFilterChain(servlet));
+    return response;
+  }
+
+  static String cookieValue(MockHttpServletResponse response) {
+    List<String> headers = response.getHeaders("Set-Cookie");
+    String last = headers.get(headers.size() - 1);
+    return last.substring(last.indexOf('=') + 1, last.indexOf(';'));
+  }
+
+  @Test
+  void session_is_created_on_demand_and_found_by_cookie() throws Exception {
+    MockHttpServletResponse first = perform(null, request -> {
+      assertNull(request.getSession(false));
+      assertNull(request.getRequestedSessionId());
+      HttpSession session = request.getSession();
+      assertSame(session, request.getSession(false));
+      session.setAttribute("greeting", "hello");
+    });
+    String sessionId = cookieValue(first);
+    assertTrue(first.getHeader("Set-Cookie").contains("HttpOnly"));
+
+    MockHttpServletResponse second = perform(sessionId, request -> {
+      assertTrue(request.isRequestedSessionIdFromCookie());
+      assertFalse(request.isRequestedSessionIdFromURL());
+      assertTrue(request.isRequestedSessionIdValid());
+      assertEquals(sessionId, request.getRequestedSessionId());
+      assertEquals("hello", request.getSession(false).getAttribute("greeting"));
+    });
+    assertNull(second.getHeader("Set-Cookie"));
+  }
+
+  @Test
+  void requests_without_a_session_dont_create_one() throws Exception {
+    MockHttpServletResponse response = perform("no-such-session", request -> {
+      assertFalse(request.isRequestedSessionIdValid());
+      assertNull(request.getSession(false));
+    });
+    assertNull(response.getHeader("Set-Cookie"));
+  }
+
+  @Test
+  void changing_the_session_id_sets_a_new_cookie() throws Exception {
+    String sessionId = cookieValue(perform(null, request -> request.getSession().setAttribute("greeting", "hello")));
+
+    MockHttpServletResponse response = perform(sessionId, request -> {
+      String newId = request.changeSessionId();
+      assertNotEquals(sessionId, newId);
+      assertEquals(newId, request.getSession(false).getId());
+      assertFalse(request.isRequestedSessionIdValid());
+    });
+    String newId = cookieValue(response);
+
+    perform(newId, request -> assertEquals("hello", request.getSession(false).getAttribute("greeting")));
+    perform(sessionId, request -> assertNull(request.getSession(false)));
+    perform(null, request -> assertThrows(IllegalStateException.class, request::changeSessionId));
+  }
+
+  @Test
+  void invalidating_clears_the_cookie_and_a_new_session_can_start() throws Exception {
+    String sessionId = cookieValue(perform(null, request -> request.getSession().setAttribute("greeting", "hello")));
+
+    MockHttpServletResponse response = perform(sessionId, request -> {
+      request.getSession(false).invalidate();
+      assertNull(request.getSession(false));
+      HttpSession fresh = request.getSession(true);
+      assertNull(fresh.getAttribute("greeting"));
+    });
+    List<String> cookies = response.getHeaders("Set-Cookie");
+    assertTrue(cookies.get(0).contains("Max-Age=0"));
+    perform(sessionId, request -> assertNull(request.getSession(false)));
+    perform(cookieValue(response), request -> assertFalse(request.getSession(false).isNew()));
+  }
+
+  @Test
+  void cookie_is_not_written_once_the_response_is_committed() throws Exception {
+    MockHttpServletResponse response = perform(null, (request, res) -> {
+      res.flushBuffer();
+      request.getSession();
+    });
+    assertNull(response.getHeader("Set-Cookie"));
+  }
+
+  interface Commit {
+    void commit(HttpServletResponse response) throws Exception;
+  }
+
+  void assertSavedBefore(Commit commit) throws Exception {
+    perform(null, (request, response) -> {
+      HttpSession session = request.getSession();
+      session.setAttribute("greeting", "hello");
+      commit.commit(response);
+      assertNotNull(store.findById(session.getId(), request.getServletContext()));
+      session.setAttribute("greeting", "goodbye");
+    });
+  }
+
+  @Test
+  void session_is_saved_before_the_response_is_committed() throws Exception {
+    assertSavedBefore(response -> response.sendRedirect("/oauth2/authorization/google"));
+    assertSavedBefore(response -> response.sendError(401));
+    assertSavedBefore(response -> response.sendError(401, "login first"));
+    assertSavedBefore(response -> response.flushBuffer());
+    assertSavedBefore(response -> response.getOutputStream().flush());
+    assertSavedBefore(response -> response.getOutputStream().close());
+    assertSavedBefore(response -> response.getWriter().flush());
+    assertSavedBefore(response -> response.getWriter().close());
+    assertSavedBefore(response -> response.getOutputStream().write(new byte[response.getBufferSize() + 1]));
+    assertSavedBefore(response -> {
+      ServletOutputStream out = response.getOutputStream();
+      for (int i = 0; i <= response.getBufferSize(); i++) {
+        out.write('x');
+      }
+    });
+    assertSavedBefore(response -> response.getWriter().write("x".repeat(response.getBufferSize() + 1)));
+  }
+
+  @Test
+  void changes_after_the_response_is_committed_are_saved_when_the_request_ends() throws Exception {
+    MockHttpServletResponse response = perform(null, (request, res) -> {
+      request.getSession().setAttribute("greeting", "hello");
+      res.sendRedirect("/");
+      request.getSession().setAttribute("greeting", "goodbye");
+    });
+
+    perform(cookieValue(response), request -> assertEquals("goodbye", request.getSession(false).getAttribute("greeting")));
+  }
+
+  @Test
+  void small_writes_do_not_save_the_session_early() throws Exception {
+    MockHttpServletResponse response = perform(null, (request, res) -> {
+      HttpSession session = request.getSession();
+      session.setAttribute("greeting", "hello");
+      ServletOutputStream out = res.getOutputStream();
+      out.write('x');
+      out.write(new byte[] { 'y' }, 0, 1);
+      assertTrue(out.isReady());
+      assertThrows(UnsupportedOperationException.class, () -> out.setWriteListener(null));
+      assertNull(store.findById(session.getId(), request.getServletContext()));
+    });
+
+    assertEquals("xy", response.getContentAsString());
+  }
+}
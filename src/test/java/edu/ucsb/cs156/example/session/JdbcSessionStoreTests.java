@@ -0,0 +1,283 @@
+package edu.ucsb.cs156.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class JdbcSessionStoreTests {
+
+  /** the table from db/migration/changes/HttpSessions.json */
+  static final String DDL = "CREATE TABLE HTTP_SESSIONS (SESSION_ID VARCHAR(64) PRIMARY KEY, CREATED_AT BIGINT NOT NULL, "
+      + "LAST_ACCESSED_AT BIGINT NOT NULL, MAX_INACTIVE_SECONDS INT NOT NULL, EXPIRES_AT BIGINT NOT NULL, ATTRIBUTES BLOB)";
+
+  static JdbcTemplate newDatabase() {
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(
+        new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute(DDL);
+    return jdbcTemplate;
+  }
+
+  AtomicLong now = new AtomicLong(1_000_000);
+  JdbcTemplate jdbcTemplate;
+  JdbcSessionProperties properties = new JdbcSessionProperties();
+  // two stores on one database stand in for two instances of the app
+  JdbcSessionStore first;
+  JdbcSessionStore second;
+
+  @BeforeEach
+  void setup() {
+    jdbcTemplate = newDatabase();
+    first = new JdbcSessionStore(jdbcTemplate, properties, now::get);
+    second = new JdbcSessionStore(jdbcTemplate, properties, now::get);
+  }
+
+  @AfterEach
+  void teardown() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  int rows() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM HTTP_SESSIONS", Integer.class);
+  }
+
+  void elapse(Duration duration) {
+    now.addAndGet(duration.toMillis());
+  }
+
+  @Test
+  void new_sessions_are_written_immediately() {
+    JdbcHttpSession session = first.createSession(null);
+    assertTrue(session.isNew());
+    assertEquals(1800, session.getMaxInactiveInterval());
+    session.setAttribute("greeting", "hello");
+    first.save(session);
+
+    JdbcHttpSession found = second.findById(session.getId(), null);
+    assertEquals("hello", found.getAttribute("greeting"));
+    assertFalse(found.isNew());
+    assertEquals(session.getCreationTime(), found.getCreationTime());
+    assertEquals(List.of("greeting"), Collections.list(found.getAttributeNames()));
+  }
+
+  @Test
+  void attribute_changes_are_written_behind() {
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+
+    JdbcHttpSession next = first.findById(session.getId(), null);
+    next.setAttribute("greeting", "hello");
+    first.save(next);
+    assertEquals(1, first.getPendingCount());
+    assertEquals("hello", first.findById(session.getId(), null).getAttribute("greeting"));
+    assertNull(second.findById(session.getId(), null).getAttribute("greeting"));
+
+    assertEquals(1, first.flush());
+    assertEquals(0, first.flush());
+    elapse(properties.getNearCacheTtl());
+    assertEquals("hello", second.findById(session.getId(), null).getAttribute("greeting"));
+  }
+
+  @Test
+  void security_attributes_are_written_through() {
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+
+    JdbcHttpSession next = first.findById(session.getId(), null);
+    next.setAttribute("SPRING_SECURITY_CONTEXT", "logged in");
+    first.save(next);
+
+    assertEquals(0, first.getPendingCount());
+    assertEquals("logged in", second.findById(session.getId(), null).getAttribute("SPRING_SECURITY_CONTEXT"));
+  }
+
+  @Test
+  void near_cache_answers_repeat_reads_until_the_ttl_passes() {
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+    second.findById(session.getId(), null);
+
+    jdbcTemplate.update("DELETE FROM HTTP_SESSIONS");
+    assertEquals(session.getId(), second.findById(session.getId(), null).getId());
+
+    elapse(properties.getNearCacheTtl());
+    assertNull(second.findById(session.getId(), null));
+  }
+
+  @Test
+  void near_cache_can_be_disabled() {
+    properties.setNearCacheTtl(Duration.ZERO);
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+
+    jdbcTemplate.update("DELETE FROM HTTP_SESSIONS");
+    assertNull(first.findById(session.getId(), null));
+  }
+
+  @Test
+  void near_cache_is_bounded() {
+    properties.setNearCacheMaxEntries(1);
+    JdbcHttpSession one = first.createSession(null);
+    JdbcHttpSession two = first.createSession(null);
+    first.save(one);
+    first.save(two);
+
+    jdbcTemplate.update("DELETE FROM HTTP_SESSIONS");
+    assertNull(first.findById(one.getId(), null));
+    assertEquals(two.getId(), first.findById(two.getId(), null).getId());
+  }
+
+  @Test
+  void reads_only_write_a_touch_every_so_often() {
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+
+    first.save(first.findById(session.getId(), null));
+    assertEquals(0, first.getPendingCount());
+
+    elapse(Duration.ofMillis(JdbcSessionStore.TOUCH_INTERVAL_MILLIS));
+    first.save(first.findById(session.getId(), null));
+    assertEquals(1, first.getPendingCount());
+    first.flush();
+    assertEquals(now.get(), jdbcTemplate.queryForObject("SELECT LAST_ACCESSED_AT FROM HTTP_SESSIONS", Long.class));
+  }
+
+  @Test
+  void changing_the_id_moves_the_row() {
+    JdbcHttpSession session = first.createSession(null);
+    session.setAttribute("greeting", "hello");
+    first.save(session);
+    String oldId = session.getId();
+
+    JdbcHttpSession next = first.findById(oldId, null);
+    next.changeId("new-id");
+    next.changeId("newer-id");
+    first.save(next);
+
+    assertEquals(1, rows());
+    assertNull(second.findById(oldId, null));
+    assertEquals("hello", second.findById("newer-id", null).getAttribute("greeting"));
+  }
+
+  @Test
+  void changing_the_id_of_an_unsaved_session_just_inserts() {
+    JdbcHttpSession session = first.createSession(null);
+    session.changeId("new-id");
+    first.save(session);
+    assertEquals(1, rows());
+    assertEquals("new-id", second.findById("new-id", null).getId());
+  }
+
+  @Test
+  void invalidated_sessions_are_deleted() {
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+
+    JdbcHttpSession next = first.findById(session.getId(), null);
+    next.changeId("new-id");
+    next.invalidate();
+    assertThrows(IllegalStateException.class, () -> next.getAttribute("greeting"));
+    first.save(next);
+
+    assertEquals(0, rows());
+    assertNull(first.findById(session.getId(), null));
+  }
+
+  @Test
+  void expired_sessions_are_not_returned_and_are_reaped() {
+    JdbcHttpSession expired = first.createSession(null);
+    JdbcHttpSession forever = first.createSession(null);
+    forever.setMaxInactiveInterval(0);
+    first.save(expired);
+    first.save(forever);
+
+    elapse(properties.getTimeout().plusSeconds(1));
+    assertEquals(1, second.reapExpired());
+    assertNull(first.findById(expired.getId(), null));
+    assertEquals(forever.getId(), second.findById(forever.getId(), null).getId());
+  }
+
+  @Test
+  void expired_sessions_found_in_the_near_cache_are_deleted() {
+    JdbcHttpSession session = first.createSession(null);
+    session.setMaxInactiveInterval(1);
+    first.save(session);
+    elapse(Duration.ofMillis(500));
+    first.findById(session.getId(), null);
+
+    elapse(Duration.ofMillis(600));
+    properties.setNearCacheTtl(Duration.ofMinutes(1));
+    assertNull(first.findById(session.getId(), null));
+    assertEquals(0, rows());
+  }
+
+  @Test
+  void updates_to_deleted_rows_are_not_recreated() {
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+    JdbcHttpSession next = first.findById(session.getId(), null);
+    next.setAttribute("greeting", "hello");
+    first.save(next);
+
+    second.delete(session.getId());
+    first.flush();
+    assertEquals(0, rows());
+  }
+
+  @Test
+  void failed_flushes_are_retried_and_bad_attributes_dropped() {
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+    JdbcHttpSession next = first.findById(session.getId(), null);
+    next.setAttribute("greeting", "hello");
+    first.save(next);
+
+    jdbcTemplate.execute("ALTER TABLE HTTP_SESSIONS RENAME TO MOVED");
+    assertEquals(0, first.flush());
+    assertEquals(1, first.getPendingCount());
+    assertEquals(0, first.reapExpired());
+    jdbcTemplate.execute("ALTER TABLE MOVED RENAME TO HTTP_SESSIONS");
+    assertEquals(1, first.flush());
+
+    JdbcHttpSession bad = first.findById(session.getId(), null);
+    bad.setAttribute("thread", new Object());
+    first.save(bad);
+    assertEquals(0, first.flush());
+    assertEquals(0, first.getPendingCount());
+  }
+
+  @Test
+  void rows_that_cannot_be_read_are_ignored() {
+    jdbcTemplate.update(JdbcSessionStore.INSERT, "garbage", 0, now.get(), 60, Long.MAX_VALUE, new byte[] { 1, 2, 3 });
+    assertNull(first.findById("garbage", null));
+  }
+
+  @Test
+  void background_tasks_flush_and_stop_writes_what_is_left() throws Exception {
+    properties.setFlushInterval(Duration.ofMillis(10));
+    first.start();
+    JdbcHttpSession session = first.createSession(null);
+    first.save(session);
+    JdbcHttpSession next = first.findById(session.getId(), null);
+    next.setAttribute("greeting", "hello");
+    first.save(next);
+    first.stop();
+    assertEquals(0, first.getPendingCount());
+
+    elapse(properties.getNearCacheTtl());
+    assertEquals("hello", second.findById(session.getId(), null).getAttribute("greeting"));
+  }
+}
@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+public class SessionTokenCodecTests {
+
+  static final String KEY = "0123456789abcdef0123456789abcdef";
+
+  SessionTokenCodec codec = new SessionTokenCodec(KEY, Duration.ofHours(1));
+
+  static OAuth2AuthenticationToken login(String email) {
+    List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_MEMBER");
+    Map<String, Object> attributes = Map.of(
+        "sub", "12345",
+        "email", email,
+        "email_verified", true,
+        "name", "Chris Gaucho");
+    return new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, attributes, "sub"), authorities, "google");
+  }
+
+  @Test
+  void short_keys_are_rejected() {
+    assertThrows(IllegalStateException.class, () -> new SessionTokenCodec("too short", Duration.ofHours(1)));
+  }
+
+  @Test
+  void token_round_trips_principal_attributes_and_authorities() {
+    String token = codec.encode(login("cgaucho@ucsb.edu"));
+
+    OAuth2AuthenticationToken decoded = codec.decode(token);
+
+    assertEquals("12345", decoded.getName());
+    assertEquals("google", decoded.getAuthorizedClientRegistrationId());
+    assertEquals("cgaucho@ucsb.edu", decoded.getPrincipal().getAttribute("email"));
+    assertEquals(Boolean.TRUE, decoded.getPrincipal().getAttribute("email_verified"));
+    assertNull(decoded.getPrincipal().getAttribute("picture"));
+    assertEquals(AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_MEMBER"), List.copyOf(decoded.getAuthorities()));
+    assertSame(decoded, codec.decode(token));
+  }
+
+  @Test
+  void token_from_another_instance_with_the_same_key_is_accepted() {
+    SessionTokenCodec other = new SessionTokenCodec(KEY, Duration.ofHours(1));
+    String token = codec.encode(login("cgaucho@ucsb.edu"));
+    assertEquals("cgaucho@ucsb.edu", other.decode(token).getPrincipal().getAttribute("email"));
+  }
+
+  @Test
+  void tampered_or_malformed_tokens_are_rejected() {
+    String token = codec.encode(login("cgaucho@ucsb.edu"));
+    String forged = codec.encode(login("admingaucho@ucsb.edu"));
+    String payloadFromForged = forged.substring(0, forged.indexOf('.'));
+    String signatureFromToken = token.substring(token.indexOf('.'));
+
+    assertNull(codec.decode(payloadFromForged + signatureFromToken));
+    assertNull(new SessionTokenCodec("another key that is at least 32 chars", Duration.ofHours(1)).decode(token));
+    assertNull(codec.decode("no-signature"));
+    assertNull(codec.decode(".abc"));
+    assertNull(codec.decode("abc.!!!"));
+  }
+
+  @Test
+  void payloads_that_are_not_tokens_are_rejected() {
+    assertNull(codec.decode(codec.sign(new byte[] { 9 })));
+    assertNull(codec.decode(codec.sign(new byte[] { 1, 0 })));
+  }
+
+  @Test
+  void expired_tokens_are_rejected() {
+    SessionTokenCodec expired = new SessionTokenCodec(KEY, Duration.ofSeconds(-10));
+    assertNull(expired.decode(expired.encode(login("cgaucho@ucsb.edu"))));
+  }
+
+  @Test
+  void sign_and_verify_arbitrary_bytes() {
+    byte[] payload = "hello".getBytes(StandardCharsets.UTF_8);
+    assertEquals("hello", new String(codec.verify(codec.sign(payload)), StandardCharsets.UTF_8));
+  }
+}
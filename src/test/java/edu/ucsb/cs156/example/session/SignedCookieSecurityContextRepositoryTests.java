@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import jakarta.servlet.http.Cookie;
+
+public class SignedCookieSecurityContextRepositoryTests {
+
+  SessionTokenCodec codec = new SessionTokenCodec(SessionTokenCodecTests.KEY, Duration.ofHours(1));
+  SignedCookieSecurityContextRepository repository = new SignedCookieSecurityContextRepository(codec);
+
+  @Test
+  void login_is_saved_to_a_cookie_and_loaded_back() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveContext(new SecurityContextImpl(SessionTokenCodecTests.login("cgaucho@ucsb.edu")), request, response);
+
+    String setCookie = response.getHeader("Set-Cookie");
+    assertTrue(setCookie.startsWith(SignedCookieSecurityContextRepository.COOKIE_NAME + "="));
+    assertTrue(setCookie.contains("HttpOnly"));
+    String token = setCookie.substring(setCookie.indexOf('=') + 1, setCookie.indexOf(';'));
+
+    MockHttpServletRequest next = new MockHttpServletRequest();
+    next.setCookies(new Cookie(SignedCookieSecurityContextRepository.COOKIE_NAME, token));
+    assertTrue(repository.containsContext(next));
+    SecurityContext context = repository.loadDeferredContext(next).get();
+    assertEquals("12345", context.getAuthentication().getName());
+    assertFalse(repository.loadDeferredContext(next).isGenerated());
+
+    // a login restored from the cookie is not written back
+    MockHttpServletResponse nextResponse = new MockHttpServletResponse();
+    repository.saveContext(context, next, nextResponse);
+    assertNull(nextResponse.getHeader("Set-Cookie"));
+  }
+
+  @Test
+  void missing_or_invalid_cookie_gives_an_empty_context() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    assertFalse(repository.containsContext(request));
+    assertNull(repository.loadDeferredContext(request).get().getAuthentication());
+    assertTrue(repository.loadDeferredContext(request).isGenerated());
+
+    request.setCookies(new Cookie(SignedCookieSecurityContextRepository.COOKIE_NAME, "forged.token"));
+    assertNull(repository.loadDeferredContext(request).get().getAuthentication());
+  }
+
+  @Test
+  void non_oauth_logins_are_not_saved() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveContext(new SecurityContextImpl(new TestingAuthenticationToken("user", "password")),
+        new MockHttpServletRequest(), response);
+    assertNull(response.getHeader("Set-Cookie"));
+  }
+}
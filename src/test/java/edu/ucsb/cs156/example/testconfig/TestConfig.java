@@ -7,6 +7,8 @@ import org.springframework.context.annotation.Bean;
 
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.MissingEntityCache;
+import edu.ucsb.cs156.example.services.SingleFlightGroup;
 import org.springframework.context.annotation.Import;
 
 @TestConfiguration
@@ -23,4 +25,14 @@ public class TestConfig {
         return new GrantedAuthoritiesService();
     }
 
+    @Bean
+    public MissingEntityCache missingEntityCache() {
+        return new MissingEntityCache();
+    }
+
+    @Bean
+    public SingleFlightGroup singleFlightGroup() {
+        return new SingleFlightGroup();
+    }
+
 }
@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.urlindex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class ArticleUrlIndexTests {
+
+  /** the table from db/migration/changes/Articles.json and ArticlesUrlHash.json */
+  static final String DDL = "CREATE TABLE ARTICLES (ID BIGINT AUTO_INCREMENT PRIMARY KEY, TITLE VARCHAR(255), "
+      + "URL VARCHAR(255), EXPLANATION VARCHAR(255), EMAIL VARCHAR(255), DATE_ADDED TIMESTAMP, URL_HASH VARCHAR(64));"
+      + "CREATE UNIQUE INDEX ARTICLES_URL_HASH_IDX ON ARTICLES (URL_HASH)";
+
+  JdbcTemplate jdbcTemplate;
+  ArticleUrlIndex index;
+
+  @BeforeEach
+  void setup() {
+    jdbcTemplate = new JdbcTemplate(
+        new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute(DDL);
+    index = new ArticleUrlIndex(jdbcTemplate, 1_000);
+  }
+
+  @AfterEach
+  void teardown() {
+    jdbcTemplate.execute("DROP ALL OBJECTS");
+  }
+
+  void insert(long id, String url, String urlHash) {
+    jdbcTemplate.update("INSERT INTO ARTICLES (ID, TITLE, URL, URL_HASH) VALUES (?, 'title', ?, ?)", id, url, urlHash);
+  }
+
+  String urlHashOf(long id) {
+    return jdbcTemplate.queryForObject("SELECT URL_HASH FROM ARTICLES WHERE ID = ?", String.class, id);
+  }
+
+  @Test
+  void load_adds_the_existing_hashes() {
+    insert(1, "https://first.com", CanonicalUrl.hash("https://first.com"));
+
+    index.load();
+
+    assertTrue(index.mightContain(CanonicalUrl.hash("https://first.com")));
+    assertFalse(index.mightContain(CanonicalUrl.hash("https://second.com")));
+  }
+
+  @Test
+  void load_hashes_articles_saved_before_the_hash_column_existed() {
+    insert(1, "http://www.first.com/", null);
+    insert(2, null, null);
+
+    index.load();
+
+    assertEquals(CanonicalUrl.hash("https://first.com"), urlHashOf(1));
+    assertNull(urlHashOf(2));
+    assertTrue(index.mightContain(CanonicalUrl.hash("https://first.com")));
+  }
+
+  @Test
+  void load_leaves_later_duplicates_unhashed() {
+    insert(1, "https://first.com", null);
+    insert(2, "http://first.com", null);
+
+    index.load();
+
+    assertEquals(CanonicalUrl.hash("https://first.com"), urlHashOf(1));
+    assertNull(urlHashOf(2));
+  }
+
+  @Test
+  void added_hashes_are_found() {
+    index.load();
+    String hash = CanonicalUrl.hash("https://first.com");
+    assertFalse(index.mightContain(hash));
+
+    index.add(hash);
+
+    assertTrue(index.mightContain(hash));
+  }
+}
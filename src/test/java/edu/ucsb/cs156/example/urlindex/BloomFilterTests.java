@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.urlindex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class BloomFilterTests {
+
+  @Test
+  void added_hashes_are_always_found() {
+    BloomFilter filter = new BloomFilter(1_000, 0.01);
+    for (int i = 0; i < 1_000; i++) {
+      filter.add(CanonicalUrl.hash("https://example.com/" + i));
+    }
+    for (int i = 0; i < 1_000; i++) {
+      assertTrue(filter.mightContain(CanonicalUrl.hash("https://example.com/" + i)));
+    }
+  }
+
+  @Test
+  void false_positives_stay_near_the_configured_rate() {
+    BloomFilter filter = new BloomFilter(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      filter.add(CanonicalUrl.hash("https://example.com/" + i));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (filter.mightContain(CanonicalUrl.hash("https://example.org/" + i))) {
+        falsePositives++;
+      }
+    }
+    // 1% would be 100; allow for chance
+    assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+  }
+
+  @Test
+  void empty_filter_contains_nothing() {
+    assertFalse(new BloomFilter(100, 0.01).mightContain(CanonicalUrl.hash("https://example.com")));
+  }
+
+  @Test
+  void filter_is_sized_for_the_expected_insertions() {
+    // 10,000 at 1% needs about 95,851 bits and 7 hashes
+    BloomFilter filter = new BloomFilter(10_000, 0.01);
+    assertEquals(95_872, filter.getBitCount());
+    assertEquals(7, filter.getHashCount());
+
+    BloomFilter tiny = new BloomFilter(0, 0.01);
+    assertEquals(64, tiny.getBitCount());
+    assertEquals(44, tiny.getHashCount());
+  }
+}
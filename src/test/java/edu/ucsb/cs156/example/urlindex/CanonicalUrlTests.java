@@ -0,0 +1,48 @@
+package edu.ucsb.cs156.example.urlindex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class CanonicalUrlTests {
+
+  @Test
+  void trivially_different_urls_have_the_same_canonical_form() {
+    assertEquals("https://example.com/a", CanonicalUrl.canonicalize("https://example.com/a"));
+    assertEquals("https://example.com/a", CanonicalUrl.canonicalize("  HTTP://www.Example.COM:80/a/#comments "));
+    assertEquals("https://example.com/a", CanonicalUrl.canonicalize("https://example.com:443/a//"));
+    assertEquals("https://example.com", CanonicalUrl.canonicalize("example.com/"));
+    assertEquals("https://example.com", CanonicalUrl.canonicalize("https://example.com"));
+  }
+
+  @Test
+  void tracking_parameters_are_dropped_and_the_rest_sorted() {
+    assertEquals("https://example.com/a?id=7&page=2",
+        CanonicalUrl.canonicalize("https://example.com/a?page=2&utm_source=x&UTM_Campaign=y&fbclid=z&&id=7"));
+    assertEquals("https://example.com/a", CanonicalUrl.canonicalize("https://example.com/a?gclid=1&ref=home"));
+  }
+
+  @Test
+  void only_http_urls_lose_their_port() {
+    assertEquals("https://example.com:8080/a", CanonicalUrl.canonicalize("http://example.com:8080/a"));
+    assertEquals("ftp://example.com:80/a", CanonicalUrl.canonicalize("ftp://www.example.com:80/a"));
+  }
+
+  @Test
+  void strings_that_are_not_urls_are_only_trimmed() {
+    assertEquals("not a url", CanonicalUrl.canonicalize(" not a url "));
+    assertEquals("/relative/path", CanonicalUrl.canonicalize("/relative/path"));
+    assertNull(CanonicalUrl.canonicalize(null));
+  }
+
+  @Test
+  void hash_is_the_sha256_of_the_canonical_form() {
+    assertEquals("100680ad546ce6a577f42f52df33b4cfdca756859e664b8d7de329b150d09ce9",
+        CanonicalUrl.hash("https://example.com"));
+    assertEquals(CanonicalUrl.hash("https://example.com"), CanonicalUrl.hash("http://www.example.com/"));
+    assertNotEquals(CanonicalUrl.hash("https://example.com/a"), CanonicalUrl.hash("https://example.com/b"));
+    assertNull(CanonicalUrl.hash(null));
+  }
+}